@@ -0,0 +1,61 @@
+package org.workin.core.persistence.jpa;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.workin.core.persistence.jpa.NamedParamsQueryCache.NamedParamsQuery;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * In the package of NamedParamsQueryCache, which is package private.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class NamedParamsQueryCacheTest extends BaseTestCase {
+
+	@Test
+	public void shareQueryForAnyKeyOrder() {
+		NamedParamsQueryCache cache = new NamedParamsQueryCache(10);
+
+		NamedParamsQuery query = cache.get(Person.class, false, params("name", "email"));
+		assertSame(query, cache.get(Person.class, false, params("email", "name")));
+		assertTrue(query.getQueryString().indexOf("email = :email") < query.getQueryString().indexOf("name = :name"));
+	}
+
+	@Test
+	public void separateCountAndSelect() {
+		NamedParamsQueryCache cache = new NamedParamsQueryCache(10);
+
+		NamedParamsQuery select = cache.get(Person.class, false, params("name"));
+		NamedParamsQuery count = cache.get(Person.class, true, params("name"));
+		assertNotSame(select, count);
+		assertTrue(count.getQueryString().startsWith("SELECT COUNT(*)"));
+		assertSame(count, cache.get(Person.class, true, params("name")));
+	}
+
+	@Test
+	public void buildWithoutCachingWhenFull() {
+		NamedParamsQueryCache cache = new NamedParamsQueryCache(1);
+
+		NamedParamsQuery cached = cache.get(Person.class, false, params("name"));
+		NamedParamsQuery first = cache.get(StoredLog.class, false, params("userMessage"));
+		NamedParamsQuery second = cache.get(StoredLog.class, false, params("userMessage"));
+
+		assertSame(cached, cache.get(Person.class, false, params("name")));
+		assertNotSame(first, second);
+		assertEquals(first.getQueryString(), second.getQueryString());
+	}
+
+	private static Map<String, Object> params(String... names) {
+		Map<String, Object> params = new LinkedHashMap<String, Object>();
+		for (String name : names) {
+			params.put(name, name);
+		}
+		return params;
+	}
+}
@@ -0,0 +1,76 @@
+package org.workin.test.entity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.workin.core.entity.AuditEntity;
+import org.workin.core.entity.support.AuditBatchContext;
+import org.workin.core.entity.support.AuditEventExecutorImpl;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class AuditBatchContextTest extends BaseTestCase {
+
+	private AuditEventExecutorImpl auditEventExecutor = new AuditEventExecutorImpl();
+
+	@Before
+	public void setUp() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("batchUser", "password"));
+	}
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void stampBatchOnce() {
+		AuditEntity first = new AuditEntity() {
+		};
+		AuditEntity second = new AuditEntity() {
+		};
+
+		AuditBatchContext.open();
+		try {
+			auditEventExecutor.auditOnPrePersist(first);
+			SecurityContextHolder.clearContext();
+			auditEventExecutor.auditOnPrePersist(second);
+		} finally {
+			AuditBatchContext.close();
+		}
+
+		assertNull(AuditBatchContext.current());
+		assertEquals("batchUser", first.getCreateBy());
+		assertEquals("batchUser", second.getCreateBy());
+		assertEquals(first.getCreatedttm(), second.getCreatedttm());
+		assertNotSame(first.getCreatedttm(), second.getCreatedttm());
+	}
+
+	@Test
+	public void nestedBatch() {
+		AuditBatchContext.open();
+		AuditBatchContext outer = AuditBatchContext.current();
+		AuditBatchContext.open();
+		assertSame(outer, AuditBatchContext.current());
+		AuditBatchContext.close();
+		assertSame(outer, AuditBatchContext.current());
+		AuditBatchContext.close();
+		assertNull(AuditBatchContext.current());
+	}
+
+	@Test
+	public void stampSingleEntity() {
+		AuditEntity entity = new AuditEntity() {
+		};
+		auditEventExecutor.auditOnPreUpdate(entity);
+
+		assertEquals("batchUser", entity.getUpdateBy());
+		assertNotNull(entity.getUpdatedttm());
+	}
+}
@@ -0,0 +1,92 @@
+package org.workin.test.jms;
+
+import java.io.Serializable;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.producer.BatchingMessageProducer;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BatchingMessageProducerTest extends BaseTestCase {
+
+	private RecordingJmsTemplate jmsTemplate;
+
+	private BatchingMessageProducer producer;
+
+	@Before
+	public void setUp() {
+		jmsTemplate = new RecordingJmsTemplate();
+		producer = new BatchingMessageProducer();
+		producer.setJmsTemplate(jmsTemplate);
+		producer.setNotifyQueue(new ActiveMQQueue("workin.test"));
+		producer.setBatchSize(3);
+	}
+
+	@Test
+	public void sendEnvelopeWhenBatchIsFull() {
+		producer.sendQueue(new StoredLog(), new StoredLog());
+		assertTrue(jmsTemplate.messages.isEmpty());
+
+		producer.sendQueue(new StoredLog());
+		assertEquals(1, jmsTemplate.messages.size());
+		assertEquals(3, ((MessageEnvelope) jmsTemplate.messages.get(0)).size());
+		assertEquals(1L, producer.getSentEnvelopeCount());
+		assertEquals(3L, producer.getSentMessageCount());
+	}
+
+	@Test
+	public void sendSingleMessageWithoutEnvelopeAfterMaxLatency() throws InterruptedException {
+		producer.setMaxLatencyMillis(20);
+		producer.start();
+		try {
+			StoredLog log = new StoredLog();
+			producer.sendQueue(log);
+			for (int i = 0; i < 100 && jmsTemplate.messages.isEmpty(); i++) {
+				Thread.sleep(20);
+			}
+			assertEquals(1, jmsTemplate.messages.size());
+			assertSame(log, jmsTemplate.messages.get(0));
+			assertEquals(0L, producer.getSentEnvelopeCount());
+		} finally {
+			producer.stop();
+		}
+	}
+
+	@Test
+	public void stampEnvelopeWithOldestMessage() {
+		producer.sendQueue(new Serializable[] { new StoredLog() }, 2000L);
+		producer.sendQueue(new Serializable[] { new StoredLog() }, 1000L);
+		producer.sendQueue(new Serializable[] { new StoredLog() }, 3000L);
+
+		assertEquals(1, jmsTemplate.stamps.size());
+		assertEquals(Long.valueOf(1000L), jmsTemplate.stamps.get(0));
+	}
+
+	@Test
+	public void countDroppedWhenSendFails() {
+		jmsTemplate.failing = true;
+		producer.sendQueue(new StoredLog(), new StoredLog(), new StoredLog(), new StoredLog());
+		producer.flush();
+
+		assertEquals(4L, producer.getDroppedCount());
+		assertEquals(0L, producer.getSentMessageCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNonPositiveBatchSize() {
+		producer.setBatchSize(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNonPositiveMaxLatency() {
+		producer.setMaxLatencyMillis(0);
+	}
+}
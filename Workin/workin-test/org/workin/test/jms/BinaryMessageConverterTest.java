@@ -0,0 +1,128 @@
+package org.workin.test.jms;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.messageconverter.BinaryMessageConverter;
+import org.workin.jms.messageconverter.codec.BehaviorPerformanceCodec;
+import org.workin.jms.messageconverter.codec.MailPackageCodec;
+import org.workin.jms.messageconverter.codec.MessageCodec;
+import org.workin.jms.messageconverter.codec.StoredLogCodec;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.mail.MailPackage;
+import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BinaryMessageConverterTest extends BaseTestCase {
+
+	private BinaryMessageConverter converter;
+
+	private Session session;
+
+	@Before
+	public void setUp() {
+		converter = new BinaryMessageConverter();
+		List<MessageCodec<?>> codecs = new ArrayList<MessageCodec<?>>();
+		codecs.add(new BehaviorPerformanceCodec());
+		codecs.add(new StoredLogCodec());
+		codecs.add(new MailPackageCodec());
+		converter.setCodecs(codecs);
+
+		session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						return "createBytesMessage".equals(method.getName()) ? new ActiveMQBytesMessage() : null;
+					}
+				});
+	}
+
+	@Test
+	public void roundTripBehaviorPerformance() throws Exception {
+		BehaviorPerformance entity = new BehaviorPerformance();
+		entity.setUserId(123L);
+		entity.setUserName("G.Lee");
+		entity.setRequestURI("/test.do");
+		entity.setRequestdttm(new Date(1000L));
+		entity.setSpentTime(1000);
+		entity.setStatementCount(12);
+		entity.setRepeatedStatement("select * from Person where id = ?");
+
+		BehaviorPerformance decoded = (BehaviorPerformance) roundTrip(entity);
+		assertNull(decoded.getId());
+		assertEquals(123L, decoded.getUserId());
+		assertEquals("G.Lee", decoded.getUserName());
+		assertNull(decoded.getRequestIp());
+		assertEquals("/test.do", decoded.getRequestURI());
+		assertEquals(new Date(1000L), decoded.getRequestdttm());
+		assertNull(decoded.getResponsedttm());
+		assertEquals(12, decoded.getStatementCount());
+		assertEquals("select * from Person where id = ?", decoded.getRepeatedStatement());
+	}
+
+	@Test
+	public void roundTripStoredLogAndMailPackage() throws Exception {
+		StoredLog log = new StoredLog();
+		log.setId(7L);
+		log.setLogLevel("ERROR");
+		log.setUserMessage("中文 message");
+
+		StoredLog decodedLog = (StoredLog) roundTrip(log);
+		assertEquals(Long.valueOf(7L), decodedLog.getId());
+		assertEquals("ERROR", decodedLog.getLogLevel());
+		assertEquals("中文 message", decodedLog.getUserMessage());
+
+		MailPackage mail = new MailPackage("G.Lee", "subject", Arrays.asList("a@workin.org", "b@workin.org"));
+		MailPackage decodedMail = (MailPackage) roundTrip(mail);
+		assertEquals("subject", decodedMail.getMailSubject());
+		assertEquals(Arrays.asList("a@workin.org", "b@workin.org"), decodedMail.getMailTo());
+		assertNull(decodedMail.getMailCCTo());
+	}
+
+	@Test
+	public void roundTripEnvelope() throws Exception {
+		StoredLog log = new StoredLog();
+		log.setLogLevel("WARN");
+		List<Serializable> messages = new ArrayList<Serializable>();
+		messages.add(log);
+		messages.add(new MailPackage("G.Lee"));
+		// No codec, Java serialized inside the envelope.
+		messages.add(new Date(1000L));
+
+		MessageEnvelope decoded = (MessageEnvelope) roundTrip(new MessageEnvelope(messages));
+		assertEquals(3, decoded.size());
+		assertEquals("WARN", ((StoredLog) decoded.getMessages().get(0)).getLogLevel());
+		assertEquals("G.Lee", ((MailPackage) decoded.getMessages().get(1)).getSayHelloTo());
+		assertEquals(new Date(1000L), decoded.getMessages().get(2));
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void rejectUnregisteredType() throws Exception {
+		converter.toMessage("not registered", session);
+	}
+
+	private Object roundTrip(Object object) throws Exception {
+		Message message = converter.toMessage(object, session);
+		((ActiveMQBytesMessage) message).reset();
+		return converter.fromMessage(message);
+	}
+}
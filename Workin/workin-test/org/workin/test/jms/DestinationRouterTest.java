@@ -0,0 +1,84 @@
+package org.workin.test.jms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.Destination;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.jms.support.DestinationRouter;
+import org.workin.mail.MailPackage;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class DestinationRouterTest extends BaseTestCase {
+
+	private final Destination notifyQueue = new ActiveMQQueue("notify");
+
+	private final Destination mailQueue = new ActiveMQQueue("mail");
+
+	private final Destination numberQueue = new ActiveMQQueue("number");
+
+	private DestinationRouter router;
+
+	@Before
+	public void setUp() {
+		Map<String, Destination> typeDestinations = new HashMap<String, Destination>();
+		typeDestinations.put(MailPackage.class.getName(), mailQueue);
+		typeDestinations.put(Number.class.getName(), numberQueue);
+
+		router = new DestinationRouter();
+		router.setDefaultDestination(notifyQueue);
+		router.setTypeDestinations(typeDestinations);
+	}
+
+	@Test
+	public void resolveByType() {
+		assertSame(mailQueue, router.resolve(new MailPackage("Lee")));
+		assertSame(numberQueue, router.resolve(Long.valueOf(1L)));
+	}
+
+	@Test
+	public void resolveSubclassBySuperclass() {
+		assertSame(mailQueue, router.resolve(new UrgentMailPackage()));
+	}
+
+	@Test
+	public void resolveEnvelopeByFirstMessage() {
+		assertSame(mailQueue, router.resolve(new MessageEnvelope(Arrays.<Serializable> asList(
+				new UrgentMailPackage(), Long.valueOf(1L)))));
+		assertSame(numberQueue, router.resolve(new MessageEnvelope(Arrays.<Serializable> asList(Integer.valueOf(1),
+				new MailPackage()))));
+		assertSame(notifyQueue, router.resolve(new MessageEnvelope(new ArrayList<Serializable>())));
+	}
+
+	@Test
+	public void fallBackToDefaultDestination() {
+		assertSame(notifyQueue, router.resolve("plain"));
+		assertSame(notifyQueue, router.resolve(new MessageEnvelope(Arrays.<Serializable> asList("plain"))));
+
+		router.setTypeDestinations(null);
+		assertSame(notifyQueue, router.resolve(new MailPackage()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectUnknownPayloadClass() {
+		router.setTypeDestinations(Collections.singletonMap("org.workin.NoSuchPayload", mailQueue));
+	}
+
+	private static class UrgentMailPackage extends MailPackage {
+
+		private static final long serialVersionUID = 1L;
+	}
+}
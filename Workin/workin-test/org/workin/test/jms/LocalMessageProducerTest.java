@@ -0,0 +1,221 @@
+package org.workin.test.jms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.consumer.MessageConsumer;
+import org.workin.jms.producer.BatchingMessageProducer;
+import org.workin.jms.producer.LocalMessageProducer;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.jms.producer.MessageProducer;
+import org.workin.jms.support.RingBuffer;
+import org.workin.mail.MailPackage;
+import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.BehaviorRollup;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class LocalMessageProducerTest extends BaseTestCase {
+
+	private final List<Serializable> fallbackMessages = Collections.synchronizedList(new ArrayList<Serializable>());
+
+	@Test
+	public void ringBufferKeepsEveryElementOnce() throws Exception {
+		final RingBuffer<Long> ring = new RingBuffer<Long>(64);
+		final int producers = 4;
+		final long perProducer = 20000;
+		final AtomicLong sum = new AtomicLong();
+		final AtomicLong taken = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(producers * 2);
+
+		for (int p = 0; p < producers; p++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (long i = 1; i <= perProducer; i++) {
+						while (!ring.offer(i)) {
+							Thread.yield();
+						}
+					}
+					done.countDown();
+				}
+			}).start();
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (taken.get() < producers * perProducer) {
+						Long element = ring.poll();
+						if (element == null) {
+							Thread.yield();
+						} else {
+							sum.addAndGet(element);
+							taken.incrementAndGet();
+						}
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertEquals(producers * perProducer * (perProducer + 1) / 2, sum.get());
+		assertNull(ring.poll());
+	}
+
+	@Test
+	public void deliverLocallyUntilRingIsFull() throws Exception {
+		final CountDownLatch delivered = new CountDownLatch(3);
+		LocalMessageProducer producer = new LocalMessageProducer();
+		producer.setFallbackProducer(new FallbackProducer());
+		producer.setMessageConsumer(new CountingConsumer(delivered));
+		producer.setConsumerThreads(2);
+		producer.start();
+		try {
+			producer.sendQueue(new BehaviorPerformance(), new StoredLog(), new MailPackage("G.Lee"));
+			assertTrue(delivered.await(10, TimeUnit.SECONDS));
+			assertEquals(3L, producer.getLocalCount());
+
+			// No receiveMessage for Date, so it goes by JMS.
+			producer.sendQueue(new Date());
+			assertEquals(1, fallbackMessages.size());
+		} finally {
+			producer.stop();
+		}
+
+		producer = new LocalMessageProducer();
+		producer.setFallbackProducer(new FallbackProducer());
+		producer.setMessageConsumer(new CountingConsumer(new CountDownLatch(0)));
+		producer.setCapacity(2);
+		producer.setConsumerThreads(0);
+		producer.start();
+		producer.sendQueue(new StoredLog(), new StoredLog(), new StoredLog());
+		assertEquals(2L, producer.getLocalCount());
+		assertEquals(1L, producer.getFallbackCount());
+
+		// The messages left in the ring are handed to JMS.
+		producer.stop();
+		assertEquals(4, fallbackMessages.size());
+	}
+
+	@Test
+	public void loseNothingWhenStoppedWhileSending() throws Exception {
+		final AtomicLong delivered = new AtomicLong();
+		final LocalMessageProducer producer = new LocalMessageProducer();
+		producer.setFallbackProducer(new FallbackProducer());
+		producer.setMessageConsumer(new CountingConsumer(new CountDownLatch(0)) {
+			@Override
+			public void receiveMessage(StoredLog message) {
+				delivered.incrementAndGet();
+			}
+		});
+		producer.setConsumerThreads(2);
+		producer.start();
+
+		final int senders = 4;
+		final int perSender = 20000;
+		final CountDownLatch done = new CountDownLatch(senders);
+		for (int i = 0; i < senders; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < perSender; j++) {
+						producer.sendQueue(new StoredLog());
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		Thread.sleep(20);
+		producer.stop();
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertEquals(0, producer.getPendingCount());
+		assertEquals(senders * perSender, delivered.get() + fallbackMessages.size());
+	}
+
+	@Test
+	public void keepEnqueueTimeThroughBatchAndFallback() throws Exception {
+		RecordingJmsTemplate jmsTemplate = new RecordingJmsTemplate();
+		BatchingMessageProducer batching = new BatchingMessageProducer();
+		batching.setJmsTemplate(jmsTemplate);
+		batching.setNotifyQueue(new ActiveMQQueue("workin.test"));
+		batching.setBatchSize(2);
+
+		LocalMessageProducer producer = new LocalMessageProducer();
+		producer.setFallbackProducer(batching);
+		producer.setMessageConsumer(new CountingConsumer(new CountDownLatch(0)));
+		producer.setCapacity(2);
+		producer.setConsumerThreads(0);
+		producer.start();
+
+		long before = System.currentTimeMillis();
+		producer.sendQueue(new StoredLog(), new StoredLog());
+		Thread.sleep(100);
+
+		// The ring is handed to the batching producer at stop, which sends one envelope.
+		producer.stop();
+		assertEquals(1, jmsTemplate.stamps.size());
+		long stamp = jmsTemplate.stamps.get(0);
+		assertTrue(stamp >= before && stamp < before + 100);
+	}
+
+	private class FallbackProducer implements MessageProducer {
+
+		@Override
+		public void sendQueue(Serializable... targetObject) {
+			Collections.addAll(fallbackMessages, targetObject);
+		}
+
+		@Override
+		public void sendTopic(Serializable... targetObject) {
+			Collections.addAll(fallbackMessages, targetObject);
+		}
+	}
+
+	private static class CountingConsumer implements MessageConsumer {
+
+		private final CountDownLatch delivered;
+
+		CountingConsumer(CountDownLatch delivered) {
+			this.delivered = delivered;
+		}
+
+		@Override
+		public void receiveMessage(MailPackage message) {
+			delivered.countDown();
+		}
+
+		@Override
+		public void receiveMessage(BehaviorPerformance message) {
+			delivered.countDown();
+		}
+
+		@Override
+		public void receiveMessage(StoredLog message) {
+			delivered.countDown();
+		}
+
+		@Override
+		public void receiveMessage(BehaviorRollup message) {
+			delivered.countDown();
+		}
+
+		@Override
+		public void receiveMessage(MessageEnvelope message) {
+			delivered.countDown();
+		}
+	}
+}
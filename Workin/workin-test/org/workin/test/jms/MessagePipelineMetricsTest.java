@@ -0,0 +1,47 @@
+package org.workin.test.jms;
+
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.support.MessageDeliveryContext;
+import org.workin.jms.support.MessagePipelineMetrics;
+import org.workin.mail.MailPackage;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessagePipelineMetricsTest extends BaseTestCase {
+
+	@Test
+	public void recordPerType() {
+		MessagePipelineMetrics metrics = new MessagePipelineMetrics();
+
+		MessageDeliveryContext.open(System.currentTimeMillis() - 2000);
+		try {
+			metrics.record(StoredLog.class, System.nanoTime(), false);
+			metrics.record(StoredLog.class, System.nanoTime(), true);
+		} finally {
+			MessageDeliveryContext.close();
+		}
+		assertEquals(0L, MessageDeliveryContext.getEnqueueTime());
+		metrics.record(MailPackage.class, System.nanoTime(), false);
+
+		assertEquals(3L, metrics.getProcessedCount());
+		assertEquals(1L, metrics.getFailedCount());
+
+		String[] lines = metrics.typeStatistics();
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("org.workin.mail.MailPackage\t1\t0\t"));
+		String[] storedLog = lines[1].split("\t");
+		assertEquals("org.workin.trace.domain.StoredLog", storedLog[0]);
+		assertEquals("2", storedLog[1]);
+		assertEquals("1", storedLog[2]);
+		// End-to-end p50 about 2000 ms, within the bucket accuracy.
+		long endToEndMillis = Long.parseLong(storedLog[6]);
+		assertTrue(endToEndMillis >= 1750 && endToEndMillis <= 2300);
+
+		assertEquals(0, metrics.queueDepths().length);
+	}
+}
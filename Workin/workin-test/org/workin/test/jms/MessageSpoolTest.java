@@ -0,0 +1,179 @@
+package org.workin.test.jms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.support.MessageSpool;
+import org.workin.jms.support.MessageSpool.SpooledMessage;
+import org.workin.jms.support.MessageSpoolReplayer;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessageSpoolTest extends BaseTestCase {
+
+	private File directory;
+
+	private MessageSpool spool;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "workin-spool-test-" + System.nanoTime());
+		spool = newSpool(4096, 4);
+	}
+
+	@After
+	public void tearDown() {
+		spool.close();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void replayInOrderAcrossRestart() throws Exception {
+		assertFalse(spool.isDiverting());
+		spool.append(false, "first");
+		spool.append(true, "second", 1000L);
+		spool.append(false, "third");
+		assertTrue(spool.isDiverting());
+
+		SpooledMessage spooled = spool.peek();
+		assertEquals("first", spooled.getMessage());
+		assertFalse(spooled.isTopic());
+		spool.commit();
+
+		// Unreplayed messages survive a restart, the replayed one is not repeated.
+		spool.close();
+		spool = newSpool(4096, 4);
+		assertFalse(spool.isEmpty());
+
+		spooled = spool.peek();
+		assertEquals("second", spooled.getMessage());
+		assertTrue(spooled.isTopic());
+		assertEquals(1000L, spooled.getEnqueueTime());
+		spool.commit();
+		assertEquals("third", spool.peek().getMessage());
+		spool.commit();
+
+		assertNull(spool.peek());
+		assertTrue(spool.isEmpty());
+	}
+
+	@Test
+	public void dropOldestSegmentWhenFull() throws Exception {
+		String message = new String(new char[1000]).replace('\0', 'x');
+		// 4 messages fit in a 4096 bytes segment, 4 segments at most.
+		for (int i = 0; i < 40; i++) {
+			spool.append(false, i + message);
+		}
+		assertEquals(4, spool.getSegmentCount());
+		assertTrue(spool.getDroppedSegmentCount() > 0);
+
+		SpooledMessage spooled = spool.peek();
+		assertFalse(((String) spooled.getMessage()).startsWith("0"));
+
+		int count = 0;
+		while ((spooled = spool.peek()) != null) {
+			spool.commit();
+			count++;
+		}
+		assertTrue(count <= 16);
+		assertEquals(1, spool.getSegmentCount());
+	}
+
+	@Test
+	public void divertAfterSlowSend() {
+		spool.setLatencyBudgetMillis(10);
+		spool.recordSend(1000000L);
+		assertFalse(spool.isDiverting());
+		spool.recordSend(50000000L);
+		assertTrue(spool.isDiverting());
+	}
+
+	@Test
+	public void skipPoisonMessages() {
+		spool.append(false, "first");
+		spool.append(false, "poison");
+		spool.append(false, "unconvertible");
+		spool.append(false, "last");
+
+		PoisonJmsTemplate jmsTemplate = new PoisonJmsTemplate();
+		MessageSpoolReplayer replayer = new MessageSpoolReplayer();
+		replayer.setMessageSpool(spool);
+		replayer.setJmsTemplate(jmsTemplate);
+		replayer.setMaxReplayAttempts(2);
+
+		// The transient failure of "poison" is retried in the next round.
+		assertEquals(1, replayer.replay());
+		assertEquals(0, replayer.getSkippedCount());
+		assertEquals("poison", spool.peek().getMessage());
+
+		// Skipped after 2 attempts, the permanent failure at once.
+		assertEquals(1, replayer.replay());
+		assertEquals(2, replayer.getSkippedCount());
+		assertEquals(2, jmsTemplate.sent.size());
+		assertEquals("last", jmsTemplate.sent.get(1));
+		assertTrue(spool.isEmpty());
+
+		// While the broker is down, failures do not count.
+		spool.append(false, "poison");
+		jmsTemplate.brokerAvailable = false;
+		for (int i = 0; i < 5; i++) {
+			replayer.replay();
+		}
+		assertEquals(2, replayer.getSkippedCount());
+		assertFalse(spool.isEmpty());
+	}
+
+	private static class PoisonJmsTemplate extends JmsTemplate {
+
+		private final List<Object> sent = new ArrayList<Object>();
+
+		private boolean brokerAvailable = true;
+
+		@Override
+		public void convertAndSend(Destination destination, Object message, MessagePostProcessor postProcessor) {
+			if ("poison".equals(message)) {
+				throw new UncategorizedJmsException(new JMSException("frame size exceeded"));
+			}
+			if ("unconvertible".equals(message)) {
+				throw new MessageConversionException("cannot convert");
+			}
+			sent.add(message);
+		}
+
+		@Override
+		public <T> T execute(SessionCallback<T> action) {
+			if (!brokerAvailable) {
+				throw new UncategorizedJmsException(new JMSException("connection refused"));
+			}
+			return null;
+		}
+	}
+
+	private MessageSpool newSpool(int segmentSize, int maxSegments) throws Exception {
+		MessageSpool messageSpool = new MessageSpool();
+		messageSpool.setDirectory(directory);
+		messageSpool.setSegmentSize(segmentSize);
+		messageSpool.setMaxSegments(maxSegments);
+		messageSpool.open();
+		return messageSpool;
+	}
+}
@@ -0,0 +1,60 @@
+package org.workin.test.jms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.workin.jms.support.EnqueueTimeStamper;
+
+/**
+ * 
+ * JmsTemplate which records the sent messages and their enqueue time stamps instead of sending them, or fails
+ * every send when failing is set.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+class RecordingJmsTemplate extends JmsTemplate {
+
+	final List<Object> messages = Collections.synchronizedList(new ArrayList<Object>());
+
+	final List<Long> stamps = Collections.synchronizedList(new ArrayList<Long>());
+
+	volatile boolean failing;
+
+	@Override
+	public void convertAndSend(Destination destination, Object message, MessagePostProcessor postProcessor) {
+		if (failing) {
+			throw new UncategorizedJmsException("broker down");
+		}
+
+		final long[] stamp = new long[1];
+		try {
+			postProcessor.postProcessMessage((Message) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { Message.class }, new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							if ("setLongProperty".equals(method.getName())
+									&& EnqueueTimeStamper.ENQUEUE_TIME_PROPERTY.equals(args[0])) {
+								stamp[0] = (Long) args[1];
+							}
+							return null;
+						}
+					}));
+		} catch (JMSException ex) {
+			throw convertJmsAccessException(ex);
+		}
+		messages.add(message);
+		stamps.add(stamp[0]);
+	}
+}
@@ -0,0 +1,165 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.workin.core.persistence.cache.CacheWarmer;
+import org.workin.core.persistence.cache.EntityCache;
+import org.workin.core.persistence.support.PersistenceService;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class CacheWarmerTest extends BaseTestCase {
+
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+	private final List<Object> cached = Collections.synchronizedList(new ArrayList<Object>());
+
+	// Named query "blocking" waits for it.
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Test
+	public void warmUpInOrder() throws InterruptedException {
+		CacheWarmer warmer = newWarmer("findAllPerson");
+		warmer.setConcurrency(1);
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+		awaitReady(warmer);
+
+		assertEquals(Arrays.asList("getAll " + Person.class.getName(), "findByNamedOfQuery findAllPerson",
+				"findListBySqlMap findPersons"), calls);
+		assertEquals(2, cached.size());
+		assertEquals(3, warmer.getSucceededCount());
+		assertEquals(0, warmer.getFailedCount());
+		assertEquals(0, warmer.getTimedOutCount());
+	}
+
+	@Test
+	public void warmUpOnlyOnce() throws InterruptedException {
+		CacheWarmer warmer = newWarmer("findAllPerson");
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+		awaitReady(warmer);
+		Thread.sleep(100);
+
+		assertEquals(3, calls.size());
+	}
+
+	@Test
+	public void notReadyBeforeFinished() throws InterruptedException {
+		CacheWarmer warmer = newWarmer("blocking");
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+		Thread.sleep(200);
+		assertFalse(warmer.isReady());
+
+		release.countDown();
+		awaitReady(warmer);
+		assertEquals(3, warmer.getSucceededCount());
+	}
+
+	@Test
+	public void readyAfterFailedTask() throws InterruptedException {
+		CacheWarmer warmer = newWarmer("failing");
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+		awaitReady(warmer);
+
+		assertEquals(2, warmer.getSucceededCount());
+		assertEquals(1, warmer.getFailedCount());
+		assertEquals(2, cached.size());
+	}
+
+	@Test
+	public void readyAfterTimedOutTask() throws InterruptedException {
+		CacheWarmer warmer = newWarmer("blocking");
+		warmer.setTimeoutSeconds(1);
+		try {
+			warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+			awaitReady(warmer);
+
+			assertEquals(2, warmer.getSucceededCount());
+			assertEquals(1, warmer.getTimedOutCount());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void readyWithoutTasks() {
+		CacheWarmer warmer = new CacheWarmer();
+		warmer.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+
+		assertTrue(warmer.isReady());
+	}
+
+	private CacheWarmer newWarmer(String queryName) {
+		CacheWarmer warmer = new CacheWarmer();
+		warmer.setPersistenceService(fakePersistenceService());
+		warmer.setEntityCache(fakeEntityCache());
+		warmer.setEntityClasses(Collections.singletonList(Person.class.getName()));
+		warmer.setNamedQueries(Collections.singletonList(queryName));
+		warmer.setSqlMapIds(Collections.singletonList("findPersons"));
+		return warmer;
+	}
+
+	private static void awaitReady(CacheWarmer warmer) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!warmer.isReady()) {
+			assertTrue("Cache warm-up not finished in time", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private PersistenceService<Object, Serializable> fakePersistenceService() {
+		return JpaFakes.fake(PersistenceService.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) throws InterruptedException {
+				String name = method.getName();
+				if ("getAll".equals(name) && args.length == 1) {
+					calls.add(name + " " + ((Class<?>) args[0]).getName());
+					return Arrays.asList(new Person(), new Person());
+				}
+				if ("findByNamedOfQuery".equals(name) && args.length == 1) {
+					calls.add(name + " " + args[0]);
+					if ("failing".equals(args[0])) {
+						throw new IllegalStateException("Named query failed");
+					}
+					if ("blocking".equals(args[0])) {
+						release.await();
+					}
+					return Collections.emptyList();
+				}
+				if ("findListBySqlMap".equals(name)) {
+					calls.add(name + " " + args[0]);
+					return Collections.emptyList();
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private EntityCache fakeEntityCache() {
+		return JpaFakes.fake(EntityCache.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("put".equals(method.getName()) && args[0] instanceof Person) {
+					cached.add(args[0]);
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+}
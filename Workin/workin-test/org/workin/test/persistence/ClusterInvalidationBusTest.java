@@ -0,0 +1,177 @@
+package org.workin.test.persistence;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.core.persistence.cache.ClusterInvalidationBus;
+import org.workin.core.persistence.cache.OffHeapEntityCache;
+import org.workin.fortest.BaseTestCase;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * Members of the invalidation cluster on loopback. broadcastToForkedJvm starts RemoteMember in a second JVM
+ * with the same classpath and channel config(jgroups/invalidation-tcp-loopback.xml), which invalidates an
+ * entity cached in this JVM.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ClusterInvalidationBusTest extends BaseTestCase {
+
+	private ClusterInvalidationBus senderBus;
+
+	private ClusterInvalidationBus receiverBus;
+
+	private OffHeapEntityCache receiverCache;
+
+	@Before
+	public void setUp() {
+		receiverCache = new OffHeapEntityCache();
+		receiverCache.setCachedEntityClasses(Collections.singleton(StoredLog.class.getName()));
+
+		senderBus = newBus();
+		receiverBus = newBus();
+		receiverBus.setEntityCache(receiverCache);
+
+		senderBus.start();
+		receiverBus.start();
+	}
+
+	@After
+	public void tearDown() {
+		senderBus.stop();
+		receiverBus.stop();
+	}
+
+	@Test
+	public void broadcastInvalidation() throws InterruptedException {
+		waitFor(senderBus, 2);
+
+		receiverCache.put(newStoredLog(1L));
+		receiverCache.put(newStoredLog(2L));
+
+		senderBus.invalidate(StoredLog.class, Arrays.asList(1L));
+		senderBus.invalidate(StoredLog.class, Arrays.asList(1L));
+
+		for (int i = 0; i < 100 && receiverCache.get(StoredLog.class, 1L) != null; i++) {
+			Thread.sleep(50);
+		}
+
+		assertNull(receiverCache.get(StoredLog.class, 1L));
+		assertNotNull(receiverCache.get(StoredLog.class, 2L));
+		assertEquals(1, senderBus.getSentInvalidationCount());
+	}
+
+	@Test
+	public void broadcastToForkedJvm() throws Exception {
+		waitFor(receiverBus, 2);
+		receiverCache.put(newStoredLog(1L));
+		receiverCache.put(newStoredLog(2L));
+
+		Process remote = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator
+				+ "java", "-cp", System.getProperty("java.class.path"), RemoteMember.class.getName(), "3")
+				.redirectErrorStream(true).start();
+		try {
+			StringBuffer output = drain(remote);
+			for (int i = 0; i < 100 && receiverBus.getMemberCount() < 3; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(remoteFailure(output), 3, receiverBus.getMemberCount());
+
+			for (int i = 0; i < 200 && receiverCache.get(StoredLog.class, 1L) != null; i++) {
+				Thread.sleep(50);
+			}
+			assertNull(remoteFailure(output), receiverCache.get(StoredLog.class, 1L));
+			assertNotNull(receiverCache.get(StoredLog.class, 2L));
+
+			// Let the remote member leave.
+			remote.getOutputStream().close();
+			assertEquals(remoteFailure(output), 0, remote.waitFor());
+		} finally {
+			remote.destroy();
+		}
+	}
+
+	/**
+	 * 
+	 * Member run in the forked JVM: join the cluster, wait for args[0] members, invalidate StoredLog 1, then
+	 * stay until stdin is closed, the message is sent asynchronously.
+	 * 
+	 */
+	public static class RemoteMember {
+
+		public static void main(String[] args) throws InterruptedException, IOException {
+			ClusterInvalidationBus bus = newBus();
+			bus.start();
+			int members = Integer.parseInt(args[0]);
+			for (int i = 0; i < 200 && bus.getMemberCount() < members; i++) {
+				Thread.sleep(50);
+			}
+			bus.invalidate(StoredLog.class, Arrays.asList(1L));
+			bus.flush();
+
+			while (System.in.read() != -1) {
+				// Wait for the test to close stdin.
+			}
+			bus.stop();
+			System.exit(bus.getSentInvalidationCount() == 1 ? 0 : 1);
+		}
+	}
+
+	// Keep the output of the forked JVM flowing, it blocks on a full pipe. The output is collected for
+	// the assertion messages.
+	private static StringBuffer drain(final Process process) {
+		final StringBuffer output = new StringBuffer();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						output.append(line).append('\n');
+					}
+				} catch (IOException e) {
+					// The forked JVM is gone.
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return output;
+	}
+
+	private static String remoteFailure(final StringBuffer output) {
+		return "Output of the forked JVM:\n" + output;
+	}
+
+	private static ClusterInvalidationBus newBus() {
+		ClusterInvalidationBus bus = new ClusterInvalidationBus();
+		bus.setClusterName("workin-invalidation-test");
+		bus.setFlushIntervalMillis(20);
+		return bus;
+	}
+
+	private void waitFor(ClusterInvalidationBus bus, int members) throws InterruptedException {
+		for (int i = 0; i < 100 && bus.getMemberCount() < members; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(members, bus.getMemberCount());
+	}
+
+	private StoredLog newStoredLog(Long id) {
+		StoredLog log = new StoredLog();
+		log.setId(id);
+		log.setLogdttm(new Date());
+		return log;
+	}
+}
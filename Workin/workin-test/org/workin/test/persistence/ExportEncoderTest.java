@@ -0,0 +1,52 @@
+package org.workin.test.persistence;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.workin.core.persistence.export.CsvExportEncoder;
+import org.workin.core.persistence.export.JsonLinesExportEncoder;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ExportEncoderTest extends BaseTestCase {
+
+	@Test
+	public void csv() throws IOException {
+		StringWriter writer = new StringWriter();
+		CsvExportEncoder encoder = new CsvExportEncoder();
+		encoder.start(writer, new String[] { "id", "userMessage" });
+		encoder.write(new Object[] { 1L, "plain" });
+		encoder.write(new Object[] { 2L, "say \"hi\", bye" });
+		encoder.write(new Object[] { 3L, null });
+		encoder.finish();
+
+		assertEquals("id,userMessage\r\n1,plain\r\n2,\"say \"\"hi\"\", bye\"\r\n3,\r\n", writer.toString());
+	}
+
+	@Test
+	public void jsonLines() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonLinesExportEncoder encoder = new JsonLinesExportEncoder();
+		encoder.start(writer, new String[] { "id", "userMessage", "spentTime" });
+		encoder.write(new Object[] { 1L, "line\n\"quoted\"", null });
+		encoder.finish();
+
+		assertEquals("{\"id\":1,\"userMessage\":\"line\\n\\\"quoted\\\"\",\"spentTime\":null}\n", writer.toString());
+	}
+
+	@Test
+	public void jsonLinesNotFiniteNumbers() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonLinesExportEncoder encoder = new JsonLinesExportEncoder();
+		encoder.start(writer, new String[] { "a", "b", "c", "d" });
+		encoder.write(new Object[] { Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 1.5d });
+		encoder.finish();
+
+		assertEquals("{\"a\":null,\"b\":null,\"c\":null,\"d\":1.5}\n", writer.toString());
+	}
+}
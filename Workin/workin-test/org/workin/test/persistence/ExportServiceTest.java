@@ -0,0 +1,203 @@
+package org.workin.test.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Criteria;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.workin.core.persistence.export.CsvExportEncoder;
+import org.workin.core.persistence.export.ExportResult;
+import org.workin.core.persistence.export.ExportServiceImpl;
+import org.workin.exception.ServiceException;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ExportServiceTest extends BaseTestCase {
+
+	private final List<String> calls = new ArrayList<String>();
+
+	private final List<Person> persons = new ArrayList<Person>();
+
+	private ExportServiceImpl exportService;
+
+	@Before
+	public void setUp() {
+		persons.add(newPerson("Lee", "M"));
+		persons.add(newPerson("Kim", null));
+		persons.add(newPerson("Park", "F"));
+
+		exportService = new ExportServiceImpl();
+		exportService.setEntityManagerFactory(fakeEntityManagerFactory());
+		exportService.setFetchSize(50);
+		exportService.setClearInterval(2);
+	}
+
+	@Test
+	public void exportEntities() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ExportResult result = exportService.export(Person.class, null, new String[] { "name", "sex" },
+				new CsvExportEncoder(), out);
+
+		assertEquals(3L, result.getRowCount());
+		assertEquals("name,sex\r\nLee,M\r\nKim,\r\nPark,F\r\n", out.toString("UTF-8"));
+		assertEquals(Arrays.asList("setFetchSize 50", "clear", "results.close", "em.close"), calls);
+	}
+
+	@Test
+	public void rejectAssociationColumn() {
+		try {
+			exportService.export(Person.class, null, new String[] { "name", "address" }, new CsvExportEncoder(),
+					new ByteArrayOutputStream());
+			fail("Exporting an association must fail");
+		} catch (ServiceException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		assertTrue(calls.contains("results.close"));
+		assertTrue(calls.contains("em.close"));
+	}
+
+	@Test
+	public void cleanFileNameInHeader() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		exportService.export(Person.class, null, new String[] { "name" }, new CsvExportEncoder(), response,
+				"persons\"\r\nSet-Cookie: x=\\1");
+
+		assertEquals("attachment; filename=\"personsSet-Cookie: x=1.csv\"", response.getHeader("Content-Disposition"));
+		assertEquals("name\r\nLee\r\nKim\r\nPark\r\n", response.getContentAsString());
+	}
+
+	private static Person newPerson(String name, String sex) {
+		Person person = new Person();
+		person.setName(name);
+		person.setSex(sex);
+		return person;
+	}
+
+	private EntityManagerFactory fakeEntityManagerFactory() {
+		final Session session = fakeSession();
+		final EntityManager em = JpaFakes.fake(EntityManager.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("getDelegate".equals(method.getName())) {
+					return session;
+				}
+				if ("close".equals(method.getName())) {
+					calls.add("em.close");
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+		return JpaFakes.fake(EntityManagerFactory.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "createEntityManager".equals(method.getName()) && args.length == 0 ? em : JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private Session fakeSession() {
+		final SessionFactory sessionFactory = JpaFakes.fake(SessionFactory.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "getClassMetadata".equals(method.getName()) && Person.class.equals(args[0]) ? fakeMetadata()
+						: JpaFakes.UNEXPECTED;
+			}
+		});
+		final Criteria criteria = JpaFakes.fake(Criteria.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if ("setFetchSize".equals(name)) {
+					calls.add("setFetchSize " + args[0]);
+					return proxy;
+				}
+				if ("setReadOnly".equals(name) || "setCacheable".equals(name)) {
+					return proxy;
+				}
+				return "scroll".equals(name) ? fakeResults() : JpaFakes.UNEXPECTED;
+			}
+		});
+		return JpaFakes.fake(Session.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if ("createCriteria".equals(name) && Person.class.equals(args[0])) {
+					return criteria;
+				}
+				if ("clear".equals(name)) {
+					calls.add("clear");
+					return null;
+				}
+				return "getSessionFactory".equals(name) ? sessionFactory : JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private ScrollableResults fakeResults() {
+		return JpaFakes.fake(ScrollableResults.class, new JpaFakes.Answer() {
+
+			private int row = -1;
+
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if ("next".equals(name)) {
+					return ++row < persons.size();
+				}
+				if ("get".equals(name) && args.length == 0) {
+					return new Object[] { persons.get(row) };
+				}
+				if ("close".equals(name)) {
+					calls.add("results.close");
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private static ClassMetadata fakeMetadata() {
+		final Type basic = fakeType(false);
+		final Type association = fakeType(true);
+		return JpaFakes.fake(ClassMetadata.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("getPropertyNames".equals(method.getName())) {
+					return new String[] { "name", "sex", "address" };
+				}
+				if ("getPropertyTypes".equals(method.getName())) {
+					return new Type[] { basic, basic, association };
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private static Type fakeType(final boolean association) {
+		return JpaFakes.fake(Type.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "isAssociationType".equals(method.getName()) ? association : JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+}
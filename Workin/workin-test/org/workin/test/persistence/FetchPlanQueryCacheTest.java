@@ -0,0 +1,122 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.hibernate.ejb.QueryHints;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.core.persistence.cache.PersistenceCacheRegistry;
+import org.workin.core.persistence.jpa.JpaPersistenceImpl;
+import org.workin.core.persistence.support.FetchPlan;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class FetchPlanQueryCacheTest extends BaseTestCase {
+
+	private JpaPersistenceImpl<Person, Serializable> persistence;
+
+	// Query strings created, in order.
+	private final List<String> queryStrings = new ArrayList<String>();
+
+	// Hints set on the created queries.
+	private final List<String> hints = new ArrayList<String>();
+
+	// The ids parameters of the batch fetch queries.
+	private final List<Object> idsParameters = new ArrayList<Object>();
+
+	// Result of the first query.
+	private final List<Person> results = new ArrayList<Person>();
+
+	@Before
+	public void setUp() {
+		PersistenceCacheRegistry registry = new PersistenceCacheRegistry();
+		registry.setQueryCacheEntities(Collections.singleton(Person.class.getName()));
+
+		persistence = new JpaPersistenceImpl<Person, Serializable>();
+		persistence.setPersistenceCacheRegistry(registry);
+		persistence.setJpaTemplate(JpaFakes.jpaTemplate(fakeEntityManager()));
+	}
+
+	@Test
+	public void fetchPlanQueryIsNotCached() {
+		Map<String, ?> params = Collections.singletonMap("name", "workin");
+
+		persistence.findByPropertys(Person.class, params, FetchPlan.create().joinFetch("address"));
+		assertFalse(hints.contains(QueryHints.HINT_CACHEABLE));
+
+		// The same finder without fetch plan is cached.
+		persistence.findByPropertys(Person.class, params);
+		assertTrue(hints.contains(QueryHints.HINT_CACHEABLE));
+	}
+
+	@Test
+	public void joinFetchNestedPathsOnParentFetch() {
+		persistence.findByPropertys(Person.class, Collections.singletonMap("name", "workin"), FetchPlan.create()
+				.joinFetch("address", "address.person", "address.person.address"));
+
+		assertEquals(Arrays.asList("SELECT DISTINCT obj FROM " + Person.class.getName() + " obj "
+				+ " LEFT JOIN FETCH obj.address f0  LEFT JOIN FETCH f0.person f1 "
+				+ " LEFT JOIN FETCH f1.address f2  where obj.name = :name"), queryStrings);
+	}
+
+	@Test
+	public void batchFetchByIdsInBatches() {
+		for (long id = 1; id <= 3; id++) {
+			Person person = new Person();
+			person.setId(id);
+			results.add(person);
+		}
+
+		persistence.findByPropertys(Person.class, Collections.singletonMap("name", "workin"), FetchPlan.create()
+				.batchFetch(2, "address"));
+
+		assertEquals(3, queryStrings.size());
+		assertEquals("SELECT obj FROM " + Person.class.getName() + " obj  where obj.name = :name", queryStrings
+				.get(0));
+		String batchQuery = "SELECT DISTINCT obj FROM " + Person.class.getName() + " obj "
+				+ " LEFT JOIN FETCH obj.address where obj.id in (:ids)";
+		assertEquals(batchQuery, queryStrings.get(1));
+		assertEquals(batchQuery, queryStrings.get(2));
+		assertEquals(Arrays.<Object> asList(Arrays.asList(1L, 2L), Arrays.asList(3L)), idsParameters);
+	}
+
+	private EntityManager fakeEntityManager() {
+		final Query query = JpaFakes.fake(Query.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("setHint".equals(method.getName())) {
+					hints.add((String) args[0]);
+				} else if ("setParameter".equals(method.getName()) && "ids".equals(args[0])) {
+					idsParameters.add(new ArrayList<Object>((List<?>) args[1]));
+				} else if ("getResultList".equals(method.getName())) {
+					return queryStrings.size() == 1 ? results : new ArrayList<Object>();
+				}
+				return method.getReturnType() == Query.class ? proxy : JpaFakes.UNEXPECTED;
+			}
+		});
+		return JpaFakes.fake(EntityManager.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("createQuery".equals(method.getName()) && args[0] instanceof String) {
+					queryStrings.add((String) args[0]);
+					return query;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+}
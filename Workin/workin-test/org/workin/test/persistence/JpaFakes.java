@@ -0,0 +1,133 @@
+package org.workin.test.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.junit.Assert;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.JpaCallback;
+import org.springframework.orm.jpa.JpaTemplate;
+
+/**
+ * 
+ * Fakes of the JPA/Hibernate interfaces for the persistence tests which run without a database.
+ * 
+ * eg.
+ * 
+ * 	EntityManager em = JpaFakes.fake(EntityManager.class, new JpaFakes.Answer() {
+ * 		protected Object answer(Object proxy, Method method, Object[] args) {
+ * 			return "createQuery".equals(method.getName()) ? query : UNEXPECTED;
+ * 		}
+ * 	});
+ * 	jpaPersistence.setJpaTemplate(JpaFakes.jpaTemplate(em));
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+final class JpaFakes {
+
+	private JpaFakes() {
+	}
+
+	/**
+	 * 
+	 * Create a fake of type, its calls are answered by answer.
+	 * 
+	 * @param type
+	 * @param answer
+	 * @return fake
+	 * 
+	 */
+	static <T> T fake(final Class<T> type, final Answer answer) {
+		answer.type = type;
+		return type.cast(Proxy.newProxyInstance(JpaFakes.class.getClassLoader(), new Class<?>[] { type }, answer));
+	}
+
+	/**
+	 * 
+	 * JpaTemplate which runs every callback on entityManager.
+	 * 
+	 * @param entityManager
+	 * @return JpaTemplate
+	 * 
+	 */
+	static JpaTemplate jpaTemplate(final EntityManager entityManager) {
+		return new JpaTemplate() {
+			@Override
+			public <T> T execute(JpaCallback<T> action, boolean exposeNativeEntityManager)
+					throws DataAccessException {
+				try {
+					return action.doInJpa(entityManager);
+				} catch (PersistenceException ex) {
+					throw translateIfNecessary(ex);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * HibernateEntityManagerFactory of sessionFactory, other calls fail the test.
+	 * 
+	 * @param sessionFactory
+	 * @return EntityManagerFactory
+	 * 
+	 */
+	static EntityManagerFactory entityManagerFactory(final SessionFactory sessionFactory) {
+		return fake(HibernateEntityManagerFactory.class, new Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "getSessionFactory".equals(method.getName()) ? sessionFactory : UNEXPECTED;
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * Answer of the calls of a fake, returning UNEXPECTED fails the test.
+	 * 
+	 */
+	abstract static class Answer implements InvocationHandler {
+
+		private Class<?> type;
+
+		@Override
+		public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				return invokeObjectMethod(proxy, method, args);
+			}
+
+			Object result = answer(proxy, method, args == null ? new Object[0] : args);
+			if (result == UNEXPECTED) {
+				Assert.fail("Unexpected call of fake " + type.getName() + "." + method.getName() + "(...)");
+			}
+			return result;
+		}
+
+		/**
+		 * 
+		 * @return the result of the call, null for void methods, or UNEXPECTED
+		 * 
+		 */
+		protected abstract Object answer(Object proxy, Method method, Object[] args) throws Throwable;
+
+		private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+			if ("equals".equals(method.getName())) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(method.getName())) {
+				return System.identityHashCode(proxy);
+			}
+			return "Fake " + type.getName();
+		}
+	}
+
+	static final Object UNEXPECTED = new Object();
+}
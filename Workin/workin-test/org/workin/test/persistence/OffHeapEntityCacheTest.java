@@ -0,0 +1,146 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.workin.core.persistence.cache.EntityCache.CapturedEntity;
+import org.workin.core.persistence.cache.OffHeapEntityCache;
+import org.workin.core.persistence.jpa.JpaPersistenceImpl;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class OffHeapEntityCacheTest extends BaseTestCase {
+
+	private OffHeapEntityCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new OffHeapEntityCache();
+		cache.setChunkSize(64);
+		cache.setSlabSize(1024);
+		cache.setMaxBytes(2048);
+		cache.setCachedEntityClasses(Collections.singleton(StoredLog.class.getName()));
+	}
+
+	@Test
+	public void putAndGet() {
+		StoredLog log = newStoredLog(1L, "user message");
+		cache.put(log);
+
+		StoredLog cached = cache.get(StoredLog.class, 1L);
+		assertNotNull(cached);
+		assertNotSame(log, cached);
+		assertEquals(log.getId(), cached.getId());
+		assertEquals(log.getVersion(), cached.getVersion());
+		assertEquals(log.getLogdttm(), cached.getLogdttm());
+		assertEquals(log.getUserMessage(), cached.getUserMessage());
+		assertNull(cached.getThrowAbleMessage());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void invalidate() {
+		cache.put(newStoredLog(1L, "first"));
+		cache.put(newStoredLog(2L, "second"));
+
+		cache.invalidate(StoredLog.class, Arrays.asList(1L));
+		assertNull(cache.get(StoredLog.class, 1L));
+		assertNotNull(cache.get(StoredLog.class, 2L));
+
+		cache.invalidate(StoredLog.class, null);
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getUsedBytes());
+	}
+
+	@Test
+	public void invalidateAfterCommit() {
+		cache.put(newStoredLog(1L, "first"));
+		WritingPersistence persistence = new WritingPersistence();
+		persistence.setEntityCache(cache);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			persistence.written(newStoredLog(1L, "changed"));
+			assertNotNull(cache.get(StoredLog.class, 1L));
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+					.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+			assertNull(cache.get(StoredLog.class, 1L));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void putCapturedStateUnlessInvalidated() {
+		long stamp = cache.getInvalidationStamp();
+		StoredLog loaded = newStoredLog(1L, "loaded");
+		CapturedEntity captured = cache.capture(loaded, stamp);
+
+		// Changed after loading, the state as loaded is cached.
+		loaded.setUserMessage("changed");
+		assertTrue(cache.put(captured));
+		assertEquals("loaded", cache.get(StoredLog.class, 1L).getUserMessage());
+
+		// Another transaction commits a change of the type after the load, the old state is not put back.
+		stamp = cache.getInvalidationStamp();
+		captured = cache.capture(newStoredLog(2L, "old"), stamp);
+		cache.invalidate(StoredLog.class, Arrays.asList(2L));
+		assertFalse(cache.put(captured));
+		assertNull(cache.get(StoredLog.class, 2L));
+
+		assertNull(cache.capture(new Person(), cache.getInvalidationStamp()));
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+		for (long id = 1; id <= 40; id++) {
+			cache.put(newStoredLog(id, "message of " + id));
+			cache.get(StoredLog.class, 1L);
+		}
+
+		assertTrue(cache.getAllocatedBytes() <= 2048);
+		assertTrue(cache.getEvictionCount() > 0);
+		assertNotNull(cache.get(StoredLog.class, 1L));
+		assertNull(cache.get(StoredLog.class, 2L));
+		assertNotNull(cache.get(StoredLog.class, 40L));
+	}
+
+	@Test
+	public void rejectUnsupportedEntity() {
+		cache.setCachedEntityClasses(Collections.singleton(Person.class.getName()));
+		assertFalse(cache.isCacheable(Person.class));
+	}
+
+	private static class WritingPersistence extends JpaPersistenceImpl<StoredLog, Serializable> {
+
+		void written(StoredLog entity) {
+			evictCaches(entity);
+		}
+	}
+
+	private StoredLog newStoredLog(Long id, String message) {
+		StoredLog log = new StoredLog();
+		log.setId(id);
+		log.setVersion(3);
+		log.setLogdttm(new Date());
+		log.setLogLevel("INFO");
+		log.setWhereClass(OffHeapEntityCacheTest.class.getName());
+		log.setUserMessage(message);
+		return log;
+	}
+}
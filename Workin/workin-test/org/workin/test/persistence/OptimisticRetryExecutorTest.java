@@ -0,0 +1,109 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.workin.core.persistence.support.EntityMutation;
+import org.workin.core.persistence.support.OptimisticRetryExecutor;
+import org.workin.core.persistence.support.PersistenceService;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class OptimisticRetryExecutorTest extends BaseTestCase {
+
+	private OptimisticRetryExecutor executor;
+
+	// Merges failing with a conflict before one succeeds.
+	private int conflicts;
+
+	private int merges;
+
+	private int applied;
+
+	@Before
+	public void setUp() {
+		executor = new OptimisticRetryExecutor();
+		executor.setPersistenceService(fakePersistenceService());
+		executor.setTransactionManager(new PlatformTransactionManager() {
+			@Override
+			public TransactionStatus getTransaction(TransactionDefinition definition) {
+				return new SimpleTransactionStatus();
+			}
+
+			@Override
+			public void commit(TransactionStatus status) {
+			}
+
+			@Override
+			public void rollback(TransactionStatus status) {
+			}
+		});
+		executor.setInitialBackoffMillis(1L);
+		executor.setMaxAttempts(3);
+	}
+
+	@Test
+	public void retryUntilMerged() {
+		conflicts = 2;
+		Person person = executor.update(Person.class, 1L, new EntityMutation<Person>() {
+			@Override
+			public void apply(Person person) {
+				applied++;
+			}
+		});
+
+		assertNotNull(person);
+		assertEquals(3, applied);
+		assertEquals(2L, executor.getConflictCount());
+		assertEquals("org.workin.test.application.entity.Person#1: 2", executor.hotRows(1)[0]);
+	}
+
+	@Test
+	public void giveUpAfterMaxAttempts() {
+		conflicts = 5;
+		try {
+			executor.update(Person.class, 1L, new EntityMutation<Person>() {
+				@Override
+				public void apply(Person person) {
+				}
+			});
+			fail("The last conflict should be thrown.");
+		} catch (ObjectOptimisticLockingFailureException e) {
+			assertEquals(3, merges);
+			assertEquals(1L, executor.getExhaustedCount());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private PersistenceService<Object, Serializable> fakePersistenceService() {
+		return (PersistenceService<Object, Serializable>) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { PersistenceService.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("findById".equals(method.getName())) {
+							return new Person();
+						} else if ("merge".equals(method.getName())) {
+							if (merges++ < conflicts) {
+								throw new ObjectOptimisticLockingFailureException(Person.class, args[0]);
+							}
+							return args[0];
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
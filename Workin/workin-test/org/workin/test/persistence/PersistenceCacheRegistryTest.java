@@ -0,0 +1,82 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.core.persistence.cache.PersistenceCacheRegistry;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Address;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class PersistenceCacheRegistryTest extends BaseTestCase {
+
+	private PersistenceCacheRegistry registry;
+
+	// Evictions called on the Hibernate Cache, "method arg...".
+	private final List<String> evictions = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		registry = new PersistenceCacheRegistry();
+		registry.setEntityCacheStrategies(Collections.singletonMap(Person.class.getName(), "read-write"));
+		registry.setQueryCacheEntities(Collections.singleton(Person.class.getName()));
+	}
+
+	@Test
+	public void writeEvictsOnlyItsRegions() {
+		registry.evict(fakeEntityManagerFactory(), Person.class, Arrays.<Serializable> asList(1L, 2L));
+
+		assertEquals(Arrays.asList("evictQueryRegion query." + Person.class.getName(),
+				"evictEntity " + Person.class.getName() + " 1", "evictEntity " + Person.class.getName() + " 2"),
+				evictions);
+	}
+
+	@Test
+	public void writeOfUnregisteredTypeEvictsNothing() {
+		registry.evict(fakeEntityManagerFactory(), Address.class, Arrays.<Serializable> asList(1L));
+		assertTrue(evictions.isEmpty());
+	}
+
+	@Test
+	public void writeWithoutIdsEvictsEntityRegion() {
+		registry.evict(fakeEntityManagerFactory(), Person.class, Collections.<Serializable> emptyList());
+
+		assertEquals(Arrays.asList("evictQueryRegion query." + Person.class.getName(), "evictEntityRegion "
+				+ Person.class.getName()), evictions);
+	}
+
+	private EntityManagerFactory fakeEntityManagerFactory() {
+		final Cache cache = JpaFakes.fake(Cache.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				StringBuilder eviction = new StringBuilder(method.getName());
+				for (Object arg : args) {
+					eviction.append(' ').append(arg instanceof Class<?> ? ((Class<?>) arg).getName() : arg);
+				}
+				evictions.add(eviction.toString());
+				return null;
+			}
+		});
+		return JpaFakes.entityManagerFactory(JpaFakes.fake(SessionFactory.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "getCache".equals(method.getName()) ? cache : JpaFakes.UNEXPECTED;
+			}
+		}));
+	}
+}
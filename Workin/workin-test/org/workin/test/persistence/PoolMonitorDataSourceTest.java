@@ -0,0 +1,150 @@
+package org.workin.test.persistence;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.workin.core.persistence.jdbc.ConnectionAgeCustomizer;
+import org.workin.core.persistence.jdbc.PoolMonitorDataSource;
+import org.workin.core.persistence.jdbc.PoolSaturationEvent;
+import org.workin.fortest.BaseTestCase;
+import org.workin.util.ReflectionUtils;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class PoolMonitorDataSourceTest extends BaseTestCase {
+
+	private static final String IDENTITY_TOKEN = "PoolMonitorDataSourceTest";
+
+	private final List<ApplicationEvent> events = new ArrayList<ApplicationEvent>();
+
+	// Checkout waits of the stub pool, a negative wait fails the checkout.
+	private final List<Long> checkoutWaits = new ArrayList<Long>();
+
+	private final ConnectionAgeCustomizer customizer = new ConnectionAgeCustomizer();
+
+	@After
+	public void tearDown() {
+		acquiredTimes().remove(IDENTITY_TOKEN);
+	}
+
+	@Test
+	public void checkoutWaits() throws SQLException {
+		PoolMonitorDataSource dataSource = new PoolMonitorDataSource(fakePool());
+		dataSource.setWarnThresholdMillis(50);
+		dataSource.setApplicationEventPublisher(new ApplicationEventPublisher() {
+			@Override
+			public void publishEvent(ApplicationEvent event) {
+				events.add(event);
+			}
+		});
+
+		checkoutWaits.add(0L);
+		checkoutWaits.add(80L);
+		checkoutWaits.add(60L);
+		checkoutWaits.add(-1L);
+		for (int i = 0; i < 4; i++) {
+			try {
+				assertNotNull(dataSource.getConnection());
+			} catch (SQLException e) {
+				assertEquals(3, i);
+			}
+		}
+
+		assertEquals(4L, dataSource.getCheckoutCount());
+		assertEquals(1L, dataSource.getFailedCheckoutCount());
+		assertEquals(2L, dataSource.getSlowCheckoutCount());
+		assertTrue(dataSource.getMaxCheckoutWaitMillis() >= 80.0);
+		assertTrue(dataSource.getCheckoutWaitP99Millis() >= 60.0);
+		// Warned once per warnIntervalMillis.
+		assertEquals(1, events.size());
+		PoolSaturationEvent event = (PoolSaturationEvent) events.get(0);
+		assertTrue(event.getWaitMillis() >= 80L);
+		assertEquals(3, event.getBusyConnections());
+		assertEquals(2, event.getIdleConnections());
+		assertEquals(1, event.getThreadsAwaitingCheckout());
+
+		dataSource.resetStatistics();
+		assertEquals(0L, dataSource.getCheckoutCount());
+		assertEquals(0.0, dataSource.getMaxCheckoutWaitMillis(), 0.0);
+	}
+
+	@Test
+	public void connectionAges() throws Exception {
+		PoolMonitorDataSource dataSource = new PoolMonitorDataSource(fakePool());
+		assertEquals(0L, dataSource.getOldestConnectionAgeSeconds());
+		assertEquals(0L, dataSource.getAverageConnectionAgeSeconds());
+
+		Connection first = JpaFakes.fake(Connection.class, unexpected());
+		Connection second = JpaFakes.fake(Connection.class, unexpected());
+		Connection third = JpaFakes.fake(Connection.class, unexpected());
+		customizer.onAcquire(first, IDENTITY_TOKEN);
+		customizer.onAcquire(second, IDENTITY_TOKEN);
+		customizer.onAcquire(third, IDENTITY_TOKEN);
+		assertEquals(3, ConnectionAgeCustomizer.getConnectionAges(IDENTITY_TOKEN).length);
+
+		// Backdate the acquire times by 10s and 4s.
+		long now = System.currentTimeMillis();
+		acquiredTimes().get(IDENTITY_TOKEN).put(first, now - 10000L);
+		acquiredTimes().get(IDENTITY_TOKEN).put(second, now - 4000L);
+		customizer.onDestroy(third, IDENTITY_TOKEN);
+
+		assertEquals(10L, dataSource.getOldestConnectionAgeSeconds());
+		assertEquals(7L, dataSource.getAverageConnectionAgeSeconds());
+		assertEquals(0, ConnectionAgeCustomizer.getConnectionAges("unknown").length);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Map<Connection, Long>> acquiredTimes() {
+		return (Map<String, Map<Connection, Long>>) ReflectionUtils.getFieldValue(customizer, "acquiredTimes");
+	}
+
+	private PooledDataSource fakePool() {
+		final Connection connection = JpaFakes.fake(Connection.class, unexpected());
+		return JpaFakes.fake(PooledDataSource.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) throws Exception {
+				String name = method.getName();
+				if ("getConnection".equals(name) && args.length == 0) {
+					long wait = checkoutWaits.remove(0);
+					if (wait < 0) {
+						throw new SQLException("An attempt by a client to checkout a Connection has timed out.");
+					}
+					Thread.sleep(wait);
+					return connection;
+				}
+				if ("getNumBusyConnectionsDefaultUser".equals(name)) {
+					return 3;
+				}
+				if ("getNumIdleConnectionsDefaultUser".equals(name)) {
+					return 2;
+				}
+				if ("getNumThreadsAwaitingCheckoutDefaultUser".equals(name)) {
+					return 1;
+				}
+				return "getIdentityToken".equals(name) ? IDENTITY_TOKEN : JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private static JpaFakes.Answer unexpected() {
+		return new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return JpaFakes.UNEXPECTED;
+			}
+		};
+	}
+}
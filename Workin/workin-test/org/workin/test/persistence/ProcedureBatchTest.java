@@ -0,0 +1,98 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.ProcedureExecutor;
+import org.workin.core.persistence.jpa.JpaPersistenceImpl;
+import org.workin.core.persistence.support.ProcedureParameter;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ProcedureBatchTest extends BaseTestCase {
+
+	private JpaPersistenceImpl<Person, Serializable> persistence;
+
+	// Calls prepared on the connection handed to Session.doWork.
+	private final List<String> calls = new ArrayList<String>();
+
+	@Before
+	public void setUp() {
+		persistence = new JpaPersistenceImpl<Person, Serializable>();
+		persistence.setProcedureExecutor(new ProcedureExecutor());
+		persistence.setJpaTemplate(JpaFakes.jpaTemplate(fakeEntityManager()));
+	}
+
+	@Test
+	public void executeBatchInSessionWork() {
+		List<List<ProcedureParameter>> parameterSets = new ArrayList<List<ProcedureParameter>>();
+		for (int i = 0; i < 2; i++) {
+			parameterSets.add(Collections.singletonList(new ProcedureParameter("P_ID", i, ProcedureParameter.IN,
+					Types.INTEGER)));
+		}
+
+		int[] counts = persistence.executeProcedureBatch("P_TOUCH", parameterSets);
+		assertEquals(2, counts.length);
+		assertEquals(1, calls.size());
+	}
+
+	// Only Session.doWork reaches the connection, Session.connection() fails the test.
+	private EntityManager fakeEntityManager() {
+		final CallableStatement statement = JpaFakes.fake(CallableStatement.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("executeBatch".equals(method.getName())) {
+					return new int[] { 1, 1 };
+				}
+				if (method.getName().startsWith("set") || "addBatch".equals(method.getName())
+						|| "close".equals(method.getName())) {
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+		final Connection connection = JpaFakes.fake(Connection.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("prepareCall".equals(method.getName())) {
+					calls.add((String) args[0]);
+					return statement;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+		final Session session = JpaFakes.fake(Session.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("doWork".equals(method.getName())) {
+					((Work) args[0]).execute(connection);
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+		return JpaFakes.fake(EntityManager.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "getDelegate".equals(method.getName()) ? session : JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+}
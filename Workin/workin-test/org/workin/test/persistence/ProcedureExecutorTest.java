@@ -0,0 +1,103 @@
+package org.workin.test.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.ProcedureExecutor;
+import org.workin.core.persistence.support.ProcedureParameter;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ProcedureExecutorTest extends BaseTestCase {
+
+	// Calls on the fake JDBC objects, eg. "setObject(1,a)".
+	private final List<String> calls = new ArrayList<String>();
+
+	@Test
+	public void execute() throws SQLException {
+		List<ProcedureParameter> params = Arrays.asList(new ProcedureParameter(null, "a", ProcedureParameter.IN,
+				Types.VARCHAR), new ProcedureParameter(null, "b", ProcedureParameter.INOUT, Types.VARCHAR),
+				new ProcedureParameter(null, null, ProcedureParameter.OUT, Types.INTEGER));
+
+		Map<String, Object> result = new ProcedureExecutor().execute(fakeConnection(), "proc_test", params);
+
+		assertEquals(Arrays.asList("prepareCall({call proc_test(?,?,?) })", "setObject(1,a)", "setObject(2,b)",
+				"registerOutParameter(2)", "registerOutParameter(3)", "execute", "getObject(2)", "getObject(3)",
+				"close"), calls);
+		assertEquals(2, result.size());
+		assertEquals("out3", result.get("3"));
+	}
+
+	@Test
+	public void executeBatch() throws SQLException {
+		List<List<ProcedureParameter>> parameterSets = new ArrayList<List<ProcedureParameter>>();
+		for (int i = 0; i < 3; i++) {
+			parameterSets.add(Arrays.asList(new ProcedureParameter(null, "v" + i, ProcedureParameter.IN,
+					Types.VARCHAR)));
+		}
+
+		ProcedureExecutor executor = new ProcedureExecutor();
+		executor.setBatchSize(2);
+		int[] counts = executor.executeBatch(fakeConnection(), "proc_test", parameterSets);
+
+		assertEquals(3, counts.length);
+		assertEquals(Arrays.asList("prepareCall({call proc_test(?) })", "setObject(1,v0)", "addBatch",
+				"setObject(1,v1)", "addBatch", "executeBatch", "setObject(1,v2)", "addBatch", "executeBatch",
+				"close"), calls);
+	}
+
+	private Connection fakeConnection() {
+		final CallableStatement statement = (CallableStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { CallableStatement.class }, new InvocationHandler() {
+					private int batched;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if ("setObject".equals(name)) {
+							calls.add(name + "(" + args[0] + "," + args[1] + ")");
+						} else if ("registerOutParameter".equals(name) || "getObject".equals(name)) {
+							calls.add(name + "(" + args[0] + ")");
+							return "getObject".equals(name) ? "out" + args[0] : null;
+						} else {
+							calls.add(name);
+						}
+
+						if ("addBatch".equals(name)) {
+							batched++;
+						} else if ("executeBatch".equals(name)) {
+							int[] counts = new int[batched];
+							Arrays.fill(counts, 1);
+							batched = 0;
+							return counts;
+						} else if ("execute".equals(name)) {
+							return Boolean.FALSE;
+						}
+						return null;
+					}
+				});
+
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						calls.add(method.getName() + "(" + args[0] + ")");
+						return statement;
+					}
+				});
+	}
+}
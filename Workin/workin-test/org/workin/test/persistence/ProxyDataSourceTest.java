@@ -0,0 +1,88 @@
+package org.workin.test.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.ProxyDataSource;
+import org.workin.core.persistence.jdbc.StatementListener;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ProxyDataSourceTest extends BaseTestCase {
+
+	@Test
+	public void proxiesKeepTheirIdentity() throws Exception {
+		ProxyDataSource dataSource = new ProxyDataSource(fake(DataSource.class));
+		dataSource.setListeners(Collections.<StatementListener> singletonList(new StatementListener() {
+			@Override
+			public void afterExecute(String sql, long elapsedNanos, int updateCount, Throwable error) {
+			}
+
+			@Override
+			public void afterFetch(String sql, int rows) {
+			}
+		}));
+
+		Connection connection = dataSource.getConnection();
+		PreparedStatement statement = connection.prepareStatement("select 1");
+		ResultSet resultSet = statement.executeQuery();
+
+		assertTrue(connection.equals(connection));
+		assertTrue(statement.equals(statement));
+		assertFalse(statement.equals(connection.prepareStatement("select 1")));
+		assertEquals(System.identityHashCode(statement), statement.hashCode());
+
+		// Hibernate keeps the statements of a batch in hash sets and removes them on close.
+		Set<PreparedStatement> statements = new HashSet<PreparedStatement>();
+		statements.add(statement);
+		assertTrue(statements.remove(statement));
+
+		assertSame(connection, statement.getConnection());
+		assertSame(statement, resultSet.getStatement());
+	}
+
+	/**
+	 * 
+	 * JDBC object whose methods return fakes of their return types, with identity equals/hashCode.
+	 * 
+	 */
+	private static <T> T fake(final Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(ProxyDataSourceTest.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("equals".equals(method.getName())) {
+							return Boolean.valueOf(proxy == args[0]);
+						}
+						if ("hashCode".equals(method.getName())) {
+							return Integer.valueOf(System.identityHashCode(proxy));
+						}
+						Class<?> returnType = method.getReturnType();
+						if (returnType.isInterface()) {
+							return fake(returnType);
+						}
+						if (returnType == boolean.class) {
+							return Boolean.FALSE;
+						}
+						if (returnType == int.class) {
+							return Integer.valueOf(0);
+						}
+						return null;
+					}
+				}));
+	}
+}
@@ -0,0 +1,57 @@
+package org.workin.test.persistence;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.QueryCountContext;
+import org.workin.core.persistence.jdbc.QueryCountListener;
+import org.workin.core.persistence.jdbc.SqlNormalizer;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class QueryCountTest extends BaseTestCase {
+
+	@Test
+	public void normalize() {
+		assertEquals("select * from person t0_ where t0_.id = ? and t0_.name in (?)", SqlNormalizer
+				.normalize("SELECT *  FROM person t0_\n WHERE t0_.id = 12 and t0_.name IN ('a', 'it''s')"));
+		assertEquals("update address set zip=? where id=?", SqlNormalizer
+				.normalize("update address set zip=-100 where id=?"));
+	}
+
+	@Test
+	public void repeatedShapes() {
+		QueryCountListener listener = new QueryCountListener();
+
+		// Outside a context nothing is counted.
+		listener.afterExecute("select 1", 1000L, -1, null);
+		assertNull(QueryCountContext.current());
+
+		QueryCountContext.open();
+		listener.afterExecute("select * from person", 1000000L, -1, null);
+		listener.afterFetch("select * from person", 3);
+		for (int i = 0; i < 3; i++) {
+			listener.afterExecute("select * from address where person_id = " + i, 1000000L, -1, null);
+			listener.afterFetch("select * from address where person_id = " + i, 1);
+		}
+
+		QueryCountContext.open();
+		assertNull(QueryCountContext.close());
+
+		QueryCountContext counts = QueryCountContext.close();
+		assertNull(QueryCountContext.current());
+		assertEquals(4, counts.getStatementCount());
+		assertEquals(6L, counts.getRowCount());
+		assertEquals(4L, counts.getJdbcTimeMillis());
+
+		List<Map.Entry<String, Integer>> repeated = counts.getRepeatedShapes(3);
+		assertEquals(1, repeated.size());
+		assertEquals("select * from address where person_id = ?", repeated.get(0).getKey());
+		assertEquals(3, repeated.get(0).getValue().intValue());
+	}
+}
@@ -0,0 +1,59 @@
+package org.workin.test.persistence;
+
+import org.junit.Test;
+import org.workin.core.persistence.cache.RequestEntityCache;
+import org.workin.core.persistence.cache.RequestEntityCacheInvalidator;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Address;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class RequestEntityCacheTest extends BaseTestCase {
+
+	@Test
+	public void cacheWithinRequest() {
+		assertNull(RequestEntityCache.current());
+
+		RequestEntityCache.open();
+		try {
+			RequestEntityCache cache = RequestEntityCache.current();
+			Person person = new Person();
+			cache.put(Person.class, 1L, person);
+			cache.put(Person.class, 2L, null);
+
+			RequestEntityCache.open();
+			assertSame(cache, RequestEntityCache.current());
+			RequestEntityCache.close();
+
+			assertSame(person, cache.get(Person.class, 1L));
+			assertSame(RequestEntityCache.NULL_ENTITY, cache.get(Person.class, 2L));
+			assertNull(cache.get(Person.class, 3L));
+			assertEquals(2, cache.getHitCount());
+		} finally {
+			RequestEntityCache.close();
+		}
+
+		assertNull(RequestEntityCache.current());
+	}
+
+	@Test
+	public void writeDropsType() {
+		RequestEntityCache.open();
+		try {
+			RequestEntityCache cache = RequestEntityCache.current();
+			cache.put(Person.class, 1L, new Person());
+			cache.put(Address.class, 1L, new Address());
+
+			new RequestEntityCacheInvalidator().invalidate(Person.class, null);
+
+			assertNull(cache.get(Person.class, 1L));
+			assertNotNull(cache.get(Address.class, 1L));
+		} finally {
+			RequestEntityCache.close();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.workin.test.persistence;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.LatencyHistogram;
+import org.workin.core.persistence.jdbc.SqlProfiler;
+import org.workin.core.persistence.jdbc.SqlStatementSummary;
+import org.workin.fortest.BaseTestCase;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class SqlProfilerTest extends BaseTestCase {
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(1000L, histogram.getCount());
+		assertWithin(500L, histogram.getPercentileMicros(50.0));
+		assertWithin(990L, histogram.getPercentileMicros(99.0));
+		assertWithin(1000L, histogram.getPercentileMicros(100.0));
+
+		histogram.reset();
+		assertEquals(0L, histogram.getPercentileMicros(99.0));
+	}
+
+	@Test
+	public void aggregateByShape() {
+		SqlProfiler profiler = new SqlProfiler();
+		profiler.afterExecute("select * from person where id = 1", 2000000L, -1, null);
+		profiler.afterFetch("select * from person where id = 1", 1);
+		profiler.afterExecute("select * from person where id = 2", 4000000L, -1, null);
+		profiler.afterExecute("update person set name = 'x' where id = 2", 1000000L, 1, new RuntimeException());
+
+		List<SqlStatementSummary> summaries = profiler.getSummaries(SqlProfiler.BY_TOTAL_TIME, 0);
+		assertEquals(2, summaries.size());
+		assertEquals(3L, profiler.getStatementCount());
+
+		SqlStatementSummary select = summaries.get(0);
+		assertEquals("select * from person where id = ?", select.getShape());
+		assertEquals(2L, select.getCount());
+		assertEquals(6000L, select.getTotalMicros());
+		assertEquals(4000L, select.getMaxMicros());
+		assertEquals(1L, select.getRows());
+		assertEquals(0L, select.getErrors());
+		assertEquals(1L, summaries.get(1).getErrors());
+
+		assertEquals(2, profiler.topByP99(1).length);
+		profiler.reset();
+		assertEquals(0, profiler.getShapeCount());
+	}
+
+	private static void assertWithin(final long expected, final long actual) {
+		assertTrue("expected ~" + expected + " but was " + actual, actual >= expected
+				&& actual <= expected + expected / 8);
+	}
+}
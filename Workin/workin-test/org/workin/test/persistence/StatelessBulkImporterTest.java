@@ -0,0 +1,168 @@
+package org.workin.test.persistence;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.Test;
+import org.springframework.orm.jpa.JpaTemplate;
+import org.workin.core.persistence.jpa.JpaPersistenceImpl;
+import org.workin.core.persistence.jpa.StatelessBulkImporter;
+import org.workin.core.persistence.support.BulkImportListener;
+import org.workin.core.persistence.support.BulkImportResult;
+import org.workin.exception.ServiceException;
+import org.workin.fortest.BaseTestCase;
+import org.workin.test.application.entity.Person;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class StatelessBulkImporterTest extends BaseTestCase {
+
+	// Sizes of the committed chunks.
+	private final List<Integer> committed = Collections.synchronizedList(new ArrayList<Integer>());
+
+	private final List<Integer> rolledBack = Collections.synchronizedList(new ArrayList<Integer>());
+
+	private final List<Long> progress = Collections.synchronizedList(new ArrayList<Long>());
+
+	private volatile int openSessions;
+
+	// Insert of this person fails.
+	private Person failing;
+
+	@Test
+	public void commitInChunks() {
+		BulkImportResult result = new StatelessBulkImporter(fakeSessionFactory(), 3, 2).importAll(Person.class,
+				newPersons(7).iterator(), new ProgressListener());
+
+		assertTrue(result.isSuccess());
+		assertEquals(7L, result.getImportedCount());
+		assertEquals(3, committed.size());
+		assertEquals(7, committed.get(0) + committed.get(1) + committed.get(2));
+		assertTrue(committed.contains(1));
+		assertTrue(rolledBack.isEmpty());
+		assertEquals(3, progress.size());
+		assertEquals(Long.valueOf(7L), Collections.max(progress));
+		assertEquals(0, openSessions);
+	}
+
+	@Test
+	public void rollBackFailedChunk() {
+		List<Person> persons = newPersons(6);
+		failing = persons.get(4);
+
+		BulkImportResult result = new StatelessBulkImporter(fakeSessionFactory(), 3, 1).importAll(Person.class,
+				persons.iterator(), null);
+
+		assertFalse(result.isSuccess());
+		assertTrue(result.getFailure() instanceof IllegalStateException);
+		assertEquals(3L, result.getImportedCount());
+		assertEquals(Collections.singletonList(3), committed);
+		assertEquals(1, rolledBack.size());
+		assertEquals(0, openSessions);
+	}
+
+	@Test
+	public void bulkImportThrowsOnFailure() {
+		List<Person> persons = newPersons(2);
+		failing = persons.get(1);
+
+		JpaPersistenceImpl<Person, Serializable> persistence = new JpaPersistenceImpl<Person, Serializable>();
+		persistence.setJpaTemplate(new JpaTemplate(JpaFakes.entityManagerFactory(fakeSessionFactory())));
+		persistence.setBulkImportCommitInterval(1);
+		persistence.setBulkImportWorkers(1);
+
+		try {
+			persistence.bulkImport(Person.class, persons.iterator());
+			fail("A failed bulk import must throw");
+		} catch (ServiceException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(Collections.singletonList(1), committed);
+	}
+
+	private List<Person> newPersons(int count) {
+		List<Person> persons = new ArrayList<Person>(count);
+		for (int i = 0; i < count; i++) {
+			Person person = new Person();
+			person.setName("person " + i);
+			persons.add(person);
+		}
+		return persons;
+	}
+
+	private SessionFactory fakeSessionFactory() {
+		return JpaFakes.fake(SessionFactory.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				return "openStatelessSession".equals(method.getName()) && args.length == 0 ? fakeSession()
+						: JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private synchronized StatelessSession fakeSession() {
+		openSessions++;
+		final List<Object> inserted = new ArrayList<Object>();
+		final boolean[] active = new boolean[1];
+		final Transaction transaction = JpaFakes.fake(Transaction.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("commit".equals(method.getName())) {
+					committed.add(inserted.size());
+				} else if ("rollback".equals(method.getName())) {
+					rolledBack.add(inserted.size());
+				} else if ("isActive".equals(method.getName())) {
+					return active[0];
+				} else {
+					return JpaFakes.UNEXPECTED;
+				}
+				active[0] = false;
+				return null;
+			}
+		});
+		return JpaFakes.fake(StatelessSession.class, new JpaFakes.Answer() {
+			@Override
+			protected Object answer(Object proxy, Method method, Object[] args) {
+				if ("beginTransaction".equals(method.getName())) {
+					active[0] = true;
+					return transaction;
+				}
+				if ("insert".equals(method.getName()) && args.length == 1) {
+					if (args[0] == failing) {
+						throw new IllegalStateException("constraint violated");
+					}
+					inserted.add(args[0]);
+					return 1L;
+				}
+				if ("close".equals(method.getName())) {
+					synchronized (StatelessBulkImporterTest.this) {
+						openSessions--;
+					}
+					return null;
+				}
+				return JpaFakes.UNEXPECTED;
+			}
+		});
+	}
+
+	private class ProgressListener implements BulkImportListener {
+
+		@Override
+		public void onProgress(Class<?> entityClass, long importedCount, long elapsedMillis) {
+			progress.add(importedCount);
+		}
+
+		@Override
+		public void onComplete(BulkImportResult result) {
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package org.workin.test.trace;
+
+import org.hibernate.cfg.AnnotationConfiguration;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.trace.domain.BehaviorPerformance;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BehaviorPerformanceMappingTest extends BaseTestCase {
+
+	@Test
+	public void repeatedStatementColumnLength() {
+		AnnotationConfiguration configuration = new AnnotationConfiguration();
+		configuration.addAnnotatedClass(BehaviorPerformance.class);
+		configuration.buildMappings();
+
+		PersistentClass mapping = configuration.getClassMapping(BehaviorPerformance.class.getName());
+		Column column = (Column) mapping.getProperty("repeatedStatement").getColumnIterator().next();
+		assertEquals(1000, column.getLength());
+	}
+}
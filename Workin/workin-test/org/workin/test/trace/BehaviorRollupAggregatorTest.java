@@ -0,0 +1,93 @@
+package org.workin.test.trace;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.workin.core.persistence.jdbc.LatencyHistogram;
+import org.workin.fortest.BaseTestCase;
+import org.workin.jms.producer.MessageProducer;
+import org.workin.trace.domain.BehaviorRollup;
+import org.workin.trace.support.BehaviorRollupAggregator;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BehaviorRollupAggregatorTest extends BaseTestCase {
+
+	@Test
+	public void stripedHistogramDrain() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram(4);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (long i = 1; i <= 1000; i++) {
+						histogram.record(i * 1000L);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.drain();
+		assertEquals(4000, snapshot.getCount());
+		assertEquals(4 * 500500, snapshot.getSumMicros());
+		assertEquals(1, snapshot.getMinMicros());
+		assertEquals(1000, snapshot.getMaxMicros());
+		assertEquals(500, snapshot.getPercentileMicros(50), 500 / 8);
+		assertEquals(990, snapshot.getPercentileMicros(99), 990 / 8);
+		assertEquals(0, histogram.drain().getCount());
+	}
+
+	@Test
+	public void rollupPerUriAndPeriod() {
+		final List<Serializable> sent = new ArrayList<Serializable>();
+		BehaviorRollupAggregator aggregator = new BehaviorRollupAggregator();
+		aggregator.setMaxKeys(2);
+		aggregator.setMessageProducer(new MessageProducer() {
+			@Override
+			public void sendQueue(Serializable... targetObject) {
+				Collections.addAll(sent, targetObject);
+			}
+
+			@Override
+			public void sendTopic(Serializable... targetObject) {
+			}
+		});
+
+		aggregator.record("/user/list.action", "admin", 10);
+		aggregator.record("/user/list.action", "guest", 30);
+		aggregator.record("/order/save.action", "admin", 200);
+		aggregator.record("/order/list.action", "admin", 5);
+		aggregator.flush();
+
+		assertEquals(3, sent.size());
+		for (Serializable message : sent) {
+			BehaviorRollup rollup = (BehaviorRollup) message;
+			assertNull(rollup.getUserName());
+			if ("/user/list.action".equals(rollup.getRequestURI())) {
+				assertEquals(2, rollup.getRequestCount());
+				assertEquals(40, rollup.getTotalTime());
+				assertEquals(10, rollup.getMinTime());
+				assertEquals(30, rollup.getMaxTime());
+			} else if (BehaviorRollupAggregator.OTHER_URI.equals(rollup.getRequestURI())) {
+				assertEquals(5, rollup.getP99Time());
+			}
+		}
+
+		// Idle URIs are dropped.
+		sent.clear();
+		aggregator.flush();
+		assertTrue(sent.isEmpty());
+		assertEquals(0, aggregator.getKeyCount());
+	}
+}
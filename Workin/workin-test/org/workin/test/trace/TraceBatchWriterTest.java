@@ -0,0 +1,101 @@
+package org.workin.test.trace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.StoredLog;
+import org.workin.trace.service.StoredLogService;
+import org.workin.trace.service.TraceBatchWriter;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class TraceBatchWriterTest extends BaseTestCase {
+
+	private TraceBatchWriter writer;
+
+	private final List<Integer> batchSizes = new ArrayList<Integer>();
+
+	private int merges;
+
+	private boolean failBatches;
+
+	@Before
+	public void setUp() {
+		writer = new TraceBatchWriter();
+		writer.setStoredLogService(fakeStoredLogService());
+		writer.setBatchSize(3);
+	}
+
+	@Test
+	public void writeOnSizeAndFlush() {
+		for (int i = 0; i < 7; i++) {
+			writer.add(new StoredLog());
+		}
+		assertEquals(2, batchSizes.size());
+		assertEquals(1, writer.getPendingCount());
+
+		writer.flush();
+		assertEquals(3, batchSizes.size());
+		assertEquals(Integer.valueOf(1), batchSizes.get(2));
+		assertEquals(7L, writer.getWrittenCount());
+		assertEquals(0, merges);
+	}
+
+	@Test
+	public void mergeOneByOneWhenBatchFails() {
+		failBatches = true;
+		for (int i = 0; i < 3; i++) {
+			writer.add(new StoredLog());
+		}
+		assertEquals(3, merges);
+		assertEquals(3L, writer.getWrittenCount());
+		assertEquals(0L, writer.getBatchCount());
+	}
+
+	@Test
+	public void countDroppedWithoutService() {
+		writer.add(new BehaviorPerformance());
+		writer.flush();
+		assertEquals(1L, writer.getFailedCount());
+		assertEquals(0, writer.getPendingCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNonPositiveBatchSize() {
+		writer.setBatchSize(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNonPositiveFlushInterval() {
+		writer.setFlushIntervalMillis(-1);
+	}
+
+	private StoredLogService fakeStoredLogService() {
+		return (StoredLogService) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { StoredLogService.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("batchPersist".equals(method.getName())) {
+							if (failBatches) {
+								throw new IllegalStateException("batch failed");
+							}
+							batchSizes.add(((List<?>) args[0]).size());
+						} else if ("merge".equals(method.getName())) {
+							merges++;
+							return args[0];
+						}
+						return null;
+					}
+				});
+	}
+}
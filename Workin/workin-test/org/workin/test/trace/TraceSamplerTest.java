@@ -0,0 +1,45 @@
+package org.workin.test.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.trace.support.TraceSampler;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class TraceSamplerTest extends BaseTestCase {
+
+	@Test
+	public void weightedSampleKeepsTotals() {
+		TraceSampler sampler = new TraceSampler();
+		sampler.setDefaultRate(0.1);
+
+		double total = 0;
+		for (int i = 0; i < 20000; i++) {
+			total += sampler.sample("/user/list.action", 10);
+		}
+
+		assertTrue(sampler.getKeptCount() < 4000);
+		assertEquals(20000, sampler.getKeptCount() + sampler.getDroppedCount());
+		assertEquals(20000, total, 2000);
+	}
+
+	@Test
+	public void uriRateAndSlowRequests() {
+		TraceSampler sampler = new TraceSampler();
+		sampler.setDefaultRate(0);
+		Map<String, Double> uriRates = new LinkedHashMap<String, Double>();
+		uriRates.put("/order/.*", 1d);
+		sampler.setUriRates(uriRates);
+		sampler.setSlowThresholdMillis(500);
+
+		assertEquals(1d, sampler.sample("/order/save.action", 10), 0);
+		assertEquals(0d, sampler.sample("/user/list.action", 10), 0);
+		assertEquals(1d, sampler.sample("/user/list.action", 800), 0);
+	}
+}
@@ -0,0 +1,88 @@
+package org.workin.test.web.filter;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.workin.core.persistence.cache.CacheWarmer;
+import org.workin.fortest.BaseTestCase;
+import org.workin.spring.SpringContextHolder;
+import org.workin.util.ReflectionUtils;
+import org.workin.web.filter.WarmUpReadinessFilter;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class WarmUpReadinessFilterTest extends BaseTestCase {
+
+	private ApplicationContext previousContext;
+
+	private WarmUpReadinessFilter filter;
+
+	@Before
+	public void setUp() {
+		previousContext = (ApplicationContext) ReflectionUtils.getFieldValue(new SpringContextHolder(),
+				"applicationContext");
+
+		MockFilterConfig config = new MockFilterConfig();
+		config.addInitParameter("cacheWarmerBeanName", "warmer");
+		config.addInitParameter("retryAfterSeconds", "10");
+		filter = new WarmUpReadinessFilter();
+		filter.init(config);
+	}
+
+	@After
+	public void tearDown() {
+		new SpringContextHolder().setApplicationContext(previousContext);
+	}
+
+	@Test
+	public void unavailableBeforeContextRefreshed() throws IOException, ServletException {
+		new SpringContextHolder().setApplicationContext(null);
+
+		assertUnavailable();
+	}
+
+	@Test
+	public void passThroughAfterWarmUp() throws IOException, ServletException {
+		StaticApplicationContext context = new StaticApplicationContext();
+		CacheWarmer warmer = new CacheWarmer();
+		context.getBeanFactory().registerSingleton("warmer", warmer);
+		new SpringContextHolder().setApplicationContext(context);
+
+		assertUnavailable();
+
+		warmer.onApplicationEvent(new ContextRefreshedEvent(context));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, response, chain);
+
+		assertSame(request, chain.getRequest());
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertNull(response.getHeader("Retry-After"));
+	}
+
+	private void assertUnavailable() throws IOException, ServletException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest(), response, chain);
+
+		assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+		assertEquals("10", response.getHeader("Retry-After"));
+		assertNull(chain.getRequest());
+	}
+}
@@ -0,0 +1,52 @@
+package org.workin.test.web.interceptor;
+
+import java.util.Arrays;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+import org.workin.fortest.BaseTestCase;
+import org.workin.web.struts2.interceptor.UriPatternMatcher;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class UriPatternMatcherTest extends BaseTestCase {
+
+	@Test
+	public void matchLikeRegexes() {
+		String[] patterns = { "/login\\.action", "/static/.*", "/user/.*\\.action", "/order/(\\w+)/\\1",
+				"/report/list.action" };
+		UriPatternMatcher matcher = new UriPatternMatcher(Arrays.asList(patterns));
+		String[] uris = { "/login.action", "/loginXaction", "/login.action2", "/static/", "/static/js/app.js",
+				"/stat", "/user/list.action", "/user/list.do", "/order/a/a", "/order/a/b", "/report/listXaction",
+				"/other" };
+
+		assertEquals(5, matcher.getPatternCount());
+		for (String uri : uris) {
+			boolean expected = false;
+			for (String pattern : patterns) {
+				expected |= uri.matches(pattern);
+			}
+			assertEquals(uri, expected, matcher.matches(uri));
+			// Cached decision.
+			assertEquals(uri, expected, matcher.matches(uri));
+		}
+	}
+
+	@Test
+	public void boundedCache() {
+		UriPatternMatcher matcher = new UriPatternMatcher(Arrays.asList("/item/\\d+"), 8);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(matcher.matches("/item/" + i));
+		}
+		assertFalse(matcher.matches("/item/x"));
+		assertTrue(new UriPatternMatcher(Arrays.<String> asList()).isEmpty());
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void badPattern() {
+		new UriPatternMatcher(Arrays.asList("/user/(.*"));
+	}
+}
@@ -19,6 +19,9 @@ public interface Constants {
 	public static final String HQL_SELECT_COUNT_FROM = "SELECT COUNT(*) as totalCount FROM ";
 	public static final String HQL_SELECT_FROM = "SELECT obj FROM ";
 	public static final String HQL_ALIAS_OBJECT = " obj ";
+	public static final String HQL_ALIAS_OBJECT_PREFIX = "obj.";
+	public static final String HQL_SELECT_DISTINCT_FROM = "SELECT DISTINCT obj FROM ";
+	public static final String HQL_KEYWORD_LEFT_JOIN_FETCH = " LEFT JOIN FETCH ";
 	
 	// Define HQL Key Word.
 	public static final String HQL_KEYWORD_OR = " or ";
@@ -0,0 +1,107 @@
+package org.workin.core.entity.support;
+
+import java.util.Date;
+
+import org.workin.core.context.ExtenalContext;
+import org.workin.core.context.ThreadLocalContext;
+import org.workin.util.DateUtils;
+
+/**
+ * 
+ * Audit values shared by all entities of one batch on the current thread.
+ * 
+ * The timestamp is taken when the batch is opened, the user name is resolved on the first audited
+ * entity, then every entity of the batch is stamped with the same values. Batches nest, only the
+ * outermost open/close pair creates and removes the context.
+ * 
+ * eg.
+ * 
+ * 	AuditBatchContext.open();
+ * 	try {
+ * 		for (...) em.persist(entity);
+ * 	} finally {
+ * 		AuditBatchContext.close();
+ * 	}
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class AuditBatchContext {
+
+	private final long timestamp = DateUtils.getNow().getTime();
+
+	private String userName;
+
+	private int depth;
+
+	private AuditBatchContext() {
+	}
+
+	/**
+	 * 
+	 * Open a batch on the current thread, or join the batch already open.
+	 * 
+	 */
+	public static void open() {
+		AuditBatchContext batch = current();
+		if (batch == null) {
+			batch = new AuditBatchContext();
+			context.setAttribute(CONTEXT_KEY, batch);
+		}
+		batch.depth++;
+	}
+
+	/**
+	 * 
+	 * Close the batch opened by open(), the outermost close removes the batch.
+	 * 
+	 */
+	public static void close() {
+		AuditBatchContext batch = current();
+		if (batch != null && --batch.depth == 0) {
+			context.removeAttribute(CONTEXT_KEY);
+		}
+	}
+
+	/**
+	 * 
+	 * Get the batch of the current thread.
+	 * 
+	 * @return AuditBatchContext or null if no batch is open
+	 * 
+	 */
+	public static AuditBatchContext current() {
+		return (AuditBatchContext) context.getAttribute(CONTEXT_KEY);
+	}
+
+	/**
+	 * 
+	 * Get the user name of the batch, resolved once by the executor.
+	 * 
+	 * @param auditEventExecutor
+	 * @return String
+	 * 
+	 */
+	public String getUserName(final AuditEventExecutor auditEventExecutor) {
+		if (userName == null) {
+			userName = auditEventExecutor.getCurrentUserName();
+		}
+		return userName;
+	}
+
+	/**
+	 * 
+	 * Get the timestamp of the batch, every call returns a new Date of the same time, so an entity
+	 * cannot change the timestamp of the others.
+	 * 
+	 * @return Date
+	 * 
+	 */
+	public Date getTimestamp() {
+		return new Date(timestamp);
+	}
+
+	private static final String CONTEXT_KEY = AuditBatchContext.class.getName();
+
+	private static final ExtenalContext context = new ThreadLocalContext();
+}
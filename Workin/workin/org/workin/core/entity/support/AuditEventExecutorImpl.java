@@ -1,5 +1,7 @@
 package org.workin.core.entity.support;
 
+import java.util.Date;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.workin.core.entity.Auditable;
@@ -59,13 +61,17 @@ public class AuditEventExecutorImpl implements AuditEventExecutor {
 		
 		if(entity instanceof Auditable) {
 			auditable = (Auditable) entity;
-			String currentUserName = this.getCurrentUserName();
+			
+			// In a batch, user and timestamp are resolved once for all entities.
+			AuditBatchContext batch = AuditBatchContext.current();
+			String currentUserName = (batch != null) ? batch.getUserName(this) : this.getCurrentUserName();
+			Date now = (batch != null) ? batch.getTimestamp() : DateUtils.getNow();
 			
 			if(isPersist) {
 				auditable.setCreateBy(currentUserName);
-				auditable.setCreatedttm(DateUtils.getNow());
+				auditable.setCreatedttm(now);
 			} else {
-				auditable.setUpdatedttm(DateUtils.getNow());
+				auditable.setUpdatedttm(now);
 				auditable.setUpdateBy(currentUserName);
 			}
 			logger.debug(" Field entity created or updated By: {}", currentUserName);
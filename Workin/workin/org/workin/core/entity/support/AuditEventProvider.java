@@ -77,6 +77,17 @@ public class AuditEventProvider implements ApplicationContextAware {
 		logger.info(" Audit Event Executor : {}", auditEventExecutor.getClass().getName());
 	}
 	
+	/**
+	 * 
+	 * Get the executor for callers which bypass JPA callbacks(eg. StatelessSession).
+	 * 
+	 * @return AuditEventExecutor or null before the application context is set
+	 * 
+	 */
+	public static AuditEventExecutor getAuditEventExecutor() {
+		return auditEventExecutor;
+	}
+	
 	private static AuditEventExecutor auditEventExecutor;
 	
 	protected static final transient Logger logger = LoggerFactory.getLogger(AuditEventProvider.class);
@@ -0,0 +1,259 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.workin.core.persistence.support.PersistenceService;
+import org.workin.util.Assert;
+import org.workin.util.ClassUtils;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * Warm up the persistence caches after the application context is refreshed.
+ * 
+ * The configured getAll entity types, named queries and sqlMap ids are run in parallel by at most
+ * concurrency threads. Their results fill the query cache and second-level cache (see
+ * PersistenceCacheRegistry), the iBatis cache models, and the entity cache. The warm-up runs in the
+ * background and does not delay the startup. Tasks still running after timeoutSeconds are cancelled.
+ * 
+ * isReady() turns true when the warm-up is finished, failed or timed out tasks included. Filters
+ * (see org.workin.web.filter.WarmUpReadinessFilter) and health checks can consult it.
+ * 
+ * eg.
+ * 
+ * 	<bean id="cacheWarmer" class="org.workin.core.persistence.cache.CacheWarmer">
+ * 		<property name="persistenceService" ref="persistenceService" />
+ * 		<property name="entityCache" ref="entityCache" />
+ * 		<property name="concurrency" value="4" />
+ * 		<property name="timeoutSeconds" value="120" />
+ * 		<property name="entityClasses">
+ * 			<list>
+ * 				<value>org.workin.test.application.entity.Person</value>
+ * 			</list>
+ * 		</property>
+ * 		<property name="namedQueries">
+ * 			<list>
+ * 				<value>findAllPerson</value>
+ * 			</list>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@SuppressWarnings("unchecked")
+public class CacheWarmer implements ApplicationListener<ContextRefreshedEvent> {
+
+	private PersistenceService<Object, Serializable> persistenceService;
+
+	private EntityCache entityCache;
+
+	private List<String> entityClasses = Collections.emptyList();
+
+	private List<String> namedQueries = Collections.emptyList();
+
+	private List<String> sqlMapIds = Collections.emptyList();
+
+	private int concurrency = DEFAULT_CONCURRENCY;
+
+	private long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+
+	private final AtomicBoolean started = new AtomicBoolean(false);
+
+	private volatile boolean ready = false;
+
+	private final AtomicInteger succeededCount = new AtomicInteger();
+
+	private final AtomicInteger failedCount = new AtomicInteger();
+
+	private final AtomicInteger timedOutCount = new AtomicInteger();
+
+	@Override
+	public void onApplicationEvent(final ContextRefreshedEvent event) {
+		// Child contexts publish their own refresh events, warm up only once.
+		if (!started.compareAndSet(false, true)) {
+			return;
+		}
+
+		final List<Callable<Integer>> tasks = buildTasks();
+		if (tasks.isEmpty()) {
+			ready = true;
+			return;
+		}
+
+		Thread coordinator = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				warmUp(tasks);
+			}
+		}, "CacheWarmer");
+		coordinator.setDaemon(true);
+		coordinator.start();
+	}
+
+	/**
+	 * 
+	 * Run the warm-up tasks and wait for them until the timeout, then mark ready.
+	 * 
+	 * @param tasks
+	 * 
+	 */
+	protected void warmUp(final List<Callable<Integer>> tasks) {
+		long start = System.currentTimeMillis();
+		long deadline = start + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, tasks.size()),
+				new ThreadFactory() {
+					private final AtomicInteger threadNumber = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "CacheWarmer-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(tasks.size());
+			for (Callable<Integer> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+
+			int loaded = 0;
+			for (Future<Integer> future : futures) {
+				try {
+					loaded += future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+					succeededCount.incrementAndGet();
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					timedOutCount.incrementAndGet();
+				} catch (ExecutionException e) {
+					failedCount.incrementAndGet();
+					logger.warn(" Cache warm-up task failed: " + e.getCause().getMessage(), e.getCause());
+				}
+			}
+
+			logger.info(" Cache warm-up finished in {} ms, loaded rows: " + loaded + ", succeeded: "
+					+ succeededCount.get() + ", failed: " + failedCount.get() + ", timed out: " + timedOutCount.get(),
+					System.currentTimeMillis() - start);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			ready = true;
+		}
+	}
+
+	private List<Callable<Integer>> buildTasks() {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+		for (final String entityClassName : entityClasses) {
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					Class<Object> entityClass = ClassUtils.forName(entityClassName);
+					return preload(persistenceService.getAll(entityClass));
+				}
+			});
+		}
+
+		for (final String queryName : namedQueries) {
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return preload(persistenceService.findByNamedOfQuery(queryName));
+				}
+			});
+		}
+
+		for (final String sqlMapId : sqlMapIds) {
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return persistenceService.findListBySqlMap(sqlMapId, null).size();
+				}
+			});
+		}
+
+		return tasks;
+	}
+
+	private int preload(final List<?> results) {
+		if (entityCache != null) {
+			for (Object result : results) {
+				entityCache.put(result);
+			}
+		}
+		return results.size();
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public int getSucceededCount() {
+		return succeededCount.get();
+	}
+
+	public int getFailedCount() {
+		return failedCount.get();
+	}
+
+	public int getTimedOutCount() {
+		return timedOutCount.get();
+	}
+
+	public void setPersistenceService(PersistenceService<Object, Serializable> persistenceService) {
+		this.persistenceService = persistenceService;
+	}
+
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public void setEntityClasses(List<String> entityClasses) {
+		this.entityClasses = CollectionUtils.isEmpty(entityClasses) ? Collections.<String> emptyList() : entityClasses;
+	}
+
+	public void setNamedQueries(List<String> namedQueries) {
+		this.namedQueries = CollectionUtils.isEmpty(namedQueries) ? Collections.<String> emptyList() : namedQueries;
+	}
+
+	public void setSqlMapIds(List<String> sqlMapIds) {
+		this.sqlMapIds = CollectionUtils.isEmpty(sqlMapIds) ? Collections.<String> emptyList() : sqlMapIds;
+	}
+
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "concurrency must be positive.");
+		this.concurrency = concurrency;
+	}
+
+	public void setTimeoutSeconds(long timeoutSeconds) {
+		Assert.isTrue(timeoutSeconds > 0, "timeoutSeconds must be positive.");
+		this.timeoutSeconds = timeoutSeconds;
+	}
+
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	public static final long DEFAULT_TIMEOUT_SECONDS = 120;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+}
@@ -0,0 +1,320 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.jgroups.Channel;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.View;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.exception.ThrowableHandler;
+import org.workin.util.Assert;
+import org.workin.util.ClassUtils;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * Broadcast entity invalidations of the local write paths to the other nodes of the cluster over JGroups.
+ * 
+ * Invalidations are collected and coalesced per entity type, a whole-type invalidation absorbs the ids
+ * of the same type. The pending invalidations are sent as one message every flushIntervalMillis, or
+ * as soon as maxBatchSize ids are pending. Received invalidations are applied to the local second-level
+ * cache(persistenceCacheRegistry) and entity cache, own messages are not delivered back.
+ * 
+ * Register the bus as invalidation listener of JpaPersistenceImpl, the local caches are already
+ * evicted by JpaPersistenceImpl itself.
+ * 
+ * eg.
+ * 
+ * 	<bean id="clusterInvalidationBus" class="org.workin.core.persistence.cache.ClusterInvalidationBus"
+ * 		init-method="start" destroy-method="stop">
+ * 		<property name="channelConfig" value="jgroups/invalidation-tcp-loopback.xml" />
+ * 		<property name="entityManagerFactory" ref="entityManagerFactory" />
+ * 		<property name="persistenceCacheRegistry" ref="persistenceCacheRegistry" />
+ * 		<property name="entityCache" ref="entityCache" />
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@SuppressWarnings("unchecked")
+public class ClusterInvalidationBus extends ReceiverAdapter implements EntityInvalidationListener {
+
+	private boolean enabled = true;
+
+	private String clusterName = DEFAULT_CLUSTER_NAME;
+
+	private String channelConfig = DEFAULT_CHANNEL_CONFIG;
+
+	private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private PersistenceCacheRegistry persistenceCacheRegistry;
+
+	private EntityCache entityCache;
+
+	private JChannel channel;
+
+	private ScheduledExecutorService flushExecutor;
+
+	// Guarded by itself. Entity class name -> ids, null ids means the whole type.
+	private final Map<String, HashSet<Serializable>> pending = new HashMap<String, HashSet<Serializable>>();
+
+	// Guarded by pending.
+	private int pendingIdCount;
+
+	private final AtomicLong sentMessageCount = new AtomicLong();
+
+	private final AtomicLong sentInvalidationCount = new AtomicLong();
+
+	private final AtomicLong receivedMessageCount = new AtomicLong();
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * 
+	 * Join the cluster and start the periodic flush.
+	 * 
+	 */
+	public void start() {
+		if (!enabled) {
+			logger.info(" Cluster invalidation bus is disabled.");
+			return;
+		}
+
+		try {
+			channel = new JChannel(channelConfig);
+			channel.setOpt(Channel.LOCAL, Boolean.FALSE);
+			channel.setReceiver(this);
+			channel.connect(clusterName);
+		} catch (Exception e) {
+			ThrowableHandler.handleThrow(" Can not join invalidation cluster: " + clusterName, e, logger);
+		}
+
+		flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ClusterInvalidationBus-" + clusterName);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flushExecutor.scheduleWithFixedDelay(flushTask, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+
+		logger.info(" Cluster invalidation bus joined: {}, address: {}", clusterName, channel.getLocalAddress());
+	}
+
+	/**
+	 * 
+	 * Send the pending invalidations and leave the cluster.
+	 * 
+	 */
+	public void stop() {
+		if (flushExecutor != null) {
+			flushExecutor.shutdown();
+			flushExecutor = null;
+		}
+
+		if (channel != null) {
+			flush();
+			channel.close();
+			channel = null;
+		}
+	}
+
+	@Override
+	public void invalidate(final Class<?> entityClass, final Collection<? extends Serializable> ids) {
+		if (channel == null || entityClass == null) {
+			return;
+		}
+
+		boolean full;
+		synchronized (pending) {
+			String entityClassName = entityClass.getName();
+			if (CollectionUtils.isEmpty(ids)) {
+				HashSet<Serializable> old = pending.put(entityClassName, null);
+				pendingIdCount -= (old == null) ? 0 : old.size();
+			} else if (!pending.containsKey(entityClassName) || pending.get(entityClassName) != null) {
+				HashSet<Serializable> pendingIds = pending.get(entityClassName);
+				if (pendingIds == null) {
+					pendingIds = new HashSet<Serializable>();
+					pending.put(entityClassName, pendingIds);
+				}
+				for (Serializable id : ids) {
+					if (pendingIds.add(id)) {
+						pendingIdCount++;
+					}
+				}
+			}
+			full = pendingIdCount >= maxBatchSize;
+		}
+
+		if (full && flushExecutor != null) {
+			flushExecutor.execute(flushTask);
+		}
+	}
+
+	/**
+	 * 
+	 * Send the pending invalidations as one message.
+	 * 
+	 */
+	public void flush() {
+		HashMap<String, HashSet<Serializable>> invalidations;
+		int invalidationCount;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			invalidations = new HashMap<String, HashSet<Serializable>>(pending);
+			invalidationCount = pendingIdCount + countWholeTypes(invalidations);
+			pending.clear();
+			pendingIdCount = 0;
+		}
+
+		JChannel currentChannel = channel;
+		if (currentChannel == null) {
+			return;
+		}
+
+		try {
+			currentChannel.send(new Message(null, null, invalidations));
+			sentMessageCount.incrementAndGet();
+			sentInvalidationCount.addAndGet(invalidationCount);
+		} catch (Exception e) {
+			// Other nodes keep stale entries until their cache regions expire.
+			logger.error(" Can not broadcast invalidations: " + invalidations.keySet(), e);
+		}
+	}
+
+	@Override
+	public void receive(final Message message) {
+		if (channel != null && channel.getLocalAddress().equals(message.getSrc())) {
+			return;
+		}
+
+		receivedMessageCount.incrementAndGet();
+		Map<String, HashSet<Serializable>> invalidations = (Map<String, HashSet<Serializable>>) message.getObject();
+		for (Map.Entry<String, HashSet<Serializable>> entry : invalidations.entrySet()) {
+			Class<?> entityClass;
+			try {
+				entityClass = ClassUtils.forName(entry.getKey(), ClusterInvalidationBus.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				logger.warn(" Unknown entity type of remote invalidation: {}", entry.getKey());
+				continue;
+			}
+
+			Collection<Serializable> ids = (entry.getValue() == null) ? new HashSet<Serializable>() : entry.getValue();
+			if (persistenceCacheRegistry != null) {
+				persistenceCacheRegistry.evict(entityManagerFactory, entityClass, ids);
+			}
+			if (entityCache != null) {
+				entityCache.invalidate(entityClass, ids);
+			}
+			logger.debug(" Applied remote invalidation of entity: {}, ids: {}", entry.getKey(), ids);
+		}
+	}
+
+	@Override
+	public void viewAccepted(final View view) {
+		logger.info(" Invalidation cluster view: {}", view);
+	}
+
+	private static int countWholeTypes(final Map<String, HashSet<Serializable>> invalidations) {
+		int count = 0;
+		for (HashSet<Serializable> ids : invalidations.values()) {
+			if (ids == null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public boolean isConnected() {
+		return channel != null && channel.isConnected();
+	}
+
+	public int getMemberCount() {
+		return isConnected() ? channel.getView().size() : 0;
+	}
+
+	public long getSentMessageCount() {
+		return sentMessageCount.get();
+	}
+
+	public long getSentInvalidationCount() {
+		return sentInvalidationCount.get();
+	}
+
+	public long getReceivedMessageCount() {
+		return receivedMessageCount.get();
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setClusterName(String clusterName) {
+		Assert.hasText(clusterName, "clusterName cannot be empty.");
+		this.clusterName = clusterName;
+	}
+
+	public void setChannelConfig(String channelConfig) {
+		Assert.hasText(channelConfig, "channelConfig cannot be empty.");
+		this.channelConfig = channelConfig;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		Assert.isTrue(flushIntervalMillis > 0, "flushIntervalMillis must be positive.");
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be positive.");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	public void setPersistenceCacheRegistry(PersistenceCacheRegistry persistenceCacheRegistry) {
+		this.persistenceCacheRegistry = persistenceCacheRegistry;
+	}
+
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public static final String DEFAULT_CLUSTER_NAME = "workin-invalidation";
+
+	public static final String DEFAULT_CHANNEL_CONFIG = "jgroups/invalidation-tcp-loopback.xml";
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(ClusterInvalidationBus.class);
+}
@@ -0,0 +1,124 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * Entity cache in front of findById/findByIds lookups. 
+ * 
+ * An alternative to Hibernate second-level cache, entities returned by get are detached copies: they are not
+ * managed by the EntityManager, changes to them are not dirty checked and must be written by merge.
+ * 
+ * Only committed state may be put. JpaPersistenceImpl captures loaded entities with the invalidation stamp
+ * taken before loading, and puts them after the transaction commits unless their type was invalidated since.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface EntityCache extends EntityInvalidationListener {
+
+	/**
+	 * 
+	 * Is the entity type kept in this cache?
+	 * 
+	 * @param entityClass
+	 * @return boolean
+	 * 
+	 */
+	public boolean isCacheable(Class<?> entityClass);
+
+	/**
+	 * 
+	 * Get a detached copy of the cached entity.
+	 * 
+	 * @param entityClass
+	 * @param id
+	 * @return entity or null if not cached
+	 * 
+	 */
+	public <T> T get(Class<T> entityClass, Serializable id);
+
+	/**
+	 * 
+	 * Put the state of entity into the cache, replace the old state of same id.
+	 * 
+	 * @param entity
+	 * 
+	 */
+	public void put(Object entity);
+
+	/**
+	 * 
+	 * Get the current invalidation stamp, take it before loading the entities given to capture.
+	 * 
+	 * @return stamp
+	 * 
+	 */
+	public long getInvalidationStamp();
+
+	/**
+	 * 
+	 * Copy the state of entity now, for a later put(CapturedEntity).
+	 * 
+	 * @param entity
+	 * @param invalidationStamp
+	 * 			- taken by getInvalidationStamp() before entity was loaded
+	 * @return CapturedEntity or null if entity is not cacheable
+	 * 
+	 */
+	public CapturedEntity capture(Object entity, long invalidationStamp);
+
+	/**
+	 * 
+	 * Put the captured state, unless the entity type was invalidated after its stamp.
+	 * 
+	 * @param captured
+	 * @return false if skipped
+	 * 
+	 */
+	public boolean put(CapturedEntity captured);
+
+	/**
+	 * 
+	 * State of an entity copied by capture, with the invalidation stamp taken before it was loaded.
+	 * 
+	 */
+	public static final class CapturedEntity {
+
+		private final Class<?> entityClass;
+
+		private final Serializable id;
+
+		private final Object state;
+
+		private final long invalidationStamp;
+
+		public CapturedEntity(Class<?> entityClass, Serializable id, Object state, long invalidationStamp) {
+			this.entityClass = entityClass;
+			this.id = id;
+			this.state = state;
+			this.invalidationStamp = invalidationStamp;
+		}
+
+		public Class<?> getEntityClass() {
+			return entityClass;
+		}
+
+		public Serializable getId() {
+			return id;
+		}
+
+		/**
+		 * 
+		 * @return the copied state, in the form of the EntityCache implementation
+		 * 
+		 */
+		public Object getState() {
+			return state;
+		}
+
+		public long getInvalidationStamp() {
+			return invalidationStamp;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * 
+ * Callback of the persistence layer, notified after entities were written(persist, merge, remove).
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface EntityInvalidationListener {
+
+	/**
+	 * 
+	 * Entities of the given type were written.
+	 * 
+	 * @param entityClass
+	 * @param ids
+	 * 			- empty means every entity of the type
+	 * 
+	 */
+	public void invalidate(Class<?> entityClass, Collection<? extends Serializable> ids);
+}
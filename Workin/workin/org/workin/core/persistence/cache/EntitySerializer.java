@@ -0,0 +1,387 @@
+package org.workin.core.persistence.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Transient;
+
+import org.workin.util.StringUtils;
+
+/**
+ * 
+ * Compact field level serializer of one entity type.
+ * 
+ * The field layout is resolved once per type, the state is written field by field without class
+ * descriptors. Supported field types: primitives and their wrappers, String, Date(java.util/java.sql),
+ * enum, BigDecimal and BigInteger. A type with any other persistent field(eg. associations) is rejected
+ * by forClass.
+ * 
+ * Fields are skipped when static, transient, or annotated with javax.persistence.Transient on the field
+ * or on its getter.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class EntitySerializer<T> {
+
+	private final Class<T> entityClass;
+
+	private final Constructor<T> constructor;
+
+	private final Field[] fields;
+
+	private final int[] kinds;
+
+	private EntitySerializer(final Class<T> entityClass, final Constructor<T> constructor, final Field[] fields,
+			final int[] kinds) {
+		this.entityClass = entityClass;
+		this.constructor = constructor;
+		this.fields = fields;
+		this.kinds = kinds;
+	}
+
+	/**
+	 * 
+	 * Resolve the field layout of entity type.
+	 * 
+	 * @param entityClass
+	 * @return EntitySerializer
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			- if the type has no default constructor or has an unsupported persistent field
+	 * 
+	 */
+	public static <T> EntitySerializer<T> forClass(final Class<T> entityClass) {
+		Constructor<T> constructor;
+		try {
+			constructor = entityClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Entity " + entityClass.getName() + " has no default constructor.");
+		}
+
+		List<Field> fields = new ArrayList<Field>();
+		List<Integer> kinds = new ArrayList<Integer>();
+		for (Class<?> cls = entityClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+			for (Field field : cls.getDeclaredFields()) {
+				if (isSkipped(cls, field)) {
+					continue;
+				}
+
+				int kind = kindOf(field.getType());
+				if (kind < 0) {
+					throw new IllegalArgumentException("Field " + cls.getName() + "." + field.getName()
+							+ " of type " + field.getType().getName() + " is not supported.");
+				}
+
+				field.setAccessible(true);
+				fields.add(field);
+				kinds.add(kind);
+			}
+		}
+
+		int[] kindArray = new int[kinds.size()];
+		for (int i = 0; i < kindArray.length; i++) {
+			kindArray[i] = kinds.get(i);
+		}
+
+		return new EntitySerializer<T>(entityClass, constructor, fields.toArray(new Field[fields.size()]), kindArray);
+	}
+
+	/**
+	 * 
+	 * Write the persistent state of entity.
+	 * 
+	 * @param entity
+	 * @return byte[]
+	 * 
+	 */
+	public byte[] serialize(final T entity) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			for (int i = 0; i < fields.length; i++) {
+				write(out, kinds[i], fields[i].get(entity));
+			}
+			out.flush();
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * 
+	 * Create a new entity instance from the written state.
+	 * 
+	 * @param data
+	 * @return entity
+	 * 
+	 */
+	public T deserialize(final byte[] data) {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			T entity = constructor.newInstance();
+			for (int i = 0; i < fields.length; i++) {
+				Object value = read(in, kinds[i], fields[i].getType());
+				if (value != null || !fields[i].getType().isPrimitive()) {
+					fields[i].set(entity, value);
+				}
+			}
+			return entity;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} catch (Exception e) {
+			throw new IllegalStateException("Can not create entity " + entityClass.getName(), e);
+		}
+	}
+
+	public Class<T> getEntityClass() {
+		return entityClass;
+	}
+
+	private static boolean isSkipped(final Class<?> cls, final Field field) {
+		int modifiers = field.getModifiers();
+		if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isAnnotationPresent(Transient.class)) {
+			return true;
+		}
+
+		String suffix = StringUtils.capitalize(field.getName());
+		for (String prefix : GETTER_PREFIXES) {
+			try {
+				Method getter = cls.getDeclaredMethod(prefix + suffix);
+				return getter.isAnnotationPresent(Transient.class);
+			} catch (NoSuchMethodException e) {
+				// try next prefix
+			}
+		}
+		return false;
+	}
+
+	private static int kindOf(final Class<?> type) {
+		for (int i = 0; i < SUPPORTED_TYPES.length; i++) {
+			if (SUPPORTED_TYPES[i] == type) {
+				return i;
+			}
+		}
+		return type.isEnum() ? KIND_ENUM : -1;
+	}
+
+	private static void write(final DataOutputStream out, final int kind, final Object value) throws IOException {
+		if (kind >= KIND_FIRST_NULLABLE) {
+			out.writeBoolean(value != null);
+			if (value == null) {
+				return;
+			}
+		}
+
+		switch (kind) {
+		case KIND_BOOLEAN:
+		case KIND_BOOLEAN_WRAPPER:
+			out.writeBoolean((Boolean) value);
+			break;
+		case KIND_BYTE:
+		case KIND_BYTE_WRAPPER:
+			out.writeByte((Byte) value);
+			break;
+		case KIND_SHORT:
+		case KIND_SHORT_WRAPPER:
+			out.writeShort((Short) value);
+			break;
+		case KIND_CHAR:
+		case KIND_CHAR_WRAPPER:
+			out.writeChar((Character) value);
+			break;
+		case KIND_INT:
+		case KIND_INT_WRAPPER:
+			out.writeInt((Integer) value);
+			break;
+		case KIND_LONG:
+		case KIND_LONG_WRAPPER:
+			out.writeLong((Long) value);
+			break;
+		case KIND_FLOAT:
+		case KIND_FLOAT_WRAPPER:
+			out.writeFloat((Float) value);
+			break;
+		case KIND_DOUBLE:
+		case KIND_DOUBLE_WRAPPER:
+			out.writeDouble((Double) value);
+			break;
+		case KIND_STRING:
+			writeBytes(out, ((String) value).getBytes(UTF_8));
+			break;
+		case KIND_DATE:
+			// Hibernate loads java.util.Date properties as java.sql subclasses, keep the concrete type.
+			if (value instanceof Timestamp) {
+				out.writeByte(DATE_TIMESTAMP);
+				out.writeLong(((Timestamp) value).getTime());
+				out.writeInt(((Timestamp) value).getNanos());
+			} else if (value instanceof java.sql.Date) {
+				out.writeByte(DATE_SQL_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else if (value instanceof Time) {
+				out.writeByte(DATE_TIME);
+				out.writeLong(((Date) value).getTime());
+			} else {
+				out.writeByte(DATE_UTIL_DATE);
+				out.writeLong(((Date) value).getTime());
+			}
+			break;
+		case KIND_SQL_DATE:
+		case KIND_TIME:
+			out.writeLong(((Date) value).getTime());
+			break;
+		case KIND_TIMESTAMP:
+			out.writeLong(((Timestamp) value).getTime());
+			out.writeInt(((Timestamp) value).getNanos());
+			break;
+		case KIND_BIG_DECIMAL:
+			out.writeInt(((BigDecimal) value).scale());
+			writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+			break;
+		case KIND_BIG_INTEGER:
+			writeBytes(out, ((BigInteger) value).toByteArray());
+			break;
+		case KIND_ENUM:
+			out.writeInt(((Enum<?>) value).ordinal());
+			break;
+		default:
+			throw new IllegalStateException("Unknown field kind " + kind);
+		}
+	}
+
+	private static Object read(final DataInputStream in, final int kind, final Class<?> type) throws IOException {
+		if (kind >= KIND_FIRST_NULLABLE && !in.readBoolean()) {
+			return null;
+		}
+
+		switch (kind) {
+		case KIND_BOOLEAN:
+		case KIND_BOOLEAN_WRAPPER:
+			return in.readBoolean();
+		case KIND_BYTE:
+		case KIND_BYTE_WRAPPER:
+			return in.readByte();
+		case KIND_SHORT:
+		case KIND_SHORT_WRAPPER:
+			return in.readShort();
+		case KIND_CHAR:
+		case KIND_CHAR_WRAPPER:
+			return in.readChar();
+		case KIND_INT:
+		case KIND_INT_WRAPPER:
+			return in.readInt();
+		case KIND_LONG:
+		case KIND_LONG_WRAPPER:
+			return in.readLong();
+		case KIND_FLOAT:
+		case KIND_FLOAT_WRAPPER:
+			return in.readFloat();
+		case KIND_DOUBLE:
+		case KIND_DOUBLE_WRAPPER:
+			return in.readDouble();
+		case KIND_STRING:
+			return new String(readBytes(in), UTF_8);
+		case KIND_DATE:
+			byte dateType = in.readByte();
+			long time = in.readLong();
+			if (dateType == DATE_TIMESTAMP) {
+				Timestamp timestamp = new Timestamp(time);
+				timestamp.setNanos(in.readInt());
+				return timestamp;
+			} else if (dateType == DATE_SQL_DATE) {
+				return new java.sql.Date(time);
+			} else if (dateType == DATE_TIME) {
+				return new Time(time);
+			}
+			return new Date(time);
+		case KIND_SQL_DATE:
+			return new java.sql.Date(in.readLong());
+		case KIND_TIME:
+			return new Time(in.readLong());
+		case KIND_TIMESTAMP:
+			Timestamp timestamp = new Timestamp(in.readLong());
+			timestamp.setNanos(in.readInt());
+			return timestamp;
+		case KIND_BIG_DECIMAL:
+			int scale = in.readInt();
+			return new BigDecimal(new BigInteger(readBytes(in)), scale);
+		case KIND_BIG_INTEGER:
+			return new BigInteger(readBytes(in));
+		case KIND_ENUM:
+			return type.getEnumConstants()[in.readInt()];
+		default:
+			throw new IllegalStateException("Unknown field kind " + kind);
+		}
+	}
+
+	private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(final DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	// Index in SUPPORTED_TYPES is the field kind, kinds from KIND_FIRST_NULLABLE on carry a null flag.
+	private static final Class<?>[] SUPPORTED_TYPES = { boolean.class, byte.class, short.class, char.class,
+			int.class, long.class, float.class, double.class, Boolean.class, Byte.class, Short.class,
+			Character.class, Integer.class, Long.class, Float.class, Double.class, String.class, Date.class,
+			java.sql.Date.class, Time.class, Timestamp.class, BigDecimal.class, BigInteger.class };
+
+	private static final int KIND_BOOLEAN = 0;
+	private static final int KIND_BYTE = 1;
+	private static final int KIND_SHORT = 2;
+	private static final int KIND_CHAR = 3;
+	private static final int KIND_INT = 4;
+	private static final int KIND_LONG = 5;
+	private static final int KIND_FLOAT = 6;
+	private static final int KIND_DOUBLE = 7;
+	private static final int KIND_BOOLEAN_WRAPPER = 8;
+	private static final int KIND_BYTE_WRAPPER = 9;
+	private static final int KIND_SHORT_WRAPPER = 10;
+	private static final int KIND_CHAR_WRAPPER = 11;
+	private static final int KIND_INT_WRAPPER = 12;
+	private static final int KIND_LONG_WRAPPER = 13;
+	private static final int KIND_FLOAT_WRAPPER = 14;
+	private static final int KIND_DOUBLE_WRAPPER = 15;
+	private static final int KIND_STRING = 16;
+	private static final int KIND_DATE = 17;
+	private static final int KIND_SQL_DATE = 18;
+	private static final int KIND_TIME = 19;
+	private static final int KIND_TIMESTAMP = 20;
+	private static final int KIND_BIG_DECIMAL = 21;
+	private static final int KIND_BIG_INTEGER = 22;
+	private static final int KIND_ENUM = 23;
+
+	private static final int KIND_FIRST_NULLABLE = KIND_BOOLEAN_WRAPPER;
+
+	private static final byte DATE_UTIL_DATE = 0;
+	private static final byte DATE_SQL_DATE = 1;
+	private static final byte DATE_TIME = 2;
+	private static final byte DATE_TIMESTAMP = 3;
+
+	private static final String[] GETTER_PREFIXES = { "get", "is" };
+
+	private static final String UTF_8 = "UTF-8";
+}
@@ -0,0 +1,389 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.proxy.HibernateProxyHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.core.entity.Idable;
+import org.workin.util.Assert;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * Entity cache which keeps the entity state outside of the java heap.
+ * 
+ * The state is written by EntitySerializer into direct ByteBuffer slabs, the slabs are cut into fixed
+ * size chunks and an entity takes as many chunks as it needs. Only the key and the chunk numbers stay on
+ * heap. When the byte budget is used up, the least recently used entities are evicted.
+ * 
+ * Only the entity types listed in cachedEntityClasses are cached, they should be flat reference data
+ * (see EntitySerializer for the supported field types). Returned entities are detached copies, changes
+ * must be written back by merge, which invalidates the cached state.
+ * 
+ * Every invalidation takes the next invalidation stamp and records it for the entity type, a captured entity
+ * whose stamp is older than the last invalidation of its type is not put.
+ * 
+ * eg.
+ * 
+ * 	<bean id="entityCache" class="org.workin.core.persistence.cache.OffHeapEntityCache">
+ * 		<property name="maxBytes" value="268435456" />
+ * 		<property name="cachedEntityClasses">
+ * 			<set>
+ * 				<value>org.workin.trace.domain.StoredLog</value>
+ * 			</set>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@SuppressWarnings("unchecked")
+public class OffHeapEntityCache implements EntityCache {
+
+	private long maxBytes = DEFAULT_MAX_BYTES;
+
+	private int slabSize = DEFAULT_SLAB_SIZE;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private Set<String> cachedEntityClasses = Collections.emptySet();
+
+	private final Map<Class<?>, EntitySerializer<?>> serializers = new ConcurrentHashMap<Class<?>, EntitySerializer<?>>();
+
+	private final Set<Class<?>> rejectedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	// Guarded by this, access ordered for LRU.
+	private final LinkedHashMap<EntityKey, int[]> entries = new LinkedHashMap<EntityKey, int[]>(1024, 0.75f, true);
+
+	// Guarded by this.
+	private ByteBuffer[] slabs = new ByteBuffer[0];
+
+	// Guarded by this, stack of free chunk numbers.
+	private int[] freeChunks = new int[0];
+
+	private int freeCount;
+
+	// Guarded by this.
+	private long invalidationStamp;
+
+	// Guarded by this, entity type -> invalidation stamp of its last invalidation.
+	private final Map<Class<?>, Long> invalidatedStamps = new HashMap<Class<?>, Long>();
+
+	private int chunksPerSlab;
+
+	private int maxSlabs;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	@Override
+	public boolean isCacheable(final Class<?> entityClass) {
+		return entityClass != null && cachedEntityClasses.contains(entityClass.getName())
+				&& getSerializer(entityClass) != null;
+	}
+
+	@Override
+	public <T> T get(final Class<T> entityClass, final Serializable id) {
+		if (id == null || !isCacheable(entityClass)) {
+			return null;
+		}
+
+		byte[] data;
+		synchronized (this) {
+			int[] chunks = entries.get(new EntityKey(entityClass, id));
+			data = (chunks == null) ? null : readChunks(chunks);
+		}
+
+		if (data == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		hitCount.incrementAndGet();
+		return ((EntitySerializer<T>) getSerializer(entityClass)).deserialize(data);
+	}
+
+	@Override
+	public void put(final Object entity) {
+		if (!(entity instanceof Idable) || ((Idable) entity).getId() == null) {
+			return;
+		}
+
+		Class<?> entityClass = HibernateProxyHelper.getClassWithoutInitializingProxy(entity);
+		if (!isCacheable(entityClass)) {
+			return;
+		}
+
+		byte[] data = ((EntitySerializer<Object>) getSerializer(entityClass)).serialize(entity);
+		synchronized (this) {
+			putData(new EntityKey(entityClass, ((Idable) entity).getId()), data);
+		}
+	}
+
+	@Override
+	public synchronized long getInvalidationStamp() {
+		return invalidationStamp;
+	}
+
+	@Override
+	public CapturedEntity capture(final Object entity, final long invalidationStamp) {
+		if (!(entity instanceof Idable) || ((Idable) entity).getId() == null) {
+			return null;
+		}
+
+		Class<?> entityClass = HibernateProxyHelper.getClassWithoutInitializingProxy(entity);
+		if (!isCacheable(entityClass)) {
+			return null;
+		}
+
+		byte[] data = ((EntitySerializer<Object>) getSerializer(entityClass)).serialize(entity);
+		return new CapturedEntity(entityClass, ((Idable) entity).getId(), data, invalidationStamp);
+	}
+
+	@Override
+	public synchronized boolean put(final CapturedEntity captured) {
+		Long invalidated = invalidatedStamps.get(captured.getEntityClass());
+		if (invalidated != null && invalidated > captured.getInvalidationStamp()) {
+			return false;
+		}
+
+		putData(new EntityKey(captured.getEntityClass(), captured.getId()), (byte[]) captured.getState());
+		return true;
+	}
+
+	// Called with the lock of this held.
+	private void putData(final EntityKey key, final byte[] data) {
+		release(entries.remove(key));
+
+		// The entity is bigger than the whole budget, leave it uncached.
+		int needed = chunkCount(data.length);
+		if (needed > (long) getMaxSlabs() * chunksPerSlab) {
+			return;
+		}
+
+		while (freeCount < needed) {
+			if (!allocateSlab()) {
+				evictEldest();
+			}
+		}
+
+		entries.put(key, writeChunks(data, needed));
+	}
+
+	@Override
+	public void invalidate(final Class<?> entityClass, final Collection<? extends Serializable> ids) {
+		if (entityClass == null || !cachedEntityClasses.contains(entityClass.getName())) {
+			return;
+		}
+
+		synchronized (this) {
+			invalidatedStamps.put(entityClass, ++invalidationStamp);
+			if (CollectionUtils.isEmpty(ids)) {
+				for (Iterator<Map.Entry<EntityKey, int[]>> it = entries.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<EntityKey, int[]> entry = it.next();
+					if (entry.getKey().entityClass == entityClass) {
+						release(entry.getValue());
+						it.remove();
+					}
+				}
+			} else {
+				for (Serializable id : ids) {
+					release(entries.remove(new EntityKey(entityClass, id)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Remove all cached entities, the slabs are kept for reuse.
+	 * 
+	 */
+	public synchronized void clear() {
+		for (int[] chunks : entries.values()) {
+			release(chunks);
+		}
+		entries.clear();
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public synchronized long getUsedBytes() {
+		return ((long) slabs.length * chunksPerSlab - freeCount) * chunkSize;
+	}
+
+	public synchronized long getAllocatedBytes() {
+		return (long) slabs.length * chunksPerSlab * chunkSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private EntitySerializer<?> getSerializer(final Class<?> entityClass) {
+		EntitySerializer<?> serializer = serializers.get(entityClass);
+		if (serializer == null && !rejectedClasses.contains(entityClass)) {
+			try {
+				serializer = EntitySerializer.forClass(entityClass);
+				serializers.put(entityClass, serializer);
+			} catch (IllegalArgumentException e) {
+				rejectedClasses.add(entityClass);
+				logger.warn(" Entity " + entityClass.getName() + " can not be kept in off-heap cache: " + e.getMessage());
+			}
+		}
+		return serializer;
+	}
+
+	private int chunkCount(final int length) {
+		return Math.max(1, (length + chunkSize - 1) / chunkSize);
+	}
+
+	private int getMaxSlabs() {
+		if (chunksPerSlab == 0) {
+			chunksPerSlab = Math.max(1, slabSize / chunkSize);
+			maxSlabs = (int) Math.max(1, maxBytes / ((long) chunksPerSlab * chunkSize));
+		}
+		return maxSlabs;
+	}
+
+	// Allocate one more slab if the budget allows, all of its chunks become free.
+	private boolean allocateSlab() {
+		if (slabs.length >= getMaxSlabs()) {
+			return false;
+		}
+
+		ByteBuffer[] newSlabs = new ByteBuffer[slabs.length + 1];
+		System.arraycopy(slabs, 0, newSlabs, 0, slabs.length);
+		newSlabs[slabs.length] = ByteBuffer.allocateDirect(chunksPerSlab * chunkSize);
+
+		int[] newFreeChunks = new int[newSlabs.length * chunksPerSlab];
+		System.arraycopy(freeChunks, 0, newFreeChunks, 0, freeCount);
+		int firstChunk = slabs.length * chunksPerSlab;
+		for (int i = chunksPerSlab - 1; i >= 0; i--) {
+			newFreeChunks[freeCount++] = firstChunk + i;
+		}
+
+		slabs = newSlabs;
+		freeChunks = newFreeChunks;
+		return true;
+	}
+
+	private void evictEldest() {
+		Iterator<int[]> it = entries.values().iterator();
+		release(it.next());
+		it.remove();
+		evictionCount.incrementAndGet();
+	}
+
+	private void release(final int[] chunks) {
+		if (chunks == null) {
+			return;
+		}
+		// chunks[0] is the data length, the chunk numbers follow.
+		for (int i = 1; i < chunks.length; i++) {
+			freeChunks[freeCount++] = chunks[i];
+		}
+	}
+
+	private int[] writeChunks(final byte[] data, final int needed) {
+		int[] chunks = new int[needed + 1];
+		chunks[0] = data.length;
+		for (int i = 0, offset = 0; i < needed; i++, offset += chunkSize) {
+			int chunk = freeChunks[--freeCount];
+			chunks[i + 1] = chunk;
+			ByteBuffer slab = slabs[chunk / chunksPerSlab];
+			slab.position((chunk % chunksPerSlab) * chunkSize);
+			slab.put(data, offset, Math.min(chunkSize, data.length - offset));
+		}
+		return chunks;
+	}
+
+	private byte[] readChunks(final int[] chunks) {
+		byte[] data = new byte[chunks[0]];
+		for (int i = 1, offset = 0; i < chunks.length; i++, offset += chunkSize) {
+			ByteBuffer slab = slabs[chunks[i] / chunksPerSlab];
+			slab.position((chunks[i] % chunksPerSlab) * chunkSize);
+			slab.get(data, offset, Math.min(chunkSize, data.length - offset));
+		}
+		return data;
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		Assert.isTrue(maxBytes > 0, "maxBytes must be positive.");
+		this.maxBytes = maxBytes;
+	}
+
+	public void setSlabSize(int slabSize) {
+		Assert.isTrue(slabSize > 0, "slabSize must be positive.");
+		this.slabSize = slabSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "chunkSize must be positive.");
+		this.chunkSize = chunkSize;
+	}
+
+	public void setCachedEntityClasses(Set<String> cachedEntityClasses) {
+		this.cachedEntityClasses = CollectionUtils.isEmpty(cachedEntityClasses) ? Collections.<String> emptySet()
+				: new HashSet<String>(cachedEntityClasses);
+	}
+
+	private static final class EntityKey {
+
+		private final Class<?> entityClass;
+
+		private final Serializable id;
+
+		private EntityKey(final Class<?> entityClass, final Serializable id) {
+			this.entityClass = entityClass;
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return entityClass.hashCode() * 31 + id.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof EntityKey)) {
+				return false;
+			}
+			EntityKey other = (EntityKey) obj;
+			return entityClass == other.entityClass && id.equals(other.id);
+		}
+	}
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+	public static final int DEFAULT_CHUNK_SIZE = 128;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(OffHeapEntityCache.class);
+}
@@ -0,0 +1,236 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+
+import org.hibernate.Cache;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.ejb.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.util.CollectionUtils;
+import org.workin.util.StringUtils;
+
+/**
+ *
+ * Registry of the entity types and queries that take part in Hibernate second-level and query caching.
+ *
+ * Entity types are opted into the second-level cache through the generated "hibernate.ejb.classcache.*"
+ * properties, query results of getAll/findByProperty(s)/countByProperty(s) and of the registered named
+ * queries are kept in one query region per entity type, so a write to one type only evicts its own region.
+ *
+ * Region sizing stays in ehcache-hibernate-local.xml, entity regions are named by entity class name and
+ * query regions by queryRegionPrefix + entity class name.
+ *
+ * eg.
+ *
+ * 	<bean id="persistenceCacheRegistry" class="org.workin.core.persistence.cache.PersistenceCacheRegistry">
+ * 		<property name="entityCacheStrategies">
+ * 			<map>
+ * 				<entry key="org.workin.test.application.entity.Person" value="read-write" />
+ * 			</map>
+ * 		</property>
+ * 		<property name="queryCacheEntities">
+ * 			<set>
+ * 				<value>org.workin.test.application.entity.Person</value>
+ * 			</set>
+ * 		</property>
+ * 		<property name="namedQueryEntities">
+ * 			<map>
+ * 				<entry key="Person.findByName" value="org.workin.test.application.entity.Person" />
+ * 			</map>
+ * 		</property>
+ * 	</bean>
+ *
+ * 	<bean id="entityManagerFactory" class="org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean">
+ * 		<property name="jpaPropertyMap">
+ * 			<bean factory-bean="persistenceCacheRegistry" factory-method="getJpaPropertyMap" />
+ * 		</property>
+ * 	</bean>
+ *
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class PersistenceCacheRegistry {
+
+	// Entity class name -> concurrency strategy(read-only, read-write, nonstrict-read-write, transactional).
+	private Map<String, String> entityCacheStrategies = Collections.emptyMap();
+
+	// Entity class names whose finder queries are query cached.
+	private Set<String> queryCacheEntities = Collections.emptySet();
+
+	// Named query -> entity class name, the named query shares the query region of that entity.
+	private Map<String, String> namedQueryEntities = Collections.emptyMap();
+
+	private String queryRegionPrefix = DEFAULT_QUERY_REGION_PREFIX;
+
+	/**
+	 *
+	 * Build JPA properties which register the configured entity types in second-level cache.
+	 *
+	 * @return Map<String, Object>
+	 *
+	 */
+	public Map<String, Object> getJpaPropertyMap() {
+		Map<String, Object> jpaPropertyMap = new HashMap<String, Object>();
+
+		for (Map.Entry<String, String> entry : entityCacheStrategies.entrySet()) {
+			jpaPropertyMap.put(HIBERNATE_CLASS_CACHE_PREFIX + entry.getKey(), entry.getValue());
+			logger.info(" Register second-level cache for entity: {}, strategy: {}", entry.getKey(), entry.getValue());
+		}
+
+		return jpaPropertyMap;
+	}
+
+	/**
+	 *
+	 * Is the entity type registered in second-level cache?
+	 *
+	 * @param entityClass
+	 * @return boolean
+	 *
+	 */
+	public boolean isEntityCacheable(final Class<?> entityClass) {
+		return entityClass != null && entityCacheStrategies.containsKey(entityClass.getName());
+	}
+
+	/**
+	 *
+	 * Are the finder queries of the entity type query cached?
+	 *
+	 * @param entityClass
+	 * @return boolean
+	 *
+	 */
+	public boolean isQueryCacheable(final Class<?> entityClass) {
+		return entityClass != null && queryCacheEntities.contains(entityClass.getName());
+	}
+
+	/**
+	 *
+	 * Get query region name of entity type.
+	 *
+	 * @param entityClass
+	 * @return String
+	 *
+	 */
+	public String getQueryRegion(final Class<?> entityClass) {
+		return getQueryRegion(entityClass.getName());
+	}
+
+	/**
+	 *
+	 * Mark finder query of entity type as cacheable, if the entity type is registered.
+	 *
+	 * @param query
+	 * @param entityClass
+	 * @return Query
+	 *
+	 */
+	public Query applyQueryCache(final Query query, final Class<?> entityClass) {
+		if (isQueryCacheable(entityClass)) {
+			query.setHint(QueryHints.HINT_CACHEABLE, Boolean.TRUE);
+			query.setHint(QueryHints.HINT_CACHE_REGION, getQueryRegion(entityClass));
+		}
+		return query;
+	}
+
+	/**
+	 *
+	 * Mark named query as cacheable, if the named query is registered.
+	 *
+	 * @param query
+	 * @param queryName
+	 * @return Query
+	 *
+	 */
+	public Query applyNamedQueryCache(final Query query, final String queryName) {
+		String entityClassName = namedQueryEntities.get(queryName);
+		if (StringUtils.hasText(entityClassName)) {
+			query.setHint(QueryHints.HINT_CACHEABLE, Boolean.TRUE);
+			query.setHint(QueryHints.HINT_CACHE_REGION, getQueryRegion(entityClassName));
+		}
+		return query;
+	}
+
+	/**
+	 *
+	 * Evict the regions affected by a write of entity type.
+	 *
+	 * 	1) The query region of the entity type, if registered.
+	 * 	2) The written instances from entity region, if registered. The whole entity region if no id is known.
+	 *
+	 * @param entityManagerFactory
+	 * @param entityClass
+	 * @param ids
+	 * 			- empty means the whole entity region
+	 *
+	 */
+	public void evict(final EntityManagerFactory entityManagerFactory, final Class<?> entityClass,
+			final Collection<? extends Serializable> ids) {
+		if (entityClass == null || !(entityManagerFactory instanceof HibernateEntityManagerFactory)) {
+			return;
+		}
+
+		boolean entityCacheable = isEntityCacheable(entityClass);
+		boolean queryCacheable = isQueryCacheable(entityClass);
+		if (!entityCacheable && !queryCacheable) {
+			return;
+		}
+
+		Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+
+		if (queryCacheable) {
+			cache.evictQueryRegion(getQueryRegion(entityClass));
+		}
+
+		if (entityCacheable) {
+			if (CollectionUtils.isEmpty(ids)) {
+				cache.evictEntityRegion(entityClass);
+			} else {
+				for (Serializable id : ids) {
+					cache.evictEntity(entityClass, id);
+				}
+			}
+		}
+
+		logger.debug(" Evicted cache regions of entity: {}, ids: {}", entityClass.getName(), ids);
+	}
+
+	private String getQueryRegion(final String entityClassName) {
+		return queryRegionPrefix + entityClassName;
+	}
+
+	public void setEntityCacheStrategies(Map<String, String> entityCacheStrategies) {
+		this.entityCacheStrategies = CollectionUtils.isEmpty(entityCacheStrategies) ? Collections
+				.<String, String> emptyMap() : new HashMap<String, String>(entityCacheStrategies);
+	}
+
+	public void setQueryCacheEntities(Set<String> queryCacheEntities) {
+		this.queryCacheEntities = CollectionUtils.isEmpty(queryCacheEntities) ? Collections.<String> emptySet()
+				: new HashSet<String>(queryCacheEntities);
+	}
+
+	public void setNamedQueryEntities(Map<String, String> namedQueryEntities) {
+		this.namedQueryEntities = CollectionUtils.isEmpty(namedQueryEntities) ? Collections
+				.<String, String> emptyMap() : new HashMap<String, String>(namedQueryEntities);
+	}
+
+	public void setQueryRegionPrefix(String queryRegionPrefix) {
+		this.queryRegionPrefix = queryRegionPrefix;
+	}
+
+	public static final String DEFAULT_QUERY_REGION_PREFIX = "query.";
+
+	private static final String HIBERNATE_CLASS_CACHE_PREFIX = "hibernate.ejb.classcache.";
+
+	private static final transient Logger logger = LoggerFactory.getLogger(PersistenceCacheRegistry.class);
+}
@@ -0,0 +1,181 @@
+package org.workin.core.persistence.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.workin.core.context.ExtenalContext;
+import org.workin.core.context.ThreadLocalContext;
+
+/**
+ * 
+ * Identity map of the entities looked up in one HTTP request or JMS message on the current thread.
+ * 
+ * AbstractBeanService answers repeated findById/findUniqueByProperty lookups from it while it is open.
+ * Each entity type has a global version, bumped on every write to the type(see
+ * RequestEntityCacheInvalidator), so a write from any thread drops the cached entries of its type on
+ * the next lookup. Cached entities are shared by all callers of the request, treat them as read-only.
+ * Contexts nest, only the outermost open/close pair creates and removes the cache.
+ * 
+ * eg.
+ * 
+ * 	RequestEntityCache.open();
+ * 	try {
+ * 		...
+ * 	} finally {
+ * 		RequestEntityCache.close();
+ * 	}
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class RequestEntityCache {
+
+	// Entity class -> (version of the type when its first entry was cached, key -> entity).
+	private final Map<Class<?>, TypeEntries> entries = new HashMap<Class<?>, TypeEntries>();
+
+	private int depth;
+
+	private int hitCount;
+
+	private int missCount;
+
+	private RequestEntityCache() {
+	}
+
+	/**
+	 * 
+	 * Open a cache on the current thread, or join the cache already open.
+	 * 
+	 */
+	public static void open() {
+		RequestEntityCache cache = current();
+		if (cache == null) {
+			cache = new RequestEntityCache();
+			context.setAttribute(CONTEXT_KEY, cache);
+		}
+		cache.depth++;
+	}
+
+	/**
+	 * 
+	 * Close the cache opened by open(), the outermost close removes the cache.
+	 * 
+	 */
+	public static void close() {
+		RequestEntityCache cache = current();
+		if (cache != null && --cache.depth == 0) {
+			context.removeAttribute(CONTEXT_KEY);
+		}
+	}
+
+	/**
+	 * 
+	 * Get the cache of the current thread.
+	 * 
+	 * @return RequestEntityCache or null if no cache is open
+	 * 
+	 */
+	public static RequestEntityCache current() {
+		return (RequestEntityCache) context.getAttribute(CONTEXT_KEY);
+	}
+
+	/**
+	 * 
+	 * Drop the cached entries of entity type in all requests.
+	 * 
+	 * @param entityClass
+	 * 
+	 */
+	public static void invalidateType(final Class<?> entityClass) {
+		getVersion(entityClass).incrementAndGet();
+	}
+
+	/**
+	 * 
+	 * Look up a cached entity.
+	 * 
+	 * @param entityClass
+	 * @param key
+	 * 			- id, or property=value of a unique lookup
+	 * @return Object
+	 * 			- the entity, NULL_ENTITY if the lookup found nothing, null if not cached
+	 * 
+	 */
+	public Object get(final Class<?> entityClass, final Object key) {
+		TypeEntries typeEntries = entries.get(entityClass);
+		if (typeEntries != null && typeEntries.version != getVersion(entityClass).get()) {
+			entries.remove(entityClass);
+			typeEntries = null;
+		}
+
+		Object entity = typeEntries == null ? null : typeEntries.values.get(key);
+		if (entity == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return entity;
+	}
+
+	/**
+	 * 
+	 * Cache the result of a lookup, a null entity is cached as NULL_ENTITY.
+	 * 
+	 * @param entityClass
+	 * @param key
+	 * @param entity
+	 * 
+	 */
+	public void put(final Class<?> entityClass, final Object key, final Object entity) {
+		TypeEntries typeEntries = entries.get(entityClass);
+		if (typeEntries == null) {
+			typeEntries = new TypeEntries(getVersion(entityClass).get());
+			entries.put(entityClass, typeEntries);
+		}
+		typeEntries.values.put(key, entity == null ? NULL_ENTITY : entity);
+	}
+
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	public int getMissCount() {
+		return missCount;
+	}
+
+	private static AtomicLong getVersion(final Class<?> entityClass) {
+		AtomicLong version = versions.get(entityClass.getName());
+		if (version == null) {
+			AtomicLong created = new AtomicLong();
+			version = versions.putIfAbsent(entityClass.getName(), created);
+			if (version == null) {
+				version = created;
+			}
+		}
+		return version;
+	}
+
+	private static final class TypeEntries {
+
+		private final long version;
+
+		private final Map<Object, Object> values = new HashMap<Object, Object>();
+
+		TypeEntries(long version) {
+			this.version = version;
+		}
+	}
+
+	// Cached result of a lookup which found nothing.
+	public static final Object NULL_ENTITY = new Object();
+
+	// Entity class name -> version, bumped by every write to the type.
+	private static final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+
+	private static final String CONTEXT_KEY = RequestEntityCache.class.getName();
+
+	private static final ExtenalContext context = new ThreadLocalContext();
+}
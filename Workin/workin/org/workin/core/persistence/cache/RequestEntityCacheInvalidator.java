@@ -0,0 +1,20 @@
+package org.workin.core.persistence.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * 
+ * Drop the RequestEntityCache entries of the written entity types, register it in the invalidationListeners
+ * of JpaPersistenceImpl.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class RequestEntityCacheInvalidator implements EntityInvalidationListener {
+
+	@Override
+	public void invalidate(Class<?> entityClass, Collection<? extends Serializable> ids) {
+		RequestEntityCache.invalidateType(entityClass);
+	}
+}
@@ -0,0 +1,83 @@
+package org.workin.core.persistence.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 
+ * Encode rows as CSV(RFC 4180), with a header line of column names.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class CsvExportEncoder implements ExportEncoder {
+
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+
+	private Writer writer;
+
+	@Override
+	public void start(final Writer writer, final String[] columns) throws IOException {
+		this.writer = writer;
+		write(columns);
+	}
+
+	@Override
+	public void write(final Object[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writeValue(values[i]);
+		}
+		writer.write(LINE_SEPARATOR);
+	}
+
+	@Override
+	public void finish() {
+	}
+
+	private void writeValue(final Object value) throws IOException {
+		if (value == null) {
+			return;
+		}
+
+		String text = (value instanceof Date) ? dateFormat.format((Date) value) : value.toString();
+		boolean quoted = false;
+		for (int i = 0, len = text.length(); i < len && !quoted; i++) {
+			char c = text.charAt(i);
+			quoted = (c == ',' || c == '"' || c == '\r' || c == '\n');
+		}
+
+		if (!quoted) {
+			writer.write(text);
+			return;
+		}
+
+		writer.write('"');
+		for (int i = 0, len = text.length(); i < len; i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				writer.write('"');
+			}
+			writer.write(c);
+		}
+		writer.write('"');
+	}
+
+	@Override
+	public String getContentType() {
+		return "text/csv";
+	}
+
+	@Override
+	public String getFileExtension() {
+		return "csv";
+	}
+
+	private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+	private static final String LINE_SEPARATOR = "\r\n";
+}
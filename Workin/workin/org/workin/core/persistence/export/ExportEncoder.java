@@ -0,0 +1,48 @@
+package org.workin.core.persistence.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 
+ * Encode exported rows to a character stream, one encoder instance per export.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface ExportEncoder {
+
+	/**
+	 * 
+	 * Start the export, eg. write the header.
+	 * 
+	 * @param writer
+	 * @param columns
+	 * @throws IOException
+	 * 
+	 */
+	public void start(Writer writer, String[] columns) throws IOException;
+
+	/**
+	 * 
+	 * Write one row, values are in the order of columns.
+	 * 
+	 * @param values
+	 * @throws IOException
+	 * 
+	 */
+	public void write(Object[] values) throws IOException;
+
+	/**
+	 * 
+	 * Finish the export, eg. write the footer.
+	 * 
+	 * @throws IOException
+	 * 
+	 */
+	public void finish() throws IOException;
+
+	public String getContentType();
+
+	public String getFileExtension();
+}
@@ -0,0 +1,42 @@
+package org.workin.core.persistence.export;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * Outcome of an export.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ExportResult implements Serializable {
+
+	private static final long serialVersionUID = 2841630925126389121L;
+
+	private final long rowCount;
+
+	private final long elapsedMillis;
+
+	public ExportResult(long rowCount, long elapsedMillis) {
+		this.rowCount = rowCount;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	// Rows per second.
+	public double getThroughput() {
+		return elapsedMillis == 0 ? rowCount : rowCount * 1000d / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "exported: " + rowCount + ", elapsed: " + elapsedMillis + " ms, rows/s: " + Math.round(getThroughput());
+	}
+}
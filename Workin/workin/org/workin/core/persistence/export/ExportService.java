@@ -0,0 +1,74 @@
+package org.workin.core.persistence.export;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.workin.core.persistence.support.PropertyFilter;
+
+/**
+ * 
+ * Stream query results to a file format without materializing the result list.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface ExportService {
+
+	/**
+	 * 
+	 * Export the entities matching the property filters.
+	 * 
+	 * @param entityClass
+	 * @param filters
+	 * 			- may be empty
+	 * @param columns
+	 * 			- entity property names to export
+	 * @param encoder
+	 * @param out
+	 * 			- not closed by the export
+	 * @return ExportResult
+	 * 
+	 */
+	public ExportResult export(Class<?> entityClass, List<PropertyFilter> filters, String[] columns,
+			ExportEncoder encoder, OutputStream out);
+
+	/**
+	 * 
+	 * Export the results of a JPQL query.
+	 * 
+	 * If the query selects one entity, columns are its property names. If the query selects several
+	 * values, columns name the selected values in order.
+	 * 
+	 * @param queryString
+	 * @param params
+	 * 			- named parameters, may be null
+	 * @param columns
+	 * @param encoder
+	 * @param out
+	 * 			- not closed by the export
+	 * @return ExportResult
+	 * 
+	 */
+	public ExportResult export(String queryString, Map<String, ?> params, String[] columns, ExportEncoder encoder,
+			OutputStream out);
+
+	/**
+	 * 
+	 * Export the entities matching the property filters as a download.
+	 * 
+	 * @param entityClass
+	 * @param filters
+	 * @param columns
+	 * @param encoder
+	 * @param response
+	 * @param fileName
+	 * 			- without extension, the encoder decides the extension
+	 * @return ExportResult
+	 * 
+	 */
+	public ExportResult export(Class<?> entityClass, List<PropertyFilter> filters, String[] columns,
+			ExportEncoder encoder, HttpServletResponse response, String fileName);
+}
@@ -0,0 +1,296 @@
+package org.workin.core.persistence.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.ejb.HibernateQuery;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.core.constant.Constants;
+import org.workin.core.persistence.support.PropertyFilter;
+import org.workin.core.persistence.support.PropertyFilter.LikeMatchPatten;
+import org.workin.core.persistence.support.PropertyFilter.MatchType;
+import org.workin.exception.ThrowableHandler;
+import org.workin.util.Assert;
+import org.workin.util.CollectionUtils;
+import org.workin.util.StringUtils;
+import org.workin.web.constant.WebConstants;
+
+/**
+ * 
+ * Export by a forward-only Hibernate ScrollableResults on its own read-only session.
+ * 
+ * Rows pass through a writer buffer of bufferSize chars, the session is cleared and the writer flushed
+ * every clearInterval rows, so memory stays bounded by the fetch size and the buffer.
+ * 
+ * Entity rows export basic properties only, a column mapped to an association is rejected since reading
+ * it would load the association by a second query per row. Select the values in the HQL instead.
+ * 
+ * Note:
+ * 		MySQL Connector/J only streams with fetchSize Integer.MIN_VALUE, other fetch sizes read the
+ * 		whole result set into the driver. Other drivers reject that value, so the
+ * 		default fetch size is a plain positive one.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ExportServiceImpl implements ExportService {
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+
+	private int clearInterval = DEFAULT_CLEAR_INTERVAL;
+
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	@Override
+	public ExportResult export(final Class<?> entityClass, final List<PropertyFilter> filters, final String[] columns,
+			final ExportEncoder encoder, final OutputStream out) {
+		Assert.notNull(entityClass, "entityClass cannot be null, when export...");
+
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			Session session = (Session) em.getDelegate();
+			Criteria criteria = session.createCriteria(entityClass).setFetchSize(fetchSize).setReadOnly(true)
+					.setCacheable(false);
+			if (!CollectionUtils.isEmpty(filters)) {
+				for (PropertyFilter filter : filters) {
+					criteria.add(buildCriterion(filter));
+				}
+			}
+			return scroll(session, criteria.scroll(ScrollMode.FORWARD_ONLY), columns, encoder, out);
+		} finally {
+			em.close();
+		}
+	}
+
+	@Override
+	public ExportResult export(final String queryString, final Map<String, ?> params, final String[] columns,
+			final ExportEncoder encoder, final OutputStream out) {
+		Assert.hasText(queryString, "queryString cannot be empty, when export...");
+
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			Session session = (Session) em.getDelegate();
+			Query query = ((HibernateQuery) em.createQuery(queryString)).getHibernateQuery();
+			query.setFetchSize(fetchSize).setReadOnly(true).setCacheable(false);
+			if (!CollectionUtils.isEmpty(params)) {
+				for (Map.Entry<String, ?> entry : params.entrySet()) {
+					if (entry.getValue() instanceof Collection<?>) {
+						query.setParameterList(entry.getKey(), (Collection<?>) entry.getValue());
+					} else {
+						query.setParameter(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+			return scroll(session, query.scroll(ScrollMode.FORWARD_ONLY), columns, encoder, out);
+		} finally {
+			em.close();
+		}
+	}
+
+	@Override
+	public ExportResult export(final Class<?> entityClass, final List<PropertyFilter> filters, final String[] columns,
+			final ExportEncoder encoder, final HttpServletResponse response, final String fileName) {
+		response.setContentType(encoder.getContentType() + WebConstants.CHARSET_PREFIX
+				+ WebConstants.CONTENT_ENCODING_UTF8);
+		response.setHeader(WebConstants.RES_HEADER_KEY_CONTENTDISPOSITION, "attachment; filename=\""
+				+ cleanFileName(fileName) + "." + encoder.getFileExtension() + "\"");
+
+		try {
+			return export(entityClass, filters, columns, encoder, response.getOutputStream());
+		} catch (IOException e) {
+			ThrowableHandler.handleThrow(" Export of " + entityClass.getName() + " failed.", e, logger);
+			return null;
+		}
+	}
+
+	private ExportResult scroll(final Session session, final ScrollableResults results, final String[] columns,
+			final ExportEncoder encoder, final OutputStream out) {
+		Assert.isTrue(columns != null && columns.length > 0, "columns cannot be empty, when export...");
+
+		long start = System.currentTimeMillis();
+		long rowCount = 0;
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, WebConstants.CONTENT_ENCODING_UTF8),
+					bufferSize);
+			encoder.start(writer, columns);
+
+			Method[] getters = null;
+			Object[] values = new Object[columns.length];
+			while (results.next()) {
+				Object[] row = results.get();
+				// One entity per row, or a row of selected values.
+				if (row.length == 1 && !isSimpleValue(row[0])) {
+					Object entity = row[0];
+					if (getters == null) {
+						getters = resolveGetters(session, Hibernate.getClass(entity), columns);
+					}
+					for (int i = 0; i < getters.length; i++) {
+						values[i] = getters[i].invoke(entity);
+					}
+					encoder.write(values);
+				} else {
+					encoder.write(row);
+				}
+
+				if (++rowCount % clearInterval == 0) {
+					session.clear();
+					writer.flush();
+				}
+			}
+
+			encoder.finish();
+			writer.flush();
+		} catch (Exception e) {
+			ThrowableHandler.handleThrow(" Export failed after " + rowCount + " rows.", e, logger);
+		} finally {
+			results.close();
+		}
+
+		ExportResult result = new ExportResult(rowCount, System.currentTimeMillis() - start);
+		logger.info(" Export finished, {}", result);
+		return result;
+	}
+
+	private static boolean isSimpleValue(final Object value) {
+		return value == null || value instanceof Number || value instanceof CharSequence
+				|| value instanceof java.util.Date || value instanceof Boolean || value instanceof Enum<?>;
+	}
+
+	/**
+	 * 
+	 * Drop quotes, backslashes and control chars, so the name cannot end the quoted filename or the header.
+	 * 
+	 */
+	private static String cleanFileName(final String fileName) {
+		StringBuilder cleaned = new StringBuilder(fileName.length());
+		for (int i = 0; i < fileName.length(); i++) {
+			char c = fileName.charAt(i);
+			if (c != '"' && c != '\\' && !Character.isISOControl(c)) {
+				cleaned.append(c);
+			}
+		}
+		return cleaned.toString();
+	}
+
+	private static Method[] resolveGetters(final Session session, final Class<?> entityClass, final String[] columns)
+			throws NoSuchMethodException {
+		Set<String> associations = new HashSet<String>();
+		ClassMetadata metadata = session.getSessionFactory().getClassMetadata(entityClass);
+		if (metadata != null) {
+			String[] propertyNames = metadata.getPropertyNames();
+			Type[] propertyTypes = metadata.getPropertyTypes();
+			for (int i = 0; i < propertyNames.length; i++) {
+				if (propertyTypes[i].isAssociationType()) {
+					associations.add(propertyNames[i]);
+				}
+			}
+		}
+
+		Method[] getters = new Method[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			Assert.isTrue(!associations.contains(columns[i]), "column " + columns[i]
+					+ " is an association, export basic properties only.");
+			String suffix = StringUtils.capitalize(columns[i]);
+			try {
+				getters[i] = entityClass.getMethod("get" + suffix);
+			} catch (NoSuchMethodException e) {
+				getters[i] = entityClass.getMethod("is" + suffix);
+			}
+		}
+		return getters;
+	}
+
+	private static Criterion buildCriterion(final PropertyFilter filter) {
+		if (!filter.isMultiProperty()) {
+			return buildCriterion(filter, filter.getPropertyName());
+		}
+
+		Disjunction disjunction = Restrictions.disjunction();
+		for (String propertyName : filter.getPropertyNames()) {
+			disjunction.add(buildCriterion(filter, propertyName));
+		}
+		return disjunction;
+	}
+
+	private static Criterion buildCriterion(final PropertyFilter filter, final String propertyName) {
+		Object propertyValue = filter.getPropertyValue();
+		MatchType matchType = filter.getMatchType();
+
+		if (MatchType.LIKE.equals(matchType)) {
+			LikeMatchPatten likeMatchPatten = filter.getLikeMatchPatten();
+			StringBuilder patten = new StringBuilder();
+			if (LikeMatchPatten.ALL.equals(likeMatchPatten) || LikeMatchPatten.P.equals(likeMatchPatten)) {
+				patten.append(Constants.HQL_OPERATOR_PERCENT);
+			}
+			patten.append(propertyValue);
+			if (LikeMatchPatten.ALL.equals(likeMatchPatten) || LikeMatchPatten.S.equals(likeMatchPatten)) {
+				patten.append(Constants.HQL_OPERATOR_PERCENT);
+			}
+			return Restrictions.like(propertyName, patten.toString());
+		} else if (MatchType.LE.equals(matchType)) {
+			return Restrictions.le(propertyName, NumberUtils.createNumber(String.valueOf(propertyValue)));
+		} else if (MatchType.LT.equals(matchType)) {
+			return Restrictions.lt(propertyName, NumberUtils.createNumber(String.valueOf(propertyValue)));
+		} else if (MatchType.GE.equals(matchType)) {
+			return Restrictions.ge(propertyName, NumberUtils.createNumber(String.valueOf(propertyValue)));
+		} else if (MatchType.GT.equals(matchType)) {
+			return Restrictions.gt(propertyName, NumberUtils.createNumber(String.valueOf(propertyValue)));
+		}
+		return Restrictions.eq(propertyName, propertyValue);
+	}
+
+	public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	public void setClearInterval(int clearInterval) {
+		Assert.isTrue(clearInterval > 0, "clearInterval must be positive.");
+		this.clearInterval = clearInterval;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "bufferSize must be positive.");
+		this.bufferSize = bufferSize;
+	}
+
+	public static final int DEFAULT_FETCH_SIZE = 500;
+
+	public static final int DEFAULT_CLEAR_INTERVAL = 1000;
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(ExportServiceImpl.class);
+}
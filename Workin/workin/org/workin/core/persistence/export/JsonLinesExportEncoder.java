@@ -0,0 +1,120 @@
+package org.workin.core.persistence.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 
+ * Encode rows as JSON lines, one JSON object per row keyed by column name. NaN and infinite numbers have no
+ * JSON form, they are written as null.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class JsonLinesExportEncoder implements ExportEncoder {
+
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+
+	private Writer writer;
+
+	private String[] columnKeys;
+
+	@Override
+	public void start(final Writer writer, final String[] columns) {
+		this.writer = writer;
+
+		// The quoted keys are the same for every row.
+		columnKeys = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			StringBuilder key = new StringBuilder();
+			appendString(key, columns[i]);
+			columnKeys[i] = key.append(':').toString();
+		}
+	}
+
+	@Override
+	public void write(final Object[] values) throws IOException {
+		StringBuilder line = new StringBuilder(64 * values.length);
+		line.append('{');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append(columnKeys[i]);
+			appendValue(line, values[i]);
+		}
+		line.append('}').append('\n');
+		writer.write(line.toString());
+	}
+
+	@Override
+	public void finish() {
+	}
+
+	private void appendValue(final StringBuilder line, final Object value) {
+		if (value == null || isNotFinite(value)) {
+			line.append("null");
+		} else if (value instanceof Number || value instanceof Boolean) {
+			line.append(value);
+		} else if (value instanceof Date) {
+			appendString(line, dateFormat.format((Date) value));
+		} else {
+			appendString(line, value.toString());
+		}
+	}
+
+	private static boolean isNotFinite(final Object value) {
+		if (value instanceof Double) {
+			return ((Double) value).isNaN() || ((Double) value).isInfinite();
+		}
+		if (value instanceof Float) {
+			return ((Float) value).isNaN() || ((Float) value).isInfinite();
+		}
+		return false;
+	}
+
+	private static void appendString(final StringBuilder line, final String text) {
+		line.append('"');
+		for (int i = 0, len = text.length(); i < len; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"':
+				line.append("\\\"");
+				break;
+			case '\\':
+				line.append("\\\\");
+				break;
+			case '\n':
+				line.append("\\n");
+				break;
+			case '\r':
+				line.append("\\r");
+				break;
+			case '\t':
+				line.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					line.append(String.format("\\u%04x", (int) c));
+				} else {
+					line.append(c);
+				}
+			}
+		}
+		line.append('"');
+	}
+
+	@Override
+	public String getContentType() {
+		return "application/x-ndjson";
+	}
+
+	@Override
+	public String getFileExtension() {
+		return "jsonl";
+	}
+
+	private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+}
@@ -0,0 +1,76 @@
+package org.workin.core.persistence.jdbc;
+
+import java.sql.Connection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.mchange.v2.c3p0.AbstractConnectionCustomizer;
+
+/**
+ * 
+ * c3p0 ConnectionCustomizer which records when each physical connection was acquired, so PoolMonitorDataSource
+ * can report the connection age.
+ * 
+ * c3p0 instantiates the customizer by class name, so the acquire times are kept per pool identity token in
+ * a static registry.
+ * 
+ * eg.
+ * 
+ * 	<bean id="pooledDataSource" class="com.mchange.v2.c3p0.ComboPooledDataSource" destroy-method="close">
+ * 		<property name="connectionCustomizerClassName" value="org.workin.core.persistence.jdbc.ConnectionAgeCustomizer" />
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ConnectionAgeCustomizer extends AbstractConnectionCustomizer {
+
+	// Pool identity token -> physical connection -> acquired time millis.
+	private static final ConcurrentMap<String, ConcurrentMap<Connection, Long>> acquiredTimes = new ConcurrentHashMap<String, ConcurrentMap<Connection, Long>>();
+
+	@Override
+	public void onAcquire(Connection connection, String parentDataSourceIdentityToken) throws Exception {
+		getAcquiredTimes(parentDataSourceIdentityToken).put(connection, Long.valueOf(System.currentTimeMillis()));
+	}
+
+	@Override
+	public void onDestroy(Connection connection, String parentDataSourceIdentityToken) throws Exception {
+		getAcquiredTimes(parentDataSourceIdentityToken).remove(connection);
+	}
+
+	/**
+	 * 
+	 * Get the ages of the live connections of a pool.
+	 * 
+	 * @param identityToken
+	 * @return long[]
+	 * 			- milliseconds, empty if the pool does not use this customizer
+	 * 
+	 */
+	public static long[] getConnectionAges(final String identityToken) {
+		ConcurrentMap<Connection, Long> times = acquiredTimes.get(identityToken);
+		if (times == null) {
+			return new long[0];
+		}
+
+		long now = System.currentTimeMillis();
+		Long[] acquired = times.values().toArray(new Long[0]);
+		long[] ages = new long[acquired.length];
+		for (int i = 0; i < acquired.length; i++) {
+			ages[i] = now - acquired[i].longValue();
+		}
+		return ages;
+	}
+
+	private static ConcurrentMap<Connection, Long> getAcquiredTimes(final String identityToken) {
+		ConcurrentMap<Connection, Long> times = acquiredTimes.get(identityToken);
+		if (times == null) {
+			ConcurrentMap<Connection, Long> created = new ConcurrentHashMap<Connection, Long>();
+			times = acquiredTimes.putIfAbsent(identityToken, created);
+			if (times == null) {
+				times = created;
+			}
+		}
+		return times;
+	}
+}
@@ -0,0 +1,276 @@
+package org.workin.core.persistence.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 
+ * JDK proxies of JDBC objects for ProxyDataSource.
+ * 
+ * 	1) Connection proxy returns statement proxies from createStatement/prepareStatement/prepareCall.
+ * 	2) Statement proxy times execute*, executeQuery and executeBatch and reports them to the listeners.
+ * 	3) ResultSet proxy counts next() and reports the rows once, on close of the ResultSet or its statement.
+ * 
+ * equals/hashCode are those of the proxy itself, and getConnection/getStatement return the proxies, so
+ * Hibernate's statement bookkeeping in hash sets works on the proxies it was handed.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+final class JdbcProxies {
+
+	private JdbcProxies() {
+	}
+
+	static Connection proxyConnection(final Connection connection, final List<StatementListener> listeners) {
+		return (Connection) Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(connection, listeners));
+	}
+
+	private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+	private static boolean isIdentityMethod(final Method method) {
+		return ("equals".equals(method.getName()) && method.getParameterTypes().length == 1)
+				|| ("hashCode".equals(method.getName()) && method.getParameterTypes().length == 0);
+	}
+
+	private static Object invokeIdentity(final Object proxy, final Method method, final Object[] args) {
+		if ("equals".equals(method.getName())) {
+			return Boolean.valueOf(proxy == args[0]);
+		}
+		return Integer.valueOf(System.identityHashCode(proxy));
+	}
+
+	private static void fireExecute(final List<StatementListener> listeners, final String sql, final long elapsedNanos,
+			final int updateCount, final Throwable error) {
+		for (StatementListener listener : listeners) {
+			try {
+				listener.afterExecute(sql, elapsedNanos, updateCount, error);
+			} catch (RuntimeException e) {
+				logger.warn(" StatementListener failed: {}", e.toString());
+			}
+		}
+	}
+
+	private static void fireFetch(final List<StatementListener> listeners, final String sql, final int rows) {
+		for (StatementListener listener : listeners) {
+			try {
+				listener.afterFetch(sql, rows);
+			} catch (RuntimeException e) {
+				logger.warn(" StatementListener failed: {}", e.toString());
+			}
+		}
+	}
+
+	private static final class ConnectionHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final List<StatementListener> listeners;
+
+		ConnectionHandler(Connection target, List<StatementListener> listeners) {
+			this.target = target;
+			this.listeners = listeners;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (isIdentityMethod(method)) {
+				return invokeIdentity(proxy, method, args);
+			}
+
+			String name = method.getName();
+			Object result = JdbcProxies.invoke(target, method, args);
+
+			if ("createStatement".equals(name)) {
+				return proxyStatement(Statement.class, (Statement) result, null, (Connection) proxy);
+			} else if ("prepareStatement".equals(name)) {
+				return proxyStatement(PreparedStatement.class, (Statement) result, (String) args[0],
+						(Connection) proxy);
+			} else if ("prepareCall".equals(name)) {
+				return proxyStatement(CallableStatement.class, (Statement) result, (String) args[0],
+						(Connection) proxy);
+			}
+			return result;
+		}
+
+		private Object proxyStatement(final Class<? extends Statement> type, final Statement statement,
+				final String sql, final Connection connection) {
+			return Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[] { type },
+					new StatementHandler(statement, sql, connection, listeners));
+		}
+	}
+
+	private static final class StatementHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		// Proxy of the connection which created the statement.
+		private final Connection connection;
+
+		private final List<StatementListener> listeners;
+
+		// Prepared sql, or the sql of the last execute/addBatch of a plain statement.
+		private String sql;
+
+		private final List<ResultSetHandler> resultSets = new ArrayList<ResultSetHandler>(1);
+
+		StatementHandler(Statement target, String sql, Connection connection, List<StatementListener> listeners) {
+			this.target = target;
+			this.sql = sql;
+			this.connection = connection;
+			this.listeners = listeners;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (isIdentityMethod(method)) {
+				return invokeIdentity(proxy, method, args);
+			}
+
+			String name = method.getName();
+
+			if ("getConnection".equals(name)) {
+				return connection;
+			}
+
+			if ("close".equals(name)) {
+				closeResultSets();
+				return JdbcProxies.invoke(target, method, args);
+			}
+
+			if ("addBatch".equals(name) && args != null && args.length > 0 && args[0] instanceof String) {
+				sql = (String) args[0];
+				return JdbcProxies.invoke(target, method, args);
+			}
+
+			if (!name.startsWith("execute")) {
+				Object result = JdbcProxies.invoke(target, method, args);
+				return "getResultSet".equals(name) ? proxyResultSet((ResultSet) result, (Statement) proxy) : result;
+			}
+
+			if (args != null && args.length > 0 && args[0] instanceof String) {
+				sql = (String) args[0];
+			}
+
+			long start = System.nanoTime();
+			Object result;
+			try {
+				result = JdbcProxies.invoke(target, method, args);
+			} catch (Throwable e) {
+				fireExecute(listeners, sql, System.nanoTime() - start, -1, e);
+				throw e;
+			}
+			fireExecute(listeners, sql, System.nanoTime() - start, updateCountOf(result), null);
+
+			return result instanceof ResultSet ? proxyResultSet((ResultSet) result, (Statement) proxy) : result;
+		}
+
+		private Object proxyResultSet(final ResultSet resultSet, final Statement statement) {
+			if (resultSet == null) {
+				return null;
+			}
+
+			ResultSetHandler handler = new ResultSetHandler(resultSet, sql, statement, listeners);
+			resultSets.add(handler);
+			return Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+					handler);
+		}
+
+		private void closeResultSets() {
+			for (ResultSetHandler handler : resultSets) {
+				handler.report();
+			}
+			resultSets.clear();
+		}
+
+		private static int updateCountOf(final Object result) {
+			if (result instanceof Integer) {
+				return ((Integer) result).intValue();
+			}
+
+			if (result instanceof int[]) {
+				int updateCount = 0;
+				for (int count : (int[]) result) {
+					if (count > 0) {
+						updateCount += count;
+					}
+				}
+				return updateCount;
+			}
+			return -1;
+		}
+	}
+
+	private static final class ResultSetHandler implements InvocationHandler {
+
+		private final ResultSet target;
+
+		private final String sql;
+
+		// Proxy of the statement which returned the ResultSet.
+		private final Statement statement;
+
+		private final List<StatementListener> listeners;
+
+		private int rows;
+
+		private boolean reported;
+
+		ResultSetHandler(ResultSet target, String sql, Statement statement, List<StatementListener> listeners) {
+			this.target = target;
+			this.sql = sql;
+			this.statement = statement;
+			this.listeners = listeners;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (isIdentityMethod(method)) {
+				return invokeIdentity(proxy, method, args);
+			}
+
+			String name = method.getName();
+			if ("getStatement".equals(name)) {
+				return statement;
+			}
+			Object result = JdbcProxies.invoke(target, method, args);
+
+			if ("next".equals(name)) {
+				if (Boolean.TRUE.equals(result)) {
+					rows++;
+				}
+			} else if ("close".equals(name)) {
+				report();
+			}
+			return result;
+		}
+
+		void report() {
+			if (!reported) {
+				reported = true;
+				fireFetch(listeners, sql, rows);
+			}
+		}
+	}
+
+	private static final transient Logger logger = LoggerFactory.getLogger(JdbcProxies.class);
+}
@@ -0,0 +1,264 @@
+package org.workin.core.persistence.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 
+ * Lock-free latency histogram with log-linear buckets in microseconds.
+ * 
+ * Every power of two is split into 8 buckets, so a percentile is accurate to 12.5%. Latencies from 0 to
+ * about 12 days are recorded, longer ones go to the last bucket. Recording is a few atomic updates and
+ * percentiles are computed from a racy, but never torn, read of the buckets. Sum, min and max are exact.
+ * 
+ * A histogram recorded by many threads at once can be striped: each thread records into the stripe of its
+ * id, stripes are allocated on first use and summed up when read.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class LatencyHistogram {
+
+	private final AtomicReferenceArray<Stripe> stripes;
+
+	private final int stripeMask;
+
+	public LatencyHistogram() {
+		this(1);
+	}
+
+	/**
+	 * 
+	 * @param stripes
+	 * 			- rounded up to a power of 2
+	 * 
+	 */
+	public LatencyHistogram(final int stripes) {
+		int size = 1;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		this.stripes = new AtomicReferenceArray<Stripe>(size);
+		this.stripeMask = size - 1;
+	}
+
+	/**
+	 * 
+	 * Record one latency.
+	 * 
+	 * @param nanos
+	 * 
+	 */
+	public void record(final long nanos) {
+		int index = (int) Thread.currentThread().getId() & stripeMask;
+		Stripe stripe = stripes.get(index);
+		if (stripe == null) {
+			stripes.compareAndSet(index, null, new Stripe());
+			stripe = stripes.get(index);
+		}
+		stripe.record(Math.max(0L, nanos / 1000L));
+	}
+
+	/**
+	 * 
+	 * Get the number of recorded latencies.
+	 * 
+	 * @return long
+	 * 
+	 */
+	public long getCount() {
+		return snapshot().getCount();
+	}
+
+	/**
+	 * 
+	 * Get the latency at percentile, as the upper bound of its bucket.
+	 * 
+	 * @param percentile
+	 * 			- 0 to 100, eg. 99.0
+	 * @return long microseconds, 0 if nothing is recorded
+	 * 
+	 */
+	public long getPercentileMicros(final double percentile) {
+		return snapshot().getPercentileMicros(percentile);
+	}
+
+	/**
+	 * 
+	 * Read the recorded latencies.
+	 * 
+	 * @return Snapshot
+	 * 
+	 */
+	public Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot();
+		for (int i = 0; i < stripes.length(); i++) {
+			Stripe stripe = stripes.get(i);
+			if (stripe != null) {
+				stripe.copyTo(snapshot, false);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 
+	 * Read the recorded latencies and clear them. Latencies recorded meanwhile land in this or the next
+	 * snapshot, none is lost.
+	 * 
+	 * @return Snapshot
+	 * 
+	 */
+	public Snapshot drain() {
+		Snapshot snapshot = new Snapshot();
+		for (int i = 0; i < stripes.length(); i++) {
+			Stripe stripe = stripes.get(i);
+			if (stripe != null) {
+				stripe.copyTo(snapshot, true);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 
+	 * Clear the recorded latencies.
+	 * 
+	 */
+	public void reset() {
+		drain();
+	}
+
+	static int indexOf(final long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return ((SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+	}
+
+	/**
+	 * 
+	 * Recorded latencies of one stripe.
+	 * 
+	 */
+	private static final class Stripe {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+		private final AtomicLong sum = new AtomicLong();
+
+		private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+		private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+		void record(final long micros) {
+			buckets.incrementAndGet(indexOf(micros));
+			sum.addAndGet(micros);
+			long current;
+			while (micros < (current = min.get()) && !min.compareAndSet(current, micros)) {
+				// retry
+			}
+			while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+				// retry
+			}
+		}
+
+		void copyTo(final Snapshot snapshot, final boolean clear) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				long count = buckets.get(i);
+				if (clear && count != 0) {
+					count = buckets.getAndSet(i, 0L);
+				}
+				snapshot.counts[i] += count;
+				snapshot.count += count;
+			}
+			snapshot.sum += clear ? sum.getAndSet(0L) : sum.get();
+			snapshot.min = Math.min(snapshot.min, clear ? min.getAndSet(Long.MAX_VALUE) : min.get());
+			snapshot.max = Math.max(snapshot.max, clear ? max.getAndSet(Long.MIN_VALUE) : max.get());
+		}
+	}
+
+	/**
+	 * 
+	 * Latencies read from the histogram, in microseconds.
+	 * 
+	 */
+	public static final class Snapshot {
+
+		private final long[] counts = new long[BUCKET_COUNT];
+
+		private long count;
+
+		private long sum;
+
+		private long min = Long.MAX_VALUE;
+
+		private long max = Long.MIN_VALUE;
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSumMicros() {
+			return sum;
+		}
+
+		public long getMinMicros() {
+			return count == 0 ? 0L : min;
+		}
+
+		public long getMaxMicros() {
+			return count == 0 ? 0L : max;
+		}
+
+		/**
+		 * 
+		 * Get the latency at percentile, as the upper bound of its bucket within min and max.
+		 * 
+		 * @param percentile
+		 * 			- 0 to 100, eg. 99.0
+		 * @return long microseconds, 0 if nothing is recorded
+		 * 
+		 */
+		public long getPercentileMicros(final double percentile) {
+			if (count == 0) {
+				return 0L;
+			}
+
+			long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += counts[i];
+				if (seen >= Math.max(1L, rank)) {
+					return Math.max(getMinMicros(), Math.min(getMaxMicros(), upperBoundOf(i)));
+				}
+			}
+			return getMaxMicros();
+		}
+	}
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_EXPONENT = 40;
+
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+}
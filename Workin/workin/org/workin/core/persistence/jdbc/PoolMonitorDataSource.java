@@ -0,0 +1,335 @@
+package org.workin.core.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.workin.util.Assert;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+
+/**
+ * 
+ * DataSource around a c3p0 pool which measures how long getConnection() waits for the pool.
+ * 
+ * 	1) Every checkout wait is recorded in a LatencyHistogram, failed checkouts(eg. checkoutTimeout) are counted.
+ * 	2) A checkout waiting longer than warnThresholdMillis logs a warning and publishes a PoolSaturationEvent,
+ * 	   at most once per warnIntervalMillis.
+ * 	3) Busy/idle connections and threads awaiting checkout are sampled every sampleIntervalMillis to keep
+ * 	   their peaks, the current values are read from the pool.
+ * 	4) Connection ages are reported if the pool uses ConnectionAgeCustomizer.
+ * 
+ * Slow statements with short checkout waits point to the database, long checkout waits point to the pool size.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class PoolMonitorDataSource extends DelegatingDataSource implements PoolMonitorMBean,
+		ApplicationEventPublisherAware {
+
+	private final LatencyHistogram checkoutWaits = new LatencyHistogram();
+
+	private final AtomicLong checkoutCount = new AtomicLong();
+
+	private final AtomicLong failedCheckoutCount = new AtomicLong();
+
+	private final AtomicLong slowCheckoutCount = new AtomicLong();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private final AtomicLong lastWarnMillis = new AtomicLong();
+
+	private final AtomicInteger peakBusyConnections = new AtomicInteger();
+
+	private final AtomicInteger peakThreadsAwaitingCheckout = new AtomicInteger();
+
+	private long warnThresholdMillis = DEFAULT_WARN_THRESHOLD_MILLIS;
+
+	private long warnIntervalMillis = DEFAULT_WARN_INTERVAL_MILLIS;
+
+	private long sampleIntervalMillis = DEFAULT_SAMPLE_INTERVAL_MILLIS;
+
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	private ScheduledExecutorService sampleExecutor;
+
+	private final Runnable sampleTask = new Runnable() {
+		@Override
+		public void run() {
+			sample();
+		}
+	};
+
+	public PoolMonitorDataSource() {
+	}
+
+	public PoolMonitorDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	/**
+	 * 
+	 * Start sampling the pool.
+	 * 
+	 */
+	public void start() {
+		sampleExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "PoolMonitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sampleExecutor.scheduleWithFixedDelay(sampleTask, sampleIntervalMillis, sampleIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 
+	 * Stop sampling the pool.
+	 * 
+	 */
+	public void stop() {
+		if (sampleExecutor != null) {
+			sampleExecutor.shutdown();
+			sampleExecutor = null;
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		boolean acquired = false;
+		try {
+			Connection connection = getTargetDataSource().getConnection();
+			acquired = true;
+			return connection;
+		} finally {
+			recordCheckout(System.nanoTime() - start, acquired);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		long start = System.nanoTime();
+		boolean acquired = false;
+		try {
+			Connection connection = getTargetDataSource().getConnection(username, password);
+			acquired = true;
+			return connection;
+		} finally {
+			recordCheckout(System.nanoTime() - start, acquired);
+		}
+	}
+
+	private void recordCheckout(final long waitNanos, final boolean acquired) {
+		checkoutCount.incrementAndGet();
+		checkoutWaits.record(waitNanos);
+		if (!acquired) {
+			failedCheckoutCount.incrementAndGet();
+		}
+
+		long max = maxWaitNanos.get();
+		while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+			max = maxWaitNanos.get();
+		}
+
+		long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+		if (waitMillis >= warnThresholdMillis) {
+			slowCheckoutCount.incrementAndGet();
+			warnSaturation(waitMillis);
+		}
+	}
+
+	private void warnSaturation(final long waitMillis) {
+		long now = System.currentTimeMillis();
+		long last = lastWarnMillis.get();
+		if (now - last < warnIntervalMillis || !lastWarnMillis.compareAndSet(last, now)) {
+			return;
+		}
+
+		PoolSaturationEvent event = new PoolSaturationEvent(this, waitMillis, getBusyConnections(),
+				getIdleConnections(), getThreadsAwaitingCheckout());
+		logger.warn(" Connection pool saturated, checkout waited {} ms: {}", waitMillis, event);
+
+		if (applicationEventPublisher != null) {
+			applicationEventPublisher.publishEvent(event);
+		}
+	}
+
+	private void sample() {
+		updatePeak(peakBusyConnections, getBusyConnections());
+		updatePeak(peakThreadsAwaitingCheckout, getThreadsAwaitingCheckout());
+	}
+
+	private static void updatePeak(final AtomicInteger peak, final int value) {
+		int current = peak.get();
+		while (value > current && !peak.compareAndSet(current, value)) {
+			current = peak.get();
+		}
+	}
+
+	@Override
+	public int getBusyConnections() {
+		try {
+			return getPool() == null ? -1 : getPool().getNumBusyConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getIdleConnections() {
+		try {
+			return getPool() == null ? -1 : getPool().getNumIdleConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getTotalConnections() {
+		try {
+			return getPool() == null ? -1 : getPool().getNumConnectionsDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getThreadsAwaitingCheckout() {
+		try {
+			return getPool() == null ? -1 : getPool().getNumThreadsAwaitingCheckoutDefaultUser();
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public int getPeakBusyConnections() {
+		return peakBusyConnections.get();
+	}
+
+	@Override
+	public int getPeakThreadsAwaitingCheckout() {
+		return peakThreadsAwaitingCheckout.get();
+	}
+
+	@Override
+	public long getCheckoutCount() {
+		return checkoutCount.get();
+	}
+
+	@Override
+	public long getFailedCheckoutCount() {
+		return failedCheckoutCount.get();
+	}
+
+	@Override
+	public long getSlowCheckoutCount() {
+		return slowCheckoutCount.get();
+	}
+
+	@Override
+	public double getCheckoutWaitP50Millis() {
+		return checkoutWaits.getPercentileMicros(50.0) / 1000.0;
+	}
+
+	@Override
+	public double getCheckoutWaitP95Millis() {
+		return checkoutWaits.getPercentileMicros(95.0) / 1000.0;
+	}
+
+	@Override
+	public double getCheckoutWaitP99Millis() {
+		return checkoutWaits.getPercentileMicros(99.0) / 1000.0;
+	}
+
+	@Override
+	public double getMaxCheckoutWaitMillis() {
+		return maxWaitNanos.get() / 1000000.0;
+	}
+
+	@Override
+	public long getOldestConnectionAgeSeconds() {
+		long oldest = 0;
+		for (long age : getConnectionAges()) {
+			oldest = Math.max(oldest, age);
+		}
+		return oldest / 1000L;
+	}
+
+	@Override
+	public long getAverageConnectionAgeSeconds() {
+		long[] ages = getConnectionAges();
+		if (ages.length == 0) {
+			return 0L;
+		}
+
+		long total = 0;
+		for (long age : ages) {
+			total += age;
+		}
+		return total / ages.length / 1000L;
+	}
+
+	@Override
+	public void resetStatistics() {
+		checkoutWaits.reset();
+		checkoutCount.set(0L);
+		failedCheckoutCount.set(0L);
+		slowCheckoutCount.set(0L);
+		maxWaitNanos.set(0L);
+		peakBusyConnections.set(0);
+		peakThreadsAwaitingCheckout.set(0);
+	}
+
+	private long[] getConnectionAges() {
+		return getPool() == null ? new long[0] : ConnectionAgeCustomizer.getConnectionAges(getPool()
+				.getIdentityToken());
+	}
+
+	private PooledDataSource getPool() {
+		DataSource target = getTargetDataSource();
+		return target instanceof PooledDataSource ? (PooledDataSource) target : null;
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+
+	public void setWarnThresholdMillis(long warnThresholdMillis) {
+		this.warnThresholdMillis = warnThresholdMillis;
+	}
+
+	public void setWarnIntervalMillis(long warnIntervalMillis) {
+		this.warnIntervalMillis = warnIntervalMillis;
+	}
+
+	public void setSampleIntervalMillis(long sampleIntervalMillis) {
+		Assert.isTrue(sampleIntervalMillis > 0, "sampleIntervalMillis must be positive.");
+		this.sampleIntervalMillis = sampleIntervalMillis;
+	}
+
+	public static final long DEFAULT_WARN_THRESHOLD_MILLIS = 500L;
+
+	public static final long DEFAULT_WARN_INTERVAL_MILLIS = 60000L;
+
+	public static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 5000L;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(PoolMonitorDataSource.class);
+}
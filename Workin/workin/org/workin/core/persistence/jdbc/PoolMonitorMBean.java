@@ -0,0 +1,43 @@
+package org.workin.core.persistence.jdbc;
+
+/**
+ * 
+ * JMX view of PoolMonitorDataSource, wait times in milliseconds and ages in seconds.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface PoolMonitorMBean {
+
+	public int getBusyConnections();
+
+	public int getIdleConnections();
+
+	public int getTotalConnections();
+
+	public int getThreadsAwaitingCheckout();
+
+	public int getPeakBusyConnections();
+
+	public int getPeakThreadsAwaitingCheckout();
+
+	public long getCheckoutCount();
+
+	public long getFailedCheckoutCount();
+
+	public long getSlowCheckoutCount();
+
+	public double getCheckoutWaitP50Millis();
+
+	public double getCheckoutWaitP95Millis();
+
+	public double getCheckoutWaitP99Millis();
+
+	public double getMaxCheckoutWaitMillis();
+
+	public long getOldestConnectionAgeSeconds();
+
+	public long getAverageConnectionAgeSeconds();
+
+	public void resetStatistics();
+}
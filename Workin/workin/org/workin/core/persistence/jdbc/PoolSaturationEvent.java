@@ -0,0 +1,54 @@
+package org.workin.core.persistence.jdbc;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 
+ * Published by PoolMonitorDataSource when a connection checkout waited longer than the warn threshold.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class PoolSaturationEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = -2475109866301367525L;
+
+	private final long waitMillis;
+
+	private final int busyConnections;
+
+	private final int idleConnections;
+
+	private final int threadsAwaitingCheckout;
+
+	public PoolSaturationEvent(Object source, long waitMillis, int busyConnections, int idleConnections,
+			int threadsAwaitingCheckout) {
+		super(source);
+		this.waitMillis = waitMillis;
+		this.busyConnections = busyConnections;
+		this.idleConnections = idleConnections;
+		this.threadsAwaitingCheckout = threadsAwaitingCheckout;
+	}
+
+	public long getWaitMillis() {
+		return waitMillis;
+	}
+
+	public int getBusyConnections() {
+		return busyConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getThreadsAwaitingCheckout() {
+		return threadsAwaitingCheckout;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolSaturationEvent[wait=" + waitMillis + "ms, busy=" + busyConnections + ", idle=" + idleConnections
+				+ ", awaiting=" + threadsAwaitingCheckout + "]";
+	}
+}
@@ -0,0 +1,216 @@
+package org.workin.core.persistence.jdbc;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.workin.core.persistence.support.ProcedureParameter;
+import org.workin.util.Assert;
+import org.workin.util.CollectionUtils;
+import org.workin.util.StringUtils;
+
+/**
+ * 
+ * Execute stored procedures on a JDBC connection.
+ * 
+ * The "{call name(?,...)}" string is built once per procedure name and arity and cached. Statements are
+ * always closed, the connection is not, it belongs to the caller. Parameters are bound by name if
+ * named, by position(1-based) otherwise.
+ * 
+ * 	1) execute() runs one call and returns the OUT/INOUT values, keyed by parameter name or position.
+ * 	2) executeBatch() runs one call per parameter set through addBatch/executeBatch, IN parameters only,
+ * 	   every batchSize calls are sent together.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ProcedureExecutor {
+
+	// procedureName/arity -> call string.
+	private final ConcurrentMap<String, String> callStrings = new ConcurrentHashMap<String, String>();
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * 
+	 * Execute procedure once.
+	 * 
+	 * @param connection
+	 * @param procedureName
+	 * @param procedureParams
+	 * @return Map<String, Object>
+	 * 			- OUT/INOUT values, keyed by parameter name, or by position if the parameter has no name
+	 * @throws SQLException
+	 * 
+	 */
+	public Map<String, Object> execute(final Connection connection, final String procedureName,
+			final List<ProcedureParameter> procedureParams) throws SQLException {
+		List<ProcedureParameter> params = nullToEmpty(procedureParams);
+		CallableStatement statement = connection.prepareCall(getCallString(procedureName, params.size()));
+		try {
+			bindParameters(statement, params);
+			statement.execute();
+
+			Map<String, Object> result = new HashMap<String, Object>();
+			for (int i = 0; i < params.size(); i++) {
+				ProcedureParameter param = params.get(i);
+				if (param.getInOut() == ProcedureParameter.OUT || param.getInOut() == ProcedureParameter.INOUT) {
+					if (StringUtils.hasText(param.getParamName())) {
+						result.put(param.getParamName(), statement.getObject(param.getParamName()));
+					} else {
+						result.put(String.valueOf(i + 1), statement.getObject(i + 1));
+					}
+				}
+			}
+
+			logger.debug(" Executed procedure: {}", procedureName);
+			return result;
+		} finally {
+			JdbcUtils.closeStatement(statement);
+		}
+	}
+
+	/**
+	 * 
+	 * Execute procedure once per parameter set in JDBC batches.
+	 * 
+	 * @param connection
+	 * @param procedureName
+	 * @param parameterSets
+	 * 			- IN parameters only, every set has the same arity
+	 * @return int[]
+	 * 			- update counts as reported by the driver, one per parameter set
+	 * @throws SQLException
+	 * 
+	 */
+	public int[] executeBatch(final Connection connection, final String procedureName,
+			final List<List<ProcedureParameter>> parameterSets) throws SQLException {
+		if (CollectionUtils.isEmpty(parameterSets)) {
+			return new int[0];
+		}
+
+		int arity = nullToEmpty(parameterSets.get(0)).size();
+		for (List<ProcedureParameter> params : parameterSets) {
+			List<ProcedureParameter> checked = nullToEmpty(params);
+			Assert.isTrue(checked.size() == arity, "All parameter sets of a batch must have the same arity: "
+					+ procedureName);
+			for (ProcedureParameter param : checked) {
+				Assert.isTrue(param.getInOut() == ProcedureParameter.IN,
+						"Batched procedure calls take IN parameters only: " + procedureName);
+			}
+		}
+
+		List<int[]> counts = new ArrayList<int[]>();
+		CallableStatement statement = connection.prepareCall(getCallString(procedureName, arity));
+		try {
+			int batched = 0;
+			for (List<ProcedureParameter> params : parameterSets) {
+				bindParameters(statement, nullToEmpty(params));
+				statement.addBatch();
+				if (++batched % batchSize == 0) {
+					counts.add(statement.executeBatch());
+				}
+			}
+			if (batched % batchSize != 0) {
+				counts.add(statement.executeBatch());
+			}
+		} finally {
+			JdbcUtils.closeStatement(statement);
+		}
+
+		logger.debug(" Executed procedure: {} in batch, calls: {}", procedureName, parameterSets.size());
+		return concat(counts, parameterSets.size());
+	}
+
+	/**
+	 * 
+	 * Get the cached call string of procedure.
+	 * 
+	 * @param procedureName
+	 * @param arity
+	 * @return String
+	 * 
+	 */
+	protected String getCallString(final String procedureName, final int arity) {
+		Assert.hasText(procedureName, "Procedure name can not be empty.");
+
+		String key = procedureName + '/' + arity;
+		String callString = callStrings.get(key);
+		if (callString == null) {
+			StringBuilder builder = new StringBuilder("{call ").append(procedureName).append('(');
+			for (int i = 0; i < arity; i++) {
+				builder.append(i == 0 ? "?" : ",?");
+			}
+			callString = builder.append(") }").toString();
+			callStrings.putIfAbsent(key, callString);
+			logger.debug(" Build callable statement: {}", callString);
+		}
+		return callString;
+	}
+
+	private static void bindParameters(final CallableStatement statement, final List<ProcedureParameter> params)
+			throws SQLException {
+		for (int i = 0; i < params.size(); i++) {
+			ProcedureParameter param = params.get(i);
+			String paramName = param.getParamName();
+			boolean named = StringUtils.hasText(paramName);
+			int index = i + 1;
+
+			if (param.getInOut() == ProcedureParameter.IN || param.getInOut() == ProcedureParameter.INOUT) {
+				Object paramValue = param.getParamValue();
+				if (paramValue instanceof Date && Types.DATE == param.getParamType()) {
+					paramValue = new java.sql.Date(((Date) paramValue).getTime());
+				}
+				if (named) {
+					statement.setObject(paramName, paramValue, param.getParamType());
+				} else {
+					statement.setObject(index, paramValue, param.getParamType());
+				}
+			}
+
+			if (param.getInOut() == ProcedureParameter.OUT || param.getInOut() == ProcedureParameter.INOUT) {
+				if (named) {
+					statement.registerOutParameter(paramName, param.getParamType());
+				} else {
+					statement.registerOutParameter(index, param.getParamType());
+				}
+			}
+		}
+	}
+
+	private static int[] concat(final List<int[]> counts, final int size) {
+		int[] result = new int[size];
+		int offset = 0;
+		for (int[] batch : counts) {
+			int length = Math.min(batch.length, size - offset);
+			System.arraycopy(batch, 0, result, offset, length);
+			offset += length;
+		}
+		return result;
+	}
+
+	private static List<ProcedureParameter> nullToEmpty(final List<ProcedureParameter> params) {
+		return params == null ? Collections.<ProcedureParameter> emptyList() : params;
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive.");
+		this.batchSize = batchSize;
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(ProcedureExecutor.class);
+}
@@ -0,0 +1,63 @@
+package org.workin.core.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * DataSource which reports the statements executed on its connections to the StatementListeners.
+ * 
+ * Connections, statements and result sets are JDK proxies of the target's, so it wraps any pool.
+ * 
+ * eg.
+ * 
+ * 	<bean id="dataSource" class="org.workin.core.persistence.jdbc.ProxyDataSource">
+ * 		<property name="targetDataSource" ref="pooledDataSource" />
+ * 		<property name="listeners">
+ * 			<list>
+ * 				<ref bean="queryCountListener" />
+ * 			</list>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class ProxyDataSource extends DelegatingDataSource {
+
+	private List<StatementListener> listeners = Collections.emptyList();
+
+	public ProxyDataSource() {
+	}
+
+	public ProxyDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return wrap(getTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return wrap(getTargetDataSource().getConnection(username, password));
+	}
+
+	private Connection wrap(final Connection connection) {
+		return listeners.isEmpty() ? connection : JdbcProxies.proxyConnection(connection, listeners);
+	}
+
+	public void setListeners(List<StatementListener> listeners) {
+		this.listeners = CollectionUtils.isEmpty(listeners) ? Collections.<StatementListener> emptyList()
+				: new ArrayList<StatementListener>(listeners);
+	}
+}
@@ -0,0 +1,221 @@
+package org.workin.core.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.workin.core.context.ExtenalContext;
+import org.workin.core.context.ThreadLocalContext;
+
+/**
+ * 
+ * Statements, rows and JDBC time of one unit of work(eg. a request) on the current thread.
+ * 
+ * Counted by QueryCountListener while the context is open. Statements are also counted per shape(see
+ * SqlNormalizer), a shape repeated many times in one unit of work is usually a N+1 select. Contexts
+ * nest, only the outermost open/close pair creates and removes the context.
+ * 
+ * eg.
+ * 
+ * 	QueryCountContext.open();
+ * 	try {
+ * 		...
+ * 	} finally {
+ * 		QueryCountContext counts = QueryCountContext.close();
+ * 	}
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class QueryCountContext {
+
+	private final long openedNanos = System.nanoTime();
+
+	private final Map<String, int[]> shapeCounts = new HashMap<String, int[]>();
+
+	private int statementCount;
+
+	private long rowCount;
+
+	private long jdbcNanos;
+
+	private int errorCount;
+
+	private long elapsedNanos;
+
+	private int depth;
+
+	// Hibernate counters over the context, set by QueryCountMonitor.
+	private long entityLoadCount;
+
+	private long collectionFetchCount;
+
+	private QueryCountContext() {
+	}
+
+	/**
+	 * 
+	 * Open a context on the current thread, or join the context already open.
+	 * 
+	 */
+	public static void open() {
+		QueryCountContext counts = current();
+		if (counts == null) {
+			counts = new QueryCountContext();
+			context.setAttribute(CONTEXT_KEY, counts);
+		}
+		counts.depth++;
+	}
+
+	/**
+	 * 
+	 * Close the context opened by open().
+	 * 
+	 * @return QueryCountContext
+	 * 			- the closed context on the outermost close, null otherwise
+	 * 
+	 */
+	public static QueryCountContext close() {
+		QueryCountContext counts = current();
+		if (counts != null && --counts.depth == 0) {
+			context.removeAttribute(CONTEXT_KEY);
+			counts.elapsedNanos = System.nanoTime() - counts.openedNanos;
+			return counts;
+		}
+		return null;
+	}
+
+	/**
+	 * 
+	 * Get the context of the current thread.
+	 * 
+	 * @return QueryCountContext or null if no context is open
+	 * 
+	 */
+	public static QueryCountContext current() {
+		return (QueryCountContext) context.getAttribute(CONTEXT_KEY);
+	}
+
+	void recordExecute(final String sql, final long nanos, final boolean failed) {
+		statementCount++;
+		jdbcNanos += nanos;
+		if (failed) {
+			errorCount++;
+		}
+
+		String shape = SqlNormalizer.normalize(sql);
+		if (shape != null) {
+			int[] count = shapeCounts.get(shape);
+			if (count == null) {
+				shapeCounts.put(shape, new int[] { 1 });
+			} else {
+				count[0]++;
+			}
+		}
+	}
+
+	void recordRows(final int rows) {
+		rowCount += rows;
+	}
+
+	boolean isOutermost() {
+		return depth == 1;
+	}
+
+	void setHibernateCounts(final long entityLoadCount, final long collectionFetchCount) {
+		this.entityLoadCount = entityLoadCount;
+		this.collectionFetchCount = collectionFetchCount;
+	}
+
+	/**
+	 * 
+	 * Get the shapes executed at least threshold times, most repeated first.
+	 * 
+	 * @param threshold
+	 * @return List<Map.Entry<String, Integer>>
+	 * 
+	 */
+	public List<Map.Entry<String, Integer>> getRepeatedShapes(final int threshold) {
+		List<Map.Entry<String, Integer>> repeated = new ArrayList<Map.Entry<String, Integer>>();
+		for (Map.Entry<String, int[]> entry : shapeCounts.entrySet()) {
+			int count = entry.getValue()[0];
+			if (count >= threshold) {
+				int index = 0;
+				while (index < repeated.size() && repeated.get(index).getValue().intValue() >= count) {
+					index++;
+				}
+				repeated.add(index, new ShapeCount(entry.getKey(), count));
+			}
+		}
+		return repeated;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public int getDistinctShapeCount() {
+		return shapeCounts.size();
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public long getJdbcTimeMillis() {
+		return jdbcNanos / 1000000L;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000L;
+	}
+
+	public long getEntityLoadCount() {
+		return entityLoadCount;
+	}
+
+	public long getCollectionFetchCount() {
+		return collectionFetchCount;
+	}
+
+	private static final class ShapeCount implements Map.Entry<String, Integer> {
+
+		private final String shape;
+
+		private final Integer count;
+
+		ShapeCount(String shape, int count) {
+			this.shape = shape;
+			this.count = Integer.valueOf(count);
+		}
+
+		@Override
+		public String getKey() {
+			return shape;
+		}
+
+		@Override
+		public Integer getValue() {
+			return count;
+		}
+
+		@Override
+		public Integer setValue(Integer value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String toString() {
+			return count + " x " + shape;
+		}
+	}
+
+	private static final String CONTEXT_KEY = QueryCountContext.class.getName();
+
+	private static final ExtenalContext context = new ThreadLocalContext();
+}
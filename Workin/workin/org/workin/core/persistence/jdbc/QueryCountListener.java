@@ -0,0 +1,28 @@
+package org.workin.core.persistence.jdbc;
+
+/**
+ * 
+ * Count the statements of the current thread into its QueryCountContext, statements outside an open
+ * context are ignored.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class QueryCountListener implements StatementListener {
+
+	@Override
+	public void afterExecute(String sql, long elapsedNanos, int updateCount, Throwable error) {
+		QueryCountContext counts = QueryCountContext.current();
+		if (counts != null) {
+			counts.recordExecute(sql, elapsedNanos, error != null);
+		}
+	}
+
+	@Override
+	public void afterFetch(String sql, int rows) {
+		QueryCountContext counts = QueryCountContext.current();
+		if (counts != null) {
+			counts.recordRows(rows);
+		}
+	}
+}
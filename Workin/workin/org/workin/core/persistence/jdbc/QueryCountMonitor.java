@@ -0,0 +1,121 @@
+package org.workin.core.persistence.jdbc;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Count the statements of a unit of work(eg. a Struts2 action) and warn about N+1 selects.
+ * 
+ * Statements are counted by QueryCountListener registered on ProxyDataSource. If an entityManagerFactory
+ * is set, Hibernate statistics are enabled and the entity loads/collection fetches over the unit of work
+ * are added. Hibernate statistics are process wide, so these two counts include concurrent work.
+ * 
+ * eg.
+ * 
+ * 	queryCountMonitor.begin();
+ * 	try {
+ * 		...
+ * 	} finally {
+ * 		QueryCountContext counts = queryCountMonitor.end("/person/list.action");
+ * 	}
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class QueryCountMonitor {
+
+	private Statistics statistics;
+
+	// A shape executed this many times in one unit of work is reported as N+1.
+	private int repeatThreshold = DEFAULT_REPEAT_THRESHOLD;
+
+	// A unit of work executing more statements than this is reported.
+	private int statementThreshold = DEFAULT_STATEMENT_THRESHOLD;
+
+	/**
+	 * 
+	 * Begin a unit of work on the current thread.
+	 * 
+	 */
+	public void begin() {
+		QueryCountContext.open();
+
+		QueryCountContext counts = QueryCountContext.current();
+		if (statistics != null && counts.isOutermost()) {
+			counts.setHibernateCounts(statistics.getEntityLoadCount(), statistics.getCollectionFetchCount());
+		}
+	}
+
+	/**
+	 * 
+	 * End the unit of work begun by begin(), log a warning if it repeated a statement shape repeatThreshold
+	 * times or executed more than statementThreshold statements.
+	 * 
+	 * @param name
+	 * 			- name of the unit of work in the warning
+	 * @return QueryCountContext
+	 * 			- counts of the unit of work on the outermost end, null otherwise
+	 * 
+	 */
+	public QueryCountContext end(final String name) {
+		QueryCountContext counts = QueryCountContext.close();
+		if (counts == null) {
+			return null;
+		}
+
+		if (statistics != null) {
+			counts.setHibernateCounts(statistics.getEntityLoadCount() - counts.getEntityLoadCount(), statistics
+					.getCollectionFetchCount()
+					- counts.getCollectionFetchCount());
+		}
+
+		List<Map.Entry<String, Integer>> repeatedShapes = counts.getRepeatedShapes(repeatThreshold);
+		if (!repeatedShapes.isEmpty()) {
+			logger.warn(" Possible N+1 select in {}: {} statements, repeated: {}", new Object[] { name,
+					counts.getStatementCount(), repeatedShapes });
+		} else if (counts.getStatementCount() > statementThreshold) {
+			logger.warn(" Too many statements in {}: {} statements, {} rows, {} ms in JDBC", new Object[] { name,
+					counts.getStatementCount(), counts.getRowCount(), counts.getJdbcTimeMillis() });
+		} else {
+			logger.debug(" Statements of {}: {}, rows: {}, JDBC time: {} ms", new Object[] { name,
+					counts.getStatementCount(), counts.getRowCount(), counts.getJdbcTimeMillis() });
+		}
+
+		return counts;
+	}
+
+	public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+		Assert.isInstanceOf(HibernateEntityManagerFactory.class, entityManagerFactory);
+		this.statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory()
+				.getStatistics();
+		this.statistics.setStatisticsEnabled(true);
+	}
+
+	public void setRepeatThreshold(int repeatThreshold) {
+		Assert.isTrue(repeatThreshold > 1, "repeatThreshold must be greater than 1.");
+		this.repeatThreshold = repeatThreshold;
+	}
+
+	public int getRepeatThreshold() {
+		return repeatThreshold;
+	}
+
+	public void setStatementThreshold(int statementThreshold) {
+		this.statementThreshold = statementThreshold;
+	}
+
+	public static final int DEFAULT_REPEAT_THRESHOLD = 10;
+
+	public static final int DEFAULT_STATEMENT_THRESHOLD = 100;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(QueryCountMonitor.class);
+}
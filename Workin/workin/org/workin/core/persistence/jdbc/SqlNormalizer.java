@@ -0,0 +1,125 @@
+package org.workin.core.persistence.jdbc;
+
+/**
+ * 
+ * Reduce SQL to its shape, statements which differ only in literals have the same shape.
+ * 
+ * 	1) String and numeric literals become '?'.
+ * 	2) IN lists of placeholders become "in (?)".
+ * 	3) Whitespace runs become one space, the shape is lower cased.
+ * 
+ * eg.
+ * 
+ * 	select * from person where id = 12 and name in ('a', 'b')	->	select * from person where id = ? and name in (?)
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class SqlNormalizer {
+
+	private SqlNormalizer() {
+	}
+
+	/**
+	 * 
+	 * Normalize sql to its shape.
+	 * 
+	 * @param sql
+	 * @return String
+	 * 
+	 */
+	public static String normalize(final String sql) {
+		if (sql == null) {
+			return null;
+		}
+
+		int length = sql.length();
+		StringBuilder shape = new StringBuilder(length);
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+
+			if (c == '\'') {
+				i = skipQuoted(sql, i);
+				shape.append('?');
+			} else if (Character.isWhitespace(c)) {
+				while (i < length && Character.isWhitespace(sql.charAt(i))) {
+					i++;
+				}
+				if (shape.length() > 0 && i < length) {
+					shape.append(' ');
+				}
+			} else if (isNumberStart(sql, i, shape)) {
+				i++;
+				while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+					i++;
+				}
+				shape.append('?');
+			} else {
+				shape.append(Character.toLowerCase(c));
+				i++;
+			}
+		}
+
+		return collapseInLists(shape.toString());
+	}
+
+	private static int skipQuoted(final String sql, final int start) {
+		int i = start + 1;
+		while (i < sql.length()) {
+			if (sql.charAt(i) == '\'') {
+				// '' is an escaped quote inside the literal.
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isNumberStart(final String sql, final int i, final StringBuilder shape) {
+		char c = sql.charAt(i);
+		boolean negative = c == '-' && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1));
+		if (!Character.isDigit(c) && !negative) {
+			return false;
+		}
+
+		// Digits inside identifiers(eg. col1, t0_.id) are not literals.
+		if (shape.length() == 0) {
+			return true;
+		}
+		char previous = shape.charAt(shape.length() - 1);
+		return !(Character.isLetterOrDigit(previous) || previous == '_' || previous == '.' || previous == '?');
+	}
+
+	private static String collapseInLists(final String shape) {
+		StringBuilder collapsed = new StringBuilder(shape.length());
+		int i = 0;
+		while (i < shape.length()) {
+			int open = shape.indexOf(IN_LIST_START, i);
+			if (open < 0) {
+				collapsed.append(shape, i, shape.length());
+				break;
+			}
+
+			int j = open + IN_LIST_START.length();
+			while (j < shape.length() && (shape.charAt(j) == '?' || shape.charAt(j) == ',' || shape.charAt(j) == ' ')) {
+				j++;
+			}
+
+			if (j < shape.length() && shape.charAt(j) == ')') {
+				collapsed.append(shape, i, open).append(IN_LIST_START).append("?)");
+				i = j + 1;
+			} else {
+				collapsed.append(shape, i, open + IN_LIST_START.length());
+				i = open + IN_LIST_START.length();
+			}
+		}
+		return collapsed.toString();
+	}
+
+	private static final String IN_LIST_START = " in (";
+}
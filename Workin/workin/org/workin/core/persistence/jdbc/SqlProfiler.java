@@ -0,0 +1,204 @@
+package org.workin.core.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Aggregate the statements of ProxyDataSource per shape(see SqlNormalizer): count, total/max time,
+ * p50/p95/p99 latency, rows fetched and errors.
+ * 
+ * Counters are lock-free, the profiler can stay on in production. The number of shapes is bounded by
+ * maxShapes, statements of new shapes beyond it are aggregated as OTHER_SHAPE. Aggregates are exposed by
+ * JMX(SqlProfilerMBean) and by SqlProfilerServlet.
+ * 
+ * eg.
+ * 
+ * 	<bean id="sqlProfiler" class="org.workin.core.persistence.jdbc.SqlProfiler" />
+ * 
+ * 	<bean class="org.springframework.jmx.export.MBeanExporter">
+ * 		<property name="beans">
+ * 			<map>
+ * 				<entry key="org.workin:type=SqlProfiler" value-ref="sqlProfiler" />
+ * 			</map>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class SqlProfiler implements StatementListener, SqlProfilerMBean {
+
+	private final ConcurrentMap<String, SqlStatementStats> statistics = new ConcurrentHashMap<String, SqlStatementStats>();
+
+	// Raw sql -> shape, Hibernate and iBatis repeat the same prepared sql, so it is normalized once.
+	private final ConcurrentMap<String, String> shapes = new ConcurrentHashMap<String, String>();
+
+	private final AtomicLong statementCount = new AtomicLong();
+
+	private volatile boolean enabled = true;
+
+	private int maxShapes = DEFAULT_MAX_SHAPES;
+
+	@Override
+	public void afterExecute(String sql, long elapsedNanos, int updateCount, Throwable error) {
+		if (enabled) {
+			statementCount.incrementAndGet();
+			getStatementStats(sql).recordExecute(elapsedNanos, error != null);
+		}
+	}
+
+	@Override
+	public void afterFetch(String sql, int rows) {
+		if (enabled && rows > 0) {
+			getStatementStats(sql).recordRows(rows);
+		}
+	}
+
+	/**
+	 * 
+	 * Get the summaries of all shapes, sorted by comparator.
+	 * 
+	 * @param comparator
+	 * @param top
+	 * 			- max summaries returned, no limit if not positive
+	 * @return List<SqlStatementSummary>
+	 * 
+	 */
+	public List<SqlStatementSummary> getSummaries(final Comparator<SqlStatementSummary> comparator, final int top) {
+		List<SqlStatementSummary> summaries = new ArrayList<SqlStatementSummary>(statistics.size());
+		for (SqlStatementStats stats : statistics.values()) {
+			summaries.add(stats.summarize());
+		}
+
+		Collections.sort(summaries, comparator);
+		return top > 0 && top < summaries.size() ? new ArrayList<SqlStatementSummary>(summaries.subList(0, top))
+				: summaries;
+	}
+
+	@Override
+	public String[] topByTotalTime(int top) {
+		return toLines(getSummaries(BY_TOTAL_TIME, top));
+	}
+
+	@Override
+	public String[] topByP99(int top) {
+		return toLines(getSummaries(BY_P99, top));
+	}
+
+	@Override
+	public int getShapeCount() {
+		return statistics.size();
+	}
+
+	@Override
+	public long getStatementCount() {
+		return statementCount.get();
+	}
+
+	@Override
+	public void reset() {
+		statistics.clear();
+		statementCount.set(0L);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setMaxShapes(int maxShapes) {
+		Assert.isTrue(maxShapes > 0, "maxShapes must be positive.");
+		this.maxShapes = maxShapes;
+	}
+
+	private SqlStatementStats getStatementStats(final String sql) {
+		String shape = toShape(sql);
+		SqlStatementStats stats = statistics.get(shape);
+		if (stats == null) {
+			if (statistics.size() >= maxShapes) {
+				shape = OTHER_SHAPE;
+			}
+			SqlStatementStats created = new SqlStatementStats(shape);
+			stats = statistics.putIfAbsent(shape, created);
+			if (stats == null) {
+				stats = created;
+			}
+		}
+		return stats;
+	}
+
+	private String toShape(final String sql) {
+		if (sql == null) {
+			return OTHER_SHAPE;
+		}
+
+		String shape = shapes.get(sql);
+		if (shape == null) {
+			shape = SqlNormalizer.normalize(sql);
+			// Plain statements with inlined literals would grow the cache without bound.
+			if (shapes.size() < maxShapes * 4) {
+				shapes.putIfAbsent(sql, shape);
+			}
+		}
+		return shape;
+	}
+
+	private static String[] toLines(final List<SqlStatementSummary> summaries) {
+		String[] lines = new String[summaries.size() + 1];
+		lines[0] = SqlStatementSummary.HEADER;
+		for (int i = 0; i < summaries.size(); i++) {
+			lines[i + 1] = summaries.get(i).toString();
+		}
+		return lines;
+	}
+
+	public static final Comparator<SqlStatementSummary> BY_TOTAL_TIME = new Comparator<SqlStatementSummary>() {
+		@Override
+		public int compare(SqlStatementSummary o1, SqlStatementSummary o2) {
+			return compareDescending(o1.getTotalMicros(), o2.getTotalMicros());
+		}
+	};
+
+	public static final Comparator<SqlStatementSummary> BY_P99 = new Comparator<SqlStatementSummary>() {
+		@Override
+		public int compare(SqlStatementSummary o1, SqlStatementSummary o2) {
+			return compareDescending(o1.getP99Micros(), o2.getP99Micros());
+		}
+	};
+
+	public static final Comparator<SqlStatementSummary> BY_MAX = new Comparator<SqlStatementSummary>() {
+		@Override
+		public int compare(SqlStatementSummary o1, SqlStatementSummary o2) {
+			return compareDescending(o1.getMaxMicros(), o2.getMaxMicros());
+		}
+	};
+
+	public static final Comparator<SqlStatementSummary> BY_COUNT = new Comparator<SqlStatementSummary>() {
+		@Override
+		public int compare(SqlStatementSummary o1, SqlStatementSummary o2) {
+			return compareDescending(o1.getCount(), o2.getCount());
+		}
+	};
+
+	private static int compareDescending(final long value1, final long value2) {
+		return value1 > value2 ? -1 : (value1 == value2 ? 0 : 1);
+	}
+
+	// Shape of the statements beyond maxShapes.
+	public static final String OTHER_SHAPE = "(other)";
+
+	public static final int DEFAULT_MAX_SHAPES = 2000;
+}
@@ -0,0 +1,41 @@
+package org.workin.core.persistence.jdbc;
+
+/**
+ * 
+ * JMX view of SqlProfiler.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface SqlProfilerMBean {
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	public int getShapeCount();
+
+	public long getStatementCount();
+
+	/**
+	 * 
+	 * Get the top statement shapes by total time, one tab separated line per shape(see SqlStatementSummary).
+	 * 
+	 * @param top
+	 * @return String[]
+	 * 
+	 */
+	public String[] topByTotalTime(int top);
+
+	/**
+	 * 
+	 * Get the top statement shapes by p99 latency.
+	 * 
+	 * @param top
+	 * @return String[]
+	 * 
+	 */
+	public String[] topByP99(int top);
+
+	public void reset();
+}
@@ -0,0 +1,66 @@
+package org.workin.core.persistence.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 
+ * Lock-free aggregates of one statement shape, updated concurrently by SqlProfiler.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class SqlStatementStats {
+
+	private final String shape;
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private final AtomicLong rows = new AtomicLong();
+
+	private final AtomicLong errors = new AtomicLong();
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	public SqlStatementStats(String shape) {
+		this.shape = shape;
+	}
+
+	void recordExecute(final long nanos, final boolean failed) {
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		histogram.record(nanos);
+		if (failed) {
+			errors.incrementAndGet();
+		}
+
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	void recordRows(final int fetched) {
+		rows.addAndGet(fetched);
+	}
+
+	/**
+	 * 
+	 * Take a snapshot of the aggregates.
+	 * 
+	 * @return SqlStatementSummary
+	 * 
+	 */
+	public SqlStatementSummary summarize() {
+		return new SqlStatementSummary(shape, count.get(), totalNanos.get() / 1000L, maxNanos.get() / 1000L, rows
+				.get(), errors.get(), histogram.getPercentileMicros(50.0), histogram.getPercentileMicros(95.0),
+				histogram.getPercentileMicros(99.0));
+	}
+
+	public String getShape() {
+		return shape;
+	}
+}
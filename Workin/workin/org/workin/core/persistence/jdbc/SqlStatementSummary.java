@@ -0,0 +1,97 @@
+package org.workin.core.persistence.jdbc;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * Snapshot of the aggregates of one statement shape, times in microseconds.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class SqlStatementSummary implements Serializable {
+
+	private static final long serialVersionUID = 2786384180517045516L;
+
+	private final String shape;
+
+	private final long count;
+
+	private final long totalMicros;
+
+	private final long maxMicros;
+
+	private final long rows;
+
+	private final long errors;
+
+	private final long p50Micros;
+
+	private final long p95Micros;
+
+	private final long p99Micros;
+
+	public SqlStatementSummary(String shape, long count, long totalMicros, long maxMicros, long rows, long errors,
+			long p50Micros, long p95Micros, long p99Micros) {
+		this.shape = shape;
+		this.count = count;
+		this.totalMicros = totalMicros;
+		this.maxMicros = maxMicros;
+		this.rows = rows;
+		this.errors = errors;
+		this.p50Micros = p50Micros;
+		this.p95Micros = p95Micros;
+		this.p99Micros = p99Micros;
+	}
+
+	public String getShape() {
+		return shape;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getTotalMicros() {
+		return totalMicros;
+	}
+
+	public long getAverageMicros() {
+		return count == 0 ? 0L : totalMicros / count;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public long getP95Micros() {
+		return p95Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder().append(count).append('\t').append(totalMicros / 1000L).append('\t').append(
+				getAverageMicros()).append('\t').append(p50Micros).append('\t').append(p95Micros).append('\t')
+				.append(p99Micros).append('\t').append(maxMicros).append('\t').append(rows).append('\t').append(
+						errors).append('\t').append(shape).toString();
+	}
+
+	// Column names of toString().
+	public static final String HEADER = "count\ttotal(ms)\tavg(us)\tp50(us)\tp95(us)\tp99(us)\tmax(us)\trows\terrors\tstatement";
+}
@@ -0,0 +1,38 @@
+package org.workin.core.persistence.jdbc;
+
+/**
+ * 
+ * Callback of the statements executed through ProxyDataSource.
+ * 
+ * Listeners are called on the executing thread, so they must be cheap and must not throw.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface StatementListener {
+
+	/**
+	 * 
+	 * Called after a statement was executed.
+	 * 
+	 * @param sql
+	 * @param elapsedNanos
+	 * @param updateCount
+	 * 			- rows updated, -1 for queries
+	 * @param error
+	 * 			- null if executed successfully
+	 * 
+	 */
+	public void afterExecute(String sql, long elapsedNanos, int updateCount, Throwable error);
+
+	/**
+	 * 
+	 * Called once when the ResultSet of a query is closed.
+	 * 
+	 * @param sql
+	 * @param rows
+	 * 			- rows read by ResultSet.next()
+	 * 
+	 */
+	public void afterFetch(String sql, int rows);
+}
@@ -2,9 +2,14 @@ package org.workin.core.persistence.jpa;
 
 import java.io.Serializable;
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.workin.core.persistence.support.BulkImportListener;
+import org.workin.core.persistence.support.BulkImportResult;
+import org.workin.core.persistence.support.FetchPlan;
 import org.workin.core.persistence.support.PaginationSupport;
 import org.workin.core.persistence.support.ProcedureParameter;
 import org.workin.core.persistence.support.PropertyFilter;
@@ -216,6 +221,37 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	 */
 	public void batchRemove(final List<T> objectsToRemove);
 
+	/**
+	 * 
+	 * Insert(Bulk) a large stream of entities by Hibernate StatelessSession, bypassing the persistence context.
+	 * 
+	 * The entities are committed in chunks of the configured commit interval by parallel workers, each on
+	 * its own connection. No cascades, dirty checking or JPA callbacks, audit fields are stamped once for
+	 * the whole import. The first failed chunk stops the import, committed chunks stay in the database.
+	 * 
+	 * @param entityClass
+	 * @param entities
+	 * @param listener
+	 * 			- progress callback, may be null
+	 * 
+	 * @return BulkImportResult
+	 * 
+	 */
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities,
+			final BulkImportListener listener);
+
+	/**
+	 * 
+	 * Insert(Bulk) a large stream of entities by Hibernate StatelessSession, without progress callback.
+	 * 
+	 * @param entityClass
+	 * @param entities
+	 * 
+	 * @return BulkImportResult
+	 * 
+	 */
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities);
+
 	/**
 	 * 
 	 * Synchronize the persistence context to the underlying database.
@@ -323,6 +359,31 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	 */
 	public T findById(final Class<T> entityClass, final PK id);
 
+	/**
+	 * 
+	 * Find entities by Objects' PK, the entities not found are skipped.
+	 * 
+	 * Throws:
+	 *		IllegalStateException 
+	 *			- if this EntityManager has been closed. 
+	 *		IllegalArgumentException 
+	 *			- if the first argument does not denote an entity type
+	 * 
+	 * Note:
+	 * 		All exceptions Will be converted to DataAccessException's subclass and throw
+	 * 
+	 * @param entityClass
+	 * @param ids
+	 * 
+	 * @return List<T> 
+	 * 			- in the order of ids
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	public List<T> findByIds(final Class<T> entityClass, final Collection<PK> ids);
+
 	/**
 	 * 
 	 * Execute a SELECT query that returns a single result.
@@ -813,6 +874,28 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	 */
 	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value);
 
+	/**
+	 * 
+	 * Execute a SELECT query and return the query results as a List, the associations of fetchPlan are
+	 * loaded together with the results.
+	 * 
+	 * Note:
+	 * 		All exceptions Will be converted to DataAccessException's subclass and thow
+	 * 
+	 * @param entityClass
+	 * @param propertyName
+	 * @param value
+	 * @param fetchPlan
+	 * 
+	 * @return List<T>
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   	- If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value,
+			final FetchPlan fetchPlan);
+
 	/**
 	 * 
 	 * Execute a SELECT query and return the query results as a List.
@@ -877,6 +960,27 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	 */
 	public List<T> findByPropertys(final Class<T> entityClass, final Map<String, ?> params);
 
+	/**
+	 * 
+	 * Execute a SELECT query and return the query results as a List, the associations of fetchPlan are
+	 * loaded together with the results.
+	 * 
+	 * Note:
+	 * 		All exceptions Will be converted to DataAccessException's subclass and thow
+	 * 
+	 * @param 	entityClass
+	 * @param 	params
+	 * 			- property name(nested by '.') -> value
+	 * @param 	fetchPlan
+	 * 
+	 * @return 	List<T>
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   	- If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	public List<T> findByPropertys(final Class<T> entityClass, final Map<String, ?> params, final FetchPlan fetchPlan);
+
 	/**
 	 * 
 	 * Execute a SELECT query and return the query results as a List.
@@ -1428,6 +1532,20 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters,
 			final boolean isDistinct);
 
+	/**
+	 * 
+	 * Find distinct results by CriteriaQuery and PropertyFilter, the associations of fetchPlan are loaded
+	 * together with the results.
+	 * 
+	 * @param targetClass
+	 * @param filters
+	 * @param fetchPlan
+	 * @return
+	 * 
+	 */
+	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters,
+			final FetchPlan fetchPlan);
+
 	/**
 	 * Execute stored procedure by Hibernate JPA implementation
 	 * @param procedureName
@@ -1437,6 +1555,14 @@ public interface JpaPersistence<T, PK extends Serializable> {
 	public Map<String, Object> executeProcedure(final String procedureName,
 			final List<ProcedureParameter> procedureParams);
 
+	/**
+	 * Execute stored procedure once per parameter set, in JDBC batches(IN parameters only).
+	 * @param procedureName
+	 * @param parameterSets
+	 * @return update counts, one per parameter set
+	 */
+	public int[] executeProcedureBatch(final String procedureName, final List<List<ProcedureParameter>> parameterSets);
+
 	/**
 	 * Return JDBC connection
 	 * @return
@@ -1,13 +1,13 @@
 package org.workin.core.persistence.jpa;
 
 import java.io.Serializable;
-import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -18,18 +18,38 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.FetchParent;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.EntityType;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.hibernate.JDBCException;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.jdbc.Work;
+import org.hibernate.proxy.HibernateProxyHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.orm.jpa.JpaCallback;
 import org.springframework.orm.jpa.support.JpaDaoSupport;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.workin.core.constant.Constants;
+import org.workin.core.entity.Idable;
+import org.workin.core.entity.support.AuditBatchContext;
+import org.workin.core.persistence.cache.EntityCache;
+import org.workin.core.persistence.cache.EntityCache.CapturedEntity;
+import org.workin.core.persistence.cache.EntityInvalidationListener;
+import org.workin.core.persistence.cache.PersistenceCacheRegistry;
+import org.workin.core.persistence.jdbc.ProcedureExecutor;
+import org.workin.core.persistence.jpa.NamedParamsQueryCache.NamedParamsQuery;
+import org.workin.core.persistence.support.BulkImportListener;
+import org.workin.core.persistence.support.BulkImportResult;
+import org.workin.core.persistence.support.FetchPlan;
 import org.workin.core.persistence.support.PaginationSupport;
 import org.workin.core.persistence.support.ProcedureParameter;
 import org.workin.core.persistence.support.PropertyFilter;
@@ -89,6 +109,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	@Override
 	public T persist(final T objectToSave) {
 		this.getJpaTemplate().persist(objectToSave);
+		evictCaches(objectToSave);
 		return objectToSave;
 	}
 
@@ -124,16 +145,22 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
 				int max = objectsToSave.size();
-				for (int i = 0; i < max; i++) {
-					em.persist(objectsToSave.get(i));
-					if ((i != 0 && i % DEFAULT_BATCH_SIZE == 0) || i == max - 1) {
-						em.flush();
+				AuditBatchContext.open();
+				try {
+					for (int i = 0; i < max; i++) {
+						em.persist(objectsToSave.get(i));
+						if ((i != 0 && i % DEFAULT_BATCH_SIZE == 0) || i == max - 1) {
+							em.flush();
+						}
 					}
+				} finally {
+					AuditBatchContext.close();
 				}
 				return null;
 			}
 
 		});
+		evictCaches(objectsToSave);
 	}
 
 	/**
@@ -161,7 +188,9 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public T merge(final T objectToMerge) {
-		return this.getJpaTemplate().merge(objectToMerge);
+		T mergedObject = this.getJpaTemplate().merge(objectToMerge);
+		evictCaches(mergedObject);
+		return mergedObject;
 	}
 
 	/**
@@ -195,16 +224,22 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
 				int max = objectsToMerge.size();
-				for (int i = 0; i < max; i++) {
-					em.merge(objectsToMerge.get(i));
-					if ((i != 0 && i % DEFAULT_BATCH_SIZE == 0) || i == max - 1) {
-						em.flush();
+				AuditBatchContext.open();
+				try {
+					for (int i = 0; i < max; i++) {
+						em.merge(objectsToMerge.get(i));
+						if ((i != 0 && i % DEFAULT_BATCH_SIZE == 0) || i == max - 1) {
+							em.flush();
+						}
 					}
+				} finally {
+					AuditBatchContext.close();
 				}
 				return null;
 			}
 
 		});
+		evictCaches(objectsToMerge);
 	}
 
 	/**
@@ -260,6 +295,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	@Override
 	public void remove(final T objectToRemove) {
 		this.getJpaTemplate().remove(objectToRemove);
+		evictCaches(objectToRemove);
 	}
 
 	/**
@@ -288,7 +324,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public void remove(final Class<T> entityClass, final PK id) {
-		this.remove(this.findById(entityClass, id));
+		this.remove(getJpaTemplate().find(entityClass, id));
 	}
 
 	/**
@@ -330,6 +366,62 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 				return null;
 			}
 		});
+		evictCaches(objectsToRemove);
+	}
+
+	/**
+	 * 
+	 * Insert(Bulk) a large stream of entities by Hibernate StatelessSession, bypassing the persistence context.
+	 * 
+	 * The entities are committed in chunks of bulkImportCommitInterval by bulkImportWorkers parallel workers,
+	 * each on its own connection. No cascades, dirty checking or JPA callbacks, audit fields are stamped once
+	 * for the whole import. The first failed chunk stops the import, committed chunks stay in the database.
+	 * 
+	 * Note:
+	 * 		The StatelessSession follows hibernate.jdbc.batch_size of the persistence unit, which is off by
+	 * 		default since it changes the flush of all sessions. It only applies to entities without IDENTITY
+	 * 		generated ids anyway, an IDENTITY insert must return its key row by row.
+	 * 
+	 * @param entityClass
+	 * @param entities
+	 * @param listener
+	 * 			- progress callback, may be null
+	 * 
+	 * @return BulkImportResult
+	 * 
+	 */
+	@Override
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities,
+			final BulkImportListener listener) {
+		Assert.notNull(entities, "Iterator entities cannot be null, when bulkImport...");
+
+		SessionFactory sessionFactory = ((HibernateEntityManagerFactory) getJpaTemplate().getEntityManagerFactory())
+				.getSessionFactory();
+		BulkImportResult result = new StatelessBulkImporter(sessionFactory, bulkImportCommitInterval,
+				bulkImportWorkers).importAll(entityClass, entities, listener);
+
+		if (result.getImportedCount() > 0) {
+			invalidate(entityClass, Collections.<Serializable> emptyList());
+		}
+		if (!result.isSuccess()) {
+			ThrowableHandler.handleThrow(" Bulk import failed, " + result, result.getFailure(), logger);
+		}
+		return result;
+	}
+
+	/**
+	 * 
+	 * Insert(Bulk) a large stream of entities by Hibernate StatelessSession, without progress callback.
+	 * 
+	 * @param entityClass
+	 * @param entities
+	 * 
+	 * @return BulkImportResult
+	 * 
+	 */
+	@Override
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities) {
+		return this.bulkImport(entityClass, entities, null);
 	}
 
 	/**
@@ -430,7 +522,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public boolean contains(final Class<T> entityClass, final PK id) {
-		T entity = this.findById(entityClass, id);
+		T entity = getJpaTemplate().find(entityClass, id);
 		return this.contains(entity);
 	}
 
@@ -438,6 +530,10 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 * 
 	 * Find entity by Object's PK. 
 	 * 
+	 * If an entity cache is configured for the entity type, a cached entity is returned as a detached copy,
+	 * changes to it are not dirty checked and must be written by merge. Loaded entities are cached after the
+	 * transaction commits, or at once if no transaction is active.
+	 * 
 	 * Throws:
 	 *		IllegalStateException 
 	 *			- if this EntityManager has been closed. 
@@ -458,7 +554,93 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public T findById(final Class<T> entityClass, final PK id) {
-		return getJpaTemplate().find(entityClass, id);
+		if (entityCache == null || !entityCache.isCacheable(entityClass)) {
+			return getJpaTemplate().find(entityClass, id);
+		}
+
+		T entity = entityCache.get(entityClass, id);
+		if (entity == null) {
+			long invalidationStamp = entityCache.getInvalidationStamp();
+			entity = getJpaTemplate().find(entityClass, id);
+			if (entity != null) {
+				putEntityCache(Collections.singletonList(entity), invalidationStamp);
+			}
+		}
+		return entity;
+	}
+
+	/**
+	 * 
+	 * Find entities by Objects' PK, the entities not found are skipped.
+	 * 
+	 * If an entity cache is configured for the entity type, the cached entities are returned as detached 
+	 * copies and only the others are loaded by one query. Loaded entities are cached after the transaction
+	 * commits, or at once if no transaction is active.
+	 * 
+	 * Throws:
+	 *		IllegalStateException 
+	 *			- if this EntityManager has been closed. 
+	 *		IllegalArgumentException 
+	 *			- if the first argument does not denote an entity type
+	 * 
+	 * Note:
+	 * 		All exceptions Will be converted to DataAccessException's subclass and throw
+	 * 
+	 * @param entityClass
+	 * @param ids
+	 * 
+	 * @return List<T> 
+	 * 			- in the order of ids
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	@Override
+	public List<T> findByIds(final Class<T> entityClass, final Collection<PK> ids) {
+		if (CollectionUtils.isEmpty(ids)) {
+			return new ArrayList<T>(0);
+		}
+
+		final boolean cacheable = entityCache != null && entityCache.isCacheable(entityClass);
+		final Map<Serializable, T> found = new LinkedHashMap<Serializable, T>();
+		final List<PK> missingIds = new ArrayList<PK>();
+		for (PK id : ids) {
+			T entity = cacheable ? entityCache.get(entityClass, id) : null;
+			if (entity != null) {
+				found.put(id, entity);
+			} else {
+				missingIds.add(id);
+			}
+		}
+
+		if (!missingIds.isEmpty()) {
+			long invalidationStamp = cacheable ? entityCache.getInvalidationStamp() : 0;
+			List<T> loaded = getJpaTemplate().executeFind(new JpaCallback<Object>() {
+				@Override
+				public Object doInJpa(EntityManager em) throws PersistenceException {
+					String queryString = PersistenceUtils.buildQueryString(entityClass, false).append(
+							Constants.HQL_KEYWORD_WHERE).append("obj.id in (:ids)").toString();
+					return em.createQuery(queryString).setParameter("ids", missingIds).getResultList();
+				}
+			});
+
+			for (T entity : loaded) {
+				found.put(((Idable) entity).getId(), entity);
+			}
+			if (cacheable) {
+				putEntityCache(loaded, invalidationStamp);
+			}
+		}
+
+		List<T> result = new ArrayList<T>(found.size());
+		for (PK id : ids) {
+			T entity = found.get(id);
+			if (entity != null) {
+				result.add(entity);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -497,7 +679,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				Query queryObject = em.createNamedQuery(queryName);
+				Query queryObject = applyNamedQueryCache(em.createNamedQuery(queryName), queryName);
 				if (values != null) {
 					for (int i = 0, len = values.length; i < len; i++) {
 						queryObject.setParameter(i + 1, values[i]);
@@ -543,7 +725,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				Query queryObject = em.createNamedQuery(queryName);
+				Query queryObject = applyNamedQueryCache(em.createNamedQuery(queryName), queryName);
 				if (!CollectionUtils.isEmpty(params)) {
 					for (Map.Entry<String, ?> entry : params.entrySet()) {
 						queryObject.setParameter(entry.getKey(), entry.getValue());
@@ -578,7 +760,8 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				Query query = em.createQuery(PersistenceUtils.buildQueryString(false, entityClass, propertyName));
+				Query query = applyQueryCache(em.createQuery(PersistenceUtils.buildQueryString(false, entityClass,
+						propertyName)), entityClass);
 
 				query.setParameter(1, value);
 
@@ -611,12 +794,9 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				Query query = em.createQuery(PersistenceUtils.buildQueryStringWithNamedParams(false, entityClass,
-						params));
-
-				for (Map.Entry<String, ?> entry : params.entrySet()) {
-					query.setParameter(entry.getKey(), entry.getValue());
-				}
+				NamedParamsQuery namedParamsQuery = namedParamsQueries.get(entityClass, false, params);
+				Query query = applyQueryCache(namedParamsQuery.bind(em.createQuery(namedParamsQuery
+						.getQueryString()), params), entityClass);
 
 				return query.getSingleResult();
 			}
@@ -651,7 +831,18 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public List<Object> findByNamedOfQuery(final String queryName, final Object... values) {
-		return this.getJpaTemplate().findByNamedQuery(queryName, values);
+		return getJpaTemplate().executeFind(new JpaCallback<Object>() {
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				Query queryObject = applyNamedQueryCache(em.createNamedQuery(queryName), queryName);
+				if (values != null) {
+					for (int i = 0, len = values.length; i < len; i++) {
+						queryObject.setParameter(i + 1, values[i]);
+					}
+				}
+				return queryObject.getResultList();
+			}
+		});
 	}
 
 	/**
@@ -680,7 +871,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public List<Object> findByNamedOfQuery(final String queryName) {
-		return this.getJpaTemplate().findByNamedQuery(queryName, (Object[]) null);
+		return this.findByNamedOfQuery(queryName, (Object[]) null);
 	}
 
 	/**
@@ -710,7 +901,18 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public List<Object> findByNamedOfQuery(final String queryName, final Map<String, Object> nameAndValue) {
-		return this.getJpaTemplate().findByNamedQueryAndNamedParams(queryName, nameAndValue);
+		return getJpaTemplate().executeFind(new JpaCallback<Object>() {
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				Query queryObject = applyNamedQueryCache(em.createNamedQuery(queryName), queryName);
+				if (!CollectionUtils.isEmpty(nameAndValue)) {
+					for (Map.Entry<String, Object> entry : nameAndValue.entrySet()) {
+						queryObject.setParameter(entry.getKey(), entry.getValue());
+					}
+				}
+				return queryObject.getResultList();
+			}
+		});
 	}
 
 	/**
@@ -1101,7 +1303,29 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value) {
-		return getJpaTemplate().find(PersistenceUtils.buildQueryString(false, entityClass, propertyName), value);
+		return this.findByProperty(entityClass, propertyName, value, -1, -1);
+	}
+
+	/**
+	 * 
+	 * Execute a SELECT query and return the query results as a List, the associations of fetchPlan are
+	 * loaded together with the results.
+	 * 
+	 * @param entityClass
+	 * @param propertyName
+	 * @param value
+	 * @param fetchPlan
+	 * 
+	 * @return List<T>
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   	- If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	@Override
+	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value,
+			final FetchPlan fetchPlan) {
+		return this.findByPropertys(entityClass, Collections.singletonMap(propertyName, value), fetchPlan);
 	}
 
 	/**
@@ -1135,7 +1359,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
 				String queryString = PersistenceUtils.buildQueryString(false, entityClass, propertyName).toString();
-				Query query = em.createQuery(queryString);
+				Query query = applyQueryCache(em.createQuery(queryString), entityClass);
 
 				query.setParameter(1, value);
 
@@ -1214,14 +1438,56 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				Query query = em.createQuery(PersistenceUtils.buildQueryStringWithNamedParams(false, entityClass,
-						params));
+				NamedParamsQuery namedParamsQuery = namedParamsQueries.get(entityClass, false, params);
+				Query query = applyQueryCache(namedParamsQuery.bind(em.createQuery(namedParamsQuery
+						.getQueryString()), params), entityClass);
 
-				for (Map.Entry<String, ?> entry : params.entrySet()) {
-					query.setParameter(entry.getKey(), entry.getValue());
+				return query.getResultList();
+			}
+
+		});
+	}
+
+	/**
+	 * 
+	 * Execute a SELECT query and return the query results as a List, the associations of fetchPlan are
+	 * loaded together with the results.
+	 * 
+	 * 	1) Join fetch paths are loaded by LEFT JOIN FETCH in the same SQL, distinct roots are returned.
+	 * 	2) Batch fetch paths are loaded by one IN query per batchSize results, inside the same EntityManager.
+	 * 
+	 * The query is never query cached: a cache hit returns ids only, and the fetched associations would be
+	 * loaded lazily again.
+	 * 
+	 * @param 	entityClass
+	 * @param 	params
+	 * @param 	fetchPlan
+	 * 
+	 * @return 	List<T>
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 		   	- If an error occurs.but usually throws DataAccessException's subclass
+	 * 
+	 */
+	@Override
+	public List<T> findByPropertys(final Class<T> entityClass, final Map<String, ?> params, final FetchPlan fetchPlan) {
+
+		return getJpaTemplate().executeFind(new JpaCallback<Object>() {
+
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				Query query = em.createQuery(PersistenceUtils.buildQueryStringWithFetchPlan(entityClass, params,
+						fetchPlan));
+
+				if (!CollectionUtils.isEmpty(params)) {
+					for (Map.Entry<String, ?> entry : params.entrySet()) {
+						query.setParameter(PersistenceUtils.buildParameterName(entry.getKey()), entry.getValue());
+					}
 				}
 
-				return query.getResultList();
+				List<T> results = query.getResultList();
+				batchFetch(em, entityClass, results, fetchPlan);
+				return results;
 			}
 
 		});
@@ -1256,13 +1522,9 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				String queryString = PersistenceUtils.buildQueryStringWithNamedParams(false, entityClass, params)
-						.toString();
-				Query query = em.createQuery(queryString);
-
-				for (Map.Entry<String, ?> entry : params.entrySet()) {
-					query.setParameter(entry.getKey(), entry.getValue());
-				}
+				NamedParamsQuery namedParamsQuery = namedParamsQueries.get(entityClass, false, params);
+				Query query = applyQueryCache(namedParamsQuery.bind(em.createQuery(namedParamsQuery
+						.getQueryString()), params), entityClass);
 
 				if (maxRows >= 0) {
 					query.setMaxResults(maxRows);
@@ -1333,7 +1595,13 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 	 */
 	@Override
 	public List<T> getAll(final Class<T> entityClass) {
-		return this.getJpaTemplate().find(PersistenceUtils.buildQueryString(false, entityClass).toString());
+		return getJpaTemplate().executeFind(new JpaCallback<Object>() {
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				String queryString = PersistenceUtils.buildQueryString(false, entityClass);
+				return applyQueryCache(em.createQuery(queryString), entityClass).getResultList();
+			}
+		});
 	}
 
 	/**
@@ -1386,7 +1654,7 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 				String queryString = PersistenceUtils.buildQueryString(true, entityClass, propertyName);
 
-				Query query = em.createQuery(queryString);
+				Query query = applyQueryCache(em.createQuery(queryString), entityClass);
 				query.setParameter(1, value);
 
 				return Integer.valueOf(String.valueOf(query.getSingleResult()));
@@ -1417,12 +1685,9 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
-				String queryString = PersistenceUtils.buildQueryStringWithNamedParams(true, entityClass, params);
-				Query query = em.createQuery(queryString);
-
-				for (Map.Entry<String, ?> entry : params.entrySet()) {
-					query.setParameter(entry.getKey(), entry.getValue());
-				}
+				NamedParamsQuery namedParamsQuery = namedParamsQueries.get(entityClass, true, params);
+				Query query = applyQueryCache(namedParamsQuery.bind(em.createQuery(namedParamsQuery
+						.getQueryString()), params), entityClass);
 
 				return Integer.valueOf(String.valueOf(query.getSingleResult()));
 			}
@@ -2242,84 +2507,110 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 		});
 	}
 
+	/**
+	 * 
+	 * Find distinct results by CriteriaQuery and PropertyFilter, the associations of fetchPlan are loaded
+	 * together with the results.
+	 * 
+	 * @param targetClass
+	 * @param filters
+	 * @param fetchPlan
+	 * @return
+	 * 
+	 */
+	@Override
+	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters,
+			final FetchPlan fetchPlan) {
+
+		return (List<T>) getJpaTemplate().execute(new JpaCallback<Object>() {
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
+				CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(targetClass);
+
+				Root<T> entity = criteriaQuery.from(targetClass);
+				EntityType<T> entityType = entity.getModel();
+
+				criteriaQuery.select(entity);
+				criteriaQuery.distinct(true);
+
+				if (fetchPlan != null) {
+					applyJoinFetches(entity, fetchPlan.getJoinFetchPaths());
+				}
+
+				Predicate predicates[] = PersistenceUtils.buildPropertyFilterPredicates(targetClass, criteriaBuilder,
+						criteriaQuery, entity, entityType, true, filters);
+
+				if (!ArrayUtils.isEmpty(predicates)) {
+					criteriaQuery.where(predicates);
+				} else {
+					criteriaQuery.where(criteriaBuilder.conjunction());
+				}
+
+				List<T> results = em.createQuery(criteriaQuery).getResultList();
+				batchFetch(em, targetClass, results, fetchPlan);
+				return results;
+			}
+		});
+	}
+
 	@Override
 	public Map<String, Object> executeProcedure(final String procedureName,
 			final List<ProcedureParameter> procedureParams) {
-		final Map<String, Object> result = Maps.newHashMap();
 		Assert.notNull(procedureName, "Procedure Name can not be null when do executeProcedure method...");
-		StringBuilder statTemp = new StringBuilder("{call ").append(procedureName).append("(");
-		if (!CollectionUtils.isEmpty(procedureParams)) {
-			int paramSize = procedureParams.size();
-			for (int i = 0; i < paramSize - 1; i++) {
-				statTemp.append("?,");
-			}
-			statTemp.append("?");
-		}
-		statTemp.append(") }");
-		final String callStat = statTemp.toString();
-		logger.debug("--> Build callable statment: {}", callStat);
+
 		return (Map<String, Object>) getJpaTemplate().execute(new JpaCallback<Object>() {
 			@Override
 			public Object doInJpa(EntityManager em) throws PersistenceException {
 				Session session = (Session) em.getDelegate();
-				Connection connection = session.connection();
+				final List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(1);
 				try {
-					CallableStatement stat = connection.prepareCall(callStat);
-					if (!CollectionUtils.isEmpty(procedureParams)) {
-						for (int i = 0; i < procedureParams.size(); i++) {
-							ProcedureParameter procParam = procedureParams.get(i);
-							String paramName = procParam.getParamName();
-							Object paramValue = procParam.getParamValue();
-							if (paramValue != null && Types.DATE == procParam.getParamType()) {
-								paramValue = new java.sql.Date(((Date) paramValue).getTime());
-							}
-							switch (procParam.getInOut()) {
-							case ProcedureParameter.IN:
-								if (StringUtils.hasText(paramName)) {
-									stat.setObject(paramName, paramValue, procParam.getParamType());
-								} else {
-									stat.setObject(i, paramValue, procParam.getParamType());
-								}
-								break;
-							case ProcedureParameter.OUT:
-								if (StringUtils.hasText(paramName)) {
-									stat.registerOutParameter(paramName, procParam.getParamType());
-								} else {
-									stat.registerOutParameter(i, procParam.getParamType());
-								}
-								break;
-							case ProcedureParameter.INOUT:
-								if (StringUtils.hasText(paramName)) {
-									stat.registerOutParameter(paramName, procParam.getParamType());
-								} else {
-									stat.registerOutParameter(i, procParam.getParamType());
-								}
-								break;
-							}
+					session.doWork(new Work() {
+						@Override
+						public void execute(Connection connection) throws SQLException {
+							result.add(procedureExecutor.execute(connection, procedureName, procedureParams));
 						}
-					}
-					logger.info("--> Start to execute procedure.");
-					stat.execute();
-					logger.info("--> Executed procedure successfully.");
-
-					//get the output parameter
-					Object value = null;
-					if (!CollectionUtils.isEmpty(procedureParams)) {
-						for (ProcedureParameter procParam : procedureParams) {
-							String paramName = procParam.getParamName();
-							if (ProcedureParameter.OUT == procParam.getParamType()
-									|| ProcedureParameter.INOUT == procParam.getParamType()) {
-								if (StringUtils.hasText(paramName)) {
-									value = stat.getObject(paramName);
-									result.put(paramName, value);
-								}
-							}
+					});
+				} catch (JDBCException e) {
+					ThrowableHandler.handleThrow("--> Exceptions occured when execute procedure", e.getSQLException());
+				}
+				return result.isEmpty() ? Maps.newHashMap() : result.get(0);
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * Execute stored procedure once per parameter set, in JDBC batches.
+	 * 
+	 * @param procedureName
+	 * @param parameterSets
+	 * 			- IN parameters only, every set has the same arity
+	 * @return int[]
+	 * 			- update counts, one per parameter set
+	 * 
+	 */
+	@Override
+	public int[] executeProcedureBatch(final String procedureName, final List<List<ProcedureParameter>> parameterSets) {
+		Assert.notNull(procedureName, "Procedure Name can not be null when do executeProcedureBatch method...");
+
+		return (int[]) getJpaTemplate().execute(new JpaCallback<Object>() {
+			@Override
+			public Object doInJpa(EntityManager em) throws PersistenceException {
+				Session session = (Session) em.getDelegate();
+				final List<int[]> result = new ArrayList<int[]>(1);
+				try {
+					session.doWork(new Work() {
+						@Override
+						public void execute(Connection connection) throws SQLException {
+							result.add(procedureExecutor.executeBatch(connection, procedureName, parameterSets));
 						}
-					}
-				} catch (SQLException e) {
-					ThrowableHandler.handleThrow("--> Exceptions occured when execute procedure", e);
+					});
+				} catch (JDBCException e) {
+					ThrowableHandler.handleThrow("--> Exceptions occured when execute procedure in batch",
+							e.getSQLException());
 				}
-				return result;
+				return result.isEmpty() ? new int[0] : result.get(0);
 			}
 		});
 	}
@@ -2341,10 +2632,283 @@ public class JpaPersistenceImpl<T, PK extends Serializable> extends JpaDaoSuppor
 		return connection;
 	}
 
+	/**
+	 * 
+	 * Mark finder query of entity type as cacheable, if a cache registry is configured.
+	 * 
+	 * @param query
+	 * @param entityClass
+	 * @return Query
+	 * 
+	 */
+	protected Query applyQueryCache(final Query query, final Class<?> entityClass) {
+		if (persistenceCacheRegistry != null) {
+			persistenceCacheRegistry.applyQueryCache(query, entityClass);
+		}
+		return query;
+	}
+
+	/**
+	 * 
+	 * Mark named query as cacheable, if a cache registry is configured.
+	 * 
+	 * @param query
+	 * @param queryName
+	 * @return Query
+	 * 
+	 */
+	protected Query applyNamedQueryCache(final Query query, final String queryName) {
+		if (persistenceCacheRegistry != null) {
+			persistenceCacheRegistry.applyNamedQueryCache(query, queryName);
+		}
+		return query;
+	}
+
+	/**
+	 * 
+	 * Evict the cache regions and notify the invalidation listeners of a written entity.
+	 * 
+	 * @param entity
+	 * 
+	 */
+	protected void evictCaches(final Object entity) {
+		if (entity == null) {
+			return;
+		}
+
+		Serializable id = getEntityId(entity);
+		invalidate(HibernateProxyHelper.getClassWithoutInitializingProxy(entity),
+				id == null ? Collections.<Serializable> emptyList() : Collections.singletonList(id));
+	}
+
+	/**
+	 * 
+	 * Evict the cache regions and notify the invalidation listeners of written entities, each entity type
+	 * is evicted once.
+	 * 
+	 * @param entities
+	 * 
+	 */
+	protected void evictCaches(final List<?> entities) {
+		if (CollectionUtils.isEmpty(entities)) {
+			return;
+		}
+
+		Map<Class<?>, List<Serializable>> idsOfClass = Maps.newHashMap();
+		for (Object entity : entities) {
+			Class<?> entityClass = HibernateProxyHelper.getClassWithoutInitializingProxy(entity);
+			List<Serializable> ids = idsOfClass.get(entityClass);
+			if (ids == null) {
+				ids = new ArrayList<Serializable>();
+				idsOfClass.put(entityClass, ids);
+			}
+
+			Serializable id = getEntityId(entity);
+			if (id != null) {
+				ids.add(id);
+			}
+		}
+
+		for (Map.Entry<Class<?>, List<Serializable>> entry : idsOfClass.entrySet()) {
+			invalidate(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void invalidate(final Class<?> entityClass, final List<Serializable> ids) {
+		if (persistenceCacheRegistry != null) {
+			persistenceCacheRegistry.evict(getJpaTemplate().getEntityManagerFactory(), entityClass, ids);
+		}
+
+		if (entityCache == null && invalidationListeners.isEmpty()) {
+			return;
+		}
+
+		// Notified after commit, a notification before commit would let another thread or node cache the old row
+		// again in between. Entities loaded before are not put back, see putEntityCache.
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					notifyInvalidation(entityClass, ids);
+				}
+			});
+		} else {
+			notifyInvalidation(entityClass, ids);
+		}
+	}
+
+	private void notifyInvalidation(final Class<?> entityClass, final List<Serializable> ids) {
+		if (entityCache != null) {
+			entityCache.invalidate(entityClass, ids);
+		}
+
+		for (EntityInvalidationListener listener : invalidationListeners) {
+			listener.invalidate(entityClass, ids);
+		}
+	}
+
+	/**
+	 * 
+	 * Put loaded entities into the entity cache once their state is committed, a rolled back transaction
+	 * puts nothing. The state is copied now, as loaded, and is not put if the entity type was invalidated
+	 * after invalidationStamp, eg. by a transaction which changed the row and committed first.
+	 * 
+	 * @param entities
+	 * @param invalidationStamp
+	 * 			- taken before the entities were loaded
+	 * 
+	 */
+	private void putEntityCache(final List<T> entities, final long invalidationStamp) {
+		final List<CapturedEntity> captured = new ArrayList<CapturedEntity>(entities.size());
+		for (T entity : entities) {
+			CapturedEntity capturedEntity = entityCache.capture(entity, invalidationStamp);
+			if (capturedEntity != null) {
+				captured.add(capturedEntity);
+			}
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					for (CapturedEntity capturedEntity : captured) {
+						entityCache.put(capturedEntity);
+					}
+				}
+			});
+		} else {
+			for (CapturedEntity capturedEntity : captured) {
+				entityCache.put(capturedEntity);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Fetch the association paths from root by LEFT JOIN, nested paths reuse the fetch of their parent path.
+	 * 
+	 * @param root
+	 * @param paths
+	 * 
+	 */
+	private void applyJoinFetches(final Root<T> root, final List<String> paths) {
+		Map<String, FetchParent<?, ?>> fetches = Maps.newHashMap();
+		for (String path : paths) {
+			FetchParent<?, ?> parent = root;
+			String currentPath = "";
+			for (String segment : StringUtils.tokenizeToStringArray(path, ".")) {
+				currentPath = currentPath.length() == 0 ? segment : currentPath + "." + segment;
+				FetchParent<?, ?> fetch = fetches.get(currentPath);
+				if (fetch == null) {
+					fetch = parent.fetch(segment, JoinType.LEFT);
+					fetches.put(currentPath, fetch);
+				}
+				parent = fetch;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Load the batch fetch paths of fetchPlan for the results, by one IN query per batchSize results.
+	 * 
+	 * The loaded associations are attached to the results through the persistence context of em, so it
+	 * must be the EntityManager which loaded the results.
+	 * 
+	 * @param em
+	 * @param entityClass
+	 * @param results
+	 * @param fetchPlan
+	 * 
+	 */
+	private void batchFetch(final EntityManager em, final Class<T> entityClass, final List<T> results,
+			final FetchPlan fetchPlan) {
+		if (fetchPlan == null || !fetchPlan.hasBatchFetch() || CollectionUtils.isEmpty(results)) {
+			return;
+		}
+
+		List<Serializable> ids = new ArrayList<Serializable>(results.size());
+		for (T entity : results) {
+			Serializable id = getEntityId(entity);
+			if (id != null) {
+				ids.add(id);
+			}
+		}
+
+		int batchSize = fetchPlan.getBatchSize();
+		for (String path : fetchPlan.getBatchFetchPaths()) {
+			String queryString = new StringBuilder(Constants.HQL_SELECT_DISTINCT_FROM).append(entityClass.getName())
+					.append(Constants.HQL_ALIAS_OBJECT).append(Constants.HQL_KEYWORD_LEFT_JOIN_FETCH).append(
+							Constants.HQL_ALIAS_OBJECT_PREFIX).append(path).append(Constants.HQL_KEYWORD_WHERE).append(
+							"obj.id in (:ids)").toString();
+
+			for (int from = 0; from < ids.size(); from += batchSize) {
+				em.createQuery(queryString).setParameter("ids", ids.subList(from, Math.min(from + batchSize, ids.size())))
+						.getResultList();
+			}
+		}
+	}
+
+	private static Serializable getEntityId(final Object entity) {
+		return (entity instanceof Idable) ? ((Idable) entity).getId() : null;
+	}
+
+	public void setPersistenceCacheRegistry(PersistenceCacheRegistry persistenceCacheRegistry) {
+		this.persistenceCacheRegistry = persistenceCacheRegistry;
+	}
+
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public void setInvalidationListeners(List<EntityInvalidationListener> invalidationListeners) {
+		this.invalidationListeners = CollectionUtils.isEmpty(invalidationListeners) ? Collections
+				.<EntityInvalidationListener> emptyList() : new ArrayList<EntityInvalidationListener>(
+				invalidationListeners);
+	}
+
+	public void setProcedureExecutor(ProcedureExecutor procedureExecutor) {
+		this.procedureExecutor = procedureExecutor;
+	}
+
+	public void setBulkImportCommitInterval(int bulkImportCommitInterval) {
+		Assert.isTrue(bulkImportCommitInterval > 0, "bulkImportCommitInterval must be positive.");
+		this.bulkImportCommitInterval = bulkImportCommitInterval;
+	}
+
+	public void setBulkImportWorkers(int bulkImportWorkers) {
+		Assert.isTrue(bulkImportWorkers > 0, "bulkImportWorkers must be positive.");
+		this.bulkImportWorkers = bulkImportWorkers;
+	}
+
+	// Query strings of findByPropertys/findUniqueByPropertys/countByPropertys.
+	private final NamedParamsQueryCache namedParamsQueries = new NamedParamsQueryCache(MAX_NAMED_PARAMS_QUERIES);
+
+	// Executes executeProcedure/executeProcedureBatch, caches the call strings.
+	private ProcedureExecutor procedureExecutor = new ProcedureExecutor();
+
+	// Rows committed per transaction of bulkImport.
+	private int bulkImportCommitInterval = DEFAULT_BATCH_SIZE;
+
+	// Parallel workers of bulkImport, each holds one connection while committing.
+	private int bulkImportWorkers = 1;
+
+	// Registry of second-level and query cache, caching is off if not configured.
+	private PersistenceCacheRegistry persistenceCacheRegistry;
+
+	// Cache in front of findById/findByIds, off if not configured.
+	private EntityCache entityCache;
+
+	// Notified after entities were written.
+	private List<EntityInvalidationListener> invalidationListeners = Collections.emptyList();
+
 	// JpaPersistenceImpl logger
 	public static final transient Logger logger = LoggerFactory.getLogger(JpaPersistenceImpl.class);
 
 	// Allowed batch objects record size
 	protected static final int DEFAULT_BATCH_SIZE = Constants.DEFAULT_BATCH_SIZE;
 
+	// Bound of cached findByPropertys/findUniqueByPropertys/countByPropertys query strings
+	private static final int MAX_NAMED_PARAMS_QUERIES = 1024;
+
 }
@@ -0,0 +1,133 @@
+package org.workin.core.persistence.jpa;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Query;
+
+import org.workin.util.PersistenceUtils;
+
+/**
+ * 
+ * Query strings of the named parameter finders(findByPropertys, findUniqueByPropertys, countByPropertys),
+ * built once per entity class, select/count and parameter name set.
+ * 
+ * The parameter names are sorted, so maps with the same keys in any order share one query string, and
+ * binding iterates the precomputed names instead of the map entries.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+final class NamedParamsQueryCache {
+
+	private final ConcurrentMap<Key, NamedParamsQuery> queries = new ConcurrentHashMap<Key, NamedParamsQuery>();
+
+	private final int maxQueries;
+
+	NamedParamsQueryCache(int maxQueries) {
+		this.maxQueries = maxQueries;
+	}
+
+	/**
+	 * 
+	 * Get the query of entity class and parameter names.
+	 * 
+	 * @param entityClass
+	 * @param isCount
+	 * @param params
+	 * @return NamedParamsQuery
+	 * 
+	 */
+	NamedParamsQuery get(final Class<?> entityClass, final boolean isCount, final Map<String, ?> params) {
+		Set<String> names = params == null ? Collections.<String> emptySet() : params.keySet();
+		Key lookup = new Key(entityClass, isCount, names);
+
+		NamedParamsQuery query = queries.get(lookup);
+		if (query == null) {
+			String[] parameterNames = names.toArray(new String[names.size()]);
+			Arrays.sort(parameterNames);
+			query = new NamedParamsQuery(PersistenceUtils.buildQueryStringWithNamedParams(isCount, entityClass,
+					parameterNames), parameterNames);
+
+			// Keys are written by the code, the bound only protects against keys built from user input.
+			if (queries.size() < maxQueries) {
+				queries.putIfAbsent(new Key(entityClass, isCount, new HashSet<String>(names)), query);
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * 
+	 * Query string and sorted parameter names of a finder.
+	 * 
+	 */
+	static final class NamedParamsQuery {
+
+		private final String queryString;
+
+		private final String[] parameterNames;
+
+		NamedParamsQuery(String queryString, String[] parameterNames) {
+			this.queryString = queryString;
+			this.parameterNames = parameterNames;
+		}
+
+		String getQueryString() {
+			return queryString;
+		}
+
+		/**
+		 * 
+		 * Bind the values of params to query.
+		 * 
+		 * @param query
+		 * @param params
+		 * @return Query
+		 * 
+		 */
+		Query bind(final Query query, final Map<String, ?> params) {
+			for (String parameterName : parameterNames) {
+				query.setParameter(parameterName, params.get(parameterName));
+			}
+			return query;
+		}
+	}
+
+	private static final class Key {
+
+		private final Class<?> entityClass;
+
+		private final boolean isCount;
+
+		private final Set<String> names;
+
+		private final int hash;
+
+		Key(Class<?> entityClass, boolean isCount, Set<String> names) {
+			this.entityClass = entityClass;
+			this.isCount = isCount;
+			this.names = names;
+			this.hash = (entityClass.hashCode() * 31 + names.hashCode()) * 31 + (isCount ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return entityClass == other.entityClass && isCount == other.isCount && names.equals(other.names);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package org.workin.core.persistence.jpa;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.core.entity.Auditable;
+import org.workin.core.entity.support.AuditBatchContext;
+import org.workin.core.entity.support.AuditEventExecutor;
+import org.workin.core.entity.support.AuditEventProvider;
+import org.workin.core.persistence.support.BulkImportListener;
+import org.workin.core.persistence.support.BulkImportResult;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Insert a large stream of entities by Hibernate StatelessSession.
+ * 
+ * The calling thread reads the iterator and cuts it into chunks of commitInterval entities, every chunk is
+ * inserted and committed by one of the worker threads, on its own StatelessSession and connection. No
+ * persistence context, dirty checking, cascades or JPA callbacks are involved, audit fields of Auditable
+ * entities are stamped by the reading thread once per import(see AuditBatchContext).
+ * 
+ * The first failed chunk stops the import, the chunks committed before stay in the database.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class StatelessBulkImporter {
+
+	private final SessionFactory sessionFactory;
+
+	private final int commitInterval;
+
+	private final int workers;
+
+	public StatelessBulkImporter(final SessionFactory sessionFactory, final int commitInterval, final int workers) {
+		Assert.notNull(sessionFactory, "sessionFactory cannot be null.");
+		Assert.isTrue(commitInterval > 0, "commitInterval must be positive.");
+		Assert.isTrue(workers > 0, "workers must be positive.");
+		this.sessionFactory = sessionFactory;
+		this.commitInterval = commitInterval;
+		this.workers = workers;
+	}
+
+	/**
+	 * 
+	 * Import all entities of the iterator.
+	 * 
+	 * @param entityClass
+	 * @param entities
+	 * @param listener
+	 * 			- may be null
+	 * @return BulkImportResult
+	 * 
+	 */
+	public <T> BulkImportResult importAll(final Class<T> entityClass, final Iterator<T> entities,
+			final BulkImportListener listener) {
+		final long start = System.currentTimeMillis();
+		final AtomicLong importedCount = new AtomicLong();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		// At most two chunks per worker wait in memory, the reader blocks beyond that.
+		final Semaphore inFlight = new Semaphore(workers * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new Thread(runnable, "BulkImport-" + entityClass.getSimpleName() + "-"
+						+ threadNumber.incrementAndGet());
+			}
+		});
+
+		AuditEventExecutor auditEventExecutor = AuditEventProvider.getAuditEventExecutor();
+		AuditBatchContext.open();
+		try {
+			while (entities.hasNext() && failure.get() == null) {
+				final List<T> chunk = new ArrayList<T>(commitInterval);
+				while (chunk.size() < commitInterval && entities.hasNext()) {
+					T entity = entities.next();
+					if (auditEventExecutor != null && entity instanceof Auditable) {
+						auditEventExecutor.auditOnPrePersist(entity);
+					}
+					chunk.add(entity);
+				}
+
+				inFlight.acquire();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (failure.get() == null) {
+								insertChunk(chunk);
+								long imported = importedCount.addAndGet(chunk.size());
+								if (listener != null) {
+									listener.onProgress(entityClass, imported, System.currentTimeMillis() - start);
+								}
+							}
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+						} finally {
+							inFlight.release();
+						}
+					}
+				});
+			}
+
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			executor.shutdownNow();
+			AuditBatchContext.close();
+		}
+
+		BulkImportResult result = new BulkImportResult(entityClass, importedCount.get(), System.currentTimeMillis()
+				- start, failure.get());
+		if (listener != null) {
+			listener.onComplete(result);
+		}
+
+		logger.info(" Bulk import finished, {}", result);
+		return result;
+	}
+
+	private void insertChunk(final List<?> chunk) {
+		StatelessSession session = sessionFactory.openStatelessSession();
+		Transaction transaction = null;
+		try {
+			transaction = session.beginTransaction();
+			for (Object entity : chunk) {
+				session.insert(entity);
+			}
+			transaction.commit();
+		} catch (RuntimeException e) {
+			if (transaction != null && transaction.isActive()) {
+				transaction.rollback();
+			}
+			throw e;
+		} finally {
+			session.close();
+		}
+	}
+
+	private static final transient Logger logger = LoggerFactory.getLogger(StatelessBulkImporter.class);
+}
@@ -1,6 +1,7 @@
 package org.workin.core.persistence.support;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import org.perf4j.aop.Profiled;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.workin.core.entity.Idable;
+import org.workin.core.persistence.cache.RequestEntityCache;
 import org.workin.trace.service.StoredLogService;
 import org.workin.util.Assert;
 
@@ -81,7 +83,40 @@ public abstract class AbstractBeanService<T, PK extends Serializable> implements
 	@Override
 	@Profiled
 	public T findById(Class<T> entityClass, final PK entityId) {
-		return (T) this.persistenceService.findById(entityClass, entityId);
+		RequestEntityCache requestCache = RequestEntityCache.current();
+		if (requestCache == null) {
+			return (T) this.persistenceService.findById(entityClass, entityId);
+		}
+
+		Object cached = requestCache.get(entityClass, entityId);
+		if (cached == null) {
+			cached = this.persistenceService.findById(entityClass, entityId);
+			requestCache.put(entityClass, entityId, cached);
+		}
+		return cached == RequestEntityCache.NULL_ENTITY ? null : (T) cached;
+	}
+	
+	@Override
+	@Profiled
+	public List<T> findByIds(Class<T> entityClass, final Collection<PK> entityIds) {
+		return this.persistenceService.findByIds(entityClass, entityIds);
+	}
+	
+	@Override
+	@Profiled
+	public T findUniqueByProperty(final Class<T> entityClass, final String propertyName, final Object value) {
+		RequestEntityCache requestCache = RequestEntityCache.current();
+		if (requestCache == null) {
+			return (T) this.persistenceService.findUniqueByProperty(entityClass, propertyName, value);
+		}
+
+		String key = propertyName + '=' + value;
+		Object cached = requestCache.get(entityClass, key);
+		if (cached == null) {
+			cached = this.persistenceService.findUniqueByProperty(entityClass, propertyName, value);
+			requestCache.put(entityClass, key, cached);
+		}
+		return cached == RequestEntityCache.NULL_ENTITY ? null : (T) cached;
 	}
 	
 	@Override
@@ -115,6 +150,12 @@ public abstract class AbstractBeanService<T, PK extends Serializable> implements
 		return this.persistenceService.findByCriteriaQuery(targetClass, filters, isDistinct);
 	}
 	
+	@Override
+	@Profiled
+	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters, final FetchPlan fetchPlan) {
+		return this.persistenceService.findByCriteriaQuery(targetClass, filters, fetchPlan);
+	}
+	
 	@Autowired(required=true)
 	protected PersistenceService persistenceService;
 
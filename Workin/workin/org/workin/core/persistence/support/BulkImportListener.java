@@ -0,0 +1,35 @@
+package org.workin.core.persistence.support;
+
+/**
+ * 
+ * Progress callback of JpaPersistence.bulkImport.
+ * 
+ * onProgress is called by the import workers after each committed chunk, implementations must be thread safe.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface BulkImportListener {
+
+	/**
+	 * 
+	 * A chunk was committed.
+	 * 
+	 * @param entityClass
+	 * @param importedCount
+	 * 			- rows committed so far
+	 * @param elapsedMillis
+	 * 			- since the import started
+	 * 
+	 */
+	public void onProgress(Class<?> entityClass, long importedCount, long elapsedMillis);
+
+	/**
+	 * 
+	 * The import finished, successfully or not.
+	 * 
+	 * @param result
+	 * 
+	 */
+	public void onComplete(BulkImportResult result);
+}
@@ -0,0 +1,62 @@
+package org.workin.core.persistence.support;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * Outcome of JpaPersistence.bulkImport.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BulkImportResult implements Serializable {
+
+	private static final long serialVersionUID = -3185240431645432657L;
+
+	private final Class<?> entityClass;
+
+	private final long importedCount;
+
+	private final long elapsedMillis;
+
+	private final Throwable failure;
+
+	public BulkImportResult(Class<?> entityClass, long importedCount, long elapsedMillis, Throwable failure) {
+		this.entityClass = entityClass;
+		this.importedCount = importedCount;
+		this.elapsedMillis = elapsedMillis;
+		this.failure = failure;
+	}
+
+	public Class<?> getEntityClass() {
+		return entityClass;
+	}
+
+	// Rows committed, on failure the rows of committed chunks stay imported.
+	public long getImportedCount() {
+		return importedCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	public boolean isSuccess() {
+		return failure == null;
+	}
+
+	// Rows per second.
+	public double getThroughput() {
+		return elapsedMillis == 0 ? importedCount : importedCount * 1000d / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return entityClass.getName() + " imported: " + importedCount + ", elapsed: " + elapsedMillis + " ms, rows/s: "
+				+ Math.round(getThroughput()) + (failure == null ? "" : ", failure: " + failure.getMessage());
+	}
+}
@@ -1,6 +1,7 @@
 package org.workin.core.persistence.support;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -92,6 +93,31 @@ public interface CrudService<T, PK extends Serializable> {
 	 */
 	public T findById(final Class<T> entityClass, final PK entityId);
 	
+	/**
+	 * 
+	 * find entities by ids, the entities not found are skipped.
+	 * 
+	 * @param   entityClass
+	 * @param   entityIds
+	 * 
+	 * @return  List<T>
+	 * 
+	 */
+	public List<T> findByIds(final Class<T> entityClass, final Collection<PK> entityIds);
+	
+	/**
+	 * 
+	 * find the unique entity by property.
+	 * 
+	 * @param   entityClass
+	 * @param   propertyName
+	 * @param   value
+	 * 
+	 * @return  entity or null
+	 * 
+	 */
+	public T findUniqueByProperty(final Class<T> entityClass, final String propertyName, final Object value);
+	
 	
 	/**
 	 * 
@@ -146,5 +172,16 @@ public interface CrudService<T, PK extends Serializable> {
 	 * 
 	 */
 	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters, final boolean isDistinct);
+	
+	/**
+	 * 
+	 * @param targetClass
+	 * @param filters
+	 * @param fetchPlan
+	 * 			- associations loaded together with the results
+	 * @return
+	 * 
+	 */
+	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters, final FetchPlan fetchPlan);
 
 }
@@ -0,0 +1,21 @@
+package org.workin.core.persistence.support;
+
+/**
+ * 
+ * Change applied to a freshly loaded entity by OptimisticRetryExecutor, it may be applied more than once,
+ * so it must only depend on the entity passed in.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface EntityMutation<T> {
+
+	/**
+	 * 
+	 * Apply the change to entity.
+	 * 
+	 * @param entity
+	 * 
+	 */
+	public void apply(T entity);
+}
@@ -0,0 +1,101 @@
+package org.workin.core.persistence.support;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Associations to load together with the entities of a finder, instead of one lazy load per row.
+ * 
+ * 	1) Join fetch paths are loaded in the same SQL by LEFT JOIN FETCH, nested paths are dot separated
+ * 	   (eg. "address.city"). The finder returns distinct roots. Avoid join fetching more than one
+ * 	   collection, and avoid join fetching collections together with start/maxRows, Hibernate then
+ * 	   paginates in memory.
+ * 	2) Batch fetch paths are direct associations of the entity, loaded after the finder by one query
+ * 	   per batchSize entities (WHERE id IN (...)).
+ * 
+ * eg.
+ * 
+ * 	FetchPlan fetchPlan = FetchPlan.create().joinFetch("address").batchFetch(100, "roles");
+ * 	List<Person> persons = persistenceService.findByPropertys(Person.class, params, fetchPlan);
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class FetchPlan implements Serializable {
+
+	private static final long serialVersionUID = -6046713416862413549L;
+
+	private final List<String> joinFetchPaths = new ArrayList<String>();
+
+	private final List<String> batchFetchPaths = new ArrayList<String>();
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	public static FetchPlan create() {
+		return new FetchPlan();
+	}
+
+	/**
+	 * 
+	 * Load the association paths by LEFT JOIN FETCH.
+	 * 
+	 * @param paths
+	 * @return FetchPlan
+	 * 
+	 */
+	public FetchPlan joinFetch(final String... paths) {
+		for (String path : paths) {
+			Assert.hasText(path, "Join fetch path cannot be empty.");
+			joinFetchPaths.add(path);
+		}
+		return this;
+	}
+
+	/**
+	 * 
+	 * Load the associations by one query per batchSize entities.
+	 * 
+	 * @param batchSize
+	 * @param paths
+	 * 			- direct associations of the entity
+	 * @return FetchPlan
+	 * 
+	 */
+	public FetchPlan batchFetch(final int batchSize, final String... paths) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive.");
+		for (String path : paths) {
+			Assert.isTrue(path != null && path.indexOf('.') < 0, "Batch fetch path must be a direct association: "
+					+ path);
+			batchFetchPaths.add(path);
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	public List<String> getJoinFetchPaths() {
+		return Collections.unmodifiableList(joinFetchPaths);
+	}
+
+	public List<String> getBatchFetchPaths() {
+		return Collections.unmodifiableList(batchFetchPaths);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public boolean hasJoinFetch() {
+		return !joinFetchPaths.isEmpty();
+	}
+
+	public boolean hasBatchFetch() {
+		return !batchFetchPaths.isEmpty();
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+}
@@ -0,0 +1,298 @@
+package org.workin.core.persistence.support;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.OptimisticLockException;
+
+import org.hibernate.StaleStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.workin.core.persistence.cache.EntityInvalidationListener;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Update an entity under optimistic locking(@Version of IdEntity), retrying on version conflicts.
+ * 
+ * Each attempt runs in a new transaction: load the entity, apply the mutation, merge, commit. On a conflict
+ * the attempt is rolled back, the entity is evicted from the entity cache and the next attempt starts
+ * after an exponential backoff with full jitter(random between 1 and min(maxBackoffMillis, initialBackoffMillis *
+ * 2^attempt)). After maxAttempts conflicts the last conflict is thrown.
+ * 
+ * Updates and conflicts are counted per entity type and per row, see OptimisticRetryExecutorMBean.
+ * 
+ * eg.
+ * 
+ * 	Person person = optimisticRetryExecutor.update(Person.class, id, new EntityMutation<Person>() {
+ * 		public void apply(Person person) {
+ * 			person.setVisits(person.getVisits() + 1);
+ * 		}
+ * 	});
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@SuppressWarnings("unchecked")
+public class OptimisticRetryExecutor implements OptimisticRetryExecutorMBean {
+
+	private PersistenceService<Object, Serializable> persistenceService;
+
+	private TransactionTemplate transactionTemplate;
+
+	// Evicted on conflict, so the next attempt loads the current version.
+	private EntityInvalidationListener entityCache;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+
+	private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+	private int maxTrackedRows = DEFAULT_MAX_TRACKED_ROWS;
+
+	private final Random random = new Random();
+
+	private final AtomicLong updateCount = new AtomicLong();
+
+	private final AtomicLong conflictCount = new AtomicLong();
+
+	private final AtomicLong exhaustedCount = new AtomicLong();
+
+	// Entity class name -> {updates, conflicts}.
+	private final ConcurrentMap<String, AtomicLong[]> typeCounts = new ConcurrentHashMap<String, AtomicLong[]>();
+
+	// Entity class name#id -> conflicts.
+	private final ConcurrentMap<String, AtomicLong> rowConflicts = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * 
+	 * Load the entity, apply mutation and merge it, retrying on optimistic lock conflicts.
+	 * 
+	 * @param entityClass
+	 * @param id
+	 * @param mutation
+	 * @return T
+	 * 			- the merged entity, null if no entity has the id
+	 * 
+	 * @throws org.springframework.dao.DataAccessException
+	 * 			- the last conflict after maxAttempts, or any other failure
+	 * 
+	 */
+	public <T> T update(final Class<T> entityClass, final Serializable id, final EntityMutation<T> mutation) {
+		Assert.notNull(transactionTemplate, "transactionManager must be set.");
+		updateCount.incrementAndGet();
+		getTypeCounts(entityClass)[0].incrementAndGet();
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				return (T) transactionTemplate.execute(new TransactionCallback<Object>() {
+					@Override
+					public Object doInTransaction(TransactionStatus status) {
+						T entity = (T) persistenceService.findById((Class<Object>) entityClass, id);
+						if (entity == null) {
+							return null;
+						}
+
+						mutation.apply(entity);
+						return persistenceService.merge(entity);
+					}
+				});
+			} catch (RuntimeException e) {
+				if (!isConflict(e)) {
+					throw e;
+				}
+
+				recordConflict(entityClass, id);
+				if (entityCache != null) {
+					entityCache.invalidate(entityClass, Collections.singletonList(id));
+				}
+
+				if (attempt >= maxAttempts) {
+					exhaustedCount.incrementAndGet();
+					logger.warn(" Gave up updating {}#{} after {} optimistic lock conflicts.", new Object[] {
+							entityClass.getName(), id, attempt });
+					throw e;
+				}
+
+				logger.debug(" Optimistic lock conflict on {}#{}, attempt: {}", new Object[] { entityClass.getName(),
+						id, attempt });
+				backoff(attempt, e);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Is the failure a version conflict?
+	 * 
+	 * @param e
+	 * @return boolean
+	 * 
+	 */
+	protected boolean isConflict(final Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException
+					|| cause instanceof StaleStateException) {
+				return true;
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	private void backoff(final int attempt, final RuntimeException conflict) {
+		long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+		long sleepMillis = 1L + (long) (random.nextDouble() * Math.max(ceiling, 1L));
+		try {
+			Thread.sleep(sleepMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw conflict;
+		}
+	}
+
+	private void recordConflict(final Class<?> entityClass, final Serializable id) {
+		conflictCount.incrementAndGet();
+		getTypeCounts(entityClass)[1].incrementAndGet();
+
+		String row = entityClass.getName() + '#' + id;
+		AtomicLong conflicts = rowConflicts.get(row);
+		if (conflicts == null && rowConflicts.size() < maxTrackedRows) {
+			AtomicLong created = new AtomicLong();
+			conflicts = rowConflicts.putIfAbsent(row, created);
+			if (conflicts == null) {
+				conflicts = created;
+			}
+		}
+		if (conflicts != null) {
+			conflicts.incrementAndGet();
+		}
+	}
+
+	private AtomicLong[] getTypeCounts(final Class<?> entityClass) {
+		AtomicLong[] counts = typeCounts.get(entityClass.getName());
+		if (counts == null) {
+			AtomicLong[] created = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+			counts = typeCounts.putIfAbsent(entityClass.getName(), created);
+			if (counts == null) {
+				counts = created;
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public long getUpdateCount() {
+		return updateCount.get();
+	}
+
+	@Override
+	public long getConflictCount() {
+		return conflictCount.get();
+	}
+
+	@Override
+	public long getExhaustedCount() {
+		return exhaustedCount.get();
+	}
+
+	@Override
+	public String[] getConflictRates() {
+		List<String> rates = new ArrayList<String>(typeCounts.size());
+		for (Map.Entry<String, AtomicLong[]> entry : typeCounts.entrySet()) {
+			long updates = entry.getValue()[0].get();
+			long conflicts = entry.getValue()[1].get();
+			rates.add(entry.getKey() + ": " + conflicts + "/" + updates + " ("
+					+ (updates == 0 ? 0.0 : (double) conflicts / updates) + ")");
+		}
+		return rates.toArray(new String[rates.size()]);
+	}
+
+	@Override
+	public String[] hotRows(int top) {
+		List<Map.Entry<String, AtomicLong>> rows = new ArrayList<Map.Entry<String, AtomicLong>>(rowConflicts
+				.entrySet());
+		Collections.sort(rows, new Comparator<Map.Entry<String, AtomicLong>>() {
+			@Override
+			public int compare(Map.Entry<String, AtomicLong> o1, Map.Entry<String, AtomicLong> o2) {
+				long value1 = o1.getValue().get();
+				long value2 = o2.getValue().get();
+				return value1 > value2 ? -1 : (value1 == value2 ? 0 : 1);
+			}
+		});
+
+		int size = top > 0 ? Math.min(top, rows.size()) : rows.size();
+		String[] hotRows = new String[size];
+		for (int i = 0; i < size; i++) {
+			hotRows[i] = rows.get(i).getKey() + ": " + rows.get(i).getValue().get();
+		}
+		return hotRows;
+	}
+
+	@Override
+	public void resetStatistics() {
+		updateCount.set(0L);
+		conflictCount.set(0L);
+		exhaustedCount.set(0L);
+		typeCounts.clear();
+		rowConflicts.clear();
+	}
+
+	public void setPersistenceService(PersistenceService<Object, Serializable> persistenceService) {
+		this.persistenceService = persistenceService;
+	}
+
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	public void setEntityCache(EntityInvalidationListener entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "maxAttempts must be positive.");
+		this.maxAttempts = maxAttempts;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		Assert.isTrue(initialBackoffMillis > 0, "initialBackoffMillis must be positive.");
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public void setMaxTrackedRows(int maxTrackedRows) {
+		this.maxTrackedRows = maxTrackedRows;
+	}
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 20L;
+
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000L;
+
+	public static final int DEFAULT_MAX_TRACKED_ROWS = 1000;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(OptimisticRetryExecutor.class);
+}
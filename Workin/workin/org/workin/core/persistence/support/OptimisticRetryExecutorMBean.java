@@ -0,0 +1,38 @@
+package org.workin.core.persistence.support;
+
+/**
+ * 
+ * JMX view of OptimisticRetryExecutor.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface OptimisticRetryExecutorMBean {
+
+	public long getUpdateCount();
+
+	public long getConflictCount();
+
+	public long getExhaustedCount();
+
+	/**
+	 * 
+	 * Get the conflicts per update of each entity type, "entity class: conflicts/updates (rate)".
+	 * 
+	 * @return String[]
+	 * 
+	 */
+	public String[] getConflictRates();
+
+	/**
+	 * 
+	 * Get the rows with the most conflicts, "entity class#id: conflicts".
+	 * 
+	 * @param top
+	 * @return String[]
+	 * 
+	 */
+	public String[] hotRows(int top);
+
+	public void resetStatistics();
+}
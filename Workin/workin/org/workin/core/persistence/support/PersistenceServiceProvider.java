@@ -2,6 +2,8 @@ package org.workin.core.persistence.support;
 
 import java.io.Serializable;
 import java.sql.Connection;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -136,11 +138,27 @@ public class PersistenceServiceProvider<T, PK extends Serializable> implements P
 		return this.jpaPersistence.executeNamedOfQuery(queryName, nameAndValue);
 	}
 
+	@Override
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities,
+			final BulkImportListener listener) {
+		return this.jpaPersistence.bulkImport(entityClass, entities, listener);
+	}
+
+	@Override
+	public BulkImportResult bulkImport(final Class<T> entityClass, final Iterator<T> entities) {
+		return this.jpaPersistence.bulkImport(entityClass, entities);
+	}
+
 	@Override
 	public T findById(final Class<T> entityClass, final PK id) {
 		return this.jpaPersistence.findById(entityClass, id);
 	}
 
+	@Override
+	public List<T> findByIds(final Class<T> entityClass, final Collection<PK> ids) {
+		return this.jpaPersistence.findByIds(entityClass, ids);
+	}
+
 	@Override
 	public T findUniqueByNamedOfQuery(final String queryName, final Object... values) {
 		return this.jpaPersistence.findUniqueByNamedOfQuery(queryName, values);
@@ -181,6 +199,12 @@ public class PersistenceServiceProvider<T, PK extends Serializable> implements P
 		return this.jpaPersistence.findByProperty(entityClass, propertyName, value);
 	}
 
+	@Override
+	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value,
+			final FetchPlan fetchPlan) {
+		return this.jpaPersistence.findByProperty(entityClass, propertyName, value, fetchPlan);
+	}
+
 	@Override
 	public List<T> findByProperty(final Class<T> entityClass, final String propertyName, final Object value,
 			final int start, final int maxRows) {
@@ -198,6 +222,11 @@ public class PersistenceServiceProvider<T, PK extends Serializable> implements P
 		return this.jpaPersistence.findByPropertys(entityClass, params);
 	}
 
+	@Override
+	public List<T> findByPropertys(final Class<T> entityClass, final Map<String, ?> params, final FetchPlan fetchPlan) {
+		return this.jpaPersistence.findByPropertys(entityClass, params, fetchPlan);
+	}
+
 	@Override
 	public List<T> findByPropertys(final Class<T> entityClass, final Map<String, ?> params, final int start,
 			final int maxRows) {
@@ -400,11 +429,22 @@ public class PersistenceServiceProvider<T, PK extends Serializable> implements P
 		return this.jpaPersistence.findByCriteriaQuery(targetClass, filters, isDistinct);
 	}
 
+	@Override
+	public List<T> findByCriteriaQuery(final Class<T> targetClass, final List<PropertyFilter> filters,
+			final FetchPlan fetchPlan) {
+		return this.jpaPersistence.findByCriteriaQuery(targetClass, filters, fetchPlan);
+	}
+
 	@Override
 	public Map<String, Object> executeProcedure(String procedureName, List<ProcedureParameter> procedureParams) {
 		return this.jpaPersistence.executeProcedure(procedureName, procedureParams);
 	}
 
+	@Override
+	public int[] executeProcedureBatch(String procedureName, List<List<ProcedureParameter>> parameterSets) {
+		return this.jpaPersistence.executeProcedureBatch(procedureName, parameterSets);
+	}
+
 	@Override
 	public Connection getJdbcConnection() {
 		return this.jpaPersistence.getJdbcConnection();
@@ -1,15 +1,23 @@
 package org.workin.jms.consumer;
 
+import java.io.Serializable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.workin.core.persistence.cache.RequestEntityCache;
 import org.workin.exception.ThrowableHandler;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.jms.support.MessagePipelineMetrics;
 import org.workin.mail.MailPackage;
 import org.workin.mail.MailService;
 import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.BehaviorRollup;
 import org.workin.trace.domain.StoredLog;
 import org.workin.trace.service.BehaviorPerformanceService;
+import org.workin.trace.service.BehaviorRollupService;
 import org.workin.trace.service.StoredLogService;
+import org.workin.trace.service.TraceBatchWriter;
 
 /**
  * 
@@ -27,62 +35,162 @@ public class DefaultMessageConsumer implements MessageConsumer {
 	@Autowired(required=false)
 	StoredLogService storedLogService;
 	
+	@Autowired(required=false)
+	BehaviorRollupService behaviorRollupService;
+	
+	// Trace entities are written in batches when configured(opt-in, at-most-once), see TraceBatchWriter.
+	@Autowired(required=false)
+	TraceBatchWriter traceBatchWriter;
+	
+	// Latency, throughput and failures per message type, off if not configured.
+	@Autowired(required=false)
+	MessagePipelineMetrics pipelineMetrics;
+	
 	@Override
 	public void receiveMessage(MailPackage message) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		RequestEntityCache.open();
 		try {
-			synchronized (this) {
-				if(mailService != null) {
-					mailService.sendMail(message);
-					logger.debug("MailService sent mail in DefaultMessageConsumer...");
-				} else {
-					logger.debug("Cannot find mailService, Please config...");
-				}
+			if(mailService != null) {
+				mailService.sendMail(message);
+				logger.debug("MailService sent mail in DefaultMessageConsumer...");
+			} else {
+				logger.debug("Cannot find mailService, Please config...");
 			}
-
+			failed = false;
 		} catch (Exception ex) {
 			ThrowableHandler.handleThrow("Hit Exception, When execute DefaultMessageConsumer.receiveMessage()", ex, logger);
+		} finally {
+			RequestEntityCache.close();
+			recordMetrics(MailPackage.class, start, failed);
 		}
 	}
 
 	@Override
 	public void receiveMessage(BehaviorPerformance message) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		RequestEntityCache.open();
 		try {
-			synchronized (this) {
-				if(behaviorAndPerformanceService != null) {
-					behaviorAndPerformanceService.merge(message);
-					logger.debug("BehaviorAndPerformanceService merged behaviorPerformance in DefaultMessageConsumer...");
-				} else {
-					logger.debug("Cannot find behaviorAndPerformanceService, Please config...");
-				}
+			if(traceBatchWriter != null) {
+				traceBatchWriter.add(message);
+				logger.debug("TraceBatchWriter queued behaviorPerformance in DefaultMessageConsumer...");
+			} else if(behaviorAndPerformanceService != null) {
+				behaviorAndPerformanceService.merge(message);
+				logger.debug("BehaviorAndPerformanceService merged behaviorPerformance in DefaultMessageConsumer...");
+			} else {
+				logger.debug("Cannot find behaviorAndPerformanceService, Please config...");
 			}
+			failed = false;
 		} catch (Exception ex) {
 			ThrowableHandler.handleThrow(
 					"Hit Exception, When execute DefaultMessageConsumer.receiveMessage().", ex, logger);
-		}	
+		} finally {
+			RequestEntityCache.close();
+			recordMetrics(BehaviorPerformance.class, start, failed);
+		}
 	}
 	
 	@Override
 	public void receiveMessage(final StoredLog message) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		RequestEntityCache.open();
 		try {
-			synchronized (this) {
-				if(storedLogService != null) {
-					storedLogService.merge(message);
-					logger.debug("storedLogService merged storedLog in DefaultMessageConsumer...");
-				} else {
-					logger.debug("Cannot find storedLogService, Please config...");
-				}
+			if(traceBatchWriter != null) {
+				traceBatchWriter.add(message);
+				logger.debug("TraceBatchWriter queued storedLog in DefaultMessageConsumer...");
+			} else if(storedLogService != null) {
+				storedLogService.merge(message);
+				logger.debug("storedLogService merged storedLog in DefaultMessageConsumer...");
+			} else {
+				logger.debug("Cannot find storedLogService, Please config...");
 			}
+			failed = false;
 		} catch (Exception ex) {
 			ThrowableHandler.handleThrow(
 					"Hit Exception, When execute DefaultMessageConsumer.receiveMessage().", ex, logger);
-		}	
+		} finally {
+			RequestEntityCache.close();
+			recordMetrics(StoredLog.class, start, failed);
+		}
 	}
 	
+	@Override
+	public void receiveMessage(final BehaviorRollup message) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		RequestEntityCache.open();
+		try {
+			if(traceBatchWriter != null) {
+				traceBatchWriter.add(message);
+				logger.debug("TraceBatchWriter queued behaviorRollup in DefaultMessageConsumer...");
+			} else if(behaviorRollupService != null) {
+				behaviorRollupService.merge(message);
+				logger.debug("behaviorRollupService merged behaviorRollup in DefaultMessageConsumer...");
+			} else {
+				logger.debug("Cannot find behaviorRollupService, Please config...");
+			}
+			failed = false;
+		} catch (Exception ex) {
+			ThrowableHandler.handleThrow(
+					"Hit Exception, When execute DefaultMessageConsumer.receiveMessage().", ex, logger);
+		} finally {
+			RequestEntityCache.close();
+			recordMetrics(BehaviorRollup.class, start, failed);
+		}
+	}
+	
+	@Override
+	public void receiveMessage(final MessageEnvelope message) {
+		RequestEntityCache.open();
+		try {
+			for (Serializable target : message.getMessages()) {
+				try {
+					if (target instanceof BehaviorPerformance) {
+						receiveMessage((BehaviorPerformance) target);
+					} else if (target instanceof StoredLog) {
+						receiveMessage((StoredLog) target);
+					} else if (target instanceof BehaviorRollup) {
+						receiveMessage((BehaviorRollup) target);
+					} else if (target instanceof MailPackage) {
+						receiveMessage((MailPackage) target);
+					} else {
+						logger.warn("Cannot handle {} in MessageEnvelope, skipped...", target.getClass().getName());
+					}
+				} catch (Exception ex) {
+					// Already logged, go on with the other messages of the envelope.
+					logger.debug("Skipped failed message in MessageEnvelope...");
+				}
+			}
+		} finally {
+			RequestEntityCache.close();
+		}
+	}
 	
+	private void recordMetrics(final Class<?> type, final long start, final boolean failed) {
+		if (pipelineMetrics != null) {
+			pipelineMetrics.record(type, start, failed);
+		}
+	}
+	
+	public void setPipelineMetrics(MessagePipelineMetrics pipelineMetrics) {
+		this.pipelineMetrics = pipelineMetrics;
+	}
+
 	public void setStoredLogService(StoredLogService storedLogService) {
 		this.storedLogService = storedLogService;
 	}
 
+	public void setBehaviorRollupService(BehaviorRollupService behaviorRollupService) {
+		this.behaviorRollupService = behaviorRollupService;
+	}
+
+	public void setTraceBatchWriter(TraceBatchWriter traceBatchWriter) {
+		this.traceBatchWriter = traceBatchWriter;
+	}
+
 	public void setMailService(MailService mailService) {
 		this.mailService = mailService;
 	}
@@ -0,0 +1,36 @@
+package org.workin.jms.consumer;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.springframework.jms.listener.adapter.MessageListenerAdapter;
+import org.workin.jms.support.EnqueueTimeStamper;
+import org.workin.jms.support.MessageDeliveryContext;
+
+/**
+ * 
+ * MessageListenerAdapter which hands the enqueue time stamped by EnqueueTimeStamper to the consumer,
+ * through MessageDeliveryContext.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class EnqueueTimeListenerAdapter extends MessageListenerAdapter {
+
+	public EnqueueTimeListenerAdapter(Object delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public void onMessage(Message message, Session session) throws JMSException {
+		long enqueueTime = message.propertyExists(EnqueueTimeStamper.ENQUEUE_TIME_PROPERTY) ? message
+				.getLongProperty(EnqueueTimeStamper.ENQUEUE_TIME_PROPERTY) : 0;
+		MessageDeliveryContext.open(enqueueTime);
+		try {
+			super.onMessage(message, session);
+		} finally {
+			MessageDeliveryContext.close();
+		}
+	}
+}
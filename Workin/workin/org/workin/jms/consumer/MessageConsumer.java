@@ -1,7 +1,9 @@
 package org.workin.jms.consumer;
 
+import org.workin.jms.producer.MessageEnvelope;
 import org.workin.mail.MailPackage;
 import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.BehaviorRollup;
 import org.workin.trace.domain.StoredLog;
 
 
@@ -18,4 +20,8 @@ public interface MessageConsumer {
 	
 	public void receiveMessage(final StoredLog message);
 	
+	public void receiveMessage(final BehaviorRollup message);
+	
+	public void receiveMessage(final MessageEnvelope message);
+	
 }
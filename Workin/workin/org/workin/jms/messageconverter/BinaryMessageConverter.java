@@ -0,0 +1,178 @@
+package org.workin.jms.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.workin.jms.messageconverter.codec.MessageCodec;
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Write objects as BytesMessage, the body is type tag + codec version + fields written by the MessageCodec
+ * of the type. Unlike DefaultMessageConverter there is no Java serialization, neither of the object nor of a
+ * property map around it.
+ * 
+ * A MessageEnvelope is written as envelope tag + count + the tagged messages.
+ * 
+ * Registered per type in CoverterTemplate.converters.
+ * 
+ * eg.
+ * 
+ * 	<bean id="binaryMessageConverter" class="org.workin.jms.messageconverter.BinaryMessageConverter">
+ * 		<property name="codecs">
+ * 			<list>
+ * 				<bean class="org.workin.jms.messageconverter.codec.BehaviorPerformanceCodec" />
+ * 			</list>
+ * 		</property>
+ * 	</bean>
+ * 
+ * 	<bean id="messageConverterTemplate" class="org.workin.jms.messageconverter.CoverterTemplate">
+ * 		<property name="converters">
+ * 			<map>
+ * 				<entry key="org.workin.trace.domain.BehaviorPerformance" value-ref="binaryMessageConverter" />
+ * 			</map>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@SuppressWarnings("unchecked")
+public class BinaryMessageConverter implements MessageConverter {
+
+	private final Map<Class<?>, MessageCodec<?>> codecsByType = new HashMap<Class<?>, MessageCodec<?>>();
+
+	private final Map<Byte, MessageCodec<?>> codecsByTag = new HashMap<Byte, MessageCodec<?>>();
+
+	@Override
+	public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		try {
+			DataOutputStream out = new DataOutputStream(bos);
+			if (object instanceof MessageEnvelope) {
+				List<Serializable> messages = ((MessageEnvelope) object).getMessages();
+				out.writeByte(ENVELOPE_TAG);
+				out.writeInt(messages.size());
+				for (Serializable message : messages) {
+					encode(message, out, true);
+				}
+			} else {
+				encode(object, out, false);
+			}
+			out.flush();
+		} catch (IOException ex) {
+			throw new MessageConversionException("Cannot encode " + object.getClass().getName(), ex);
+		}
+
+		BytesMessage message = session.createBytesMessage();
+		message.writeBytes(bos.toByteArray());
+		return message;
+	}
+
+	@Override
+	public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+		if (!(message instanceof BytesMessage)) {
+			throw new MessageConversionException("Message:[" + message + "] is not BytesMessage");
+		}
+
+		BytesMessage bytesMessage = (BytesMessage) message;
+		byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+		bytesMessage.readBytes(body);
+
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+			byte tag = in.readByte();
+			if (tag != ENVELOPE_TAG) {
+				return decode(tag, in);
+			}
+
+			int size = in.readInt();
+			List<Serializable> messages = new ArrayList<Serializable>(size);
+			for (int i = 0; i < size; i++) {
+				messages.add((Serializable) decode(in.readByte(), in));
+			}
+			return new MessageEnvelope(messages);
+		} catch (IOException ex) {
+			throw new MessageConversionException("Cannot decode Message:[" + message + "]", ex);
+		} catch (ClassNotFoundException ex) {
+			throw new MessageConversionException("Cannot decode Message:[" + message + "]", ex);
+		}
+	}
+
+	/**
+	 * 
+	 * Write type tag, codec version and fields of object. Inside an envelope an object without codec is
+	 * Java serialized, so the envelope can carry any message the producer batches.
+	 * 
+	 */
+	private void encode(final Object object, final DataOutputStream out, final boolean inEnvelope) throws IOException {
+		MessageCodec<Object> codec = (MessageCodec<Object>) codecsByType.get(object.getClass());
+		if (codec != null) {
+			out.writeByte(codec.getTypeTag());
+			out.writeByte(codec.getVersion());
+			codec.encode(object, out);
+		} else if (inEnvelope) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(object);
+			oos.close();
+			out.writeByte(SERIALIZED_TAG);
+			out.writeInt(bos.size());
+			bos.writeTo(out);
+		} else {
+			throw new MessageConversionException("No MessageCodec registered for " + object.getClass().getName());
+		}
+	}
+
+	private Object decode(final byte tag, final DataInputStream in) throws IOException, ClassNotFoundException {
+		if (tag == SERIALIZED_TAG) {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+		}
+
+		MessageCodec<?> codec = codecsByTag.get(tag);
+		if (codec == null) {
+			throw new MessageConversionException("No MessageCodec registered for type tag " + tag);
+		}
+		return codec.decode(in, in.readByte());
+	}
+
+	public void setCodecs(List<MessageCodec<?>> codecs) {
+		codecsByType.clear();
+		codecsByTag.clear();
+		for (MessageCodec<?> codec : codecs) {
+			Assert.isTrue(codec.getTypeTag() != SERIALIZED_TAG && codec.getTypeTag() != ENVELOPE_TAG, "Type tag "
+					+ codec.getTypeTag() + " of MessageCodec " + codec.getClass().getName() + " is reserved");
+			Assert.isTrue(!codecsByTag.containsKey(codec.getTypeTag()), "Duplicate type tag "
+					+ codec.getTypeTag() + " of MessageCodec " + codec.getClass().getName());
+			codecsByType.put(codec.getType(), codec);
+			codecsByTag.put(codec.getTypeTag(), codec);
+		}
+	}
+
+	// Reserved type tags.
+	public static final byte SERIALIZED_TAG = 0;
+
+	public static final byte ENVELOPE_TAG = -1;
+
+	private static final int INITIAL_BUFFER_SIZE = 256;
+}
@@ -0,0 +1,75 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.workin.trace.domain.BehaviorPerformance;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BehaviorPerformanceCodec implements MessageCodec<BehaviorPerformance> {
+
+	@Override
+	public Class<BehaviorPerformance> getType() {
+		return BehaviorPerformance.class;
+	}
+
+	@Override
+	public byte getTypeTag() {
+		return TYPE_TAG;
+	}
+
+	@Override
+	public byte getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public void encode(final BehaviorPerformance object, final DataOutput out) throws IOException {
+		CodecSupport.writeIdEntity(out, object);
+		out.writeLong(object.getUserId());
+		out.writeLong(object.getSpentTime());
+		CodecSupport.writeString(out, object.getUserName());
+		CodecSupport.writeString(out, object.getRequestIp());
+		CodecSupport.writeString(out, object.getRequestURI());
+		CodecSupport.writeDate(out, object.getRequestdttm());
+		CodecSupport.writeDate(out, object.getResponsedttm());
+		out.writeInt(object.getStatementCount());
+		out.writeLong(object.getRowCount());
+		out.writeLong(object.getJdbcTime());
+		CodecSupport.writeString(out, object.getRepeatedStatement());
+		out.writeInt(object.getRepeatedStatementCount());
+		out.writeDouble(object.getSampleWeight());
+	}
+
+	@Override
+	public BehaviorPerformance decode(final DataInput in, final byte version) throws IOException {
+		BehaviorPerformance object = new BehaviorPerformance();
+		CodecSupport.readIdEntity(in, object);
+		object.setUserId(in.readLong());
+		object.setSpentTime(in.readLong());
+		object.setUserName(CodecSupport.readString(in));
+		object.setRequestIp(CodecSupport.readString(in));
+		object.setRequestURI(CodecSupport.readString(in));
+		object.setRequestdttm(CodecSupport.readDate(in));
+		object.setResponsedttm(CodecSupport.readDate(in));
+		object.setStatementCount(in.readInt());
+		object.setRowCount(in.readLong());
+		object.setJdbcTime(in.readLong());
+		object.setRepeatedStatement(CodecSupport.readString(in));
+		object.setRepeatedStatementCount(in.readInt());
+		if (version >= 2) {
+			object.setSampleWeight(in.readDouble());
+		}
+		return object;
+	}
+
+	public static final byte TYPE_TAG = 1;
+
+	// 2: sampleWeight
+	private static final byte VERSION = 2;
+}
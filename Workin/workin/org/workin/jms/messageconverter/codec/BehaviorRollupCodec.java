@@ -0,0 +1,68 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.workin.trace.domain.BehaviorRollup;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BehaviorRollupCodec implements MessageCodec<BehaviorRollup> {
+
+	@Override
+	public Class<BehaviorRollup> getType() {
+		return BehaviorRollup.class;
+	}
+
+	@Override
+	public byte getTypeTag() {
+		return TYPE_TAG;
+	}
+
+	@Override
+	public byte getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public void encode(final BehaviorRollup object, final DataOutput out) throws IOException {
+		CodecSupport.writeIdEntity(out, object);
+		CodecSupport.writeString(out, object.getRequestURI());
+		CodecSupport.writeString(out, object.getUserName());
+		CodecSupport.writeDate(out, object.getPeriodStart());
+		CodecSupport.writeDate(out, object.getPeriodEnd());
+		out.writeLong(object.getRequestCount());
+		out.writeLong(object.getTotalTime());
+		out.writeLong(object.getMinTime());
+		out.writeLong(object.getMaxTime());
+		out.writeLong(object.getP50Time());
+		out.writeLong(object.getP90Time());
+		out.writeLong(object.getP99Time());
+	}
+
+	@Override
+	public BehaviorRollup decode(final DataInput in, final byte version) throws IOException {
+		BehaviorRollup object = new BehaviorRollup();
+		CodecSupport.readIdEntity(in, object);
+		object.setRequestURI(CodecSupport.readString(in));
+		object.setUserName(CodecSupport.readString(in));
+		object.setPeriodStart(CodecSupport.readDate(in));
+		object.setPeriodEnd(CodecSupport.readDate(in));
+		object.setRequestCount(in.readLong());
+		object.setTotalTime(in.readLong());
+		object.setMinTime(in.readLong());
+		object.setMaxTime(in.readLong());
+		object.setP50Time(in.readLong());
+		object.setP90Time(in.readLong());
+		object.setP99Time(in.readLong());
+		return object;
+	}
+
+	public static final byte TYPE_TAG = 4;
+
+	private static final byte VERSION = 1;
+}
@@ -0,0 +1,97 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.workin.core.entity.IdEntity;
+
+/**
+ * 
+ * Writers and readers of nullable fields shared by the codecs.
+ * 
+ * Strings are written as length + UTF-8 bytes(-1 for null), since DataOutput.writeUTF is limited to 64K,
+ * dates as a presence flag + millis.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public abstract class CodecSupport {
+
+	public static void writeString(final DataOutput out, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(final DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	public static void writeDate(final DataOutput out, final Date value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.getTime());
+		}
+	}
+
+	public static Date readDate(final DataInput in) throws IOException {
+		return in.readBoolean() ? new Date(in.readLong()) : null;
+	}
+
+	public static void writeStrings(final DataOutput out, final List<String> values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	public static List<String> readStrings(final DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		List<String> values = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+
+	/**
+	 * 
+	 * Write id and version of IdEntity.
+	 * 
+	 */
+	public static void writeIdEntity(final DataOutput out, final IdEntity entity) throws IOException {
+		out.writeBoolean(entity.getId() != null);
+		if (entity.getId() != null) {
+			out.writeLong(entity.getId());
+		}
+		out.writeLong(entity.getVersion());
+	}
+
+	public static void readIdEntity(final DataInput in, final IdEntity entity) throws IOException {
+		entity.setId(in.readBoolean() ? Long.valueOf(in.readLong()) : null);
+		entity.setVersion(in.readLong());
+	}
+
+	private static final String UTF_8 = "UTF-8";
+}
@@ -0,0 +1,56 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.workin.mail.MailPackage;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MailPackageCodec implements MessageCodec<MailPackage> {
+
+	@Override
+	public Class<MailPackage> getType() {
+		return MailPackage.class;
+	}
+
+	@Override
+	public byte getTypeTag() {
+		return TYPE_TAG;
+	}
+
+	@Override
+	public byte getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public void encode(final MailPackage object, final DataOutput out) throws IOException {
+		CodecSupport.writeString(out, object.getSayHelloTo());
+		CodecSupport.writeString(out, object.getMailFrom());
+		CodecSupport.writeString(out, object.getMailSubject());
+		CodecSupport.writeStrings(out, object.getMailTo());
+		CodecSupport.writeStrings(out, object.getMailCCTo());
+		CodecSupport.writeStrings(out, object.getMailBCCTo());
+	}
+
+	@Override
+	public MailPackage decode(final DataInput in, final byte version) throws IOException {
+		MailPackage object = new MailPackage();
+		object.setSayHelloTo(CodecSupport.readString(in));
+		object.setMailFrom(CodecSupport.readString(in));
+		object.setMailSubject(CodecSupport.readString(in));
+		object.setMailTo(CodecSupport.readStrings(in));
+		object.setMailCCTo(CodecSupport.readStrings(in));
+		object.setMailBCCTo(CodecSupport.readStrings(in));
+		return object;
+	}
+
+	public static final byte TYPE_TAG = 3;
+
+	private static final byte VERSION = 1;
+}
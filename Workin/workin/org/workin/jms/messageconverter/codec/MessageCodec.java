@@ -0,0 +1,69 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 
+ * Binary field codec of one message type, used by BinaryMessageConverter.
+ * 
+ * Fields are written in a fixed order, without names. Adding a field means a new version: write it after
+ * the existing fields, and read it in decode only when the version of the payload is high enough, so
+ * messages still queued by older senders are readable.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface MessageCodec<T> {
+
+	/**
+	 * 
+	 * Type of the encoded objects.
+	 * 
+	 * @return Class<T>
+	 * 
+	 */
+	public Class<T> getType();
+
+	/**
+	 * 
+	 * Tag written before the payload, unique between the codecs of one BinaryMessageConverter.
+	 * 
+	 * @return byte
+	 * 
+	 */
+	public byte getTypeTag();
+
+	/**
+	 * 
+	 * Version of the payload written by encode.
+	 * 
+	 * @return byte
+	 * 
+	 */
+	public byte getVersion();
+
+	/**
+	 * 
+	 * Write the fields of object.
+	 * 
+	 * @param object
+	 * @param out
+	 * @throws IOException
+	 * 
+	 */
+	public void encode(final T object, final DataOutput out) throws IOException;
+
+	/**
+	 * 
+	 * Read an object written by encode of the given version.
+	 * 
+	 * @param in
+	 * @param version
+	 * @return T
+	 * @throws IOException
+	 * 
+	 */
+	public T decode(final DataInput in, final byte version) throws IOException;
+}
@@ -0,0 +1,56 @@
+package org.workin.jms.messageconverter.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.workin.trace.domain.StoredLog;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class StoredLogCodec implements MessageCodec<StoredLog> {
+
+	@Override
+	public Class<StoredLog> getType() {
+		return StoredLog.class;
+	}
+
+	@Override
+	public byte getTypeTag() {
+		return TYPE_TAG;
+	}
+
+	@Override
+	public byte getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public void encode(final StoredLog object, final DataOutput out) throws IOException {
+		CodecSupport.writeIdEntity(out, object);
+		CodecSupport.writeDate(out, object.getLogdttm());
+		CodecSupport.writeString(out, object.getLogLevel());
+		CodecSupport.writeString(out, object.getWhereClass());
+		CodecSupport.writeString(out, object.getUserMessage());
+		CodecSupport.writeString(out, object.getThrowAbleMessage());
+	}
+
+	@Override
+	public StoredLog decode(final DataInput in, final byte version) throws IOException {
+		StoredLog object = new StoredLog();
+		CodecSupport.readIdEntity(in, object);
+		object.setLogdttm(CodecSupport.readDate(in));
+		object.setLogLevel(CodecSupport.readString(in));
+		object.setWhereClass(CodecSupport.readString(in));
+		object.setUserMessage(CodecSupport.readString(in));
+		object.setThrowAbleMessage(CodecSupport.readString(in));
+		return object;
+	}
+
+	public static final byte TYPE_TAG = 2;
+
+	private static final byte VERSION = 1;
+}
@@ -0,0 +1,231 @@
+package org.workin.jms.producer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Destination;
+
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Producer which buffers messages per destination and sends them as one MessageEnvelope, once batchSize
+ * messages are buffered or at the latest after maxLatencyMillis.
+ * 
+ * Buffering is lock-free(ConcurrentLinkedQueue), the thread that fills a batch sends it, the flush thread
+ * sends what is left every maxLatencyMillis. A batch of one message is sent without envelope.
+ * 
+ * Each buffered message keeps the time it was handed to sendMessage, an envelope is stamped with the
+ * oldest of its messages, so the end-to-end latency includes the time spent in the buffer.
+ * 
+ * Messages are only in memory until sent. A failed send goes to the messageSpool if configured, else it is
+ * logged and counted in droppedCount, it is not thrown to the caller.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BatchingMessageProducer extends MessageProducerTemplate {
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private long maxLatencyMillis = DEFAULT_MAX_LATENCY_MILLIS;
+
+	private final ConcurrentMap<Destination, Buffer> buffers = new ConcurrentHashMap<Destination, Buffer>();
+
+	private final AtomicLong sentMessageCount = new AtomicLong();
+
+	private final AtomicLong sentEnvelopeCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private ScheduledExecutorService flushExecutor;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (Throwable ex) {
+				logger.error("Hit Exception, When execute BatchingMessageProducer.flush()", ex);
+			}
+		}
+	};
+
+	/**
+	 * 
+	 * Start the flush thread.
+	 * 
+	 */
+	public void start() {
+		flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "BatchingMessageProducer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flushExecutor.scheduleWithFixedDelay(flushTask, maxLatencyMillis, maxLatencyMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 
+	 * Stop the flush thread and send the buffered messages.
+	 * 
+	 */
+	public void stop() {
+		if (flushExecutor != null) {
+			flushExecutor.shutdown();
+			try {
+				flushExecutor.awaitTermination(maxLatencyMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			flushExecutor = null;
+		}
+		flush();
+	}
+
+	@Override
+	protected void sendMessage(Destination destination, Serializable[] targetObject, long enqueueTime) {
+		Assert.notNull(targetObject, "targetObject cannot be null! When execute sendMessage(...).");
+
+		Buffer buffer = getBuffer(destination);
+		for (Serializable target : targetObject) {
+			buffer.messages.add(new BufferedMessage(target, enqueueTime));
+			if (buffer.size.incrementAndGet() >= batchSize) {
+				send(destination, buffer);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Send all buffered messages.
+	 * 
+	 */
+	public void flush() {
+		for (Map.Entry<Destination, Buffer> entry : buffers.entrySet()) {
+			while (entry.getValue().size.get() > 0) {
+				if (send(entry.getKey(), entry.getValue()) == 0) {
+					break;
+				}
+			}
+		}
+	}
+
+	public long getSentMessageCount() {
+		return sentMessageCount.get();
+	}
+
+	public long getSentEnvelopeCount() {
+		return sentEnvelopeCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * 
+	 * Send up to batchSize messages of buffer.
+	 * 
+	 * @return count of messages taken from buffer
+	 * 
+	 */
+	private int send(final Destination destination, final Buffer buffer) {
+		List<Serializable> batch = new ArrayList<Serializable>(batchSize);
+		long enqueueTime = Long.MAX_VALUE;
+		BufferedMessage message;
+		while (batch.size() < batchSize && (message = buffer.messages.poll()) != null) {
+			batch.add(message.payload);
+			enqueueTime = Math.min(enqueueTime, message.enqueueTime);
+		}
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		buffer.size.addAndGet(-batch.size());
+
+		try {
+			if (batch.size() == 1) {
+				send(destination, batch.get(0), enqueueTime);
+			} else {
+				send(destination, new MessageEnvelope(batch), enqueueTime);
+				sentEnvelopeCount.incrementAndGet();
+			}
+			sentMessageCount.addAndGet(batch.size());
+		} catch (Exception ex) {
+			droppedCount.addAndGet(batch.size());
+			logger.error("Hit Exception, When execute BatchingMessageProducer.send(...), dropped " + batch.size()
+					+ " messages.", ex);
+		}
+		return batch.size();
+	}
+
+	private Buffer getBuffer(final Destination destination) {
+		Buffer buffer = buffers.get(destination);
+		if (buffer == null) {
+			Buffer created = new Buffer();
+			buffer = buffers.putIfAbsent(destination, created);
+			if (buffer == null) {
+				buffer = created;
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * 
+	 * Buffered messages of one destination, size is kept aside since ConcurrentLinkedQueue.size() is O(n).
+	 * 
+	 */
+	private static final class Buffer {
+
+		private final Queue<BufferedMessage> messages = new ConcurrentLinkedQueue<BufferedMessage>();
+
+		private final AtomicInteger size = new AtomicInteger();
+	}
+
+	/**
+	 * 
+	 * Buffered message, with the time it was handed to sendMessage.
+	 * 
+	 */
+	private static final class BufferedMessage {
+
+		private final Serializable payload;
+
+		private final long enqueueTime;
+
+		BufferedMessage(Serializable payload, long enqueueTime) {
+			this.payload = payload;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive.");
+		this.batchSize = batchSize;
+	}
+
+	public void setMaxLatencyMillis(long maxLatencyMillis) {
+		Assert.isTrue(maxLatencyMillis > 0, "maxLatencyMillis must be positive.");
+		this.maxLatencyMillis = maxLatencyMillis;
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	public static final long DEFAULT_MAX_LATENCY_MILLIS = 200;
+}
@@ -15,12 +15,12 @@ import org.workin.util.Assert;
 public class DefaultMessageProducer extends MessageProducerTemplate {
 
 	@Override
-	public void sendMessage(Destination destination, Serializable... targetObject) {
+	protected void sendMessage(Destination destination, Serializable[] targetObject, long enqueueTime) {
 		Assert.notNull(targetObject, "targetObject cannot be null! When execute sendMessage(...).");
 
 		for (Serializable target : targetObject) {
 			try {
-				jmsTemplate.convertAndSend(destination, target);
+				send(destination, target, enqueueTime);
 			} catch (Exception ex) {
 				ThrowableHandler.handleThrow("Hit Exception, When execute DefaultMessageProducer.sendMessage(...).", ex, logger);
 			}
@@ -0,0 +1,295 @@
+package org.workin.jms.producer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.jms.consumer.MessageConsumer;
+import org.workin.jms.support.MessageDeliveryContext;
+import org.workin.jms.support.RingBuffer;
+import org.workin.mail.MailPackage;
+import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.BehaviorRollup;
+import org.workin.trace.domain.StoredLog;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * In-JVM producer for the default deployment, where producer, embedded broker and consumer live in one JVM.
+ * 
+ * Queue messages are published to a bounded RingBuffer and delivered to the MessageConsumer by consumerThreads
+ * worker threads, without JMS conversion and broker dispatch. Messages go to fallbackProducer(JMS) when:
+ * 
+ * 	1) remoteConsumers is true, the queue is consumed by other JVMs.
+ * 	2) The ring is full, or the producer is stopped.
+ * 	3) They are sent to the topic, or MessageConsumer has no receiveMessage for their type.
+ * 
+ * Locally delivered messages are not copied, do not change them after sending. Messages still in the ring
+ * when the JVM dies are lost, as with a non persistent JMS delivery.
+ * 
+ * Messages keep the time they were handed to sendQueue, also when they go to a MessageProducerTemplate
+ * fallbackProducer later.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class LocalMessageProducer implements MessageProducer {
+
+	private MessageConsumer messageConsumer;
+
+	private MessageProducer fallbackProducer;
+
+	private boolean remoteConsumers;
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	private int consumerThreads = DEFAULT_CONSUMER_THREADS;
+
+	private long idleParkMicros = DEFAULT_IDLE_PARK_MICROS;
+
+	private long maxIdleParkMicros = DEFAULT_MAX_IDLE_PARK_MICROS;
+
+	private RingBuffer<LocalMessage> ring;
+
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private volatile boolean running;
+
+	private final AtomicLong localCount = new AtomicLong();
+
+	private final AtomicLong fallbackCount = new AtomicLong();
+
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * 
+	 * Start the consumer threads, unless the queue is consumed remotely.
+	 * 
+	 */
+	public void start() {
+		Assert.notNull(fallbackProducer, "fallbackProducer is required");
+		if (remoteConsumers) {
+			logger.info("LocalMessageProducer sends all messages by JMS, remoteConsumers is on.");
+			return;
+		}
+		Assert.notNull(messageConsumer, "messageConsumer is required");
+
+		ring = new RingBuffer<LocalMessage>(capacity);
+		running = true;
+		for (int i = 0; i < consumerThreads; i++) {
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					consume();
+				}
+			}, "LocalMessageConsumer-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+	}
+
+	/**
+	 * 
+	 * Stop taking new messages, deliver the messages in the ring, then stop the consumer threads.
+	 * 
+	 */
+	public void stop() {
+		running = false;
+		for (Thread worker : workers) {
+			LockSupport.unpark(worker);
+			try {
+				worker.join(TimeUnit.SECONDS.toMillis(STOP_TIMEOUT_SECONDS));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		workers.clear();
+
+		if (ring != null) {
+			drainToFallback();
+		}
+	}
+
+	@Override
+	public void sendQueue(Serializable... targetObject) {
+		Assert.notNull(targetObject, "targetObject cannot be null! When execute sendQueue(...).");
+
+		long enqueueTime = System.currentTimeMillis();
+		for (Serializable target : targetObject) {
+			if (running && isLocallyDeliverable(target) && ring.offer(new LocalMessage(target, enqueueTime))) {
+				localCount.incrementAndGet();
+				// stop() may have drained the ring between the running check and the offer.
+				if (!running) {
+					drainToFallback();
+				}
+			} else {
+				fallbackCount.incrementAndGet();
+				sendFallback(target, enqueueTime);
+			}
+		}
+	}
+
+	@Override
+	public void sendTopic(Serializable... targetObject) {
+		fallbackProducer.sendTopic(targetObject);
+	}
+
+	public long getLocalCount() {
+		return localCount.get();
+	}
+
+	public long getFallbackCount() {
+		return fallbackCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public int getPendingCount() {
+		return ring == null ? 0 : ring.size();
+	}
+
+	public int getCapacity() {
+		return ring == null ? capacity : ring.getCapacity();
+	}
+
+	/**
+	 * 
+	 * Idle workers park idleParkMicros, doubled on each empty poll up to maxIdleParkMicros.
+	 * 
+	 */
+	private void consume() {
+		long minParkNanos = TimeUnit.MICROSECONDS.toNanos(idleParkMicros);
+		long maxParkNanos = Math.max(minParkNanos, TimeUnit.MICROSECONDS.toNanos(maxIdleParkMicros));
+		long parkNanos = minParkNanos;
+		while (true) {
+			LocalMessage message = ring.poll();
+			if (message == null) {
+				if (!running) {
+					return;
+				}
+				LockSupport.parkNanos(parkNanos);
+				parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+				continue;
+			}
+			parkNanos = minParkNanos;
+
+			MessageDeliveryContext.open(message.enqueueTime);
+			try {
+				deliver(message.payload);
+			} catch (Exception ex) {
+				// DefaultMessageConsumer logs and rethrows, there is no redelivery here.
+				failedCount.incrementAndGet();
+				logger.debug("LocalMessageProducer failed to deliver {}", message.payload.getClass().getName());
+			} finally {
+				MessageDeliveryContext.close();
+			}
+		}
+	}
+
+	private void deliver(final Serializable message) {
+		if (message instanceof BehaviorPerformance) {
+			messageConsumer.receiveMessage((BehaviorPerformance) message);
+		} else if (message instanceof StoredLog) {
+			messageConsumer.receiveMessage((StoredLog) message);
+		} else if (message instanceof BehaviorRollup) {
+			messageConsumer.receiveMessage((BehaviorRollup) message);
+		} else if (message instanceof MailPackage) {
+			messageConsumer.receiveMessage((MailPackage) message);
+		} else {
+			messageConsumer.receiveMessage((MessageEnvelope) message);
+		}
+	}
+
+	/**
+	 * 
+	 * Hand the messages left in the ring to fallbackProducer, once the producer is stopped. Called by stop()
+	 * and by senders which published after stop() drained, each message is polled by one of them only.
+	 * 
+	 */
+	private void drainToFallback() {
+		LocalMessage message;
+		while ((message = ring.poll()) != null) {
+			sendFallback(message.payload, message.enqueueTime);
+		}
+	}
+
+	private void sendFallback(final Serializable message, final long enqueueTime) {
+		if (fallbackProducer instanceof MessageProducerTemplate) {
+			((MessageProducerTemplate) fallbackProducer).sendQueue(new Serializable[] { message }, enqueueTime);
+		} else {
+			fallbackProducer.sendQueue(message);
+		}
+	}
+
+	private boolean isLocallyDeliverable(final Serializable message) {
+		return message instanceof BehaviorPerformance || message instanceof StoredLog
+				|| message instanceof BehaviorRollup || message instanceof MailPackage
+				|| message instanceof MessageEnvelope;
+	}
+
+	/**
+	 * 
+	 * Message in the ring, with the time it was sent.
+	 * 
+	 */
+	private static final class LocalMessage {
+
+		private final Serializable payload;
+
+		private final long enqueueTime;
+
+		LocalMessage(Serializable payload, long enqueueTime) {
+			this.payload = payload;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+
+	public void setMessageConsumer(MessageConsumer messageConsumer) {
+		this.messageConsumer = messageConsumer;
+	}
+
+	public void setFallbackProducer(MessageProducer fallbackProducer) {
+		this.fallbackProducer = fallbackProducer;
+	}
+
+	public void setRemoteConsumers(boolean remoteConsumers) {
+		this.remoteConsumers = remoteConsumers;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public void setConsumerThreads(int consumerThreads) {
+		this.consumerThreads = consumerThreads;
+	}
+
+	public void setIdleParkMicros(long idleParkMicros) {
+		this.idleParkMicros = idleParkMicros;
+	}
+
+	public void setMaxIdleParkMicros(long maxIdleParkMicros) {
+		this.maxIdleParkMicros = maxIdleParkMicros;
+	}
+
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	public static final int DEFAULT_CONSUMER_THREADS = 4;
+
+	public static final long DEFAULT_IDLE_PARK_MICROS = 1000;
+
+	public static final long DEFAULT_MAX_IDLE_PARK_MICROS = 50000;
+
+	private static final long STOP_TIMEOUT_SECONDS = 10;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(LocalMessageProducer.class);
+}
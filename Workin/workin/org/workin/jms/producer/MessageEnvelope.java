@@ -0,0 +1,31 @@
+package org.workin.jms.producer;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 
+ * Several messages of one destination sent as one JMS message, see BatchingMessageProducer. The consumer
+ * unpacks the envelope and handles the messages in order.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessageEnvelope implements Serializable {
+
+	private static final long serialVersionUID = 4617523364291908517L;
+
+	private final List<Serializable> messages;
+
+	public MessageEnvelope(List<Serializable> messages) {
+		this.messages = messages;
+	}
+
+	public List<Serializable> getMessages() {
+		return messages;
+	}
+
+	public int size() {
+		return messages.size();
+	}
+}
@@ -8,6 +8,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.core.JmsTemplate;
+import org.workin.jms.support.DestinationRouter;
+import org.workin.jms.support.EnqueueTimeStamper;
+import org.workin.jms.support.MessageSpool;
 
 /**
  * 
@@ -18,15 +21,87 @@ public abstract class MessageProducerTemplate implements MessageProducer {
 	
 	@Override
 	public void sendQueue(Serializable... targetObject) {
-		sendMessage(notifyQueue, targetObject);
+		sendQueue(targetObject, System.currentTimeMillis());
+	}
+
+	/**
+	 * 
+	 * Send targetObject to the queue, stamped with enqueueTime instead of now. For producers which hand on
+	 * messages they took earlier(eg. LocalMessageProducer).
+	 * 
+	 * @param targetObject
+	 * @param enqueueTime
+	 * 			- milliseconds, as System.currentTimeMillis()
+	 * 
+	 */
+	public void sendQueue(Serializable[] targetObject, long enqueueTime) {
+		if (destinationRouter == null) {
+			sendMessage(notifyQueue, targetObject, enqueueTime);
+			return;
+		}
+		for (Serializable target : targetObject) {
+			sendMessage(destinationRouter.resolve(target), new Serializable[] { target }, enqueueTime);
+		}
 	}
 
 	@Override
 	public void sendTopic(Serializable... targetObject) {
-		sendMessage(notifyTopic, targetObject);
+		sendMessage(notifyTopic, targetObject, System.currentTimeMillis());
+	}
+	
+	public void sendMessage(final Destination destination, final Serializable... targetObject) {
+		sendMessage(destination, targetObject, System.currentTimeMillis());
 	}
 	
-	public abstract void sendMessage(final Destination destination, final Serializable... targetObject);
+	/**
+	 * 
+	 * Send targetObject to destination.
+	 * 
+	 * @param destination
+	 * @param targetObject
+	 * @param enqueueTime
+	 * 			- milliseconds, the time the messages were handed to the producer
+	 * 
+	 */
+	protected abstract void sendMessage(final Destination destination, final Serializable[] targetObject,
+			final long enqueueTime);
+	
+	/**
+	 * 
+	 * Send target to destination, stamped with enqueueTime(see EnqueueTimeStamper). With messageSpool, target is spooled instead when the send fails, and
+	 * while the spool diverts(messages already spooled, broker recently failed or slow). Permanent failures
+	 * (see MessageSpool.isTransient) are thrown, retrying them would only block the spool.
+	 * 
+	 * @param destination
+	 * @param target
+	 * @param enqueueTime
+	 * 			- milliseconds, the time target was handed to the producer
+	 * 
+	 */
+	protected void send(final Destination destination, final Serializable target, final long enqueueTime) {
+		if (messageSpool == null) {
+			jmsTemplate.convertAndSend(destination, target, new EnqueueTimeStamper(enqueueTime));
+			return;
+		}
+		if (messageSpool.isDiverting()) {
+			messageSpool.append(destination == notifyTopic, target, enqueueTime);
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			jmsTemplate.convertAndSend(destination, target, new EnqueueTimeStamper(enqueueTime));
+		} catch (RuntimeException ex) {
+			if (!MessageSpool.isTransient(ex)) {
+				throw ex;
+			}
+			logger.warn("JMS send failed, spooling message: {}", ex.getMessage());
+			messageSpool.recordFailure();
+			messageSpool.append(destination == notifyTopic, target, enqueueTime);
+			return;
+		}
+		messageSpool.recordSend(System.nanoTime() - start);
+	}
 	
 	// use spring jmsTemplate
 	@Autowired
@@ -40,6 +115,20 @@ public abstract class MessageProducerTemplate implements MessageProducer {
 	@Autowired
 	protected Destination notifyTopic;
 	
+	// Queue per payload class, notifyQueue for all if not configured.
+	protected DestinationRouter destinationRouter;
+	
+	public void setDestinationRouter(DestinationRouter destinationRouter) {
+		this.destinationRouter = destinationRouter;
+	}
+
+	// Spool of the messages the broker did not take, optional.
+	protected MessageSpool messageSpool;
+	
+	public void setMessageSpool(MessageSpool messageSpool) {
+		this.messageSpool = messageSpool;
+	}
+
 	public void setJmsTemplate(JmsTemplate jmsTemplate) {
 		this.jmsTemplate = jmsTemplate;
 	}
@@ -0,0 +1,98 @@
+package org.workin.jms.support;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.Destination;
+
+import org.workin.jms.producer.MessageEnvelope;
+import org.workin.util.ClassUtils;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * Queue of each payload class, so every message type has its own destination and listener container, and a
+ * slow consumer of one type(eg. SMTP of MailPackage) does not hold the consumer threads of the others.
+ * 
+ * A class without own destination uses the destination of its nearest registered superclass, then
+ * defaultDestination. A MessageEnvelope goes to the destination of its first message, a batch only holds
+ * messages of one destination.
+ * 
+ * eg.
+ * 
+ * 	<bean id="destinationRouter" class="org.workin.jms.support.DestinationRouter">
+ * 		<property name="defaultDestination" ref="notifyQueue" />
+ * 		<property name="typeDestinations">
+ * 			<map>
+ * 				<entry key="org.workin.mail.MailPackage" value-ref="mailQueue" />
+ * 			</map>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class DestinationRouter {
+
+	private Destination defaultDestination;
+
+	private Map<Class<?>, Destination> typeDestinations = Collections.emptyMap();
+
+	/**
+	 * 
+	 * Get the destination of message.
+	 * 
+	 * @param message
+	 * @return Destination
+	 * 
+	 */
+	public Destination resolve(final Serializable message) {
+		Serializable routed = message;
+		if (message instanceof MessageEnvelope) {
+			List<Serializable> messages = ((MessageEnvelope) message).getMessages();
+			if (messages.isEmpty()) {
+				return defaultDestination;
+			}
+			routed = messages.get(0);
+		}
+
+		for (Class<?> type = routed.getClass(); type != null; type = type.getSuperclass()) {
+			Destination destination = typeDestinations.get(type);
+			if (destination != null) {
+				return destination;
+			}
+		}
+		return defaultDestination;
+	}
+
+	public Destination getDefaultDestination() {
+		return defaultDestination;
+	}
+
+	public void setDefaultDestination(Destination defaultDestination) {
+		this.defaultDestination = defaultDestination;
+	}
+
+	/**
+	 * 
+	 * @param typeDestinations
+	 * 			- payload class name -> destination
+	 * 
+	 */
+	public void setTypeDestinations(Map<String, Destination> typeDestinations) {
+		Map<Class<?>, Destination> destinations = new HashMap<Class<?>, Destination>();
+		if (!CollectionUtils.isEmpty(typeDestinations)) {
+			for (Map.Entry<String, Destination> entry : typeDestinations.entrySet()) {
+				try {
+					destinations.put(ClassUtils.forName(entry.getKey()), entry.getValue());
+				} catch (ClassNotFoundException ex) {
+					throw new IllegalArgumentException("Cannot find payload class " + entry.getKey(), ex);
+				}
+			}
+		}
+		this.typeDestinations = destinations;
+	}
+}
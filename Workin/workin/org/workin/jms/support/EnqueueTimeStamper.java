@@ -0,0 +1,37 @@
+package org.workin.jms.support;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.jms.core.MessagePostProcessor;
+
+/**
+ * 
+ * Stamp the time the message was handed to the producer on the JMS message, read by
+ * EnqueueTimeListenerAdapter for the end-to-end latency of MessagePipelineMetrics.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class EnqueueTimeStamper implements MessagePostProcessor {
+
+	private final long enqueueTime;
+
+	/**
+	 * 
+	 * @param enqueueTime
+	 * 			- milliseconds, as System.currentTimeMillis()
+	 * 
+	 */
+	public EnqueueTimeStamper(long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}
+
+	@Override
+	public Message postProcessMessage(Message message) throws JMSException {
+		message.setLongProperty(ENQUEUE_TIME_PROPERTY, enqueueTime);
+		return message;
+	}
+
+	public static final String ENQUEUE_TIME_PROPERTY = "workin-enqueue-time";
+}
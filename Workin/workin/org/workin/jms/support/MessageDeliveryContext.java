@@ -0,0 +1,67 @@
+package org.workin.jms.support;
+
+import org.workin.core.context.ExtenalContext;
+import org.workin.core.context.ThreadLocalContext;
+
+/**
+ * 
+ * Enqueue time of the message being delivered on the current thread, set by the delivering side
+ * (EnqueueTimeListenerAdapter, LocalMessageProducer) and read by the consumer for its metrics.
+ * 
+ * eg.
+ * 
+ * 	MessageDeliveryContext.open(enqueueTime);
+ * 	try {
+ * 		messageConsumer.receiveMessage(message);
+ * 	} finally {
+ * 		MessageDeliveryContext.close();
+ * 	}
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class MessageDeliveryContext {
+
+	private final long enqueueTime;
+
+	private MessageDeliveryContext(long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}
+
+	/**
+	 * 
+	 * Open the delivery of a message on the current thread.
+	 * 
+	 * @param enqueueTime
+	 * 			- milliseconds, as System.currentTimeMillis()
+	 * 
+	 */
+	public static void open(final long enqueueTime) {
+		context.setAttribute(CONTEXT_KEY, new MessageDeliveryContext(enqueueTime));
+	}
+
+	/**
+	 * 
+	 * Close the delivery opened by open().
+	 * 
+	 */
+	public static void close() {
+		context.removeAttribute(CONTEXT_KEY);
+	}
+
+	/**
+	 * 
+	 * Get the enqueue time of the message delivered on the current thread.
+	 * 
+	 * @return milliseconds, or 0 if unknown
+	 * 
+	 */
+	public static long getEnqueueTime() {
+		MessageDeliveryContext delivery = (MessageDeliveryContext) context.getAttribute(CONTEXT_KEY);
+		return delivery == null ? 0 : delivery.enqueueTime;
+	}
+
+	private static final String CONTEXT_KEY = MessageDeliveryContext.class.getName();
+
+	private static final ExtenalContext context = new ThreadLocalContext();
+}
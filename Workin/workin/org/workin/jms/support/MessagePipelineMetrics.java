@@ -0,0 +1,174 @@
+package org.workin.jms.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.RegionBroker;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.workin.core.persistence.jdbc.LatencyHistogram;
+
+/**
+ * 
+ * Metrics of the message pipeline, recorded by the consumer per message type:
+ * 
+ * 	1) processed and failed counts, throughput since the last reset.
+ * 	2) processing latency, time spent in the consumer.
+ * 	3) end-to-end latency, from sendQueue of the producer(see EnqueueTimeStamper) to the end of processing.
+ * 
+ * Latencies go to LatencyHistogram, recording is a few atomic increments. The queue depths are read from
+ * the embedded broker(brokerService) when asked, they are unknown with a remote broker.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessagePipelineMetrics implements MessagePipelineMetricsMBean {
+
+	private BrokerService brokerService;
+
+	private final ConcurrentMap<String, TypeStatistics> types = new ConcurrentHashMap<String, TypeStatistics>();
+
+	private volatile long resetTime = System.currentTimeMillis();
+
+	/**
+	 * 
+	 * Record a processed message, the enqueue time is taken from MessageDeliveryContext.
+	 * 
+	 * @param type
+	 * 			- message class
+	 * @param startNanos
+	 * 			- System.nanoTime() when processing started
+	 * @param failed
+	 * 
+	 */
+	public void record(final Class<?> type, final long startNanos, final boolean failed) {
+		TypeStatistics statistics = getTypeStatistics(type.getName());
+		statistics.processing.record(System.nanoTime() - startNanos);
+		long enqueueTime = MessageDeliveryContext.getEnqueueTime();
+		if (enqueueTime > 0) {
+			long endToEndMillis = Math.max(0, System.currentTimeMillis() - enqueueTime);
+			statistics.endToEnd.record(TimeUnit.MILLISECONDS.toNanos(endToEndMillis));
+		}
+		if (failed) {
+			statistics.failed.incrementAndGet();
+		}
+	}
+
+	@Override
+	public long getProcessedCount() {
+		long count = 0;
+		for (TypeStatistics statistics : types.values()) {
+			count += statistics.processing.getCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getFailedCount() {
+		long count = 0;
+		for (TypeStatistics statistics : types.values()) {
+			count += statistics.failed.get();
+		}
+		return count;
+	}
+
+	@Override
+	public String[] typeStatistics() {
+		double seconds = Math.max(1, System.currentTimeMillis() - resetTime) / 1000.0;
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, TypeStatistics> entry : new TreeMap<String, TypeStatistics>(types).entrySet()) {
+			TypeStatistics statistics = entry.getValue();
+			long count = statistics.processing.getCount();
+			lines.add(entry.getKey() + TAB + count + TAB + statistics.failed.get() + TAB
+					+ String.format("%.1f", count / seconds) + TAB + statistics.processing.getPercentileMicros(0.5)
+					+ TAB + statistics.processing.getPercentileMicros(0.99) + TAB
+					+ statistics.endToEnd.getPercentileMicros(0.5) / 1000 + TAB
+					+ statistics.endToEnd.getPercentileMicros(0.99) / 1000);
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	@Override
+	public String[] queueDepths() {
+		Map<String, Long> depths = getQueueDepths();
+		List<String> lines = new ArrayList<String>(depths.size());
+		for (Map.Entry<String, Long> entry : depths.entrySet()) {
+			lines.add(entry.getKey() + ": " + entry.getValue());
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * 
+	 * Get the pending messages of each queue of the embedded broker.
+	 * 
+	 * @return queue name -> depth, empty without embedded broker
+	 * 
+	 */
+	public Map<String, Long> getQueueDepths() {
+		Map<String, Long> depths = new TreeMap<String, Long>();
+		if (brokerService == null) {
+			return depths;
+		}
+		Broker broker = brokerService.getRegionBroker();
+		if (!(broker instanceof RegionBroker)) {
+			return depths;
+		}
+		for (Map.Entry<ActiveMQDestination, Destination> entry : ((RegionBroker) broker).getDestinationMap()
+				.entrySet()) {
+			if (entry.getKey().isQueue()) {
+				depths.put(entry.getKey().getPhysicalName(), entry.getValue().getDestinationStatistics()
+						.getMessages().getCount());
+			}
+		}
+		return depths;
+	}
+
+	@Override
+	public void reset() {
+		types.clear();
+		resetTime = System.currentTimeMillis();
+	}
+
+	private TypeStatistics getTypeStatistics(final String type) {
+		TypeStatistics statistics = types.get(type);
+		if (statistics == null) {
+			TypeStatistics created = new TypeStatistics();
+			statistics = types.putIfAbsent(type, created);
+			if (statistics == null) {
+				statistics = created;
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * 
+	 * Statistics of one message type.
+	 * 
+	 */
+	private static final class TypeStatistics {
+
+		private final LatencyHistogram processing = new LatencyHistogram();
+
+		private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+		private final AtomicLong failed = new AtomicLong();
+	}
+
+	public void setBrokerService(BrokerService brokerService) {
+		this.brokerService = brokerService;
+	}
+
+	public static final String HEADER = "type\tcount\tfailed\tperSecond\tp50Micros\tp99Micros\tendToEndP50Millis\tendToEndP99Millis";
+
+	private static final String TAB = "\t";
+}
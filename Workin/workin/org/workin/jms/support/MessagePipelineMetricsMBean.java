@@ -0,0 +1,35 @@
+package org.workin.jms.support;
+
+/**
+ * 
+ * JMX view of MessagePipelineMetrics.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface MessagePipelineMetricsMBean {
+
+	public long getProcessedCount();
+
+	public long getFailedCount();
+
+	/**
+	 * 
+	 * Get the statistics of each message type, one tab separated line per type(see HEADER).
+	 * 
+	 * @return String[]
+	 * 
+	 */
+	public String[] typeStatistics();
+
+	/**
+	 * 
+	 * Get the pending messages of each queue of the embedded broker, "queue: depth" per line.
+	 * 
+	 * @return String[]
+	 * 
+	 */
+	public String[] queueDepths();
+
+	public void reset();
+}
@@ -0,0 +1,545 @@
+package org.workin.jms.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.InvalidDestinationException;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.MessageFormatException;
+import org.springframework.jms.MessageNotWriteableException;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Local append-only spool of messages which could not be sent to the broker, see
+ * MessageProducerTemplate.send and MessageSpoolReplayer.
+ * 
+ * The spool is a journal of memory-mapped segment files(segmentSize bytes each) in directory. A segment
+ * starts with a header holding its read position, followed by records:
+ * 
+ * 	[int length][byte destination kind][long enqueue time][length bytes, Java serialized message]
+ * 
+ * A zero length ends the records of a segment. Appends go to the last segment and roll over to a new one
+ * when it is full. The replayer reads from the first segment and deletes it once read. The read position
+ * is stored in the mapped header after every replayed record, so a restart neither loses nor repeats
+ * more than the record in flight.
+ * 
+ * Disk usage is bounded by segmentSize * maxSegments: rolling over beyond maxSegments deletes the oldest
+ * segment(drop-oldest), its unread records are counted in droppedSegmentCount.
+ * 
+ * While records are spooled or for slowCooldownMillis after a failed or too slow(latencyBudgetMillis) send,
+ * isDiverting() is true and producers append to the spool directly, so the messages keep their order and
+ * requests do not wait for a stalled broker.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessageSpool {
+
+	private File directory;
+
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	private int maxSegments = DEFAULT_MAX_SEGMENTS;
+
+	private long latencyBudgetMillis = DEFAULT_LATENCY_BUDGET_MILLIS;
+
+	private long slowCooldownMillis = DEFAULT_SLOW_COOLDOWN_MILLIS;
+
+	// Oldest first, the last one is written.
+	private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+	private long nextSegmentId;
+
+	private volatile boolean empty = true;
+
+	private volatile long divertUntil;
+
+	// Record returned by peek, not yet committed.
+	private Segment peekedSegment;
+
+	private int peekedEnd;
+
+	private final AtomicLong appendedCount = new AtomicLong();
+
+	private final AtomicLong replayedCount = new AtomicLong();
+
+	private final AtomicLong droppedSegmentCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * 
+	 * Open the segments left in directory, or create the first one.
+	 * 
+	 * @throws IOException
+	 * 
+	 */
+	public synchronized void open() throws IOException {
+		Assert.notNull(directory, "directory is required");
+		Assert.isTrue(segmentSize > HEADER_SIZE + RECORD_HEADER_SIZE, "segmentSize is too small");
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create spool directory " + directory);
+		}
+
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		Arrays.sort(names);
+		for (String name : names) {
+			long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+			Segment segment = new Segment(new File(directory, name), segmentSize);
+			segment.recover();
+			segments.add(segment);
+			nextSegmentId = id + 1;
+		}
+		if (segments.isEmpty()) {
+			segments.add(newSegment());
+		}
+		// Spooled segments may have a different segmentSize, new records go to a new segment.
+		if (segments.getLast().size != segmentSize) {
+			segments.add(newSegment());
+		}
+		updateEmpty();
+
+		if (!empty) {
+			logger.warn("MessageSpool found {} segments with unsent messages in {}", segments.size(), directory);
+		}
+	}
+
+	/**
+	 * 
+	 * Close the segments, unread records stay on disk for the next open.
+	 * 
+	 */
+	public synchronized void close() {
+		for (Segment segment : segments) {
+			segment.close();
+		}
+		segments.clear();
+		peekedSegment = null;
+		empty = true;
+	}
+
+	/**
+	 * 
+	 * Should producers append to the spool instead of sending?
+	 * 
+	 * @return boolean
+	 * 
+	 */
+	public boolean isDiverting() {
+		return !empty || System.currentTimeMillis() < divertUntil;
+	}
+
+	/**
+	 * 
+	 * Record a successful send, a send slower than latencyBudgetMillis diverts the next messages.
+	 * 
+	 * @param elapsedNanos
+	 * 
+	 */
+	public void recordSend(final long elapsedNanos) {
+		if (elapsedNanos > latencyBudgetMillis * 1000000L) {
+			logger.warn("JMS send took {} ms, over the budget of {} ms, spooling for {} ms", new Object[] {
+					elapsedNanos / 1000000L, latencyBudgetMillis, slowCooldownMillis });
+			divertUntil = System.currentTimeMillis() + slowCooldownMillis;
+		}
+	}
+
+	/**
+	 * 
+	 * Is the send failure worth spooling and retrying? Only broker and connection failures are, a message
+	 * that cannot be converted or sent to its destination would fail again on every retry.
+	 * 
+	 * @param ex
+	 * @return boolean
+	 * 
+	 */
+	public static boolean isTransient(final RuntimeException ex) {
+		return ex instanceof JmsException && !(ex instanceof MessageConversionException)
+				&& !(ex instanceof MessageFormatException) && !(ex instanceof MessageNotWriteableException)
+				&& !(ex instanceof InvalidDestinationException);
+	}
+
+	/**
+	 * 
+	 * Record a failed send, diverts the next messages.
+	 * 
+	 */
+	public void recordFailure() {
+		divertUntil = System.currentTimeMillis() + slowCooldownMillis;
+	}
+
+	/**
+	 * 
+	 * Append message.
+	 * 
+	 * @param topic
+	 * 			- was it sent to the topic or to the queue
+	 * @param message
+	 * 
+	 */
+	public void append(final boolean topic, final Serializable message) {
+		append(topic, message, System.currentTimeMillis());
+	}
+
+	/**
+	 * 
+	 * Append message, keeping the time it was handed to the producer.
+	 * 
+	 * @param topic
+	 * 			- was it sent to the topic or to the queue
+	 * @param message
+	 * @param enqueueTime
+	 * 			- milliseconds, see EnqueueTimeStamper
+	 * 
+	 */
+	public void append(final boolean topic, final Serializable message, final long enqueueTime) {
+		byte[] bytes;
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(message);
+			oos.close();
+			bytes = bos.toByteArray();
+		} catch (IOException ex) {
+			rejectedCount.incrementAndGet();
+			logger.error("Cannot spool message " + message.getClass().getName(), ex);
+			return;
+		}
+
+		int recordSize = RECORD_HEADER_SIZE + bytes.length;
+		if (HEADER_SIZE + recordSize + LENGTH_SIZE > segmentSize) {
+			rejectedCount.incrementAndGet();
+			logger.error("Cannot spool message {}, {} bytes is larger than a segment", message.getClass().getName(),
+					bytes.length);
+			return;
+		}
+
+		synchronized (this) {
+			Assert.isTrue(!segments.isEmpty(), "MessageSpool is not open");
+			Segment segment = segments.getLast();
+			if (!segment.hasRoom(recordSize)) {
+				segment.buffer.force();
+				segment = rollOver();
+			}
+			segment.append(topic ? TOPIC : QUEUE, enqueueTime, bytes);
+			appendedCount.incrementAndGet();
+			empty = false;
+		}
+	}
+
+	/**
+	 * 
+	 * Read the oldest spooled message, without removing it.
+	 * 
+	 * @return null if the spool is empty
+	 * 
+	 */
+	public synchronized SpooledMessage peek() {
+		while (!segments.isEmpty()) {
+			Segment segment = segments.getFirst();
+			int length = segment.lengthAt(segment.readPosition);
+			if (length > 0) {
+				int start = segment.readPosition + RECORD_HEADER_SIZE;
+				byte kind = segment.buffer.get(segment.readPosition + LENGTH_SIZE);
+				long enqueueTime = segment.buffer.getLong(segment.readPosition + LENGTH_SIZE + 1);
+				byte[] bytes = new byte[length];
+				ByteBuffer view = segment.buffer.duplicate();
+				view.position(start);
+				view.get(bytes);
+				peekedSegment = segment;
+				peekedEnd = start + length;
+				return new SpooledMessage(kind == TOPIC, enqueueTime, deserialize(bytes));
+			}
+			if (segments.size() == 1) {
+				break;
+			}
+			// Read to its end, the appends go to a later segment.
+			segments.removeFirst().delete();
+		}
+		updateEmpty();
+		return null;
+	}
+
+	/**
+	 * 
+	 * Remove the message returned by the last peek.
+	 * 
+	 */
+	public synchronized void commit() {
+		// The segment may have been dropped in the meantime.
+		if (peekedSegment != null && !segments.isEmpty() && segments.getFirst() == peekedSegment) {
+			peekedSegment.setReadPosition(peekedEnd);
+			replayedCount.incrementAndGet();
+		}
+		peekedSegment = null;
+		updateEmpty();
+	}
+
+	public long getAppendedCount() {
+		return appendedCount.get();
+	}
+
+	public long getReplayedCount() {
+		return replayedCount.get();
+	}
+
+	public long getDroppedSegmentCount() {
+		return droppedSegmentCount.get();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	private Segment rollOver() {
+		if (segments.size() >= maxSegments) {
+			Segment dropped = segments.removeFirst();
+			dropped.delete();
+			droppedSegmentCount.incrementAndGet();
+			logger.error("MessageSpool is full({} segments), dropped oldest segment {}", maxSegments, dropped.file);
+		}
+		Segment segment = newSegment();
+		segments.add(segment);
+		return segment;
+	}
+
+	private Segment newSegment() {
+		String name = String.format(SEGMENT_NAME_FORMAT, nextSegmentId++);
+		try {
+			Segment segment = new Segment(new File(directory, name), segmentSize);
+			segment.setReadPosition(HEADER_SIZE);
+			return segment;
+		} catch (IOException ex) {
+			throw new IllegalStateException("Cannot create spool segment in " + directory, ex);
+		}
+	}
+
+	private void updateEmpty() {
+		if (segments.isEmpty()) {
+			empty = true;
+			return;
+		}
+		Segment head = segments.getFirst();
+		empty = segments.size() == 1 && head.lengthAt(head.readPosition) == 0;
+	}
+
+	private Serializable deserialize(final byte[] bytes) {
+		try {
+			return (Serializable) new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+		} catch (Exception ex) {
+			// Skipped by the replayer, see SpooledMessage.getMessage.
+			logger.error("Cannot read spooled message, skipped", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * 
+	 * One spooled message.
+	 * 
+	 */
+	public static final class SpooledMessage {
+
+		private final boolean topic;
+
+		private final long enqueueTime;
+
+		private final Serializable message;
+
+		SpooledMessage(boolean topic, long enqueueTime, Serializable message) {
+			this.topic = topic;
+			this.enqueueTime = enqueueTime;
+			this.message = message;
+		}
+
+		public boolean isTopic() {
+			return topic;
+		}
+
+		public long getEnqueueTime() {
+			return enqueueTime;
+		}
+
+		/**
+		 * 
+		 * @return null if the record could not be read
+		 * 
+		 */
+		public Serializable getMessage() {
+			return message;
+		}
+	}
+
+	/**
+	 * 
+	 * One memory-mapped segment file.
+	 * 
+	 */
+	private static final class Segment {
+
+		private final File file;
+
+		private final RandomAccessFile raf;
+
+		private final MappedByteBuffer buffer;
+
+		private final int size;
+
+		private int readPosition;
+
+		private int writePosition = HEADER_SIZE;
+
+		Segment(File file, int segmentSize) throws IOException {
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+			// Existing segments keep their size.
+			this.size = raf.length() > 0 ? (int) raf.length() : segmentSize;
+			this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		void recover() {
+			readPosition = Math.max(HEADER_SIZE, buffer.getInt(READ_POSITION_OFFSET));
+			int position = HEADER_SIZE;
+			int length;
+			while ((length = lengthAt(position)) > 0) {
+				position += RECORD_HEADER_SIZE + length;
+			}
+			writePosition = position;
+			readPosition = Math.min(readPosition, writePosition);
+		}
+
+		boolean hasRoom(int recordSize) {
+			// Keep room for the zero length that ends the records.
+			return writePosition + recordSize + LENGTH_SIZE <= size;
+		}
+
+		void append(byte kind, long enqueueTime, byte[] bytes) {
+			buffer.put(writePosition + LENGTH_SIZE, kind);
+			buffer.putLong(writePosition + LENGTH_SIZE + 1, enqueueTime);
+			ByteBuffer view = buffer.duplicate();
+			view.position(writePosition + RECORD_HEADER_SIZE);
+			view.put(bytes);
+			// Written last, a record is visible to recover only when complete.
+			buffer.putInt(writePosition, bytes.length);
+			writePosition += RECORD_HEADER_SIZE + bytes.length;
+		}
+
+		/**
+		 * 
+		 * Length of the record at position, 0 at the end of the records. Bytes after the last record are
+		 * still zero, a record being torn by a crash has no length yet.
+		 * 
+		 */
+		int lengthAt(int position) {
+			if (position + RECORD_HEADER_SIZE > size) {
+				return 0;
+			}
+			int length = buffer.getInt(position);
+			return length < 0 || position + RECORD_HEADER_SIZE + length > size ? 0 : length;
+		}
+
+		void setReadPosition(int readPosition) {
+			this.readPosition = readPosition;
+			buffer.putInt(READ_POSITION_OFFSET, readPosition);
+		}
+
+		void close() {
+			buffer.force();
+			try {
+				raf.close();
+			} catch (IOException ex) {
+				logger.warn("Cannot close spool segment " + file, ex);
+			}
+		}
+
+		void delete() {
+			try {
+				raf.close();
+			} catch (IOException ex) {
+				logger.warn("Cannot close spool segment " + file, ex);
+			}
+			if (!file.delete()) {
+				logger.warn("Cannot delete spool segment {}", file);
+			}
+		}
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public void setMaxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+	}
+
+	public void setLatencyBudgetMillis(long latencyBudgetMillis) {
+		this.latencyBudgetMillis = latencyBudgetMillis;
+	}
+
+	public void setSlowCooldownMillis(long slowCooldownMillis) {
+		this.slowCooldownMillis = slowCooldownMillis;
+	}
+
+	public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+	public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+	public static final long DEFAULT_LATENCY_BUDGET_MILLIS = 200;
+
+	public static final long DEFAULT_SLOW_COOLDOWN_MILLIS = 5000;
+
+	private static final byte QUEUE = 0;
+
+	private static final byte TOPIC = 1;
+
+	private static final int READ_POSITION_OFFSET = 0;
+
+	private static final int HEADER_SIZE = 16;
+
+	private static final int LENGTH_SIZE = 4;
+
+	private static final int RECORD_HEADER_SIZE = LENGTH_SIZE + 1 + 8;
+
+	private static final int INITIAL_BUFFER_SIZE = 512;
+
+	private static final String SEGMENT_SUFFIX = ".spool";
+
+	// Zero padded, sorting the names sorts the segments.
+	private static final String SEGMENT_NAME_FORMAT = "%016d" + SEGMENT_SUFFIX;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(MessageSpool.class);
+}
@@ -0,0 +1,212 @@
+package org.workin.jms.support;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.workin.jms.support.MessageSpool.SpooledMessage;
+
+/**
+ * 
+ * Forward the messages of MessageSpool to the broker, oldest first, every replayIntervalMillis. A failed
+ * send stops the round, the message stays spooled and is retried in the next round.
+ * 
+ * A message failing maxReplayAttempts times in a row while the broker is reachable, or failing permanently
+ * (see MessageSpool.isTransient), is skipped and counted in skippedCount, so it cannot block the messages
+ * behind it.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class MessageSpoolReplayer {
+
+	private MessageSpool messageSpool;
+
+	private JmsTemplate jmsTemplate;
+
+	private Destination notifyQueue;
+
+	private Destination notifyTopic;
+
+	// Queue per payload class, as used by the producers.
+	private DestinationRouter destinationRouter;
+
+	private long replayIntervalMillis = DEFAULT_REPLAY_INTERVAL_MILLIS;
+
+	private int maxReplayAttempts = DEFAULT_MAX_REPLAY_ATTEMPTS;
+
+	// Failed sends of the first spooled message while the broker was reachable, only the replay thread touches it.
+	private int headFailures;
+
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	private ScheduledExecutorService replayExecutor;
+
+	private final Runnable replayTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				replay();
+			} catch (Throwable ex) {
+				logger.error("Hit Exception, When execute MessageSpoolReplayer.replay()", ex);
+			}
+		}
+	};
+
+	/**
+	 * 
+	 * Start the replay thread.
+	 * 
+	 */
+	public void start() {
+		replayExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "MessageSpoolReplayer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		replayExecutor.scheduleWithFixedDelay(replayTask, replayIntervalMillis, replayIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 
+	 * Stop the replay thread, the messages left stay spooled.
+	 * 
+	 */
+	public void stop() {
+		if (replayExecutor != null) {
+			replayExecutor.shutdown();
+			try {
+				replayExecutor.awaitTermination(replayIntervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			replayExecutor = null;
+		}
+	}
+
+	/**
+	 * 
+	 * Forward spooled messages until the spool is empty or a send fails.
+	 * 
+	 * @return count of forwarded messages
+	 * 
+	 */
+	public int replay() {
+		int count = 0;
+		SpooledMessage spooled;
+		while ((spooled = messageSpool.peek()) != null) {
+			if (spooled.getMessage() != null) {
+				try {
+					jmsTemplate.convertAndSend(getDestination(spooled), spooled.getMessage(), new EnqueueTimeStamper(
+							spooled.getEnqueueTime()));
+					count++;
+				} catch (RuntimeException ex) {
+					if (MessageSpool.isTransient(ex) && !isSkippable()) {
+						messageSpool.recordFailure();
+						logger.warn("Broker is still unavailable, {} messages replayed this round: {}", count,
+								ex.getMessage());
+						return count;
+					}
+					skippedCount.incrementAndGet();
+					logger.warn("Skipped spooled message " + spooled.getMessage() + " after " + (headFailures + 1)
+							+ " failed replays", ex);
+				}
+				headFailures = 0;
+			}
+			messageSpool.commit();
+		}
+
+		if (count > 0) {
+			logger.info("MessageSpoolReplayer replayed {} spooled messages", count);
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * Count a transient failure of the first spooled message, it is skipped after maxReplayAttempts. Failures
+	 * while the broker cannot be reached are not counted, an outage must not drop messages one by one.
+	 * 
+	 * @return boolean
+	 * 
+	 */
+	private boolean isSkippable() {
+		if (!isBrokerAvailable()) {
+			return false;
+		}
+		return ++headFailures >= maxReplayAttempts;
+	}
+
+	private boolean isBrokerAvailable() {
+		try {
+			jmsTemplate.execute(new SessionCallback<Object>() {
+				@Override
+				public Object doInJms(Session session) throws JMSException {
+					return null;
+				}
+			});
+			return true;
+		} catch (RuntimeException ex) {
+			return false;
+		}
+	}
+
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	private Destination getDestination(final SpooledMessage spooled) {
+		if (spooled.isTopic()) {
+			return notifyTopic;
+		}
+		return destinationRouter == null ? notifyQueue : destinationRouter.resolve(spooled.getMessage());
+	}
+
+	public void setDestinationRouter(DestinationRouter destinationRouter) {
+		this.destinationRouter = destinationRouter;
+	}
+
+	public void setMessageSpool(MessageSpool messageSpool) {
+		this.messageSpool = messageSpool;
+	}
+
+	public void setJmsTemplate(JmsTemplate jmsTemplate) {
+		this.jmsTemplate = jmsTemplate;
+	}
+
+	public void setNotifyQueue(Destination notifyQueue) {
+		this.notifyQueue = notifyQueue;
+	}
+
+	public void setNotifyTopic(Destination notifyTopic) {
+		this.notifyTopic = notifyTopic;
+	}
+
+	public void setReplayIntervalMillis(long replayIntervalMillis) {
+		this.replayIntervalMillis = replayIntervalMillis;
+	}
+
+	public void setMaxReplayAttempts(int maxReplayAttempts) {
+		this.maxReplayAttempts = maxReplayAttempts;
+	}
+
+	public static final long DEFAULT_REPLAY_INTERVAL_MILLIS = 1000;
+
+	public static final int DEFAULT_MAX_REPLAY_ATTEMPTS = 5;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(MessageSpoolReplayer.class);
+}
@@ -0,0 +1,121 @@
+package org.workin.jms.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Bounded, lock-free, multi-producer multi-consumer ring buffer.
+ * 
+ * Every slot carries a sequence number(D. Vyukov's bounded queue, the work-queue flavour of a Disruptor
+ * ring): a producer claims the publish sequence and may write slot s when its sequence is s, a consumer
+ * claims the consume sequence and may read slot s when its sequence is s + 1. After reading, the slot's
+ * sequence is advanced by capacity, which hands it to the producer of the next lap. Nothing is allocated
+ * per element and offer/poll never block, a full ring is reported to the producer.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public final class RingBuffer<E> {
+
+	private final AtomicReferenceArray<E> elements;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	private final AtomicLong publishSequence = new AtomicLong();
+
+	private final AtomicLong consumeSequence = new AtomicLong();
+
+	/**
+	 * 
+	 * @param capacity
+	 * 			- rounded up to a power of two
+	 * 
+	 */
+	public RingBuffer(final int capacity) {
+		Assert.isTrue(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		elements = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * 
+	 * Publish element.
+	 * 
+	 * @param element
+	 * @return false if the ring is full
+	 * 
+	 */
+	public boolean offer(final E element) {
+		Assert.notNull(element, "element cannot be null");
+		while (true) {
+			long sequence = publishSequence.get();
+			int index = (int) sequence & mask;
+			long distance = sequences.get(index) - sequence;
+			if (distance == 0) {
+				if (publishSequence.compareAndSet(sequence, sequence + 1)) {
+					elements.lazySet(index, element);
+					// Ordered after the element, a consumer seeing the sequence sees the element.
+					sequences.set(index, sequence + 1);
+					return true;
+				}
+			} else if (distance < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Take the oldest element.
+	 * 
+	 * @return null if the ring is empty
+	 * 
+	 */
+	public E poll() {
+		while (true) {
+			long sequence = consumeSequence.get();
+			int index = (int) sequence & mask;
+			long distance = sequences.get(index) - (sequence + 1);
+			if (distance == 0) {
+				if (consumeSequence.compareAndSet(sequence, sequence + 1)) {
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.set(index, sequence + mask + 1);
+					return element;
+				}
+			} else if (distance < 0) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * Count of published and not yet taken elements, a snapshot under concurrent use.
+	 * 
+	 * @return int
+	 * 
+	 */
+	public int size() {
+		long size = publishSequence.get() - consumeSequence.get();
+		return (int) Math.max(0, Math.min(size, getCapacity()));
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+}
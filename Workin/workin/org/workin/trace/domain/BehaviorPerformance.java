@@ -2,6 +2,7 @@ package org.workin.trace.domain;
 
 import java.util.Date;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
@@ -29,6 +30,21 @@ public class BehaviorPerformance extends IdEntity {
 	
 	private Date responsedttm;
 	
+	// Statements, rows and JDBC time(ms) of the request, see QueryCountMonitor.
+	private int statementCount;
+	
+	private long rowCount;
+	
+	private long jdbcTime;
+	
+	// Most repeated statement shape over the N+1 threshold, and its count.
+	private String repeatedStatement;
+	
+	private int repeatedStatementCount;
+	
+	// Requests this row stands for, 1 / sampling rate(see TraceSampler), sum it instead of counting rows.
+	private double sampleWeight = 1;
+	
 	
 	public long getUserId() {
 		return userId;
@@ -99,6 +115,65 @@ public class BehaviorPerformance extends IdEntity {
 		this.requestURI = requestURI;
 	}
 	
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+
+	public void setStatementCount(int statementCount) {
+		this.statementCount = statementCount;
+	}
+
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+
+	public void setRowCount(long rowCount) {
+		this.rowCount = rowCount;
+	}
+
+
+	public long getJdbcTime() {
+		return jdbcTime;
+	}
+
+
+	public void setJdbcTime(long jdbcTime) {
+		this.jdbcTime = jdbcTime;
+	}
+
+
+	@Column(length = 1000)
+	public String getRepeatedStatement() {
+		return repeatedStatement;
+	}
+
+
+	public void setRepeatedStatement(String repeatedStatement) {
+		this.repeatedStatement = repeatedStatement;
+	}
+
+
+	public int getRepeatedStatementCount() {
+		return repeatedStatementCount;
+	}
+
+
+	public void setRepeatedStatementCount(int repeatedStatementCount) {
+		this.repeatedStatementCount = repeatedStatementCount;
+	}
+	
+	public double getSampleWeight() {
+		return sampleWeight;
+	}
+
+
+	public void setSampleWeight(double sampleWeight) {
+		this.sampleWeight = sampleWeight;
+	}
+	
 	@Override
 	public String toString() {
 		return ToStringBuilder.reflectionToString(this);
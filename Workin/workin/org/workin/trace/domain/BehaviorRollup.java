@@ -0,0 +1,168 @@
+package org.workin.trace.domain;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.workin.core.entity.IdEntity;
+
+/**
+ * 
+ * Latency of one request URI(and user, if rolled up per user) over one period, see BehaviorRollupAggregator.
+ * 
+ * Times are in ms, percentiles are accurate to 1/8 of their value(see LatencyHistogram).
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@Entity
+@Table(name="BehaviorRollup")
+public class BehaviorRollup extends IdEntity {
+
+	private static final long serialVersionUID = 3120512934017462810L;
+
+	private String requestURI;
+
+	// Null if not rolled up per user.
+	private String userName;
+
+	private Date periodStart;
+
+	private Date periodEnd;
+
+	private long requestCount;
+
+	private long totalTime;
+
+	private long minTime;
+
+	private long maxTime;
+
+	private long p50Time;
+
+	private long p90Time;
+
+	private long p99Time;
+
+
+	public String getRequestURI() {
+		return requestURI;
+	}
+
+
+	public void setRequestURI(String requestURI) {
+		this.requestURI = requestURI;
+	}
+
+
+	public String getUserName() {
+		return userName;
+	}
+
+
+	public void setUserName(String userName) {
+		this.userName = userName;
+	}
+
+
+	public Date getPeriodStart() {
+		return periodStart;
+	}
+
+
+	public void setPeriodStart(Date periodStart) {
+		this.periodStart = periodStart;
+	}
+
+
+	public Date getPeriodEnd() {
+		return periodEnd;
+	}
+
+
+	public void setPeriodEnd(Date periodEnd) {
+		this.periodEnd = periodEnd;
+	}
+
+
+	public long getRequestCount() {
+		return requestCount;
+	}
+
+
+	public void setRequestCount(long requestCount) {
+		this.requestCount = requestCount;
+	}
+
+
+	public long getTotalTime() {
+		return totalTime;
+	}
+
+
+	public void setTotalTime(long totalTime) {
+		this.totalTime = totalTime;
+	}
+
+
+	public long getMinTime() {
+		return minTime;
+	}
+
+
+	public void setMinTime(long minTime) {
+		this.minTime = minTime;
+	}
+
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+
+	public void setMaxTime(long maxTime) {
+		this.maxTime = maxTime;
+	}
+
+
+	public long getP50Time() {
+		return p50Time;
+	}
+
+
+	public void setP50Time(long p50Time) {
+		this.p50Time = p50Time;
+	}
+
+
+	public long getP90Time() {
+		return p90Time;
+	}
+
+
+	public void setP90Time(long p90Time) {
+		this.p90Time = p90Time;
+	}
+
+
+	public long getP99Time() {
+		return p99Time;
+	}
+
+
+	public void setP99Time(long p99Time) {
+		this.p99Time = p99Time;
+	}
+
+	@Override
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+
+	@Override
+	public void setDynCompareValue() {
+		super.setDynCompareField(periodStart);
+	}
+}
@@ -0,0 +1,15 @@
+package org.workin.trace.service;
+
+import java.io.Serializable;
+
+import org.workin.core.persistence.support.CrudService;
+import org.workin.trace.domain.BehaviorRollup;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public interface BehaviorRollupService extends CrudService<BehaviorRollup, Serializable> {
+	
+}
@@ -0,0 +1,18 @@
+package org.workin.trace.service;
+
+import java.io.Serializable;
+
+import org.springframework.stereotype.Service;
+import org.workin.core.persistence.support.AbstractBeanService;
+import org.workin.trace.domain.BehaviorRollup;
+
+/**
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+@Service
+public class BehaviorRollupServiceImpl extends AbstractBeanService<BehaviorRollup, Serializable> implements
+		BehaviorRollupService {
+
+}
@@ -0,0 +1,299 @@
+package org.workin.trace.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.workin.core.entity.IdEntity;
+import org.workin.core.persistence.support.CrudService;
+import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.domain.BehaviorRollup;
+import org.workin.trace.domain.StoredLog;
+import org.workin.util.Assert;
+
+/**
+ * 
+ * Collect BehaviorPerformance, BehaviorRollup and StoredLog entities into micro-batches, written with batchPersist in one
+ * transaction per batch.
+ * 
+ * A batch is written by the adding thread once batchSize entities are pending, and by the flush thread every
+ * flushIntervalMillis otherwise. When maxPending entities are pending the adding thread writes a batch before
+ * queuing, so a slow database slows the consumers down instead of filling the heap. If a batch fails, its
+ * entities are merged one by one, so one bad entity only loses itself.
+ * 
+ * Opt-in, not configured by default: DefaultMessageConsumer merges each trace message in its own transaction
+ * unless a TraceBatchWriter bean is defined. With the writer delivery is at-most-once, the message is
+ * acknowledged once its entity is queued here, not once it is written. If the JVM dies, up to maxPending
+ * entities per type are lost, and the broker does not redeliver them. Entities of a type without service are
+ * dropped, logged and counted in failedCount.
+ * 
+ * eg.
+ * 
+ * 	<bean id="traceBatchWriter" class="org.workin.trace.service.TraceBatchWriter" init-method="start"
+ * 		destroy-method="stop">
+ * 		<property name="batchSize" value="${trace.batch.size}" />
+ * 		<property name="flushIntervalMillis" value="${trace.batch.flushIntervalMillis}" />
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class TraceBatchWriter {
+
+	@Autowired(required = false)
+	private BehaviorPerformanceService behaviorPerformanceService;
+
+	@Autowired(required = false)
+	private StoredLogService storedLogService;
+
+	@Autowired(required = false)
+	private BehaviorRollupService behaviorRollupService;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private int maxPending = DEFAULT_MAX_PENDING;
+
+	private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+
+	private final Batch<BehaviorPerformance> behaviorPerformances = new Batch<BehaviorPerformance>();
+
+	private final Batch<StoredLog> storedLogs = new Batch<StoredLog>();
+
+	private final Batch<BehaviorRollup> behaviorRollups = new Batch<BehaviorRollup>();
+
+	private final AtomicLong writtenCount = new AtomicLong();
+
+	private final AtomicLong batchCount = new AtomicLong();
+
+	private final AtomicLong failedCount = new AtomicLong();
+
+	private ScheduledExecutorService flushExecutor;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (Throwable ex) {
+				logger.error("Hit Exception, When execute TraceBatchWriter.flush()", ex);
+			}
+		}
+	};
+
+	/**
+	 * 
+	 * Start the flush thread.
+	 * 
+	 */
+	public void start() {
+		flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "TraceBatchWriter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flushExecutor.scheduleWithFixedDelay(flushTask, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 
+	 * Stop the flush thread and write the pending entities.
+	 * 
+	 */
+	public void stop() {
+		if (flushExecutor != null) {
+			flushExecutor.shutdown();
+			try {
+				flushExecutor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			flushExecutor = null;
+		}
+		flush();
+	}
+
+	/**
+	 * 
+	 * Queue behaviorPerformance for the next batch.
+	 * 
+	 * @param behaviorPerformance
+	 * 
+	 */
+	public void add(final BehaviorPerformance behaviorPerformance) {
+		behaviorPerformances.add(behaviorPerformance, behaviorPerformanceService);
+	}
+
+	/**
+	 * 
+	 * Queue storedLog for the next batch.
+	 * 
+	 * @param storedLog
+	 * 
+	 */
+	public void add(final StoredLog storedLog) {
+		storedLogs.add(storedLog, storedLogService);
+	}
+
+	/**
+	 * 
+	 * Queue behaviorRollup for the next batch.
+	 * 
+	 * @param behaviorRollup
+	 * 
+	 */
+	public void add(final BehaviorRollup behaviorRollup) {
+		behaviorRollups.add(behaviorRollup, behaviorRollupService);
+	}
+
+	/**
+	 * 
+	 * Write all pending entities.
+	 * 
+	 */
+	public void flush() {
+		behaviorPerformances.drain(behaviorPerformanceService);
+		storedLogs.drain(storedLogService);
+		behaviorRollups.drain(behaviorRollupService);
+	}
+
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public int getPendingCount() {
+		return behaviorPerformances.pending.size() + storedLogs.pending.size() + behaviorRollups.pending.size();
+	}
+
+	/**
+	 * 
+	 * Pending entities of one type.
+	 * 
+	 */
+	private final class Batch<T extends IdEntity> {
+
+		private final BlockingQueue<T> pending = new LinkedBlockingQueue<T>();
+
+		void add(final T entity, final CrudService<T, Serializable> service) {
+			if (pending.size() >= maxPending) {
+				write(service);
+			}
+			pending.add(entity);
+			if (pending.size() >= batchSize) {
+				write(service);
+			}
+		}
+
+		void drain(final CrudService<T, Serializable> service) {
+			while (!pending.isEmpty()) {
+				write(service);
+			}
+		}
+
+		private void write(final CrudService<T, Serializable> service) {
+			List<T> batch = new ArrayList<T>(batchSize);
+			pending.drainTo(batch, batchSize);
+			if (batch.isEmpty()) {
+				return;
+			}
+			if (service == null) {
+				failedCount.addAndGet(batch.size());
+				logger.warn("Cannot find service of {}, dropped {} entities, Please config...", batch.get(0).getClass()
+						.getName(), batch.size());
+				return;
+			}
+
+			List<T> newEntities = new ArrayList<T>(batch.size());
+			for (T entity : batch) {
+				if (entity.getId() == null) {
+					newEntities.add(entity);
+				} else {
+					mergeOne(entity, service);
+				}
+			}
+			if (newEntities.isEmpty()) {
+				return;
+			}
+
+			try {
+				service.batchPersist(newEntities);
+				writtenCount.addAndGet(newEntities.size());
+				batchCount.incrementAndGet();
+				logger.debug("TraceBatchWriter persisted {} entities in one batch", newEntities.size());
+			} catch (Exception ex) {
+				logger.warn("Batch of " + newEntities.size() + " trace entities failed, merging one by one", ex);
+				for (T entity : newEntities) {
+					// The rolled back batch may have assigned ids.
+					entity.setId(null);
+					mergeOne(entity, service);
+				}
+			}
+		}
+
+		private void mergeOne(final T entity, final CrudService<T, Serializable> service) {
+			try {
+				service.merge(entity);
+				writtenCount.incrementAndGet();
+			} catch (Exception ex) {
+				failedCount.incrementAndGet();
+				logger.error("Hit Exception, When execute TraceBatchWriter.write()", ex);
+			}
+		}
+	}
+
+	public void setBehaviorPerformanceService(BehaviorPerformanceService behaviorPerformanceService) {
+		this.behaviorPerformanceService = behaviorPerformanceService;
+	}
+
+	public void setStoredLogService(StoredLogService storedLogService) {
+		this.storedLogService = storedLogService;
+	}
+
+	public void setBehaviorRollupService(BehaviorRollupService behaviorRollupService) {
+		this.behaviorRollupService = behaviorRollupService;
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive.");
+		this.batchSize = batchSize;
+	}
+
+	public void setMaxPending(int maxPending) {
+		Assert.isTrue(maxPending > 0, "maxPending must be positive.");
+		this.maxPending = maxPending;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		Assert.isTrue(flushIntervalMillis > 0, "flushIntervalMillis must be positive.");
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	public static final int DEFAULT_MAX_PENDING = 10000;
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+	private static final transient Logger logger = LoggerFactory.getLogger(TraceBatchWriter.class);
+}
@@ -0,0 +1,271 @@
+package org.workin.trace.support;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workin.core.persistence.jdbc.LatencyHistogram;
+import org.workin.jms.producer.MessageProducer;
+import org.workin.trace.domain.BehaviorRollup;
+
+/**
+ * 
+ * Roll up the spent time of requests per URI, and per user if configured, into LatencyHistograms, and send one
+ * BehaviorRollup per URI(and user) every intervalMillis through messageProducer. The histograms are striped,
+ * so concurrent requests of one URI do not contend on the same counters.
+ * 
+ * Periods are aligned to intervalMillis, one minute by default. URIs beyond maxKeys are rolled up under
+ * OTHER_URI, so the number of histograms stays bounded. A histogram without requests in a period is dropped.
+ * 
+ * eg.
+ * 
+ * 	<bean id="behaviorRollupAggregator" class="org.workin.trace.support.BehaviorRollupAggregator"
+ * 		init-method="start" destroy-method="stop">
+ * 		<property name="messageProducer" ref="traceMessageProducer" />
+ * 		<property name="intervalMillis" value="${trace.rollup.intervalMillis}" />
+ * 		<property name="perUser" value="${trace.rollup.perUser}" />
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class BehaviorRollupAggregator {
+
+	private MessageProducer messageProducer;
+
+	private boolean perUser;
+
+	private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+	private int maxKeys = DEFAULT_MAX_KEYS;
+
+	private int stripes = DEFAULT_STRIPES;
+
+	private final ConcurrentMap<RollupKey, LatencyHistogram> histograms = new ConcurrentHashMap<RollupKey, LatencyHistogram>();
+
+	private volatile long periodStart = System.currentTimeMillis();
+
+	private final AtomicLong sentCount = new AtomicLong();
+
+	private ScheduledExecutorService flushExecutor;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (Throwable ex) {
+				logger.error("Hit Exception, When execute BehaviorRollupAggregator.flush()", ex);
+			}
+		}
+	};
+
+	/**
+	 * 
+	 * Start the flush thread, flushing at the end of each period.
+	 * 
+	 */
+	public void start() {
+		long now = System.currentTimeMillis();
+		periodStart = now - now % intervalMillis;
+
+		flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "BehaviorRollupAggregator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flushExecutor.scheduleAtFixedRate(flushTask, periodStart + intervalMillis - now, intervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 
+	 * Stop the flush thread and send the current period.
+	 * 
+	 */
+	public void stop() {
+		if (flushExecutor != null) {
+			flushExecutor.shutdownNow();
+			flushExecutor = null;
+		}
+		flush();
+	}
+
+	/**
+	 * 
+	 * Record spent time of one request.
+	 * 
+	 * @param requestURI
+	 * @param userName
+	 * 			- ignored if not rolled up per user, see isPerUser
+	 * @param spentTime
+	 * 			- ms
+	 * 
+	 */
+	public void record(final String requestURI, final String userName, final long spentTime) {
+		RollupKey key = new RollupKey(requestURI, perUser ? userName : null);
+		LatencyHistogram histogram = histograms.get(key);
+		if (histogram == null) {
+			if (histograms.size() >= maxKeys) {
+				key = new RollupKey(OTHER_URI, null);
+			}
+			histogram = histograms.get(key);
+			if (histogram == null) {
+				LatencyHistogram created = new LatencyHistogram(stripes);
+				histogram = histograms.putIfAbsent(key, created);
+				if (histogram == null) {
+					histogram = created;
+				}
+			}
+		}
+		histogram.record(spentTime * 1000000L);
+	}
+
+	/**
+	 * 
+	 * Drain the histograms into rollups of the period ended now, and start the next period.
+	 * 
+	 * @return List<BehaviorRollup>
+	 * 
+	 */
+	public List<BehaviorRollup> rollup() {
+		long now = System.currentTimeMillis();
+		Date start = new Date(periodStart);
+		Date end = new Date(now);
+		periodStart = now;
+
+		List<BehaviorRollup> rollups = new ArrayList<BehaviorRollup>();
+		for (Iterator<Map.Entry<RollupKey, LatencyHistogram>> it = histograms.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<RollupKey, LatencyHistogram> entry = it.next();
+			LatencyHistogram.Snapshot snapshot = entry.getValue().drain();
+			if (snapshot.getCount() == 0) {
+				// Idle, a request racing this removal may lose its value.
+				it.remove();
+				continue;
+			}
+
+			BehaviorRollup rollup = new BehaviorRollup();
+			rollup.setRequestURI(entry.getKey().requestURI);
+			rollup.setUserName(entry.getKey().userName);
+			rollup.setPeriodStart(start);
+			rollup.setPeriodEnd(end);
+			rollup.setRequestCount(snapshot.getCount());
+			rollup.setTotalTime(snapshot.getSumMicros() / 1000L);
+			rollup.setMinTime(snapshot.getMinMicros() / 1000L);
+			rollup.setMaxTime(snapshot.getMaxMicros() / 1000L);
+			rollup.setP50Time(snapshot.getPercentileMicros(50) / 1000L);
+			rollup.setP90Time(snapshot.getPercentileMicros(90) / 1000L);
+			rollup.setP99Time(snapshot.getPercentileMicros(99) / 1000L);
+			rollups.add(rollup);
+		}
+		return rollups;
+	}
+
+	/**
+	 * 
+	 * Send the rollups of the period ended now.
+	 * 
+	 */
+	public void flush() {
+		List<BehaviorRollup> rollups = rollup();
+		if (rollups.isEmpty()) {
+			return;
+		}
+		if (messageProducer == null) {
+			logger.debug("Cannot find messageProducer of BehaviorRollupAggregator, Please config...");
+			return;
+		}
+		messageProducer.sendQueue(rollups.toArray(new Serializable[rollups.size()]));
+		sentCount.addAndGet(rollups.size());
+		logger.debug("BehaviorRollupAggregator sent {} rollups", rollups.size());
+	}
+
+	public boolean isPerUser() {
+		return perUser;
+	}
+
+	public long getSentCount() {
+		return sentCount.get();
+	}
+
+	public int getKeyCount() {
+		return histograms.size();
+	}
+
+	/**
+	 * 
+	 * URI and user of one histogram.
+	 * 
+	 */
+	private static final class RollupKey {
+
+		private final String requestURI;
+
+		private final String userName;
+
+		RollupKey(final String requestURI, final String userName) {
+			this.requestURI = requestURI;
+			this.userName = userName;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (requestURI == null ? 0 : requestURI.hashCode()) + (userName == null ? 0 : userName.hashCode());
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof RollupKey)) {
+				return false;
+			}
+			RollupKey other = (RollupKey) obj;
+			return (requestURI == null ? other.requestURI == null : requestURI.equals(other.requestURI))
+					&& (userName == null ? other.userName == null : userName.equals(other.userName));
+		}
+	}
+
+	public void setMessageProducer(MessageProducer messageProducer) {
+		this.messageProducer = messageProducer;
+	}
+
+	public void setPerUser(boolean perUser) {
+		this.perUser = perUser;
+	}
+
+	public void setIntervalMillis(long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+	}
+
+	public void setMaxKeys(int maxKeys) {
+		this.maxKeys = maxKeys;
+	}
+
+	public void setStripes(int stripes) {
+		this.stripes = stripes;
+	}
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 60 * 1000;
+
+	public static final int DEFAULT_MAX_KEYS = 10000;
+
+	public static final int DEFAULT_STRIPES = 4;
+
+	public static final String OTHER_URI = "*";
+
+	private static final transient Logger logger = LoggerFactory.getLogger(BehaviorRollupAggregator.class);
+}
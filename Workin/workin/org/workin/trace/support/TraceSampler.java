@@ -0,0 +1,196 @@
+package org.workin.trace.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.workin.jms.producer.LocalMessageProducer;
+import org.workin.jms.support.MessageSpool;
+import org.workin.util.CollectionUtils;
+
+/**
+ * 
+ * Decide which requests BehaviorAndPerformanceInterceptor traces, and with which weight.
+ * 
+ * 	1) Requests slower than slowThresholdMillis are always kept, with weight 1.
+ * 	2) Otherwise the rate of the first matching uriRates pattern applies, else defaultRate(1 keeps all).
+ * 	3) With adaptive on, the rate is lowered while the pipeline is backlogged: down to minAdaptiveFactor
+ * 	   times the rate while the spool holds messages, and linearly from 1 to minAdaptiveFactor while the
+ * 	   in-JVM ring is filled from backlogWatermark to full.
+ * 
+ * A kept request carries weight 1 / rate(see BehaviorPerformance.sampleWeight), so sum(sampleWeight) still
+ * estimates the request count, and sum(sampleWeight * spentTime) the total time.
+ * 
+ * eg.
+ * 
+ * 	<bean id="traceSampler" class="org.workin.trace.support.TraceSampler">
+ * 		<property name="defaultRate" value="0.1" />
+ * 		<property name="slowThresholdMillis" value="1000" />
+ * 		<property name="uriRates">
+ * 			<map>
+ * 				<entry key="/admin/.*" value="1" />
+ * 			</map>
+ * 		</property>
+ * 	</bean>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class TraceSampler {
+
+	private double defaultRate = 1;
+
+	private Map<Pattern, Double> uriRates = Collections.emptyMap();
+
+	private long slowThresholdMillis = DEFAULT_SLOW_THRESHOLD_MILLIS;
+
+	private boolean adaptive;
+
+	private double minAdaptiveFactor = DEFAULT_MIN_ADAPTIVE_FACTOR;
+
+	private double backlogWatermark = DEFAULT_BACKLOG_WATERMARK;
+
+	// Backlog sources of the adaptive mode, each optional.
+	private LocalMessageProducer localMessageProducer;
+
+	private MessageSpool messageSpool;
+
+	private final AtomicLong keptCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	// java.util.Random is synchronized on its seed, one per thread avoids the contention.
+	private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	/**
+	 * 
+	 * Sample the request.
+	 * 
+	 * @param requestUri
+	 * @param spentTime
+	 * 			- milliseconds
+	 * @return weight of the kept request, 0 if it is dropped
+	 * 
+	 */
+	public double sample(final String requestUri, final long spentTime) {
+		if (spentTime >= slowThresholdMillis) {
+			keptCount.incrementAndGet();
+			return 1;
+		}
+
+		double rate = getRate(requestUri);
+		if (adaptive) {
+			rate *= getAdaptiveFactor();
+		}
+		if (rate >= 1) {
+			keptCount.incrementAndGet();
+			return 1;
+		}
+		if (rate <= 0 || random.get().nextDouble() >= rate) {
+			droppedCount.incrementAndGet();
+			return 0;
+		}
+		keptCount.incrementAndGet();
+		return 1 / rate;
+	}
+
+	/**
+	 * 
+	 * Get the factor the rates are multiplied with, 1 without backlog.
+	 * 
+	 * @return double
+	 * 
+	 */
+	public double getAdaptiveFactor() {
+		if (messageSpool != null && !messageSpool.isEmpty()) {
+			return minAdaptiveFactor;
+		}
+		if (localMessageProducer == null) {
+			return 1;
+		}
+
+		double fill = (double) localMessageProducer.getPendingCount() / localMessageProducer.getCapacity();
+		if (fill <= backlogWatermark) {
+			return 1;
+		}
+		double backlog = Math.min(1, (fill - backlogWatermark) / (1 - backlogWatermark));
+		return 1 - backlog * (1 - minAdaptiveFactor);
+	}
+
+	public long getKeptCount() {
+		return keptCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	private double getRate(final String requestUri) {
+		if (requestUri != null) {
+			for (Map.Entry<Pattern, Double> entry : uriRates.entrySet()) {
+				if (entry.getKey().matcher(requestUri).matches()) {
+					return entry.getValue();
+				}
+			}
+		}
+		return defaultRate;
+	}
+
+	public void setDefaultRate(double defaultRate) {
+		this.defaultRate = defaultRate;
+	}
+
+	/**
+	 * 
+	 * @param uriRates
+	 * 			- request URI regex -> rate, matched in order
+	 * 
+	 */
+	public void setUriRates(Map<String, Double> uriRates) {
+		Map<Pattern, Double> rates = new LinkedHashMap<Pattern, Double>();
+		if (!CollectionUtils.isEmpty(uriRates)) {
+			for (Map.Entry<String, Double> entry : uriRates.entrySet()) {
+				rates.put(Pattern.compile(entry.getKey()), entry.getValue());
+			}
+		}
+		this.uriRates = rates;
+	}
+
+	public void setSlowThresholdMillis(long slowThresholdMillis) {
+		this.slowThresholdMillis = slowThresholdMillis;
+	}
+
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	public void setMinAdaptiveFactor(double minAdaptiveFactor) {
+		this.minAdaptiveFactor = minAdaptiveFactor;
+	}
+
+	public void setBacklogWatermark(double backlogWatermark) {
+		this.backlogWatermark = backlogWatermark;
+	}
+
+	public void setLocalMessageProducer(LocalMessageProducer localMessageProducer) {
+		this.localMessageProducer = localMessageProducer;
+	}
+
+	public void setMessageSpool(MessageSpool messageSpool) {
+		this.messageSpool = messageSpool;
+	}
+
+	public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 1000;
+
+	public static final double DEFAULT_MIN_ADAPTIVE_FACTOR = 0.1;
+
+	public static final double DEFAULT_BACKLOG_WATERMARK = 0.5;
+}
@@ -1,6 +1,7 @@
 package org.workin.util;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +17,7 @@ import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.workin.core.constant.Constants;
+import org.workin.core.persistence.support.FetchPlan;
 import org.workin.core.persistence.support.PropertyFilter;
 import org.workin.core.persistence.support.PropertyFilter.LikeMatchPatten;
 import org.workin.core.persistence.support.PropertyFilter.MatchType;
@@ -131,13 +133,29 @@ public class PersistenceUtils {
 	 * 
 	 */
 	public static String buildQueryStringWithNamedParams(final boolean isCount, final Class<?> clazz, final Map<String, ?> params) {
+		return buildQueryStringWithNamedParams(isCount, clazz, CollectionUtils.isEmpty(params) ? new String[0]
+				: params.keySet().toArray(new String[params.size()]));
+	}
+
+	/**
+	 * 
+	 * Build Query String, Using class and names of parameters.
+	 * 
+	 * @param isCount
+	 * @param clazz
+	 * @param parameterNames
+	 * 
+	 * @return string
+	 * 
+	 */
+	public static String buildQueryStringWithNamedParams(final boolean isCount, final Class<?> clazz, final String[] parameterNames) {
 		StringBuilder queryBuilder = buildQueryString(clazz, isCount);
 
-		if (!CollectionUtils.isEmpty(params)) {
+		if (parameterNames.length > 0) {
 			queryBuilder.append(Constants.HQL_KEYWORD_WHERE);
 
-			for (Map.Entry<String, ?> entry : params.entrySet()) {
-				queryBuilder.append(entry.getKey()).append(Constants.HQL_PLACEHOLDER_EQUALITY_COLON).append(entry.getKey()).append(Constants.HQL_KEYWORD_AND);
+			for (String parameterName : parameterNames) {
+				queryBuilder.append(parameterName).append(Constants.HQL_PLACEHOLDER_EQUALITY_COLON).append(parameterName).append(Constants.HQL_KEYWORD_AND);
 			}
 
 			if (queryBuilder.lastIndexOf(Constants.HQL_KEYWORD_AND) == (queryBuilder.length() - 5)) {
@@ -145,10 +163,90 @@ public class PersistenceUtils {
 			}
 		}
 
-		logger.info(" Build Query String With NamedParams: {}", queryBuilder.toString());
+		logger.debug(" Build Query String With NamedParams: {}", queryBuilder);
 		return queryBuilder.toString();
 	}
 	
+	/**
+	 * 
+	 * Build Query String with the join fetches of fetchPlan, Using class and named parameters.
+	 * 
+	 * Properties are qualified by the root alias, parameter names are the property names with '.'
+	 * replaced by '_'(see buildParameterName).
+	 * 
+	 * @param clazz
+	 * @param params
+	 * @param fetchPlan
+	 * 
+	 * @return string
+	 * 
+	 */
+	public static String buildQueryStringWithFetchPlan(final Class<?> clazz, final Map<String, ?> params,
+			final FetchPlan fetchPlan) {
+		StringBuilder queryBuilder = new StringBuilder();
+		queryBuilder.append(fetchPlan != null && fetchPlan.hasJoinFetch() ? Constants.HQL_SELECT_DISTINCT_FROM
+				: Constants.HQL_SELECT_FROM);
+		queryBuilder.append(clazz.getName()).append(Constants.HQL_ALIAS_OBJECT);
+
+		if (fetchPlan != null) {
+			appendJoinFetches(queryBuilder, fetchPlan.getJoinFetchPaths());
+		}
+
+		if (!CollectionUtils.isEmpty(params)) {
+			queryBuilder.append(Constants.HQL_KEYWORD_WHERE);
+
+			for (Map.Entry<String, ?> entry : params.entrySet()) {
+				queryBuilder.append(Constants.HQL_ALIAS_OBJECT_PREFIX).append(entry.getKey()).append(
+						Constants.HQL_PLACEHOLDER_EQUALITY_COLON).append(buildParameterName(entry.getKey())).append(
+						Constants.HQL_KEYWORD_AND);
+			}
+
+			queryBuilder.delete(queryBuilder.length() - Constants.HQL_KEYWORD_AND.length(), queryBuilder.length());
+		}
+
+		logger.debug(" Build Query String With FetchPlan: {}", queryBuilder);
+		return queryBuilder.toString();
+	}
+
+	/**
+	 * 
+	 * Build the named parameter of a property for buildQueryStringWithFetchPlan.
+	 * 
+	 * @param propertyName
+	 * @return string
+	 * 
+	 */
+	public static String buildParameterName(final String propertyName) {
+		return propertyName.replace('.', '_');
+	}
+
+	/**
+	 * 
+	 * Append LEFT JOIN FETCH for association paths, nested paths join on the alias of their parent path.
+	 * 
+	 * @param queryBuilder
+	 * @param paths
+	 * 
+	 */
+	private static void appendJoinFetches(final StringBuilder queryBuilder, final List<String> paths) {
+		Map<String, String> aliases = new HashMap<String, String>();
+		for (String path : paths) {
+			String parentAlias = Constants.HQL_ALIAS_OBJECT.trim();
+			String currentPath = "";
+			for (String segment : StringUtils.tokenizeToStringArray(path, ".")) {
+				currentPath = currentPath.length() == 0 ? segment : currentPath + "." + segment;
+				String alias = aliases.get(currentPath);
+				if (alias == null) {
+					alias = "f" + aliases.size();
+					aliases.put(currentPath, alias);
+					queryBuilder.append(Constants.HQL_KEYWORD_LEFT_JOIN_FETCH).append(parentAlias).append('.').append(
+							segment).append(' ').append(alias).append(' ');
+				}
+				parentAlias = alias;
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * Build Query String, Using class and propertyFilters.
@@ -188,7 +286,7 @@ public class PersistenceUtils {
 				queryBuilder.delete(queryBuilder.length() - 5, queryBuilder.length());
 			}
 			
-			logger.info(" Build Query String With PropertyFilter: {}", queryBuilder.toString());
+			logger.debug(" Build Query String With PropertyFilter: {}", queryBuilder);
 		}
 		
 		return queryBuilder.toString();
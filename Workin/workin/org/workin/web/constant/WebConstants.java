@@ -21,6 +21,7 @@ public interface WebConstants {
 	public static final String RES_HEADER_KEY_IFMODIFIEDSINCE = "If-Modified-Since";
 	public static final String RES_HEADER_KEY_CONTENTDISPOSITION = "Content-Disposition";
 	public static final String RES_HEADER_KEY_CONTENT_ENCODING = "Content-Encoding";
+	public static final String RES_HEADER_KEY_RETRY_AFTER = "Retry-After";
 	
 	public static final String RES_HEADER_VARY = "Accept-Encoding";
 	public static final String RES_HEADER_ENCODING_GZIP = "gzip";	
@@ -71,6 +72,10 @@ public interface WebConstants {
 	public static final String PARAM_REQUEST_CALLBACK = "callback";
 	// Define parameter client response cache exprires sencond.
 	public static final String PARAM_EXPIRES_SECOND = "expiresSeconds";
+	// Define parameter bean name of cache warmer.
+	public static final String PARAM_CACHE_WARMER_BEAN_NAME = "cacheWarmerBeanName";
+	// Define parameter retry after seconds while warming up.
+	public static final String PARAM_RETRY_AFTER_SECONDS = "retryAfterSeconds";
 	
 	// Define default request parameter - page number.
 	public static final String RES_PARAM_PAGE_NUMBER = "pageNo";
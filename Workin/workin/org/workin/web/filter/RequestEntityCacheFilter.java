@@ -0,0 +1,56 @@
+package org.workin.web.filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.workin.core.persistence.cache.RequestEntityCache;
+
+/**
+ * 
+ * Open a RequestEntityCache for the request, so repeated findById/findUniqueByProperty lookups of
+ * AbstractBeanService hit the database once per request. The cache is removed at request end.
+ * 
+ * eg.
+ * 
+ * Web.xml
+ * 
+ * 	<filter>
+ * 		<filter-name>requestEntityCacheFilter</filter-name>
+ * 		<filter-class>org.workin.web.filter.RequestEntityCacheFilter</filter-class>
+ * 	</filter>
+ * 
+ * 	<filter-mapping>
+ * 		<filter-name>requestEntityCacheFilter</filter-name>
+ * 		<url-pattern>*.action</url-pattern>
+ * 	</filter-mapping>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class RequestEntityCacheFilter implements Filter {
+
+	@Override
+	public void destroy() {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+			ServletException {
+		RequestEntityCache.open();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			RequestEntityCache.close();
+		}
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+}
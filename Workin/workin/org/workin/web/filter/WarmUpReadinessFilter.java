@@ -0,0 +1,114 @@
+package org.workin.web.filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.workin.core.persistence.cache.CacheWarmer;
+import org.workin.spring.SpringContextHolder;
+import org.workin.web.constant.WebConstants;
+
+/**
+ * 
+ * Answer 503 Service Unavailable with Retry-After until the cache warm-up is finished.
+ * 
+ * Map it to the health check URL of the load balancer, so that a new node only gets traffic with warm caches.
+ * 
+ * eg.
+ * 
+ * Web.xml
+ * 
+ * 	<filter>
+ * 		<filter-name>warmUpReadinessFilter</filter-name>
+ * 		<filter-class>org.workin.web.filter.WarmUpReadinessFilter</filter-class>
+ * 		<init-param>
+ * 			<param-name>cacheWarmerBeanName</param-name>
+ * 			<param-value>cacheWarmer</param-value>
+ * 		</init-param>
+ * 		<init-param>
+ * 			<param-name>retryAfterSeconds</param-name>
+ * 			<param-value>30</param-value>
+ * 		</init-param>
+ * 	</filter>
+ * 
+ * 	<filter-mapping>
+ * 		<filter-name>warmUpReadinessFilter</filter-name>
+ * 		<url-pattern>/health/*</url-pattern>
+ * 	</filter-mapping>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class WarmUpReadinessFilter implements Filter {
+
+	private String cacheWarmerBeanName;
+
+	private String retryAfterSeconds;
+
+	private volatile CacheWarmer cacheWarmer;
+
+	@Override
+	public void destroy() {
+	}
+
+	/**
+	 * 
+	 * @param request
+	 * @param response
+	 * @param chain
+	 * @throws IOException
+	 * @throws ServletException
+	 * 
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+			ServletException {
+		if (!isReady()) {
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader(WebConstants.RES_HEADER_KEY_RETRY_AFTER, retryAfterSeconds);
+			httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Cache warm-up in progress.");
+			return;
+		}
+		chain.doFilter(request, response);
+	}
+
+	/**
+	 * 
+	 * @param filterConfig
+	 * 
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) {
+		cacheWarmerBeanName = filterConfig.getInitParameter(WebConstants.PARAM_CACHE_WARMER_BEAN_NAME);
+		if (cacheWarmerBeanName == null) {
+			cacheWarmerBeanName = DEFAULT_CACHE_WARMER_BEAN_NAME;
+		}
+
+		retryAfterSeconds = filterConfig.getInitParameter(WebConstants.PARAM_RETRY_AFTER_SECONDS);
+		if (retryAfterSeconds == null) {
+			retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+		}
+	}
+
+	private boolean isReady() {
+		if (cacheWarmer == null) {
+			try {
+				cacheWarmer = SpringContextHolder.getBean(cacheWarmerBeanName);
+			} catch (IllegalStateException e) {
+				// Application context is not refreshed yet.
+				return false;
+			}
+		}
+		return cacheWarmer.isReady();
+	}
+
+	private static final String DEFAULT_CACHE_WARMER_BEAN_NAME = "cacheWarmer";
+
+	private static final String DEFAULT_RETRY_AFTER_SECONDS = "30";
+}
@@ -0,0 +1,94 @@
+package org.workin.web.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+import org.workin.jms.support.MessagePipelineMetrics;
+import org.workin.web.constant.WebConstants;
+
+/**
+ * 
+ * Print the metrics of MessagePipelineMetrics and the queue depths as tab separated text, GET prints and
+ * POST resets.
+ * 
+ * eg.
+ * 
+ * Web.xml: 
+ * 		<servlet>
+ *			<servlet-name>messagePipelineServlet</servlet-name>
+ *			<servlet-class>org.workin.web.servlet.MessagePipelineServlet</servlet-class>
+ *			<init-param>
+ *				<param-name>metricsBeanName</param-name>
+ *				<param-value>messagePipelineMetrics</param-value>
+ *			</init-param>
+ *		</servlet>
+ *		
+ *		<servlet-mapping>
+ *			<servlet-name>messagePipelineServlet</servlet-name>
+ *			<url-pattern>/admin/message-pipeline</url-pattern>
+ *		</servlet-mapping>
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ * 
+ */
+public class MessagePipelineServlet extends HttpServlet {
+
+	private static final long serialVersionUID = -3158127620935217164L;
+
+	private MessagePipelineMetrics metrics;
+
+	@Override
+	public void init() throws ServletException {
+		String beanName = StringUtils.defaultIfEmpty(getInitParameter(PARAM_METRICS_BEAN_NAME),
+				DEFAULT_METRICS_BEAN_NAME);
+		ApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+		metrics = (MessagePipelineMetrics) context.getBean(beanName);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.setContentType(WebConstants.CONTENT_TYPE_TEXT_PLAIN);
+		response.setCharacterEncoding(WebConstants.CONTENT_ENCODING_UTF8);
+		response.setHeader(WebConstants.RES_HEADER_KEY_CACHECONTROL, WebConstants.RES_HEADER_NOCACHE);
+
+		PrintWriter writer = response.getWriter();
+		writer.print("# processed: ");
+		writer.print(metrics.getProcessedCount());
+		writer.print(", failed: ");
+		writer.println(metrics.getFailedCount());
+		writer.println(MessagePipelineMetrics.HEADER);
+		for (String line : metrics.typeStatistics()) {
+			writer.println(line);
+		}
+
+		writer.println();
+		writer.println("queue\tdepth");
+		for (Map.Entry<String, Long> entry : metrics.getQueueDepths().entrySet()) {
+			writer.print(entry.getKey());
+			writer.print('\t');
+			writer.println(entry.getValue());
+		}
+		writer.flush();
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		metrics.reset();
+		response.sendRedirect(request.getRequestURI());
+	}
+
+	private static final String PARAM_METRICS_BEAN_NAME = "metricsBeanName";
+
+	private static final String DEFAULT_METRICS_BEAN_NAME = "messagePipelineMetrics";
+}
@@ -0,0 +1,124 @@
+package org.workin.web.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+import org.workin.core.persistence.jdbc.SqlProfiler;
+import org.workin.core.persistence.jdbc.SqlStatementSummary;
+import org.workin.web.constant.WebConstants;
+
+/**
+ * 
+ * Print the statement aggregates of SqlProfiler as tab separated text, GET prints and POST resets.
+ * 
+ * eg.
+ * 
+ * Web.xml: 
+ * 		<servlet>
+ *			<servlet-name>sqlProfilerServlet</servlet-name>
+ *			<servlet-class>org.workin.web.servlet.SqlProfilerServlet</servlet-class>
+ *			<init-param>
+ *				<param-name>sqlProfilerBeanName</param-name>
+ *				<param-value>sqlProfiler</param-value>
+ *			</init-param>
+ *		</servlet>
+ *		
+ *		<servlet-mapping>
+ *			<servlet-name>sqlProfilerServlet</servlet-name>
+ *			<url-pattern>/admin/sql-profile</url-pattern>
+ *		</servlet-mapping>
+ *	
+ * Client call:
+ *		${ctx}/admin/sql-profile?sort=p99&top=20
+ *
+ *		sort: total(default), p99, max, count
+ *
+ * Map it behind the security filter, the statements can contain table and column names.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ * 
+ */
+public class SqlProfilerServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 7315870926853306154L;
+
+	private SqlProfiler sqlProfiler;
+
+	@Override
+	public void init() throws ServletException {
+		String beanName = StringUtils.defaultIfEmpty(getInitParameter(PARAM_SQL_PROFILER_BEAN_NAME),
+				DEFAULT_SQL_PROFILER_BEAN_NAME);
+		ApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+		sqlProfiler = (SqlProfiler) context.getBean(beanName);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		int top = NumberUtils.toInt(request.getParameter(PARAM_TOP), DEFAULT_TOP);
+		List<SqlStatementSummary> summaries = sqlProfiler.getSummaries(getComparator(request
+				.getParameter(PARAM_SORT)), top);
+
+		response.setContentType(WebConstants.CONTENT_TYPE_TEXT_PLAIN);
+		response.setCharacterEncoding(WebConstants.CONTENT_ENCODING_UTF8);
+		response.setHeader(WebConstants.RES_HEADER_KEY_CACHECONTROL, WebConstants.RES_HEADER_NOCACHE);
+
+		PrintWriter writer = response.getWriter();
+		writer.print("# enabled: ");
+		writer.print(sqlProfiler.isEnabled());
+		writer.print(", statements: ");
+		writer.print(sqlProfiler.getStatementCount());
+		writer.print(", shapes: ");
+		writer.println(sqlProfiler.getShapeCount());
+		writer.println(SqlStatementSummary.HEADER);
+		for (SqlStatementSummary summary : summaries) {
+			writer.println(summary);
+		}
+		writer.flush();
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		sqlProfiler.reset();
+		response.sendRedirect(request.getRequestURI());
+	}
+
+	private static Comparator<SqlStatementSummary> getComparator(final String sort) {
+		if (SORT_P99.equals(sort)) {
+			return SqlProfiler.BY_P99;
+		} else if (SORT_MAX.equals(sort)) {
+			return SqlProfiler.BY_MAX;
+		} else if (SORT_COUNT.equals(sort)) {
+			return SqlProfiler.BY_COUNT;
+		}
+		return SqlProfiler.BY_TOTAL_TIME;
+	}
+
+	private static final String PARAM_SQL_PROFILER_BEAN_NAME = "sqlProfilerBeanName";
+
+	private static final String DEFAULT_SQL_PROFILER_BEAN_NAME = "sqlProfiler";
+
+	private static final String PARAM_SORT = "sort";
+
+	private static final String PARAM_TOP = "top";
+
+	private static final int DEFAULT_TOP = 50;
+
+	private static final String SORT_P99 = "p99";
+
+	private static final String SORT_MAX = "max";
+
+	private static final String SORT_COUNT = "count";
+}
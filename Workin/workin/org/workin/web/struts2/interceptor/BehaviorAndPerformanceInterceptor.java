@@ -3,9 +3,8 @@ package org.workin.web.struts2.interceptor;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -13,10 +12,16 @@ import org.apache.struts2.ServletActionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.workin.core.persistence.jdbc.QueryCountContext;
+import org.workin.core.persistence.jdbc.QueryCountMonitor;
 import org.workin.exception.NestedRuntimeException;
 import org.workin.jms.producer.DefaultMessageProducer;
+import org.workin.jms.producer.MessageProducer;
 import org.workin.spring.security.SpringSecurityUtils;
 import org.workin.trace.domain.BehaviorPerformance;
+import org.workin.trace.support.BehaviorRollupAggregator;
+import org.workin.trace.support.TraceSampler;
 import org.workin.util.DateUtils;
 import org.workin.util.StringUtils;
 
@@ -34,22 +39,40 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 
 	private static final long serialVersionUID = -6462877210798477795L;
 
+	// Producer of the trace entities, see traceMessageProducer in applicationContext-jms.xml.
 	@Autowired(required = true)
-	private DefaultMessageProducer defaultMessageProducer;
+	@Qualifier("traceMessageProducer")
+	private MessageProducer messageProducer;
+
+	// Latency rollups per URI, off if not configured.
+	@Autowired(required = false)
+	private BehaviorRollupAggregator rollupAggregator;
+
+	// Sampling of the traced requests, all are traced if not configured.
+	@Autowired(required = false)
+	private TraceSampler traceSampler;
+
+	// Statement counting of the action, off if not configured.
+	@Autowired(required = false)
+	private QueryCountMonitor queryCountMonitor;
 
 	// Use can switch interceptor on or off flag.
 	private String onOff;
 
+	// Use can switch one BehaviorPerformance per request on or off, rollups are recorded either way.
+	private String rawCapture;
+
 	// User define this parameter, for ignore request URI in this intercept action.
-	private Set<Pattern> ignoreRequestURIs;
+	private UriPatternMatcher ignoreRequestURIs;
 
 	// User define this parameter, for allowed request URI in this intercept action.
-	private Set<Pattern> allowedRequestURIs;
+	private UriPatternMatcher allowedRequestURIs;
 
 	public BehaviorAndPerformanceInterceptor() {
 		onOff = CONSTANT_PARAM_ON;
-		ignoreRequestURIs = Collections.emptySet();
-		allowedRequestURIs = Collections.emptySet();
+		rawCapture = CONSTANT_PARAM_ON;
+		ignoreRequestURIs = new UriPatternMatcher(Collections.<String> emptySet());
+		allowedRequestURIs = new UriPatternMatcher(Collections.<String> emptySet());
 	}
 
 	@Override
@@ -104,8 +127,19 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 		// AOP Before - obtain request datetime.
 		Date requestdttm = DateUtils.currentDateTime();
 
-		// Handle and execute action logic.
-		String result = invocation.invoke();
+		// Handle and execute action logic, count its statements if configured.
+		String result;
+		QueryCountContext queryCounts = null;
+		if (queryCountMonitor != null) {
+			queryCountMonitor.begin();
+		}
+		try {
+			result = invocation.invoke();
+		} finally {
+			if (queryCountMonitor != null) {
+				queryCounts = queryCountMonitor.end(request.getRequestURI());
+			}
+		}
 
 		// AOP After - obtain response datetime.
 		Date responsedttm = DateUtils.currentDateTime();
@@ -113,6 +147,27 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 		// At last calculate spent time between request and response.
 		long spentTime = responsedttm.getTime() - requestdttm.getTime();
 
+		if (rollupAggregator != null) {
+			rollupAggregator.record(request.getRequestURI(), rollupAggregator.isPerUser() ? getUserName() : null,
+					spentTime);
+		}
+		if (CONSTANT_PARAM_OFF.equalsIgnoreCase(rawCapture)) {
+			return result;
+		}
+
+		// Sample before building the entity, so a dropped request costs no user or IP lookup. Requests flagged
+		// with N+1 statements are always kept.
+		List<Map.Entry<String, Integer>> repeatedShapes = queryCounts == null ? Collections
+				.<Map.Entry<String, Integer>> emptyList() : queryCounts.getRepeatedShapes(queryCountMonitor
+				.getRepeatThreshold());
+		double sampleWeight = 1;
+		if (traceSampler != null && repeatedShapes.isEmpty()) {
+			sampleWeight = traceSampler.sample(request.getRequestURI(), spentTime);
+			if (sampleWeight == 0) {
+				return result;
+			}
+		}
+
 		// Store entity to db(BehaviorPerformance).
 		BehaviorPerformance entity = new BehaviorPerformance();
 		entity.setUserId(getUserId());
@@ -122,62 +177,75 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 		entity.setRequestdttm(requestdttm);
 		entity.setResponsedttm(responsedttm);
 		entity.setSpentTime(spentTime);
+		entity.setSampleWeight(sampleWeight);
+		if (queryCounts != null) {
+			setQueryCounts(entity, queryCounts, repeatedShapes);
+		}
 
 		// Use JMS(ActiveMQ) send Queue, implement async store entity to db(BehaviorPerformance).
-		defaultMessageProducer.sendQueue(entity);
+		messageProducer.sendQueue(entity);
 
 		return result;
 	}
 
+	/**
+	 * 
+	 * Copy the statement counts of the action to entity.
+	 * 
+	 * @param entity
+	 * @param queryCounts
+	 * @param repeatedShapes
+	 * 			- statement shapes over the N+1 threshold, most repeated first
+	 * 
+	 */
+	private void setQueryCounts(final BehaviorPerformance entity, final QueryCountContext queryCounts,
+			final List<Map.Entry<String, Integer>> repeatedShapes) {
+		entity.setStatementCount(queryCounts.getStatementCount());
+		entity.setRowCount(queryCounts.getRowCount());
+		entity.setJdbcTime(queryCounts.getJdbcTimeMillis());
+
+		if (!repeatedShapes.isEmpty()) {
+			String shape = repeatedShapes.get(0).getKey();
+			entity.setRepeatedStatement(shape.length() > MAX_STATEMENT_LENGTH ? shape.substring(0,
+					MAX_STATEMENT_LENGTH) : shape);
+			entity.setRepeatedStatementCount(repeatedShapes.get(0).getValue().intValue());
+		}
+	}
+
 	/**
 	 * 
 	 * Is match allowed request URIs?.
 	 * 
-	 * @param allowdPattenCollection
+	 * @param allowedMatcher
 	 * @param requestURI
 	 * 
 	 * @return
 	 * 
 	 */
-	protected static final boolean matchAllowedRequestURIs(Collection<Pattern> allowdPattenCollection, String requestURI) {
+	protected static final boolean matchAllowedRequestURIs(UriPatternMatcher allowedMatcher, String requestURI) {
 		if (!StringUtils.hasText(requestURI)) {
 			return false;
 		}
 
-		for (Pattern allowdPatten : allowdPattenCollection) {
-			logger.debug("In Struts2 Config file, Defined allowed request URI Patten: {}", allowdPatten);
-			
-			if(allowdPatten.matcher(requestURI).matches()) {
-				return true;
-			}
-		}
-
-		return false;
+		return allowedMatcher.matches(requestURI);
 	}
 
 	/**
 	 * 
 	 * Is match ignore request URIs?.
 	 * 
-	 * @param ignorePattenCollection
+	 * @param ignoreMatcher
 	 * @param requestURI
 	 * 
 	 * @return
 	 * 
 	 */
-	protected static final boolean matchIgnoreRequestURIs(Collection<Pattern> ignorePattenCollection, String requestURI) {
+	protected static final boolean matchIgnoreRequestURIs(UriPatternMatcher ignoreMatcher, String requestURI) {
 		if (!StringUtils.hasText(requestURI)) {
 			return true;
 		}
 
-		for (Pattern ignorePatten : ignorePattenCollection) {
-			logger.debug("In Struts2 Config file, Defined ignore request URI Patten: {}", ignorePatten);
-			if(ignorePatten.matcher(requestURI).matches()) {
-				return true;
-			}
-		}
-
-		return false;
+		return ignoreMatcher.matches(requestURI);
 	}
 
 	/**
@@ -246,17 +314,33 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 		return TextParseUtil.commaDelimitedStringToSet(commaDelim);
 	}
 
+	public void setRollupAggregator(BehaviorRollupAggregator rollupAggregator) {
+		this.rollupAggregator = rollupAggregator;
+	}
+
+	public void setTraceSampler(TraceSampler traceSampler) {
+		this.traceSampler = traceSampler;
+	}
+
+	public void setMessageProducer(MessageProducer messageProducer) {
+		this.messageProducer = messageProducer;
+	}
+
+	/**
+	 * 
+	 * @deprecated use setMessageProducer, kept for the XML wiring of earlier versions.
+	 * 
+	 */
+	@Deprecated
 	public void setDefaultMessageProducer(DefaultMessageProducer defaultMessageProducer) {
-		this.defaultMessageProducer = defaultMessageProducer;
+		this.messageProducer = defaultMessageProducer;
 	}
 
 	public void setIgnoreRequestURIs(String stringOfIgnoreRequestURIs) {
 	    Collection<String> patterns = asCollection(stringOfIgnoreRequestURIs);
 	    
 	    if (patterns != null) {
-	      this.ignoreRequestURIs = new HashSet<Pattern>();
-	      for (String pattern : patterns)
-	        this.ignoreRequestURIs.add(Pattern.compile(pattern));
+	      this.ignoreRequestURIs = new UriPatternMatcher(patterns);
 	    }
 	}
 
@@ -264,9 +348,7 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 	    Collection<String> patterns = asCollection(allowedRequestURIs);
 	    
 	    if (patterns != null) {
-	      this.allowedRequestURIs = new HashSet<Pattern>();
-	      for (String pattern : patterns)
-	        this.allowedRequestURIs.add(Pattern.compile(pattern));
+	      this.allowedRequestURIs = new UriPatternMatcher(patterns);
 	    }
 	}
 
@@ -274,9 +356,19 @@ public class BehaviorAndPerformanceInterceptor extends AbstractInterceptor {
 		this.onOff = onOff;
 	}
 
+	public void setRawCapture(String rawCapture) {
+		this.rawCapture = rawCapture;
+	}
+
+	public void setQueryCountMonitor(QueryCountMonitor queryCountMonitor) {
+		this.queryCountMonitor = queryCountMonitor;
+	}
+
 	private static final String CONSTANT_PARAM_ON = "on";
 
 	private static final String CONSTANT_PARAM_OFF = "off";
 
+	private static final int MAX_STATEMENT_LENGTH = 1000;
+
 	private transient static final Logger logger = LoggerFactory.getLogger(BehaviorAndPerformanceInterceptor.class);
 }
@@ -0,0 +1,224 @@
+package org.workin.web.struts2.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * 
+ * URI patterns(regex, matched against the whole URI) compiled into one matcher.
+ * 
+ * 	1) Literal patterns, eg. "/login\.action", and literal prefixes followed by ".*", eg. "/static/.*", go to a
+ * 	   character trie, checked in one walk along the URI.
+ * 	2) The other patterns are joined into one alternation, so the URI is scanned by a single Pattern.
+ * 	3) Patterns with back references keep their own Pattern, the join would renumber their groups.
+ * 
+ * Decisions are cached per URI, the cache is cleared when it holds maxCacheSize URIs, so URIs with ids in
+ * their path cannot grow it without bound.
+ * 
+ * @author <a href="mailto:goingmm@gmail.com">G.Lee</a>
+ *
+ */
+public class UriPatternMatcher {
+
+	private final TrieNode trie = new TrieNode();
+
+	private final Pattern combinedPattern;
+
+	private final List<Pattern> standalonePatterns = new ArrayList<Pattern>();
+
+	private final int patternCount;
+
+	private final int maxCacheSize;
+
+	private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<String, Boolean>();
+
+	public UriPatternMatcher(final Collection<String> patterns) {
+		this(patterns, DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	public UriPatternMatcher(final Collection<String> patterns, final int maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+
+		StringBuilder combined = new StringBuilder();
+		int count = 0;
+		for (String pattern : patterns) {
+			// Fail on a bad pattern as Pattern.compile did, whichever branch it takes.
+			Pattern compiled = Pattern.compile(pattern);
+			count++;
+
+			if (addLiteral(pattern)) {
+				continue;
+			}
+			if (BACK_REFERENCE.matcher(pattern).find()) {
+				standalonePatterns.add(compiled);
+				continue;
+			}
+			if (combined.length() > 0) {
+				combined.append('|');
+			}
+			combined.append("(?:").append(pattern).append(')');
+		}
+		this.patternCount = count;
+		this.combinedPattern = combined.length() == 0 ? null : Pattern.compile(combined.toString());
+	}
+
+	/**
+	 * 
+	 * Does any pattern match the whole requestURI?
+	 * 
+	 * @param requestURI
+	 * @return boolean
+	 * 
+	 */
+	public boolean matches(final String requestURI) {
+		Boolean decision = decisions.get(requestURI);
+		if (decision == null) {
+			decision = Boolean.valueOf(match(requestURI));
+			if (decisions.size() >= maxCacheSize) {
+				decisions.clear();
+			}
+			decisions.put(requestURI, decision);
+		}
+		return decision.booleanValue();
+	}
+
+	public boolean isEmpty() {
+		return patternCount == 0;
+	}
+
+	public int getPatternCount() {
+		return patternCount;
+	}
+
+	private boolean match(final String requestURI) {
+		if (trie.matches(requestURI)) {
+			return true;
+		}
+		if (combinedPattern != null && combinedPattern.matcher(requestURI).matches()) {
+			return true;
+		}
+		for (Pattern pattern : standalonePatterns) {
+			if (pattern.matcher(requestURI).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * Add pattern to the trie, if it is a literal or a literal prefix followed by ".*".
+	 * 
+	 * @param pattern
+	 * @return boolean
+	 * 			- false if the pattern needs a regex
+	 * 
+	 */
+	private boolean addLiteral(final String pattern) {
+		StringBuilder literal = new StringBuilder(pattern.length());
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (c == '\\') {
+				// Only escaped punctuation is a literal, "\d", "\Q" and the like are not.
+				if (i + 1 >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+					return false;
+				}
+				literal.append(pattern.charAt(i + 1));
+				i += 2;
+			} else if (META_CHARACTERS.indexOf(c) >= 0) {
+				break;
+			} else {
+				literal.append(c);
+				i++;
+			}
+		}
+
+		String rest = pattern.substring(i);
+		if (rest.length() == 0) {
+			trie.add(literal, false);
+			return true;
+		}
+		if (ANY_SUFFIX.equals(rest)) {
+			trie.add(literal, true);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * Character trie of the literals and literal prefixes.
+	 * 
+	 */
+	private static final class TrieNode {
+
+		private Map<Character, TrieNode> children;
+
+		// A literal ends here.
+		private boolean exact;
+
+		// A literal prefix ends here, any suffix matches.
+		private boolean prefix;
+
+		void add(final CharSequence literal, final boolean isPrefix) {
+			TrieNode node = this;
+			for (int i = 0; i < literal.length(); i++) {
+				Character c = Character.valueOf(literal.charAt(i));
+				if (node.children == null) {
+					node.children = new HashMap<Character, TrieNode>();
+				}
+				TrieNode child = node.children.get(c);
+				if (child == null) {
+					child = new TrieNode();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			if (isPrefix) {
+				node.prefix = true;
+			} else {
+				node.exact = true;
+			}
+		}
+
+		boolean matches(final String requestURI) {
+			TrieNode node = this;
+			for (int i = 0; i < requestURI.length(); i++) {
+				// ".*" does not match line terminators.
+				if (node.prefix && !hasLineTerminator(requestURI, i)) {
+					return true;
+				}
+				node = node.children == null ? null : node.children.get(Character.valueOf(requestURI.charAt(i)));
+				if (node == null) {
+					return false;
+				}
+			}
+			return node.exact || node.prefix;
+		}
+
+		private static boolean hasLineTerminator(final String requestURI, final int from) {
+			for (int i = from; i < requestURI.length(); i++) {
+				char c = requestURI.charAt(i);
+				if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	public static final int DEFAULT_MAX_CACHE_SIZE = 4096;
+
+	private static final String META_CHARACTERS = ".[]{}()*+?^$|";
+
+	private static final String ANY_SUFFIX = ".*";
+
+	private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]");
+}